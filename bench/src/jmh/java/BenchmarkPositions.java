@@ -0,0 +1,212 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * BenchmarkPositions builds the fixed suite of mid-game positions the benchmarks run on, and wraps the
+ * code being measured in static methods taking plain Objects.
+ *
+ * JMH won't run benchmarks in the default package, and classes in a named package can't refer to the
+ * game's classes, which are all in the default package. So the benchmarks in the bench package look these
+ * methods up once as MethodHandles, and everything they touch is only named here.
+ *
+ * The positions come from games played with a fixed seed: each side mostly steps along its shortest path
+ * and sometimes places a wall. Only positions where it's player 2's turn (the AI's side) and some wall would
+ * be rejected for blocking a path are used, so every benchmark can run on every position.
+ */
+public class BenchmarkPositions {
+
+	public static final int POSITION_COUNT = 8;
+	private static final long SEED = 20160426L;
+	private static final int[] PLIES = {13, 19, 25, 31};
+
+	private static final String[] COMMANDS = {
+		"play e3h 1",
+		"play e7 2",
+		"move 4 5 1",
+		"wall 3 3 HORIZONTAL 2",
+		"remove-wall 6 2 VERTICAL 1"
+	};
+
+	private static ArrayList<int[]> games;
+
+	/**
+	 * @return the moves leading to each position in the suite
+	 */
+	private static synchronized ArrayList<int[]> games() {
+		if (games == null) {
+			games = new ArrayList<int[]>();
+			Random random = new Random(SEED);
+			while (games.size() < POSITION_COUNT) {
+				playGame(random.nextLong());
+			}
+		}
+		return games;
+	}
+
+	private static void playGame(long seed) {
+		Random random = new Random(seed);
+		StandardBoard board = new StandardBoard(false);
+		int[] moves = new int[PLIES[PLIES.length - 1]];
+		int nextPly = 0;
+		for (int ply = 0; ply < moves.length && games.size() < POSITION_COUNT; ply++) {
+			Player player = board.getCurrentPlayer();
+			int move = -1;
+			if (player.hasWalls() && random.nextInt(10) < 3) {
+				for (int attempt = 0; attempt < 20 && move < 0; attempt++) {
+					int x = random.nextInt(8);
+					int y = random.nextInt(8);
+					WallPlacement orientation = random.nextBoolean() ? WallPlacement.HORIZONTAL : WallPlacement.VERTICAL;
+					if (board.wallPlacementIsLegal(x, y, orientation)) {
+						move = MoveCodec.wall(player.getID(), x, y, orientation);
+					}
+				}
+			}
+			if (move < 0) {
+				Position step = shortestPathStep(board, player);
+				if (step == null) {
+					return;
+				}
+				move = MoveCodec.pawn(player.getID(), step.getX(), step.getY());
+			}
+			MoveCodec.apply(board, move);
+			moves[ply] = move;
+			if (board.getPlayer1().getPosition().isBottom() || board.getPlayer2().getPosition().isTop()) {
+				return;
+			}
+			if (ply + 1 == PLIES[nextPly]) {
+				nextPly++;
+				if (board.getCurrentPlayer() == board.getPlayer2() && blockingWall(board) >= 0) {
+					int[] prefix = new int[ply + 1];
+					System.arraycopy(moves, 0, prefix, 0, prefix.length);
+					games.add(prefix);
+				}
+			}
+		}
+	}
+
+	private static Position shortestPathStep(Board board, Player player) {
+		int goal = (player == board.getPlayer1()) ? 8 : 0;
+		Position best = null;
+		int bestLength = Integer.MAX_VALUE;
+		for (Position position : board.getCurrentPlayerOccupiablePositions()) {
+			int length = Utility.shortestPathLenght(board.getPositions(), position, goal);
+			if (length >= 0 && length < bestLength) {
+				best = position;
+				bestLength = length;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return a new board set up as the given position of the suite
+	 */
+	public static Object board(int position) {
+		StandardBoard board = new StandardBoard(false);
+		for (int move : games().get(position)) {
+			MoveCodec.apply(board, move);
+		}
+		return board;
+	}
+
+	/**
+	 * @return a wall the current player could place, encoded by MoveCodec
+	 */
+	public static int legalWall(Object board) {
+		Board b = (Board) board;
+		for (int y = 7; y >= 0; y--) {
+			for (int x = 0; x < 8; x++) {
+				if (b.wallPlacementIsLegal(x, y, WallPlacement.HORIZONTAL)) {
+					return MoveCodec.wall(b.getCurrentPlayer().getID(), x, y, WallPlacement.HORIZONTAL);
+				}
+			}
+		}
+		throw new IllegalStateException("No legal wall");
+	}
+
+	/**
+	 * @return a wall which fits on the board but would cut a player off from their goal, or -1 if there are none
+	 */
+	public static int blockingWall(Object board) {
+		Board b = (Board) board;
+		if (!b.getCurrentPlayer().hasWalls()) {
+			return -1;
+		}
+		for (int y = 0; y < 8; y++) {
+			for (int x = 0; x < 8; x++) {
+				for (WallPlacement orientation : new WallPlacement[] {WallPlacement.HORIZONTAL, WallPlacement.VERTICAL}) {
+					if (b.wallPlacementIsValid(b.getPosition(x, y), orientation) && !b.wallPlacementIsLegal(x, y, orientation)) {
+						return MoveCodec.wall(b.getCurrentPlayer().getID(), x, y, orientation);
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	public static int shortestPaths(Object board) {
+		Board b = (Board) board;
+		return Utility.shortestPathLenght(b.getPositions(), b.getPlayer1().getPosition(), 8)
+				+ Utility.shortestPathLenght(b.getPositions(), b.getPlayer2().getPosition(), 0);
+	}
+
+	public static int occupiablePositions(Object board) {
+		return ((Board) board).getCurrentPlayerOccupiablePositions().size();
+	}
+
+	/**
+	 * Place a wall with StandardBoard.placeWalls, then take it back so the board is as it was
+	 */
+	public static int placeWall(Object board, int wall) {
+		StandardBoard b = (StandardBoard) board;
+		Player player = b.getCurrentPlayer();
+		int x = MoveCodec.x(wall);
+		int y = MoveCodec.y(wall);
+		b.placeWalls(x, y, MoveCodec.orientation(wall));
+		b.removeWalls(b.getPosition(x, y), MoveCodec.orientation(wall));
+		player.incrementWallCount();
+		player.setMoveCount(player.getMoveCount() - 1);
+		b.setCurrentPlayer(player);
+		return player.getWallCount();
+	}
+
+	/**
+	 * Try to place a wall which StandardBoard.placeWalls rejects for blocking a path
+	 */
+	public static int rejectBlockingWall(Object board, int wall) {
+		try {
+			((StandardBoard) board).placeWalls(MoveCodec.x(wall), MoveCodec.y(wall), MoveCodec.orientation(wall));
+		} catch (IllegalStateException e) {
+			return 1;
+		}
+		throw new IllegalStateException("Blocking wall was placed");
+	}
+
+	public static long perft(Object board, int depth) {
+		return Perft.perft((Board) board, depth);
+	}
+
+	public static Object newAI(Object board) {
+		StandardBoard b = (StandardBoard) board;
+		return new AI(b, b.getPlayer2(), EvaluationNoise.NONE, EvaluationWeights.builtIn());
+	}
+
+	public static Object minimax(Object ai, int depth) {
+		return ((AI) ai).Minimax(depth);
+	}
+
+	public static int commandCount() {
+		return COMMANDS.length;
+	}
+
+	public static String command(int index) {
+		return COMMANDS[index];
+	}
+
+	/**
+	 * Split and parse a line from a client as ClientSocketIOThread does
+	 */
+	public static int parseCommand(String line) {
+		return ClientSocketIOThread.parseMove(ClientSocketIOThread.splitCommand(line));
+	}
+}
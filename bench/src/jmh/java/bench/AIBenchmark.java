@@ -0,0 +1,33 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The AI's minimax search, at each depth, on each position of the suite
+ */
+@State(Scope.Thread)
+public class AIBenchmark {
+
+	@Param({"1", "2", "3"})
+	public int depth;
+
+	@Param({"0", "1", "2", "3", "4", "5", "6", "7"})
+	public int position;
+
+	private Object ai;
+
+	@Setup
+	public void setUp() throws Throwable {
+		Object board = (Object) Targets.BOARD.invokeExact(position);
+		ai = (Object) Targets.NEW_AI.invokeExact(board);
+	}
+
+	@Benchmark
+	public Object minimax() throws Throwable {
+		return (Object) Targets.MINIMAX.invokeExact(ai, depth);
+	}
+}
@@ -0,0 +1,33 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counting every move sequence two moves deep, which is almost all move generation and path checks
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PerftBenchmark {
+
+	@Param({"0", "1", "2", "3", "4", "5", "6", "7"})
+	public int position;
+
+	private Object board;
+
+	@Setup
+	public void setUp() throws Throwable {
+		board = (Object) Targets.BOARD.invokeExact(position);
+	}
+
+	@Benchmark
+	public long perft2() throws Throwable {
+		return (long) Targets.PERFT.invokeExact(board, 2);
+	}
+}
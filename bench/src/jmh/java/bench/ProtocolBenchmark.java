@@ -0,0 +1,33 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Splitting and parsing the move commands clients send, in each form ClientSocketIOThread accepts
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProtocolBenchmark {
+
+	@Param({"0", "1", "2", "3", "4"})
+	public int command;
+
+	private String line;
+
+	@Setup
+	public void setUp() throws Throwable {
+		line = (String) Targets.COMMAND.invokeExact(command);
+	}
+
+	@Benchmark
+	public int parseMove() throws Throwable {
+		return (int) Targets.PARSE_COMMAND.invokeExact(line);
+	}
+}
@@ -0,0 +1,48 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The rules engine on each position of the suite: path finding, pawn move generation and wall placement
+ */
+@State(Scope.Thread)
+public class RulesBenchmark {
+
+	@Param({"0", "1", "2", "3", "4", "5", "6", "7"})
+	public int position;
+
+	private Object board;
+	private int legalWall;
+	private int blockingWall;
+
+	@Setup
+	public void setUp() throws Throwable {
+		board = (Object) Targets.BOARD.invokeExact(position);
+		legalWall = (int) Targets.LEGAL_WALL.invokeExact(board);
+		blockingWall = (int) Targets.BLOCKING_WALL.invokeExact(board);
+	}
+
+	@Benchmark
+	public int shortestPathLength() throws Throwable {
+		return (int) Targets.SHORTEST_PATHS.invokeExact(board);
+	}
+
+	@Benchmark
+	public int occupiablePositions() throws Throwable {
+		return (int) Targets.OCCUPIABLE_POSITIONS.invokeExact(board);
+	}
+
+	@Benchmark
+	public int placeWall() throws Throwable {
+		return (int) Targets.PLACE_WALL.invokeExact(board, legalWall);
+	}
+
+	@Benchmark
+	public int placeWallBlockingPath() throws Throwable {
+		return (int) Targets.REJECT_BLOCKING_WALL.invokeExact(board, blockingWall);
+	}
+}
@@ -0,0 +1,37 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Handles on the methods of BenchmarkPositions, which is in the default package with the game's classes.
+ * They're static finals, so the JIT inlines calls through them just like direct calls.
+ */
+final class Targets {
+
+	static final MethodHandle BOARD = find("board", Object.class, int.class);
+	static final MethodHandle LEGAL_WALL = find("legalWall", int.class, Object.class);
+	static final MethodHandle BLOCKING_WALL = find("blockingWall", int.class, Object.class);
+	static final MethodHandle SHORTEST_PATHS = find("shortestPaths", int.class, Object.class);
+	static final MethodHandle OCCUPIABLE_POSITIONS = find("occupiablePositions", int.class, Object.class);
+	static final MethodHandle PLACE_WALL = find("placeWall", int.class, Object.class, int.class);
+	static final MethodHandle REJECT_BLOCKING_WALL = find("rejectBlockingWall", int.class, Object.class, int.class);
+	static final MethodHandle PERFT = find("perft", long.class, Object.class, int.class);
+	static final MethodHandle NEW_AI = find("newAI", Object.class, Object.class);
+	static final MethodHandle MINIMAX = find("minimax", Object.class, Object.class, int.class);
+	static final MethodHandle COMMAND = find("command", String.class, int.class);
+	static final MethodHandle PARSE_COMMAND = find("parseCommand", int.class, String.class);
+
+	private Targets() {
+	}
+
+	private static MethodHandle find(String name, Class<?> returnType, Class<?>... parameterTypes) {
+		try {
+			Class<?> positions = Class.forName("BenchmarkPositions");
+			return MethodHandles.publicLookup().findStatic(positions, name, MethodType.methodType(returnType, parameterTypes));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+}
@@ -8,20 +8,81 @@ import java.util.Stack;
 
 public class AI {
 
+	private static final Metrics.Counter SEARCHES = Metrics.counter("quoridor_ai_searches_total", "Moves chosen by the AI's minimax search");
+	private static final Metrics.Counter POSITIONS_EVALUATED = Metrics.counter("quoridor_ai_positions_evaluated_total", "Positions scored by the AI's evaluation function");
+	private static final Metrics.Counter BOOK_MOVES = Metrics.counter("quoridor_ai_book_moves_total", "Moves the AI took from its opening book instead of searching");
+	private static final Metrics.Histogram SEARCH_TIME = Metrics.histogram("quoridor_ai_search_microseconds", "Time taken by the AI's minimax search");
+
 	private StandardBoard AIBoard;
+	// The player the AI moves for, and the row each side is trying to reach
+	private Player player;
+	private Player opponent;
+	private int goal;
+	private int opponentGoal;
+	// The small amount added to each evaluation, so that the AI doesn't always play the same way
+	private EvaluationNoise noise;
+	// The ZobristHash of the position being searched, kept up to date only if the noise needs it
+	private boolean hashing;
+	private long hash;
+	private EvaluationWeights weights;
+	// Moves to play without searching, if any, and what chooses between them
+	private OpeningBook openingBook;
+	private Random bookRandom;
+	// When the current search has to finish by, if it has to, and whether it's run out of time
+	private boolean hasDeadline;
+	private long deadlineNanos;
+	private boolean timedOut;
+	// Positions evaluated during the current search; added to the metrics once the search is done
+	private int positionsEvaluated;
 	private ArrayList<Move> PossibleWallMoves;
 	private Stack<Position> previousPosPlayer1;
 	private Stack<Position> previousPosPlayer2;
 
         /**
-         * Constructor initialise all the wall moves
+         * Constructor for an AI playing player 2 in a two player game
          */
 
 	public AI(StandardBoard AIBoard) {
+		this(AIBoard, AIBoard.getPlayer2(), new Random());
+	}
+
+        /**
+         * Constructor initialise all the wall moves
+         * @param player the player the AI moves for, player 1 or 2 of a two player game
+         * @param random used to vary the AI's evaluations
+         */
+
+	public AI(StandardBoard AIBoard, Player player, Random random) {
+		this(AIBoard, player, EvaluationNoise.perGame(random), EvaluationWeights.getDefault());
+		setOpeningBook(OpeningBook.getDefault(), random);
+	}
+
+        /**
+         * @param noise added to each evaluation; EvaluationNoise.NONE makes the AI's choices repeatable
+         * @param weights the weights the evaluation gives to each feature of a position
+         */
+
+	public AI(StandardBoard AIBoard, Player player, EvaluationNoise noise, EvaluationWeights weights) {
 		this.AIBoard = AIBoard;
-		PossibleWallMoves = new ArrayList<Move>(128);
-		for (int x = 0; x < 8; x++) {
-			for (int y = 0; y < 8; y++) {
+		this.player = player;
+		this.noise = noise;
+		this.hashing = noise.usesPositionHash();
+		this.weights = weights;
+		int lastRow = AIBoard.getSize() - 1;
+		if (player == AIBoard.getPlayer1()) {
+			opponent = AIBoard.getPlayer2();
+			goal = lastRow;
+			opponentGoal = 0;
+		} else if (player == AIBoard.getPlayer2()) {
+			opponent = AIBoard.getPlayer1();
+			goal = 0;
+			opponentGoal = lastRow;
+		} else {
+			throw new IllegalArgumentException("The AI plays player 1 or 2");
+		}
+		PossibleWallMoves = new ArrayList<Move>(2 * lastRow * lastRow);
+		for (int x = 0; x < lastRow; x++) {
+			for (int y = 0; y < lastRow; y++) {
 				Move WallMove1 = new Move(y, x, WallPlacement.VERTICAL);
 				Move WallMove2 = new Move(y, x, WallPlacement.HORIZONTAL);
 				PossibleWallMoves.add(WallMove1);
@@ -41,6 +102,87 @@ public class AI {
          */
 
 	public Move Minimax(int depth) {
+		Move booked = bookMove();
+		if (booked != null) {
+			return booked;
+		}
+		hasDeadline = false;
+		return search(depth);
+	}
+
+        /**
+         * Search one ply deeper at a time, up to the given depth, until the time runs out. The one ply
+         * search is always finished
+         * @return the best move found by the deepest search finished in time
+         */
+
+	public Move Minimax(int maxDepth, long millis) {
+		Move booked = bookMove();
+		if (booked != null) {
+			return booked;
+		}
+		long deadline = System.nanoTime() + millis * 1000000;
+		hasDeadline = false;
+		Move bestMove = search(1);
+		for (int depth = 2; depth <= maxDepth; depth++) {
+			hasDeadline = true;
+			deadlineNanos = deadline;
+			Move move = search(depth);
+			if (timedOut) {
+				break;
+			}
+			bestMove = move;
+		}
+		hasDeadline = false;
+		return bestMove;
+	}
+
+        /**
+         * Use an opening book, which Minimax will play from before searching
+         * @param book the book, or null for none
+         * @param random chooses between the book's moves in proportion to their weights, or null to always
+         * play the heaviest
+         */
+
+	public void setOpeningBook(OpeningBook book, Random random) {
+		this.openingBook = book;
+		this.bookRandom = random;
+	}
+
+        /**
+         * @return the opening book's move for the current position, or null if it has none, or none legal
+         */
+
+	private Move bookMove() {
+		if (openingBook == null || AIBoard.getCurrentPlayer() != player) {
+			return null;
+		}
+		int code = openingBook.choose(ZobristHash.hash(AIBoard), bookRandom);
+		if (code < 0 || !Perft.isLegal(AIBoard, code)) {
+			return null;
+		}
+		BOOK_MOVES.increment();
+		return new Move(MoveCodec.x(code), MoveCodec.y(code), MoveCodec.orientation(code));
+	}
+
+        /**
+         * @return whether the current search has run out of time, in which case its result is thrown away
+         */
+
+	private boolean outOfTime() {
+		if (!timedOut && hasDeadline && System.nanoTime() - deadlineNanos > 0) {
+			timedOut = true;
+		}
+		return timedOut;
+	}
+
+	private Move search(int depth) {
+		long startNanos = System.nanoTime();
+		timedOut = false;
+		if (hashing) {
+			hash = ZobristHash.hash(AIBoard);
+		}
+		positionsEvaluated = 0;
 		int highestScore = -99999999;
 		Move bestMove = null;
 
@@ -50,9 +192,8 @@ public class AI {
 				continue;
 			move(AIBoard, move);
 
-			int PlayerLenght = Utility.shortestPathLenght(AIBoard.getPositions(), AIBoard.getPlayer1().getPosition(),
-					8);
-			int AILength = Utility.shortestPathLenght(AIBoard.getPositions(), AIBoard.getPlayer2().getPosition(), 0);
+			int PlayerLenght = Utility.shortestPathLenght(AIBoard.getPositions(), opponent.getPosition(), opponentGoal);
+			int AILength = Utility.shortestPathLenght(AIBoard.getPositions(), player.getPosition(), goal);
 
 			if (AILength > -1 && PlayerLenght > -1) {
 				int score = Min(PlayerLenght, AILength, AIBoard, -99999999, 99999999, depth - 1);
@@ -64,7 +205,13 @@ public class AI {
 			}
 
 			unmove(AIBoard, move);
+			if (timedOut) {
+				break;
+			}
 		}
+		SEARCHES.increment();
+		POSITIONS_EVALUATED.add(positionsEvaluated);
+		SEARCH_TIME.recordNanosSince(startNanos);
 		return bestMove;
 	}
 
@@ -89,6 +236,9 @@ public class AI {
 			return evaluate(PlayerLenght, AILength, board);
 		}
 
+		if (outOfTime()) {
+			return 0;
+		}
 		int lowestScore = 99999999;
 		ArrayList<Move> moves = PossibleMoves(board);
 
@@ -97,8 +247,8 @@ public class AI {
 				continue;
 			move(board, move);
 
-			PlayerLenght = Utility.shortestPathLenght(AIBoard.getPositions(), AIBoard.getPlayer1().getPosition(), 8);
-			AILength = Utility.shortestPathLenght(AIBoard.getPositions(), AIBoard.getPlayer2().getPosition(), 0);
+			PlayerLenght = Utility.shortestPathLenght(AIBoard.getPositions(), opponent.getPosition(), opponentGoal);
+			AILength = Utility.shortestPathLenght(AIBoard.getPositions(), player.getPosition(), goal);
 
 			if (AILength > -1 && PlayerLenght > -1) {
 
@@ -106,7 +256,7 @@ public class AI {
 				b = Math.min(b, lowestScore);
 			}
 			unmove(board, move);
-			if (b <= a)
+			if (b <= a || timedOut)
 				break;
 		}
 		return lowestScore;
@@ -133,6 +283,9 @@ public class AI {
 			return evaluate(PlayerLenght, AILength, board);
 		}
 
+		if (outOfTime()) {
+			return 0;
+		}
 		int highestScore = -99999999;
 		ArrayList<Move> moves = PossibleMoves(board);
 
@@ -141,8 +294,8 @@ public class AI {
 				continue;
 			move(board, move);
 
-			PlayerLenght = Utility.shortestPathLenght(AIBoard.getPositions(), AIBoard.getPlayer1().getPosition(), 8);
-			AILength = Utility.shortestPathLenght(AIBoard.getPositions(), AIBoard.getPlayer2().getPosition(), 0);
+			PlayerLenght = Utility.shortestPathLenght(AIBoard.getPositions(), opponent.getPosition(), opponentGoal);
+			AILength = Utility.shortestPathLenght(AIBoard.getPositions(), player.getPosition(), goal);
 
 			if (AILength > -1 && PlayerLenght > -1) {
 				highestScore = Math.max(Min(PlayerLenght, AILength, board, a, b, depth - 1), highestScore);
@@ -150,7 +303,7 @@ public class AI {
 			}
 			unmove(board, move);
 
-			if (b <= a)
+			if (b <= a || timedOut)
 				break;
 		}
 
@@ -162,16 +315,15 @@ public class AI {
          */
         
 	private int evaluate(int PlayerLenght, int AILength, Board board) {
+		positionsEvaluated++;
 
-		int AIManhata = board.getPlayer2().getPosition().getY() - 0;
-		Random random = new Random();
-		int AIWall = board.getPlayer2().getWallCount();
-		int randomNumber = random.nextInt(10) + 1;
-		return (35 * PlayerLenght - 45 * AILength) - AIManhata + AIWall * 40 + randomNumber;//
+		int AIManhata = Math.abs(player.getPosition().getY() - goal);
+		int AIWall = player.getWallCount();
+		return weights.evaluate(PlayerLenght, AILength, AIManhata, AIWall, opponent.getWallCount()) + noise.get(hash);
 	}
 
 	private int evaluateNoWall(Board board) {
-		int AILength = Utility.shortestPathLenght(board.getPositions(), board.getPlayer2().getPosition(), 0);
+		int AILength = Utility.shortestPathLenght(board.getPositions(), player.getPosition(), goal);
 		return -25 * AILength;
 	}
 
@@ -218,6 +370,9 @@ public class AI {
 				previousPosPlayer2.push(Board.getCurrentPlayer().getPosition());
 			};
 
+			if (hashing) {
+				updateHash(Board.getCurrentPlayer(), Board.getCurrentPlayer().getPosition(), move);
+			}
 			Board.getCurrentPlayer().setPosition(Board.getPosition(move.getX(), move.getY()));
 			Board.switchPlayer();
 		} else {
@@ -225,6 +380,9 @@ public class AI {
 			int topLeftY = move.getY();
 			Position topLeft = Board.getPosition(topLeftX, topLeftY);
 			Board.assignWallsFromTopLeftClockwise(topLeft, move.getOrientation());
+			if (hashing) {
+				updateHash(Board.getCurrentPlayer(), null, move);
+			}
 			Board.switchPlayer();
 		}
 
@@ -249,6 +407,9 @@ public class AI {
 
 			//Position last = Board.getCurrentPlayer().getPreviousPos();
 			Board.getCurrentPlayer().setPosition(last);
+			if (hashing) {
+				updateHash(Board.getCurrentPlayer(), last, move);
+			}
 		} else {
 			int topLeftX = move.getX();
 			int topLeftY = move.getY();
@@ -256,10 +417,28 @@ public class AI {
 			Position topLeft = Board.getPosition(topLeftX, topLeftY);
 			Board.removeWalls(topLeft, move.getOrientation());
 			Board.switchPlayer();
+			if (hashing) {
+				updateHash(Board.getCurrentPlayer(), null, move);
+			}
 		}
 
 	}
 
+        /**
+         * XOR a move's keys into the position's hash, which makes or takes back the move. The search doesn't
+         * change wall counts, so neither does this
+         * @param from where the pawn moved from, for a pawn move
+         */
+
+	private void updateHash(Player mover, Position from, Move move) {
+		if (move.getOrientation() == WallPlacement.NULL) {
+			hash ^= ZobristHash.pawn(mover.getID(), from.getX(), from.getY()) ^ ZobristHash.pawn(mover.getID(), move.getX(), move.getY());
+		} else {
+			hash ^= ZobristHash.wall(move.getX(), move.getY(), move.getOrientation());
+		}
+		hash ^= ZobristHash.turn(player.getID()) ^ ZobristHash.turn(opponent.getID());
+	}
+
         /**
          * return a list of possible pawn moves
          */
@@ -280,7 +459,7 @@ public class AI {
          */
 
 	public ArrayList<Move> PossibleMoves(StandardBoard currentBoard) {
-		ArrayList<Move> PossibleMoves = new ArrayList<Move>(132);
+		ArrayList<Move> PossibleMoves = new ArrayList<Move>(Board.MAX_PAWN_MOVES + PossibleWallMoves.size());
 		PossibleMoves.addAll(PossiblePawnMoves(currentBoard));
 		PossibleMoves.addAll(PossibleWallMoves);
 		return PossibleMoves;
@@ -292,10 +471,14 @@ public class AI {
 
 
         /**
-         * method decides which move to make when the AI has no wall
+         * method decides which move to make when the AI has no wall. Once the opponent has none either, the
+         * EndgameSolver's move is played, which is perfect
          */
 
 	public Move MoveNoWalls() {
+		if (AIBoard.getCurrentPlayer() == player && EndgameSolver.canSolve(AIBoard)) {
+			return EndgameSolver.forBoard(AIBoard).bestMove(AIBoard);
+		}
 		int highestScore = -99999999;
 		Move bestMove = null;
 
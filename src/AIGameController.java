@@ -52,6 +52,7 @@ public class AIGameController<T> implements Controller {
 		} else {
 			move = AI.Minimax(2);
 		}
+		SystemLogger.log(LogLevel.DEBUG, "AI chose a move", "move", move);
 
 		if (move == null) {
 			board.switchPlayer();
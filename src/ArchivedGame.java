@@ -0,0 +1,117 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ArchivedGame reads a game straight out of a GameArchive's memory-mapped segment. Nothing is copied when
+ * the game is found: its fields and moves are read from the mapped bytes as they're asked for, so games
+ * can be scanned or replayed by the million without building a GameRecord for each.
+ *
+ * The bytes are laid out as written by GameRecord.encode().
+ */
+public class ArchivedGame {
+
+	// Offsets of the fixed size fields in an encoded GameRecord
+	private static final int GAME_ID_OFFSET = 1;
+	private static final int START_OFFSET = 9;
+	private static final int END_OFFSET = 17;
+	private static final int MODE_OFFSET = 25;
+	private static final int PLAYERS_OFFSET = 26;
+	private static final int NAMES_OFFSET = 27;
+
+	// The encoded record; position 0 is the start of the record
+	private ByteBuffer bytes;
+	private int winnerOffset;
+
+	/**
+	 * @param bytes an encoded GameRecord, starting at position 0; not copied
+	 */
+	public ArchivedGame(ByteBuffer bytes) {
+		this.bytes = bytes;
+		int offset = NAMES_OFFSET;
+		for (int i = 0; i < getNumberOfPlayers(); i++) {
+			offset += 2 + (bytes.getShort(offset) & 0xffff);
+		}
+		this.winnerOffset = offset;
+	}
+
+	public long getGameID() {
+		return bytes.getLong(GAME_ID_OFFSET);
+	}
+
+	public long getStartMillis() {
+		return bytes.getLong(START_OFFSET);
+	}
+
+	public long getEndMillis() {
+		return bytes.getLong(END_OFFSET);
+	}
+
+	public GameMode getGameMode() {
+		return GameMode.values()[bytes.get(MODE_OFFSET)];
+	}
+
+	public int getNumberOfPlayers() {
+		return bytes.get(PLAYERS_OFFSET);
+	}
+
+	public String getPlayerName(int playerID) {
+		int offset = NAMES_OFFSET;
+		for (int id = 1; id < playerID; id++) {
+			offset += 2 + (bytes.getShort(offset) & 0xffff);
+		}
+		byte[] name = new byte[bytes.getShort(offset) & 0xffff];
+		for (int i = 0; i < name.length; i++) {
+			name[i] = bytes.get(offset + 2 + i);
+		}
+		return new String(name, StandardCharsets.UTF_8);
+	}
+
+	public int getWinnerID() {
+		return bytes.get(winnerOffset);
+	}
+
+	public int getMoveCount() {
+		return bytes.getInt(winnerOffset + 1);
+	}
+
+	/**
+	 * @return the move with the given index, encoded by MoveCodec
+	 */
+	public int getMove(int index) {
+		if (index < 0 || index >= getMoveCount()) {
+			throw new IndexOutOfBoundsException("Move " + index + " of " + getMoveCount());
+		}
+		return bytes.getShort(winnerOffset + 5 + 2 * index) & 0xffff;
+	}
+
+	/**
+	 * @return a new board, set up as the game started
+	 */
+	public Board newBoard() {
+		boolean fourPlayerMode = getNumberOfPlayers() == 4;
+		if (getGameMode() == GameMode.CHALLENGE) {
+			return new ChallengeBoard(fourPlayerMode);
+		}
+		return new StandardBoard(fourPlayerMode);
+	}
+
+	/**
+	 * Make the game's first moves on a board set up as the game started
+	 * @param board a board from newBoard(), or one in the same state
+	 * @param moveCount how many moves to make
+	 */
+	public void replay(Board board, int moveCount) {
+		for (int i = 0; i < moveCount; i++) {
+			MoveCodec.apply(board, getMove(i));
+		}
+	}
+
+	/**
+	 * @return a copy of the game as a GameRecord
+	 */
+	public GameRecord toGameRecord() {
+		ByteBuffer copy = bytes.duplicate();
+		copy.position(0);
+		return GameRecord.decode(copy);
+	}
+}
@@ -5,8 +5,9 @@ import java.util.ArrayList;
  * @author Junaid Rasheed
  * @author Khadija Patel
  *
- * Board models Quoridor's 9x9 game board by providing a 2d array of Position objects, each
- * representing a grid on the board
+ * Board models Quoridor's game board by providing a 2d array of Position objects, each
+ * representing a grid on the board. Boards are 9x9 with 10 walls for each player unless another
+ * size, any odd size BoardTopology allows, or number of walls is given
  *
  * It acts as the model and has two extending subclasses, ChallengeBoard and StandardBoard.
  *
@@ -14,8 +15,18 @@ import java.util.ArrayList;
 
 public abstract class Board {
 
+    // A pawn has at most two moves in each direction, the two diagonal jumps past a pawn it can't jump straight over
+    public static final int MAX_PAWN_MOVES = 2 * BoardTopology.DIRECTIONS;
+
     // Models a Quoridor board of grids
     private Position positions[][];
+    // The number of positions along each side
+    private int size;
+    private BoardTopology topology;
+    // The same positions, by their BoardTopology cell
+    private Position cells[];
+    // Cells filled in by getPawnMoves for isValidMove and getCurrentPlayerOccupiablePositions
+    private int pawnMoveCells[] = new int[MAX_PAWN_MOVES];
 	// Positions with non-border walls assigned to them, tracked so they can be reset upon game over
     private ArrayList<Position> walledOffPositions;
 
@@ -27,6 +38,8 @@ public abstract class Board {
 
     // True: Board models a four player game; false: board models a two player game
     private boolean fourPlayerMode;
+    // The number of walls each player starts with
+    private int startingWallCount;
 
     /**
      * Constructor
@@ -35,6 +48,25 @@ public abstract class Board {
      * @param fourPlayerMode whether or not the game is in 4 player mode; if not, it's in 2 player mode
      */
     public Board(GameMode gameMode, boolean fourPlayerMode) {
+        this(gameMode, fourPlayerMode, BoardTopology.STANDARD_SIZE, Player.DEFAULT_WALL_COUNT);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param gameMode the rules for the game; either standard or challenge rules
+     * @param fourPlayerMode whether or not the game is in 4 player mode; if not, it's in 2 player mode
+     * @param size the number of positions along each side of the board
+     * @param startingWallCount the number of walls each player starts with
+     * @throws IllegalArgumentException if BoardTopology has no boards of the size, or the wall count is negative
+     */
+    public Board(GameMode gameMode, boolean fourPlayerMode, int size, int startingWallCount) {
+        if (startingWallCount < 0) {
+                throw new IllegalArgumentException("Negative wall count " + startingWallCount);
+        }
+        topology = BoardTopology.forSize(size);
+        this.size = size;
+        this.startingWallCount = startingWallCount;
         walledOffPositions = new ArrayList<Position>();
         this.fourPlayerMode = fourPlayerMode;
         if (gameMode == GameMode.CHALLENGE) {
@@ -42,6 +74,10 @@ public abstract class Board {
         } else {
         	initialiseBoardWithStandardRules();
         }
+        cells = new Position[topology.getCells()];
+        for (int cell = 0; cell < cells.length; cell++) {
+                cells[cell] = positions[topology.y(cell)][topology.x(cell)];
+        }
     }
 
     /**
@@ -71,27 +107,88 @@ public abstract class Board {
      */
     abstract public void placeWalls(int topLeftX, int topLeftY, WallPlacement orientation);
 
+    /**
+     * Move each player to their starting positions, reset their stats and remove every wall
+     */
+    abstract public void reset();
+
+    /**
+     * Whether a wall could be placed with its top left at the given position without overlapping or
+     * crossing another wall. Doesn't check whether the wall would block a player's path
+     * @param topLeft position to the top left of the wall
+     * @param orientation whether the wall is horizontal or vertical
+     */
+    abstract public boolean wallPlacementIsValid(Position topLeft, WallPlacement orientation);
+
+    /**
+     * Whether the current player could legally place the given wall: they have a wall left, the wall
+     * fits on the board without overlapping or crossing another wall, and it leaves every player a path
+     * to their goal. The board is left unchanged
+     * @param topLeftX top left position's x coordinates
+     * @param topLeftY top left position's y coordinates
+     * @param orientation whether the wall is horizontal or vertical
+     */
+    public boolean wallPlacementIsLegal(int topLeftX, int topLeftY, WallPlacement orientation) {
+        // a wall covers two positions each way, so its top left can't be in the last row or column
+        if (!currentPlayer.hasWalls() || topLeftX < 0 || topLeftX > size - 2 || topLeftY < 0 || topLeftY > size - 2) {
+            return false;
+        }
+        Position topLeft = positions[topLeftY][topLeftX];
+        if (!wallPlacementIsValid(topLeft, orientation)) {
+            return false;
+        }
+        setWallEdges(topLeft, orientation, true);
+        boolean pathsRemain = Utility.AstarSearch(positions, player1.getPosition(), size - 1)
+                && Utility.AstarSearch(positions, player2.getPosition(), 0);
+        setWallEdges(topLeft, orientation, false);
+        return pathsRemain;
+    }
+
+    /**
+     * Set or clear the edges blocked by a wall, without any of the bookkeeping done when a player places
+     * or removes a wall
+     * @param topLeft position to the top left of the wall
+     * @param orientation whether the wall is horizontal or vertical
+     * @param hasWall whether the edges should be blocked
+     */
+    protected void setWallEdges(Position topLeft, WallPlacement orientation, boolean hasWall) {
+        Position topRight = positions[topLeft.getY()][topLeft.getX() + 1];
+        Position bottomRight = positions[topLeft.getY() + 1][topLeft.getX() + 1];
+        Position bottomLeft = positions[topLeft.getY() + 1][topLeft.getX()];
+        if (orientation == WallPlacement.VERTICAL) {
+            topLeft.setHasRightWall(hasWall);
+            topRight.setHasLeftWall(hasWall);
+            bottomRight.setHasLeftWall(hasWall);
+            bottomLeft.setHasRightWall(hasWall);
+        } else if (orientation == WallPlacement.HORIZONTAL) {
+            topLeft.setHasBottomWall(hasWall);
+            topRight.setHasBottomWall(hasWall);
+            bottomRight.setHasTopWall(hasWall);
+            bottomLeft.setHasTopWall(hasWall);
+        }
+    }
+
     public void initialisePlayer1(Position startingPosition) {
     	if (player1 == null) {
-    		player1 = new Player(startingPosition, 1);
+    		player1 = new Player(startingPosition, 1, startingWallCount);
     	}
     }
 
     public void initialisePlayer2(Position startingPosition) {
         if (player2 == null) {
-            player2 = new Player(startingPosition, 2);
+            player2 = new Player(startingPosition, 2, startingWallCount);
         }
     }
 
     public void initialisePlayer3(Position startingPosition) {
         if (player3 == null) {
-            player3 = new Player(startingPosition, 3);
+            player3 = new Player(startingPosition, 3, startingWallCount);
         }
     }
 
     public void initialisePlayer4(Position startingPosition) {
         if (player4 == null) {
-            player4 = new Player(startingPosition, 4);
+            player4 = new Player(startingPosition, 4, startingWallCount);
         }
     }
 
@@ -119,13 +216,55 @@ public abstract class Board {
     	return player4;
     }
 
+    /**
+     * @param id The player's ID, 1 to 4
+     * @return The player, or null if there's no such player in this game
+     */
+    public Player getPlayer(int id) {
+        if (id == 1) {
+            return player1;
+        } else if (id == 2) {
+            return player2;
+        } else if (id == 3) {
+            return player3;
+        } else if (id == 4) {
+            return player4;
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of positions along each side of the board
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public BoardTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * @return the number of walls each player starts with
+     */
+    public int getStartingWallCount() {
+        return startingWallCount;
+    }
+
     public Position[][] getPositions() {
 		return positions;
 	}
 
+    /**
+     * @return the position of a BoardTopology cell
+     */
+    public Position getCell(int cell) {
+        return cells[cell];
+    }
+
     public Position getPosition(int posX, int posY) {
     	Position position = null;
-    	if (posX <= 8 && posY <= 8) {
+    	if (posX < size && posY < size) {
     		position = positions[posY][posX];
     	}
     	return position;
@@ -199,13 +338,13 @@ public abstract class Board {
                 if (pos.getY() != 0) {
                         pos.setHasTopWall(false);
                 }
-                if (pos.getX() != 8) {
+                if (pos.getX() != size - 1) {
                         pos.setHasRightWall(false);
                 }
                 if (pos.getX() != 0) {
                         pos.setHasLeftWall(false);
                 }
-                if (pos.getY() != 8) {
+                if (pos.getY() != size - 1) {
                         pos.setHasBottomWall(false);
                 }
         }
@@ -216,21 +355,77 @@ public abstract class Board {
      * @return The occupiable positions
      */
     public ArrayList<Position> getCurrentPlayerOccupiablePositions() {
-        ArrayList<Position> localPositions = new ArrayList<Position>();
-        Position currentPosition = currentPlayer.getPosition();
-        if (!currentPosition.hasTopWall() && !positionOccupiedByPlayer(currentPosition.getX(), (currentPosition.getY() - 1))) {
-                localPositions.add(positions[currentPosition.getY()-1][currentPosition.getX()]);
+        int count = getPawnMoves(currentPlayer, pawnMoveCells);
+        ArrayList<Position> localPositions = new ArrayList<Position>(count);
+        for (int i = 0; i < count; i++) {
+                localPositions.add(cells[pawnMoveCells[i]]);
         }
-        if (!currentPosition.hasRightWall() && !positionOccupiedByPlayer((currentPosition.getX() + 1), currentPosition.getY())) {
-                localPositions.add(positions[currentPosition.getY()][currentPosition.getX()+1]);
-        }
-        if (!currentPosition.hasBottomWall() && !positionOccupiedByPlayer(currentPosition.getX(), (currentPosition.getY() + 1))) {
-                localPositions.add(positions[currentPosition.getY()+1][currentPosition.getX()]);
+        return localPositions;
+    }
+
+    /**
+     * Give the BoardTopology cells a player's pawn could legally move to. A pawn steps to the square next to
+     * it in any direction no wall blocks, unless another pawn is there, in which case it jumps straight over
+     * that pawn; if a wall, the board's border or a third pawn is behind the pawn it can't jump, it jumps
+     * diagonally to either side of it instead, again unless a wall or a pawn is in the way. The board's
+     * borders are walls, so nothing off the board is ever looked at, and nothing is allocated
+     * @param destinations filled with the cells, top, right, bottom then left; must have room for MAX_PAWN_MOVES
+     * @return the number of cells
+     */
+    public int getPawnMoves(Player player, int[] destinations) {
+        Position from = player.getPosition();
+        short[] neighbours = topology.getNeighbours();
+        int cell = topology.cell(from.getX(), from.getY());
+        int count = 0;
+        for (int direction = 0; direction < BoardTopology.DIRECTIONS; direction++) {
+                if (from.hasWall(direction)) {
+                        continue;
+                }
+                int next = neighbours[cell * BoardTopology.DIRECTIONS + direction];
+                if (!cellOccupiedByPlayer(next)) {
+                        destinations[count++] = next;
+                        continue;
+                }
+                Position jumped = cells[next];
+                if (!jumped.hasWall(direction)) {
+                        int behind = neighbours[next * BoardTopology.DIRECTIONS + direction];
+                        if (!cellOccupiedByPlayer(behind)) {
+                                destinations[count++] = behind;
+                                continue;
+                        }
+                }
+                // the directions either side of this one, neither of which leads back to the moving pawn
+                for (int turn = 1; turn <= 3; turn += 2) {
+                        int side = (direction + turn) % BoardTopology.DIRECTIONS;
+                        if (!jumped.hasWall(side)) {
+                                int diagonal = neighbours[next * BoardTopology.DIRECTIONS + side];
+                                // a square diagonal to the pawn can be reached past two different pawns
+                                if (!cellOccupiedByPlayer(diagonal) && !contains(destinations, count, diagonal)) {
+                                        destinations[count++] = diagonal;
+                                }
+                        }
+                }
         }
-        if (!currentPosition.hasLeftWall() && !positionOccupiedByPlayer((currentPosition.getX() - 1), currentPosition.getY())) {
-                localPositions.add(positions[currentPosition.getY()][currentPosition.getX()-1]);
+        return count;
+    }
+
+    private static boolean contains(int[] cells, int count, int cell) {
+        for (int i = 0; i < count; i++) {
+                if (cells[i] == cell) {
+                        return true;
+                }
         }
-        return localPositions;
+        return false;
+    }
+
+    /**
+     * Whether a player's pawn is on a BoardTopology cell. Pawns are only ever on this board's own positions,
+     * so they're compared by identity
+     */
+    private boolean cellOccupiedByPlayer(int cell) {
+        Position position = cells[cell];
+        return position == player1.getPosition() || position == player2.getPosition()
+                || (player3 != null && (position == player3.getPosition() || position == player4.getPosition()));
     }
 
     /**
@@ -258,35 +453,14 @@ public abstract class Board {
 	}
 
     /**
-     * Validate a pawn relocation move if the pawn's desired location is to the top, right, bottom or left of it
-     * and isn't blocked off by a wall or other player
+     * Validate a pawn relocation move: one of the steps or jumps getPawnMoves gives for the player
      */
     public boolean isValidMove(Player player, int newX, int newY) {
-	    boolean isValid = false;
-	    Position playerPos = player.getPosition();
-	    // if the move is directly along the x axis
-	    if (((newX == (playerPos.getX() + 1)) || (newX == (playerPos.getX() - 1))) && newY == playerPos.getY()) {
-	            // if the move is to the left and the player won't be blocked by a wall to the left
-	            if ((newX == (playerPos.getX() - 1) && (!getPosition(playerPos.getX(), playerPos.getY()).hasLeftWall()))) {
-	                    isValid = true;
-	            }
-	            // if the move is to the right and the player won't be blocked by a wall to the right
-	            else if ((newX == (playerPos.getX() + 1) && (!getPosition(playerPos.getX(), playerPos.getY()).hasRightWall()))) {
-	                    isValid = true;
-	            }
-	    }
-	    // if the move is directly along the y axis
-	    else if (((newY == (playerPos.getY() + 1)) || (newY == (playerPos.getY() - 1))) && newX == playerPos.getX()) {
-	            // if the move is up and the player won't be blocked by a wall to the top
-	            if ((newY == (playerPos.getY() - 1) && (!getPosition(playerPos.getX(), playerPos.getY()).hasTopWall()))) {
-	                    isValid = true;
-	            }
-	            // if the move is down and the player won't be blocked by a wall to the bottom
-	            else if ((newY == (playerPos.getY() + 1) && (!getPosition(playerPos.getX(), playerPos.getY()).hasBottomWall()))) {
-	                    isValid = true;
-	            }
-	    }
-	    return isValid;
+        if (newX < 0 || newX >= size || newY < 0 || newY >= size) {
+                return false;
+        }
+        int count = getPawnMoves(player, pawnMoveCells);
+        return contains(pawnMoveCells, count, topology.cell(newX, newY));
     }
 
     /**
@@ -295,37 +469,37 @@ public abstract class Board {
      * Set the corner positions as "winning" positions
      */
     private void initialiseBoardWithChallengeRules() {
-        positions = new Position[9][9];
+        positions = new Position[size][size];
 
         //initialise Position objects
-        for (int x = 0; x < 9; x++) {
-                for (int y = 0; y < 9; y++) {
+        for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
                         positions[y][x] = new Position(x, y);
                 }
         }
         //mark top left positions as winners
         positions[0][0].setTopLeftCorner();
         //mark bottom right positions as winners
-        positions[8][8].setBottomRightCorner();
+        positions[size - 1][size - 1].setBottomRightCorner();
         //mark top right positions as winners
-        positions[0][8].setTopRightCorner();
+        positions[0][size - 1].setTopRightCorner();
         //mark bottom left positions as winners
-        positions[8][0].setBottomLeftCorner();
+        positions[size - 1][0].setBottomLeftCorner();
 
         //set the board's top borders (walls)
-        for (int x = 0; x < 9; x++) {
+        for (int x = 0; x < size; x++) {
                 positions[0][x].setHasTopWall(true);
         }
         //set the board's right borders (walls)
-        for (int y = 0; y < 9; y++) {
-                positions[y][8].setHasRightWall(true);
+        for (int y = 0; y < size; y++) {
+                positions[y][size - 1].setHasRightWall(true);
         }
         //set the board's bottom borders (walls)
-        for (int x = 0; x < 9; x++) {
-                positions[8][x].setHasBottomWall(true);
+        for (int x = 0; x < size; x++) {
+                positions[size - 1][x].setHasBottomWall(true);
         }
         //set the board's left borders (walls)
-        for (int y = 0; y < 9; y++) {
+        for (int y = 0; y < size; y++) {
                 positions[y][0].setHasLeftWall(true);
         }
     }
@@ -336,43 +510,43 @@ public abstract class Board {
 	 * Set the top row and bottom row of the board as winning positions
 	 */
    private void initialiseBoardWithStandardRules() {
-        positions = new Position[9][9];
+        positions = new Position[size][size];
 
         //initialise Position objects
-        for (int x = 0; x < 9; x++) {
-                for (int y = 0; y < 9; y++) {
+        for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
                         positions[y][x] = new Position(x, y);
                 }
         }
         //mark top positions as winners
-        for (int x = 0; x < 9; x++) {
+        for (int x = 0; x < size; x++) {
                 positions[0][x].setTop();
         }
         //mark bottom positions as winners
-        for (int x = 0; x < 9; x++) {
-                positions[8][x].setBottom();
+        for (int x = 0; x < size; x++) {
+                positions[size - 1][x].setBottom();
         }
         //mark left position as winners
-        for (int y = 0; y < 9; y++) {
+        for (int y = 0; y < size; y++) {
             positions[y][0].setLeft();
         }
-       for (int y = 0; y < 9; y++) {
-           positions[y][8].setRight();
+       for (int y = 0; y < size; y++) {
+           positions[y][size - 1].setRight();
        }
         //set the board's top borders (walls)
-        for (int x = 0; x < 9; x++) {
+        for (int x = 0; x < size; x++) {
                 positions[0][x].setHasTopWall(true);
         }
         //set the board's right borders (walls)
-        for (int y = 0; y < 9; y++) {
-                positions[y][8].setHasRightWall(true);
+        for (int y = 0; y < size; y++) {
+                positions[y][size - 1].setHasRightWall(true);
         }
         //set the board's bottom borders (walls)
-        for (int x = 0; x < 9; x++) {
-                positions[8][x].setHasBottomWall(true);
+        for (int x = 0; x < size; x++) {
+                positions[size - 1][x].setHasBottomWall(true);
         }
         //set the board's left borders (walls)
-        for (int y = 0; y < 9; y++) {
+        for (int y = 0; y < size; y++) {
                 positions[y][0].setHasLeftWall(true);
         }
     }
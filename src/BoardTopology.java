@@ -0,0 +1,183 @@
+/**
+ * BoardTopology numbers the squares of a board of a given size, as cells from 0 at the top left to
+ * size * size - 1 at the bottom right, row by row, and the edges between neighbouring cells, which walls
+ * block: the horizontal edges, below each cell not on the bottom row, then the vertical edges, to the right
+ * of each cell not in the right column. Everything that follows from that is worked out once into tables,
+ * so rules and searches can step around the board by looking up a cell and a direction rather than working
+ * out coordinates and checking bounds.
+ *
+ * Directions are TOP, RIGHT, BOTTOM and LEFT, in that order. There's one topology for each board size,
+ * from MIN_SIZE to MAX_SIZE, shared by every board of that size. Table entries are shorts, which fit the
+ * cells and edges of the largest board; the standard 9x9 board's tables take well under a kilobyte each.
+ */
+public final class BoardTopology {
+
+	public static final int STANDARD_SIZE = 9;
+	// Boards have a middle column and row for the pawns to start on, and their coordinates fit MoveCodec's
+	public static final int MIN_SIZE = 3;
+	public static final int MAX_SIZE = 25;
+
+	public static final int TOP = 0;
+	public static final int RIGHT = 1;
+	public static final int BOTTOM = 2;
+	public static final int LEFT = 3;
+	public static final int DIRECTIONS = 4;
+
+	private static final int[] STEP_X = {0, 1, 0, -1};
+	private static final int[] STEP_Y = {-1, 0, 1, 0};
+	// The direction of each step, by (stepY + 1) * 3 + stepX + 1
+	private static final byte[] DIRECTION_OF_STEP = {-1, TOP, -1, LEFT, -1, RIGHT, -1, BOTTOM, -1};
+
+	private static final BoardTopology[] TOPOLOGIES = new BoardTopology[MAX_SIZE + 1];
+
+	static {
+		for (int size = MIN_SIZE; size <= MAX_SIZE; size += 2) {
+			TOPOLOGIES[size] = new BoardTopology(size);
+		}
+	}
+
+	private final int size;
+	private final int cells;
+	private final int edges;
+	// The cell next to each cell in each direction, at cell * DIRECTIONS + direction, or -1 off the board
+	private final short[] neighbours;
+	// The edge between each cell and its neighbour in each direction, or -1 off the board
+	private final short[] edgeIndexes;
+	// The cells of each row, as bits in a set of cells of words() longs, at row * words() + word
+	private final long[] rows;
+
+	private BoardTopology(int size) {
+		this.size = size;
+		cells = size * size;
+		edges = 2 * size * (size - 1);
+		neighbours = new short[cells * DIRECTIONS];
+		edgeIndexes = new short[cells * DIRECTIONS];
+		rows = new long[size * words()];
+		for (int cell = 0; cell < cells; cell++) {
+			int x = x(cell);
+			int y = y(cell);
+			for (int direction = 0; direction < DIRECTIONS; direction++) {
+				int newX = x + STEP_X[direction];
+				int newY = y + STEP_Y[direction];
+				boolean onBoard = newX >= 0 && newX < size && newY >= 0 && newY < size;
+				neighbours[cell * DIRECTIONS + direction] = (short) (onBoard ? cell(newX, newY) : -1);
+				int edge = -1;
+				if (onBoard) {
+					if (STEP_Y[direction] != 0) {
+						edge = horizontalEdge(x, Math.min(y, newY));
+					} else {
+						edge = verticalEdge(Math.min(x, newX), y);
+					}
+				}
+				edgeIndexes[cell * DIRECTIONS + direction] = (short) edge;
+			}
+			rows[y * words() + cell / 64] |= 1L << cell;
+		}
+	}
+
+	/**
+	 * @return the topology of boards of a size
+	 * @throws IllegalArgumentException if the size isn't odd, or is outside MIN_SIZE to MAX_SIZE
+	 */
+	public static BoardTopology forSize(int size) {
+		if (size < MIN_SIZE || size > MAX_SIZE || size % 2 == 0) {
+			throw new IllegalArgumentException("Board size must be odd, from " + MIN_SIZE + " to " + MAX_SIZE + ": " + size);
+		}
+		return TOPOLOGIES[size];
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the number of cells
+	 */
+	public int getCells() {
+		return cells;
+	}
+
+	/**
+	 * @return the number of edges
+	 */
+	public int getEdges() {
+		return edges;
+	}
+
+	/**
+	 * @return the table of the cell next to each cell in each direction, at cell * DIRECTIONS + direction, or
+	 * -1 off the board; it's shared, so mustn't be changed
+	 */
+	public short[] getNeighbours() {
+		return neighbours;
+	}
+
+	/**
+	 * @return the number of longs a set of cells takes, with one bit for each cell
+	 */
+	public int words() {
+		return (cells + 63) / 64;
+	}
+
+	/**
+	 * @return one word of the set of cells in a row
+	 */
+	public long rowBits(int row, int word) {
+		return rows[row * words() + word];
+	}
+
+	public int cell(int x, int y) {
+		return y * size + x;
+	}
+
+	public int x(int cell) {
+		return cell % size;
+	}
+
+	public int y(int cell) {
+		return cell / size;
+	}
+
+	/**
+	 * @return the cell next to a cell in a direction, or -1 if that's off the board
+	 */
+	public int neighbour(int cell, int direction) {
+		return neighbours[cell * DIRECTIONS + direction];
+	}
+
+	/**
+	 * @return the edge between a cell and the cell next to it in a direction, or -1 if that's off the board
+	 */
+	public int edge(int cell, int direction) {
+		return edgeIndexes[cell * DIRECTIONS + direction];
+	}
+
+	/**
+	 * @return the edge below a cell, which mustn't be on the bottom row
+	 */
+	public int horizontalEdge(int x, int y) {
+		return y * size + x;
+	}
+
+	/**
+	 * @return the edge to the right of a cell, which mustn't be in the right column
+	 */
+	public int verticalEdge(int x, int y) {
+		return size * (size - 1) + y * (size - 1) + x;
+	}
+
+	/**
+	 * @return the direction of a single step across the board, or -1 if the step isn't to a square next to
+	 * the one it's from
+	 */
+	public static int direction(int stepX, int stepY) {
+		if (stepX < -1 || stepX > 1 || stepY < -1 || stepY > 1) {
+			return -1;
+		}
+		return DIRECTION_OF_STEP[(stepY + 1) * 3 + stepX + 1];
+	}
+
+	public static int opposite(int direction) {
+		return direction ^ 2;
+	}
+}
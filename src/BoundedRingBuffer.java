@@ -0,0 +1,82 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * BoundedRingBuffer is a fixed size queue which any number of threads can add to and one thread takes
+ * from, without locks. Adding to a full buffer fails straight away rather than waiting, so producers on
+ * a hot path are never held up by a slow consumer.
+ *
+ * Producers claim a slot by moving the tail on with a compare and set, then fill the slot. The consumer
+ * takes items in slot order and stops at a slot that has been claimed but not yet filled, so items come
+ * out in the order their slots were claimed.
+ */
+public class BoundedRingBuffer<E> {
+
+	private AtomicReferenceArray<E> slots;
+	private int mask;
+	// Next slot to claim; only producers move it
+	private AtomicLong tail;
+	// Next slot to take from; only the consumer moves it
+	private volatile long head;
+
+	/**
+	 * @param capacity the most items the buffer holds; rounded up to a power of two
+	 */
+	public BoundedRingBuffer(int capacity) {
+		if (capacity <= 0 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.slots = new AtomicReferenceArray<E>(size);
+		this.mask = size - 1;
+		this.tail = new AtomicLong();
+	}
+
+	/**
+	 * Add an item if there's room
+	 * @return false if the buffer is full, in which case the item was not added
+	 */
+	public boolean offer(E item) {
+		if (item == null) {
+			throw new IllegalArgumentException("Items can't be null");
+		}
+		long claimed;
+		do {
+			claimed = tail.get();
+			if (claimed - head >= slots.length()) {
+				return false;
+			}
+		} while (!tail.compareAndSet(claimed, claimed + 1));
+		slots.lazySet((int) (claimed & mask), item);
+		return true;
+	}
+
+	/**
+	 * Take the oldest item. Must only be called by the consumer thread
+	 * @return the item, or null if there is none ready
+	 */
+	public E poll() {
+		int index = (int) (head & mask);
+		E item = slots.get(index);
+		if (item == null) {
+			return null;
+		}
+		slots.lazySet(index, null);
+		head = head + 1;
+		return item;
+	}
+
+	/**
+	 * @return roughly how many items are in the buffer; exact only when no other thread is using it
+	 */
+	public int size() {
+		return (int) Math.max(0, tail.get() - head);
+	}
+
+	public int getCapacity() {
+		return slots.length();
+	}
+}
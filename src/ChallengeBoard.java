@@ -6,8 +6,8 @@ import java.util.ArrayList;
  * @author Khadija Patel
  * @author Thai Hoang
  *
- * ChallengeBoard models Quoridor's 9x9 game board by providing a 2d array of Position objects, each
- * representing a grid on the board
+ * ChallengeBoard models Quoridor's 9x9 game board, or a board of another size, by providing a 2d array
+ * of Position objects, each representing a grid on the board
  *
  * It implements the Board abstract class, and models a Quoridor game with, modified ("challenge") rules.
  *
@@ -23,12 +23,21 @@ public class ChallengeBoard extends Board {
      * If fourPlayerMode is true, set up the game to hold four -- rather than 2 -- players
      */
     public ChallengeBoard(boolean fourPlayerMode) {
-        super(GameMode.CHALLENGE, fourPlayerMode);
+        this(fourPlayerMode, BoardTopology.STANDARD_SIZE, Player.DEFAULT_WALL_COUNT);
+    }
+
+    /**
+     * @param size the number of positions along each side of the board
+     * @param startingWallCount the number of walls each player starts with
+     */
+    public ChallengeBoard(boolean fourPlayerMode, int size, int startingWallCount) {
+        super(GameMode.CHALLENGE, fourPlayerMode, size, startingWallCount);
+        int last = size - 1;
         initialisePlayer1(getPosition(0, 0));
-        initialisePlayer2(getPosition(8, 8));
+        initialisePlayer2(getPosition(last, last));
 		if (fourPlayerMode) {
-			initialisePlayer3(getPosition(0, 8));
-			initialisePlayer4(getPosition(8, 0));
+			initialisePlayer3(getPosition(0, last));
+			initialisePlayer4(getPosition(last, 0));
 		}
         setCurrentPlayer(getPlayer1());
         wallOwnershipRecords = new WallOwnershipCollection();
@@ -52,7 +61,7 @@ public class ChallengeBoard extends Board {
      * @param orientation
      */
     public boolean removeWalls(int topLeftX, int topLeftY, WallPlacement orientation) {
-    	if ((topLeftX >= 0 && topLeftX <= 8) && (topLeftY >= 0 && topLeftY <= 8)) {
+    	if ((topLeftX >= 0 && topLeftX < getSize()) && (topLeftY >= 0 && topLeftY < getSize())) {
     		int wallOwnerID = wallOwnershipRecords.getRecordByCoordinates(topLeftX, topLeftY).getPlayerID();
         	Player wallOwner = null;
         	if (wallOwnerID != getCurrentPlayer().getID()) {
@@ -98,12 +107,12 @@ public class ChallengeBoard extends Board {
      */
     public void placeWalls(int topLeftX, int topLeftY, WallPlacement orientation) {
 		if (getCurrentPlayer().hasWalls()) {
-			if ((topLeftX >= 0 && topLeftX <= 8) && (topLeftY >= 0 && topLeftY <= 8)) {
+			if ((topLeftX >= 0 && topLeftX < getSize()) && (topLeftY >= 0 && topLeftY < getSize())) {
 				Position topLeft = getPosition(topLeftX, topLeftY);
 				if (wallPlacementIsValid(topLeft, orientation)) {
 					assignWallsFromTopLeftClockwise(topLeft, orientation);
 
-					if (!Utility.AstarSearch(getPositions(), getPlayer1().getPosition(), 8)
+					if (!Utility.AstarSearch(getPositions(), getPlayer1().getPosition(), getSize() - 1)
 							|| !Utility.AstarSearch(getPositions(), getPlayer2().getPosition(), 0)) {
 
 						removeWallsFromTopLeftClockwise(topLeft, orientation);
@@ -141,7 +150,7 @@ public class ChallengeBoard extends Board {
                         getPlayer1().setPosition(getPosition(posX, posY));
                         getCurrentPlayer().incrementMoveCount();
                         if (getPosition(posX, posY).isBottomRightCorner()) {
-                            resetBoard();
+                            reset();
                             return true;
                         }
                         switchPlayer();
@@ -160,7 +169,7 @@ public class ChallengeBoard extends Board {
                         getPlayer2().setPosition(getPosition(posX, posY));
                         getCurrentPlayer().incrementMoveCount();
                         if (getPosition(posX, posY).isTopLeftCorner()) {
-                            resetBoard();
+                            reset();
                             return true;
                         }
                         switchPlayer();
@@ -180,7 +189,7 @@ public class ChallengeBoard extends Board {
                         getPlayer1().setPosition(getPosition(posX, posY));
                         getCurrentPlayer().incrementMoveCount();
                         if (getPosition(posX, posY).isBottomRightCorner()) {
-                            resetBoard();
+                            reset();
                             return true;
                         }
                         switchPlayer();
@@ -197,7 +206,7 @@ public class ChallengeBoard extends Board {
                         getPlayer2().setPosition(getPosition(posX, posY));
                         getCurrentPlayer().incrementMoveCount();
                         if (getPosition(posX, posY).isTopLeftCorner()) {
-                            resetBoard();
+                            reset();
                             return true;
                         }
                         switchPlayer();
@@ -216,7 +225,7 @@ public class ChallengeBoard extends Board {
                         getPlayer3().setPosition(getPosition(posX, posY));
                         getCurrentPlayer().incrementMoveCount();
                         if (getPosition(posX, posY).isTopRightCorner()) {
-                            resetBoard();
+                            reset();
                             return true;
                         }
                         switchPlayer();
@@ -236,7 +245,7 @@ public class ChallengeBoard extends Board {
                         getPlayer4().setPosition(getPosition(posX, posY));
                         getCurrentPlayer().incrementMoveCount();
                         if (getPosition(posX, posY).isBottomLeftCorner()) {
-                            resetBoard();
+                            reset();
                             return true;
                         }
                         switchPlayer();
@@ -297,7 +306,7 @@ public class ChallengeBoard extends Board {
      * - the wall starts on the edge of the board and would only be one position long
      * - there's another wall obstructing the wall's path
      */
-    private boolean wallPlacementIsValid(Position topLeft, WallPlacement orientation) {
+    public boolean wallPlacementIsValid(Position topLeft, WallPlacement orientation) {
 
 		boolean isValid = true;
 
@@ -305,7 +314,7 @@ public class ChallengeBoard extends Board {
 			if (topLeft.hasRightWall()) {
 				isValid = false;
 			}
-			if (topLeft.getY() == 8) {
+			if (topLeft.getY() == getSize() - 1) {
 				isValid = false;
 			} else if (getPosition(topLeft.getX(), (topLeft.getY() + 1)).hasRightWall()) {
 				isValid = false;
@@ -317,7 +326,7 @@ public class ChallengeBoard extends Board {
 			if (topLeft.hasBottomWall()) {
 				isValid = false;
 			}
-			if (topLeft.getX() == 8) {
+			if (topLeft.getX() == getSize() - 1) {
 				isValid = false;
 			} else if (getPosition((topLeft.getX() + 1), topLeft.getY()).hasBottomWall()) {
 				isValid = false;
@@ -360,20 +369,24 @@ public class ChallengeBoard extends Board {
     	}
     }
 
-    private void resetBoard() {
+    /**
+     * Move each player to their starting positions and reset their stats
+     */
+    public void reset() {
         getPlayer1().setMoveCount(0);
         getPlayer2().setMoveCount(0);
-        getPlayer1().setWallCount(10);
-        getPlayer2().setWallCount(10);
+        int last = getSize() - 1;
+        getPlayer1().setWallCount(getStartingWallCount());
+        getPlayer2().setWallCount(getStartingWallCount());
         getPlayer1().setPosition(getPosition(0, 0));
-        getPlayer2().setPosition(getPosition(8, 8));
+        getPlayer2().setPosition(getPosition(last, last));
         if (getPlayer3() != null) {
             getPlayer3().setMoveCount(0);
             getPlayer4().setMoveCount(0);
-            getPlayer3().setWallCount(10);
-            getPlayer4().setWallCount(10);
-            getPlayer3().setPosition(getPosition(0, 8));
-            getPlayer4().setPosition(getPosition(8, 0));
+            getPlayer3().setWallCount(getStartingWallCount());
+            getPlayer4().setWallCount(getStartingWallCount());
+            getPlayer3().setPosition(getPosition(0, last));
+            getPlayer4().setPosition(getPosition(last, 0));
         }
         setCurrentPlayer(getPlayer1());
         resetWalledOffPositions();
@@ -1,8 +1,9 @@
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.regex.Pattern;
 
 /**
  * @author Ben Lawton
@@ -12,28 +13,70 @@ import java.net.Socket;
  * Each ClientSocketIOThread has its own dedicated client...
  * ...for a game with n clients, there needs to be n ClientSocketIOThread instances
  *
- * When it receives input from its client, it processes it and calls the appropriate controller action. Its
- * send*() methods are called by the controller to send messages to the client
+ * When it receives input from its client, it hands the appropriate controller action to the game's actor. Its
+ * send*() methods are called by the controller to send messages to the client. Messages are put on the
+ * connection's OutboundMessageQueue and written by its own thread, so the controller never waits on a slow
+ * client; if the queue fills up the connection's OverflowPolicy decides what happens
+ *
+ * Connections accepted by a GameLobby start without a controller; the client first asks to join a queue
+ * and the lobby hands the thread its game's controller once the client is seated
  *
  */
 
 public class ClientSocketIOThread extends Thread {
 
+	private static final Metrics.Gauge CONNECTIONS = Metrics.gauge("quoridor_connections", "Open client connections");
+	private static final Metrics.Counter CONNECTIONS_TOTAL = Metrics.counter("quoridor_connections_total", "Client connections accepted");
+	private static final Metrics.Counter COMMANDS = Metrics.counter("quoridor_commands_total", "Game commands received from clients");
+	private static final Metrics.Histogram COMMAND_WAIT = Metrics.histogram("quoridor_command_wait_microseconds", "Time game commands wait in their game's mailbox");
+	private static final Metrics.Histogram COMMAND_TIME = Metrics.histogram("quoridor_command_microseconds", "Time taken to run game commands");
+	private static final Metrics.Counter OUTBOUND_OVERFLOWS = Metrics.counter("quoridor_outbound_overflows_total", "Times a client's outbound queue was full");
+	private static final Metrics.Counter OVERFLOW_DISCONNECTS = Metrics.counter("quoridor_overflow_disconnects_total", "Clients disconnected for falling too far behind");
+
 	// Client socket
 	private Socket socket;
 
-	// Client input and output streams
-	private PrintWriter out;
+	// Client input stream, and the queue of messages to write to the client
 	private BufferedReader in;
+	private OutboundMessageQueue outbound;
+
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	private static final int OUTBOUND_QUEUE_CAPACITY = 1024;
+	// How long the BLOCK_WITH_TIMEOUT policy waits for room in the queue
+	private static final long BLOCK_TIMEOUT_MILLIS = 250;
+	private volatile OverflowPolicy overflowPolicy = OverflowPolicy.DROP_TO_SNAPSHOT;
+
+	private volatile NetworkedGameController controller;
+	// Set when connected through the lobby rather than straight to a single game's server
+	private GameLobby lobby;
+	private volatile boolean closed;
+	// Whether the client has joined a lobby queue and not yet been seated, so it can't queue twice
+	private volatile boolean queued;
 
-	private NetworkedGameController controller;
+	// Heartbeats: the client is pinged every interval, and disconnected once nothing has been read from it for the timeout
+	private static final long HEARTBEAT_INTERVAL_MILLIS = 5000;
+	private static final long IDLE_TIMEOUT_MILLIS = 20000;
+	private volatile long lastReadMillis;
+	private HashedWheelTimer.Timeout heartbeat;
 
 	public ClientSocketIOThread(Socket socket, NetworkedGameController controller) {
 		super("ClientSocketInputThread");
 		this.socket = socket;
 		this.controller = controller;
+		openStreams();
+	}
+
+	public ClientSocketIOThread(Socket socket, GameLobby lobby) {
+		super("ClientSocketInputThread");
+		this.socket = socket;
+		this.lobby = lobby;
+		openStreams();
+	}
+
+	private void openStreams() {
 		try {
-			out = new PrintWriter(socket.getOutputStream(), true);
+			outbound = new OutboundMessageQueue(socket.getOutputStream(), OUTBOUND_QUEUE_CAPACITY);
 			in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
 		} catch (IOException e) {
 			SystemLogger.logError(e.getMessage());
@@ -44,96 +87,339 @@ public class ClientSocketIOThread extends Thread {
 	 * Listen for and process input from the client socket
 	 */
 	public void run() {
+		CONNECTIONS.increment();
+		CONNECTIONS_TOTAL.increment();
+		lastReadMillis = System.currentTimeMillis();
+		scheduleHeartbeat();
 		try {
 			String inputLine;
 
 			while ((inputLine = in.readLine()) != null) {
-				String[] commands = inputLine.split("\\s+");
-				if (commands[0].equals("move")) {
-					movePawn(commands);
+				lastReadMillis = System.currentTimeMillis();
+				String[] commands = splitCommand(inputLine);
+				// the lobby may seat or unseat the client between commands, so act on one controller per command
+				NetworkedGameController controller = this.controller;
+				if (commands[0].equals("pong")) {
+					// reply to a heartbeat; reading it is all that's needed
 				}
-				else if (commands[0].equals("available")) {
-					controller.showCurrentPlayerMoves();
+				else if (commands[0].equals("queue")) {
+					joinQueue(commands);
 				}
-				else if (commands[0].equals("wall")) {
-					placeWall(commands);
+				else if (commands[0].equals("resume")) {
+					resumeSession(commands);
 				}
-				else if (commands[0].equals("start-coordinates")) {
-					String coordinates = "coordinate " + controller.getPlayer1X() + " " + controller.getPlayer1Y() + " " + controller.getPlayer2X() + " " + controller.getPlayer2Y();
-					if(controller.getPlayer3IO() != null) {
-						coordinates +=  " " + controller.getPlayer3X() + " " + controller.getPlayer3Y() + " " + controller.getPlayer4X() + " " + controller.getPlayer4Y();
-					}
-					out.println(coordinates);
+				else if (controller == null) {
+					sendErrorMessage("You aren't in a game yet");
 				}
-				else if (commands[0].equals("remove-wall")) {
-					removeWall(commands);
+				else {
+					playCommand(controller, commands);
 				}
 			}
 		} catch (IOException e) {
 			SystemLogger.logError(e.getMessage());
+		} finally {
+			closed = true;
+			queued = false;
+			CONNECTIONS.decrement();
+			heartbeat.cancel();
+			outbound.close();
+			NetworkedGameController controller = this.controller;
+			if (controller != null) {
+				controller.connectionLost(this);
+			}
 		}
 	}
 
-	public void sendAvailableMove(int x, int y) {
-		out.println("highlight " + x + " " + y);
+	/**
+	 * Hand a command for the client's game to the game's actor, which runs it once the commands sent
+	 * before it by every player have run
+	 */
+	private void playCommand(final NetworkedGameController controller, final String[] commands) {
+		COMMANDS.increment();
+		final long queuedNanos = System.nanoTime();
+		controller.tell(new Runnable() {
+			@Override
+			public void run() {
+				long startNanos = System.nanoTime();
+				COMMAND_WAIT.record((startNanos - queuedNanos) / 1000);
+				processGameCommand(controller, commands);
+				COMMAND_TIME.recordNanosSince(startNanos);
+			}
+		});
 	}
 
-	public void sendRemoveWallDisplay(int topLeftX, int topLeftY, WallPlacement orientation) {
-		out.println("remove-wall-display " + topLeftX + " " + topLeftY + " " + orientation);
+	private void processGameCommand(NetworkedGameController controller, String[] commands) {
+		if (!controller.isSeated(this)) {
+			// the game ended, or the player resumed on another connection, while the command was waiting
+			return;
+		}
+		if (commands[0].equals("play") || commands[0].equals("move") || commands[0].equals("wall") || commands[0].equals("remove-wall")) {
+			makeMove(controller, commands);
+		}
+		else if (commands[0].equals("available")) {
+			controller.sendAvailableMoves(this);
+		}
+		else if (commands[0].equals("start-coordinates")) {
+			String coordinates = "coordinate " + controller.getPlayer1X() + " " + controller.getPlayer1Y() + " " + controller.getPlayer2X() + " " + controller.getPlayer2Y();
+			if(controller.getPlayer3IO() != null) {
+				coordinates +=  " " + controller.getPlayer3X() + " " + controller.getPlayer3Y() + " " + controller.getPlayer4X() + " " + controller.getPlayer4Y();
+			}
+			sendMessage(coordinates);
+		}
 	}
 
-	public void sendMessage(String message) {
-		out.println(message);
+	/**
+	 * Check on the client again after the heartbeat interval
+	 */
+	private void scheduleHeartbeat() {
+		heartbeat = HashedWheelTimer.getSharedTimer().schedule(new Runnable() {
+			@Override
+			public void run() {
+				checkHeartbeat();
+			}
+		}, HEARTBEAT_INTERVAL_MILLIS);
 	}
 
-	public void sendStatsUpdate(int moveCount, int wallCount, int playerID) {
-		out.println("stats " + moveCount + " " + wallCount + " " + playerID);
+	/**
+	 * Close the connection if the client has been silent for too long, otherwise ping it. The client's
+	 * pong keeps an idle but healthy connection open, and closing the socket wakes the blocked read in run()
+	 */
+	private void checkHeartbeat() {
+		if (closed) {
+			return;
+		}
+		if (System.currentTimeMillis() - lastReadMillis > IDLE_TIMEOUT_MILLIS) {
+			SystemLogger.logInfo("Client timed out");
+			close();
+		} else {
+			sendMessage("ping");
+			scheduleHeartbeat();
+		}
 	}
 
-	public void sendPawnUpdate(int x, int y, int playerID) {
-		out.println("pawn " + x + " " + y + " " + playerID);
+	/**
+	 * Seat the client in a game, or unseat it (with null) once its game is over
+	 */
+	public void setController(NetworkedGameController controller) {
+		this.controller = controller;
+		queued = false;
 	}
 
-	public void sendWallUpdate(int topLeftX, int topLeftY, WallPlacement orientation, int playerID) {
-		out.println("wall " + topLeftX + " " + topLeftY + " " + orientation + " " + playerID);
+	/**
+	 * @return whether the client is waiting in a lobby queue, i.e. has queued and hasn't been seated or
+	 * disconnected since
+	 */
+	public boolean isQueued() {
+		return queued && !isClosed();
 	}
 
-	public void sendResetWalls() {
-        out.println("reset");
-    }
+	/**
+	 * @return whether the client's connection has ended
+	 */
+	public boolean isClosed() {
+		return closed || socket.isClosed();
+	}
+
+	/**
+	 * Close the connection to the client, e.g. when the client has resumed its session on a new connection
+	 */
+	public void close() {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			SystemLogger.logError(e.getMessage());
+		}
+	}
+
+	/**
+	 * Choose what happens when the client falls too far behind for its messages to fit in the outbound queue
+	 */
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	public void sendMessage(String message) {
+		enqueue(message);
+	}
+
+	/**
+	 * Send an event from the game's event log, tagged with its sequence number
+	 */
+	public void sendEvent(long sequence, String event) {
+		enqueue("event " + sequence + " " + event);
+	}
 
 	public void sendErrorMessage(String message) {
-		out.println("error " + message);
+		enqueue("error " + message);
 	}
 
-	public void sendCurrentPlayerGUIUpdate(int playerID) {
-		out.println("currentPlayer " + playerID);
+	/**
+	 * Queue a message for the writer thread, applying the overflow policy if the queue is full
+	 */
+	private void enqueue(String message) {
+		if (isClosed() || outbound.offer(message)) {
+			return;
+		}
+		OUTBOUND_OVERFLOWS.increment();
+		if (overflowPolicy == OverflowPolicy.BLOCK_WITH_TIMEOUT && outbound.offer(message, BLOCK_TIMEOUT_MILLIS)) {
+			return;
+		}
+		if (overflowPolicy == OverflowPolicy.DROP_TO_SNAPSHOT && resyncFromSnapshot()) {
+			return;
+		}
+		SystemLogger.logInfo("Client fell too far behind; disconnecting");
+		OVERFLOW_DISCONNECTS.increment();
+		close();
+	}
+
+	/**
+	 * Replace everything waiting in the outbound queue with a snapshot of the game. The message that
+	 * overflowed is already part of the snapshot, as events are logged before they're sent
+	 * @return false if the client isn't in a game or the snapshot doesn't fit either
+	 */
+	private boolean resyncFromSnapshot() {
+		NetworkedGameController controller = this.controller;
+		if (controller == null) {
+			return false;
+		}
+		ArrayList<String> snapshot = controller.getSnapshotMessages();
+		outbound.clear();
+		for (String message : snapshot) {
+			if (!outbound.offer(message)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	public Socket getSocket() {
 		return this.socket;
 	}
 
-    private void movePawn(String[] commands) {
-        int x = Integer.parseInt(commands[1]);
-        int y = Integer.parseInt(commands[2]);
-        int playerID = Integer.parseInt(commands[3]);
-        controller.movePawn(x, y, playerID);
+    private void joinQueue(String[] commands) {
+        // queued is checked before controller, as seating sets the controller before clearing the flag
+        if (lobby == null) {
+            sendErrorMessage("This server hosts a single game");
+        } else if (commands.length != 3) {
+            sendErrorMessage("Usage: queue <game mode> <number of players>");
+        } else if (queued) {
+            sendErrorMessage("You are already queued");
+        } else if (controller != null) {
+            sendErrorMessage("You are already in a game");
+        } else {
+            try {
+                GameMode gameMode = GameMode.valueOf(commands[1]);
+                int numberOfPlayers = Integer.parseInt(commands[2]);
+                queued = true;
+                lobby.enqueue(this, gameMode, numberOfPlayers);
+            } catch (IllegalArgumentException e) {
+                queued = false;
+                sendErrorMessage(e.getMessage());
+            }
+        }
     }
 
-    private void removeWall(String[] commands) {
-    	int topLeftX = Integer.parseInt(commands[1]);
-        int topLeftY = Integer.parseInt(commands[2]);
-        WallPlacement orientation = WallPlacement.valueOf(commands[3]);
-        int playerID = Integer.parseInt(commands[4]);
-        controller.removeWall(topLeftX, topLeftY, orientation, playerID);
+    private void resumeSession(String[] commands) {
+        if (commands.length != 3) {
+            sendErrorMessage("Usage: resume <session> <last sequence>");
+            return;
+        }
+        String token = commands[1];
+        long lastSeenSequence;
+        try {
+            lastSeenSequence = Long.parseLong(commands[2]);
+        } catch (NumberFormatException e) {
+            sendErrorMessage("Not a sequence number: " + commands[2]);
+            return;
+        }
+        boolean resumed;
+        if (controller != null) {
+            resumed = controller.resumeSession(token, lastSeenSequence, this);
+        } else {
+            resumed = lobby != null && lobby.resumeSession(token, lastSeenSequence, this);
+        }
+        if (!resumed) {
+            sendErrorMessage("Unknown session");
+            // let the client read why before the connection goes
+            outbound.drain(BLOCK_TIMEOUT_MILLIS);
+            close();
+        }
     }
 
-    private void placeWall(String[] commands) {
-        int topLeftX = Integer.parseInt(commands[1]);
-        int topLeftY = Integer.parseInt(commands[2]);
-        WallPlacement orientation = WallPlacement.valueOf(commands[3]);
-        int playerID = Integer.parseInt(commands[4]);
-        controller.placeWall(topLeftX, topLeftY, orientation, playerID);
+    /**
+     * Make the move in a play, move, wall or remove-wall command, which must be for the client's own player
+     */
+    private void makeMove(NetworkedGameController controller, String[] commands) {
+        int move;
+        try {
+            move = parseMove(commands);
+        } catch (IllegalArgumentException e) {
+            sendErrorMessage(Translate.invalidMove());
+            return;
+        }
+        int x = MoveCodec.x(move);
+        int y = MoveCodec.y(move);
+        // the player comes from the client's seat; the ID in the command is only checked against it
+        int playerID = controller.getPlayerID(this);
+        if (MoveCodec.playerID(move) != playerID) {
+            sendErrorMessage("You are player " + playerID);
+            return;
+        }
+        switch (MoveCodec.kind(move)) {
+            case PAWN:
+                controller.movePawn(x, y, playerID);
+                break;
+            case WALL_HORIZONTAL:
+            case WALL_VERTICAL:
+                controller.placeWall(x, y, MoveCodec.orientation(move), playerID);
+                break;
+            case REMOVE_HORIZONTAL:
+            case REMOVE_VERTICAL:
+                controller.removeWall(x, y, MoveCodec.orientation(move), playerID);
+                break;
+            default:
+                sendErrorMessage(Translate.invalidMove());
+                break;
+        }
     }
+
+    /**
+     * Split a line from the client into its command and arguments
+     */
+    static String[] splitCommand(String line) {
+        return WHITESPACE.split(line);
+    }
+
+    /**
+     * Read the move in a command: "play e3h 1" in MoveNotation, or the older "move 4 5 1",
+     * "wall 3 3 HORIZONTAL 1" and "remove-wall 3 3 HORIZONTAL 1"
+     * @return the move, encoded by MoveCodec
+     * @throws IllegalArgumentException if the command isn't a well formed move
+     */
+    static int parseMove(String[] commands) {
+        if (commands[0].equals("play") && commands.length == 3) {
+            return MoveNotation.parse(commands[1], Integer.parseInt(commands[2]));
+        }
+        if (commands[0].equals("move") && commands.length == 4) {
+            return MoveCodec.pawn(Integer.parseInt(commands[3]), Integer.parseInt(commands[1]), Integer.parseInt(commands[2]));
+        }
+        if (commands.length == 5) {
+            int topLeftX = Integer.parseInt(commands[1]);
+            int topLeftY = Integer.parseInt(commands[2]);
+            WallPlacement orientation = WallPlacement.valueOf(commands[3]);
+            int playerID = Integer.parseInt(commands[4]);
+            if (commands[0].equals("wall")) {
+                return MoveCodec.wall(playerID, topLeftX, topLeftY, orientation);
+            }
+            if (commands[0].equals("remove-wall")) {
+                return MoveCodec.wallRemoval(playerID, topLeftX, topLeftY, orientation);
+            }
+        }
+        throw new IllegalArgumentException("Not a move: " + String.join(" ", commands));
+    }
+
 }
\ No newline at end of file
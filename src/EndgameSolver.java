@@ -0,0 +1,299 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * EndgameSolver plays two player standard games perfectly once neither player has any walls left. The
+ * walls can't change after that, so the game is a race between the two pawns, which only get in each
+ * other's way, and every position of it is one of 81 x 81 pairs of squares, on a standard board, with
+ * either player to move.
+ * Pawns move as Board.getPawnMoves has them, jumping the other pawn when it's next to them.
+ *
+ * Each solver is a table of every such position for one layout of walls, worked out by retrograde
+ * analysis: positions where the player to move has lost are found first, then those won in one move, lost
+ * in two, and so on, each round using only the results of the rounds before it. Positions never found
+ * either way are draws, where the pawns block each other for good. A player with no pawn moves passes.
+ *
+ * Solvers are kept by the hash of their board's size and wall layout, for the most recently used
+ * layouts, so the same layout is only solved once however many games reach it.
+ */
+public class EndgameSolver {
+
+	// The number of wall layouts whose tables are kept
+	public static final int CACHE_SIZE = 64;
+
+	// The largest board solved, whose squares still fit the tables' bytes
+	public static final int MAX_SIZE = 11;
+
+	// Three steps and the two diagonal jumps past a pawn that can't be jumped straight over
+	private static final int MAX_MOVES = 5;
+
+	private static final byte DRAW = 0;
+	private static final byte WIN = 1;
+	private static final byte LOSS = 2;
+
+	private static final Metrics.Counter TABLES_SOLVED = Metrics.counter("quoridor_endgame_tables_solved_total", "Wall layouts solved by the endgame solver");
+
+	private static final LinkedHashMap<Long, EndgameSolver> CACHE = new LinkedHashMap<Long, EndgameSolver>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, EndgameSolver> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private int size;
+	private int squares;
+	// The square next to each square in each direction, as the board's topology has it, or -1 if a wall blocks it
+	private byte[] neighbours;
+	// For each position, whether the player to move wins, loses or draws, and in how many moves
+	private byte[] outcomes;
+	private short[] plies;
+	// How far each square is from each player's goal, for choosing between drawn moves
+	private byte[][] goalDistances;
+
+	private EndgameSolver(Board board) {
+		size = board.getSize();
+		squares = size * size;
+		neighbours = new byte[squares * BoardTopology.DIRECTIONS];
+		outcomes = new byte[squares * squares * 2];
+		plies = new short[outcomes.length];
+		goalDistances = new byte[2][squares];
+		short[] topology = board.getTopology().getNeighbours();
+		for (int square = 0; square < squares; square++) {
+			Position position = board.getCell(square);
+			for (int direction = 0; direction < BoardTopology.DIRECTIONS; direction++) {
+				int index = square * BoardTopology.DIRECTIONS + direction;
+				neighbours[index] = (byte) (position.hasWall(direction) ? -1 : topology[index]);
+			}
+		}
+		measureGoalDistances(0, size - 1);
+		measureGoalDistances(1, 0);
+		solve();
+	}
+
+	/**
+	 * @return whether a board's game can be solved: a two player standard game, on a board no larger than
+	 * MAX_SIZE, in which neither player has walls left
+	 */
+	public static boolean canSolve(Board board) {
+		return board instanceof StandardBoard && board.getSize() <= MAX_SIZE && board.getPlayer3() == null
+				&& !board.getPlayer1().hasWalls() && !board.getPlayer2().hasWalls();
+	}
+
+	/**
+	 * @return the solver for the board's walls, solving them if they haven't been recently
+	 * @throws IllegalArgumentException if the board's game can't be solved
+	 */
+	public static EndgameSolver forBoard(Board board) {
+		if (!canSolve(board)) {
+			throw new IllegalArgumentException("Only two player standard games up to " + MAX_SIZE + "x" + MAX_SIZE + " with no walls left can be solved");
+		}
+		long layout = ZobristHash.walls(board);
+		synchronized (CACHE) {
+			EndgameSolver solver = CACHE.get(layout);
+			if (solver != null) {
+				return solver;
+			}
+		}
+		// Solved outside the lock, so that other layouts can be looked up meanwhile
+		EndgameSolver solver = new EndgameSolver(board);
+		TABLES_SOLVED.increment();
+		synchronized (CACHE) {
+			CACHE.put(layout, solver);
+		}
+		return solver;
+	}
+
+	private int index(int player1Square, int player2Square, int playerToMove) {
+		return (player1Square * squares + player2Square) * 2 + playerToMove - 1;
+	}
+
+	private int square(Player player) {
+		return player.getPosition().getY() * size + player.getPosition().getX();
+	}
+
+	/**
+	 * Breadth first search out from a goal row
+	 */
+	private void measureGoalDistances(int side, int goalRow) {
+		byte[] distances = goalDistances[side];
+		Arrays.fill(distances, Byte.MAX_VALUE);
+		int[] queue = new int[squares];
+		int head = 0;
+		int tail = 0;
+		for (int x = 0; x < size; x++) {
+			distances[goalRow * size + x] = 0;
+			queue[tail++] = goalRow * size + x;
+		}
+		while (head < tail) {
+			int square = queue[head++];
+			for (int direction = 0; direction < BoardTopology.DIRECTIONS; direction++) {
+				int next = neighbours[square * BoardTopology.DIRECTIONS + direction];
+				if (next >= 0 && distances[next] == Byte.MAX_VALUE) {
+					distances[next] = (byte) (distances[square] + 1);
+					queue[tail++] = next;
+				}
+			}
+		}
+	}
+
+	private void solve() {
+		boolean[] solved = new boolean[outcomes.length];
+		for (int square1 = 0; square1 < squares; square1++) {
+			for (int square2 = 0; square2 < squares; square2++) {
+				if (square1 == square2) {
+					continue;
+				}
+				// The game is over once either pawn is on its goal, lost by whoever's turn it would have been
+				boolean player1Home = square1 / size == size - 1;
+				boolean player2Home = square2 / size == 0;
+				if (player1Home || player2Home) {
+					for (int toMove = 1; toMove <= 2; toMove++) {
+						int position = index(square1, square2, toMove);
+						outcomes[position] = ((toMove == 1) == player2Home) ? LOSS : WIN;
+						solved[position] = true;
+					}
+				}
+			}
+		}
+		int[] successors = new int[MAX_MOVES];
+		boolean changed = true;
+		for (int round = 1; changed; round++) {
+			changed = false;
+			for (int square1 = 0; square1 < squares; square1++) {
+				for (int square2 = 0; square2 < squares; square2++) {
+					if (square1 == square2) {
+						continue;
+					}
+					for (int toMove = 1; toMove <= 2; toMove++) {
+						int position = index(square1, square2, toMove);
+						if (solved[position]) {
+							continue;
+						}
+						// Won if a move leaves the opponent lost, lost if every move leaves them won
+						int count = successors(square1, square2, toMove, successors);
+						boolean won = false;
+						boolean allWon = true;
+						for (int i = 0; i < count && !won; i++) {
+							int next = successors[i];
+							boolean known = solved[next] && plies[next] < round;
+							won = known && outcomes[next] == LOSS;
+							allWon &= known && outcomes[next] == WIN;
+						}
+						if (won || allWon) {
+							outcomes[position] = won ? WIN : LOSS;
+							plies[position] = (short) round;
+							solved[position] = true;
+							changed = true;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Give the squares a pawn can move to: the square next to it in each direction no wall blocks, or if the
+	 * other pawn is there, the square behind that, or if a wall is behind it, the squares to either side of it
+	 * @return the number of squares
+	 */
+	private int moves(int from, int other, int[] squares) {
+		int count = 0;
+		for (int direction = 0; direction < BoardTopology.DIRECTIONS; direction++) {
+			int next = neighbours[from * BoardTopology.DIRECTIONS + direction];
+			if (next < 0) {
+				continue;
+			}
+			if (next != other) {
+				squares[count++] = next;
+				continue;
+			}
+			int behind = neighbours[other * BoardTopology.DIRECTIONS + direction];
+			if (behind >= 0) {
+				squares[count++] = behind;
+				continue;
+			}
+			for (int turn = 1; turn <= 3; turn += 2) {
+				int diagonal = neighbours[other * BoardTopology.DIRECTIONS + (direction + turn) % BoardTopology.DIRECTIONS];
+				if (diagonal >= 0) {
+					squares[count++] = diagonal;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Give the positions the player to move can reach in one move: one for each of their pawn's moves, or if
+	 * there are none, the same squares with the other player to move
+	 * @return the number of positions
+	 */
+	private int successors(int square1, int square2, int toMove, int[] positions) {
+		int count = moves((toMove == 1) ? square1 : square2, (toMove == 1) ? square2 : square1, positions);
+		for (int i = 0; i < count; i++) {
+			int next = positions[i];
+			positions[i] = (toMove == 1) ? index(next, square2, 2) : index(square1, next, 1);
+		}
+		if (count == 0) {
+			positions[count++] = index(square1, square2, 3 - toMove);
+		}
+		return count;
+	}
+
+	/**
+	 * @return the result of the board's position for the player to move: the number of moves, theirs and
+	 * their opponent's, before they win, less that number if they lose, or 0 for a draw or a game that's
+	 * already over
+	 */
+	public int value(Board board) {
+		int position = index(square(board.getPlayer1()), square(board.getPlayer2()), board.getCurrentPlayer().getID());
+		switch (outcomes[position]) {
+			case WIN:
+				return plies[position];
+			case LOSS:
+				return -plies[position];
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * @return the best move for the player to move: the quickest win, the slowest loss, or a move keeping a
+	 * draw that's closest to their goal; null if they have no pawn moves and must pass, or the game is over
+	 */
+	public Move bestMove(Board board) {
+		if (Perft.isWon(board)) {
+			return null;
+		}
+		int toMove = board.getCurrentPlayer().getID();
+		int square1 = square(board.getPlayer1());
+		int square2 = square(board.getPlayer2());
+		int from = (toMove == 1) ? square1 : square2;
+		int other = (toMove == 1) ? square2 : square1;
+		int[] moves = new int[MAX_MOVES];
+		int count = moves(from, other, moves);
+		int best = -1;
+		long bestScore = Long.MIN_VALUE;
+		for (int i = 0; i < count; i++) {
+			int next = moves[i];
+			int position = (toMove == 1) ? index(next, square2, 2) : index(square1, next, 1);
+			// Scored from the mover's side, so the opponent losing is best and the opponent winning worst
+			long score;
+			if (outcomes[position] == LOSS) {
+				score = 2000000 - plies[position];
+			} else if (outcomes[position] == WIN) {
+				score = -2000000 + plies[position];
+			} else {
+				score = -goalDistances[toMove - 1][next];
+			}
+			if (score > bestScore) {
+				bestScore = score;
+				best = next;
+			}
+		}
+		if (best < 0) {
+			return null;
+		}
+		return new Move(best % size, best / size, WallPlacement.NULL);
+	}
+}
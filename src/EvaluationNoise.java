@@ -0,0 +1,102 @@
+import java.util.Random;
+
+/**
+ * EvaluationNoise is the small amount added to each of the AI's evaluations, so that it doesn't always
+ * choose the same move in the same position. It can be:
+ *
+ * NONE, nothing at all, so the AI's choices depend only on the position
+ * PER_GAME, drawn from a Random seeded once for the game, so a game with the same seed plays out the same
+ * ZOBRIST, derived from the position's ZobristHash and a seed, so a position always gets the same noise
+ * however the search reached it
+ *
+ * Getting the noise never allocates anything.
+ */
+public class EvaluationNoise {
+
+	public enum Mode {
+		NONE, PER_GAME, ZOBRIST
+	}
+
+	// Noise is between 1 and this, as it always has been
+	public static final int DEFAULT_AMPLITUDE = 10;
+
+	public static final EvaluationNoise NONE = new EvaluationNoise(Mode.NONE, 0, null, 0);
+
+	private final Mode mode;
+	private final int amplitude;
+	private final Random random;
+	private final long seed;
+
+	private EvaluationNoise(Mode mode, int amplitude, Random random, long seed) {
+		this.mode = mode;
+		this.amplitude = amplitude;
+		this.random = random;
+		this.seed = seed;
+	}
+
+	/**
+	 * Noise drawn from the given Random, which shouldn't be shared with another thread
+	 */
+	public static EvaluationNoise perGame(Random random) {
+		return perGame(random, DEFAULT_AMPLITUDE);
+	}
+
+	/**
+	 * @param amplitude the most noise added to an evaluation
+	 */
+	public static EvaluationNoise perGame(Random random, int amplitude) {
+		if (amplitude < 1) {
+			throw new IllegalArgumentException("Amplitude must be positive");
+		}
+		return new EvaluationNoise(Mode.PER_GAME, amplitude, random, 0);
+	}
+
+	/**
+	 * Noise which depends only on the position and the seed
+	 */
+	public static EvaluationNoise zobrist(long seed) {
+		return zobrist(seed, DEFAULT_AMPLITUDE);
+	}
+
+	public static EvaluationNoise zobrist(long seed, int amplitude) {
+		if (amplitude < 1) {
+			throw new IllegalArgumentException("Amplitude must be positive");
+		}
+		return new EvaluationNoise(Mode.ZOBRIST, amplitude, null, seed);
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * @return whether get needs the position's hash; if not, any value can be passed
+	 */
+	public boolean usesPositionHash() {
+		return mode == Mode.ZOBRIST;
+	}
+
+	/**
+	 * @param positionHash the position's ZobristHash
+	 * @return the noise to add to the position's evaluation
+	 */
+	public int get(long positionHash) {
+		switch (mode) {
+			case PER_GAME:
+				return random.nextInt(amplitude) + 1;
+			case ZOBRIST:
+				return (int) ((mix(positionHash ^ seed) >>> 1) % amplitude) + 1;
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * Spread the bits of a hash, so that nearby positions get unrelated noise (the SplitMix64 finaliser)
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
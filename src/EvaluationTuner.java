@@ -0,0 +1,405 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * EvaluationTuner fits the AI's EvaluationWeights to the results of finished games, Texel style: every
+ * position of every game is labelled with whether the player who had just moved went on to win, and the
+ * weights are chosen to make a logistic function of the evaluation predict those labels as well as possible.
+ *
+ * Games come from a GameRecordStore file, a GameArchive or self play. Only two player standard games with
+ * a winner are used, and the first few moves of each are skipped, since those are often random. The
+ * features of each position are worked out once, in parallel, and kept in flat arrays; the fitting then
+ * only needs those arrays, and spreads each pass over the positions across the same threads.
+ */
+public class EvaluationTuner implements Closeable {
+
+	public static final int DEFAULT_OPENING_PLIES = 4;
+	public static final int DEFAULT_ITERATIONS = 300;
+
+	// Games handed to each thread at once when working out features
+	private static final int GAMES_PER_TASK = 64;
+	private static final double LEARNING_RATE = 1.0;
+
+	private int threads;
+	private int openingPlies;
+	private ExecutorService pool;
+
+	// The features of each position, feature by feature
+	private int[][] features;
+	// For each position, 1 if the player who had just moved won the game, otherwise 0
+	private byte[] results;
+	private int positionCount;
+
+	public EvaluationTuner(int threads) {
+		this(threads, DEFAULT_OPENING_PLIES);
+	}
+
+	/**
+	 * @param openingPlies the number of moves at the start of each game to leave out
+	 */
+	public EvaluationTuner(int threads, int openingPlies) {
+		if (threads < 1 || openingPlies < 0) {
+			throw new IllegalArgumentException("Bad threads or opening");
+		}
+		this.threads = threads;
+		this.openingPlies = openingPlies;
+		this.pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "EvaluationTuner");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.features = new int[EvaluationWeights.FEATURE_COUNT][1024];
+		this.results = new byte[1024];
+	}
+
+	public int getPositionCount() {
+		return positionCount;
+	}
+
+	/**
+	 * The positions of some games, their features side by side
+	 */
+	private static class Positions {
+
+		private int[][] features = new int[EvaluationWeights.FEATURE_COUNT][256];
+		private byte[] results = new byte[256];
+		private int count;
+
+		private void add(Board board, Player player, Player opponent, boolean won) {
+			if (count == results.length) {
+				for (int feature = 0; feature < features.length; feature++) {
+					features[feature] = Arrays.copyOf(features[feature], count * 2);
+				}
+				results = Arrays.copyOf(results, count * 2);
+			}
+			int goal = (player.getID() == 1) ? 8 : 0;
+			int opponentGoal = 8 - goal;
+			features[EvaluationWeights.OPPONENT_PATH][count] = Utility.shortestPathLenght(board.getPositions(), opponent.getPosition(), opponentGoal);
+			features[EvaluationWeights.OWN_PATH][count] = Utility.shortestPathLenght(board.getPositions(), player.getPosition(), goal);
+			features[EvaluationWeights.GOAL_DISTANCE][count] = Math.abs(player.getPosition().getY() - goal);
+			features[EvaluationWeights.OWN_WALLS][count] = player.getWallCount();
+			features[EvaluationWeights.OPPONENT_WALLS][count] = opponent.getWallCount();
+			results[count] = (byte) (won ? 1 : 0);
+			count++;
+		}
+	}
+
+	/**
+	 * Work out the features of every usable position in some games
+	 */
+	private Positions extract(List<GameRecord> records) {
+		Positions positions = new Positions();
+		for (GameRecord record : records) {
+			if (record.getGameMode() != GameMode.STANDARD || record.getNumberOfPlayers() != 2 || record.getWinnerID() == 0) {
+				continue;
+			}
+			StandardBoard board = new StandardBoard(false);
+			try {
+				for (int i = 0; i < record.getMoveCount(); i++) {
+					int move = record.getMove(i);
+					MoveCodec.apply(board, move);
+					if (i >= openingPlies && !Perft.isWon(board)) {
+						Player player = board.getPlayer(MoveCodec.playerID(move));
+						Player opponent = (player == board.getPlayer1()) ? board.getPlayer2() : board.getPlayer1();
+						positions.add(board, player, opponent, player.getID() == record.getWinnerID());
+					}
+				}
+			} catch (IllegalArgumentException e) {
+				// A game that can't be replayed is used up to the move that couldn't be made
+			}
+		}
+		return positions;
+	}
+
+	/**
+	 * Add the positions of some games
+	 * @return the number of positions added
+	 */
+	public int addGames(List<GameRecord> records) throws InterruptedException {
+		ArrayList<Future<Positions>> extracting = new ArrayList<Future<Positions>>();
+		for (int start = 0; start < records.size(); start += GAMES_PER_TASK) {
+			final List<GameRecord> games = records.subList(start, Math.min(start + GAMES_PER_TASK, records.size()));
+			extracting.add(pool.submit(new Callable<Positions>() {
+				@Override
+				public Positions call() {
+					return extract(games);
+				}
+			}));
+		}
+		int added = 0;
+		for (Future<Positions> future : extracting) {
+			Positions positions = get(future);
+			append(positions);
+			added += positions.count;
+		}
+		return added;
+	}
+
+	/**
+	 * Add the positions of every game in a GameRecordStore file
+	 */
+	public int addGames(GameRecordScanner scanner) throws IOException, InterruptedException {
+		int added = 0;
+		ArrayList<GameRecord> batch = new ArrayList<GameRecord>();
+		GameRecord record;
+		while ((record = scanner.next()) != null) {
+			batch.add(record);
+			if (batch.size() == GAMES_PER_TASK * threads) {
+				added += addGames(batch);
+				batch = new ArrayList<GameRecord>();
+			}
+		}
+		return added + addGames(batch);
+	}
+
+	/**
+	 * Add the positions of every game in an archive
+	 */
+	public int addGames(GameArchive archive) throws IOException, InterruptedException {
+		int added = 0;
+		ArrayList<GameRecord> batch = new ArrayList<GameRecord>();
+		GameArchive.Cursor cursor = archive.seek(0);
+		ArchivedGame game;
+		while ((game = cursor.next()) != null) {
+			batch.add(game.toGameRecord());
+			if (batch.size() == GAMES_PER_TASK * threads) {
+				added += addGames(batch);
+				batch = new ArrayList<GameRecord>();
+			}
+		}
+		return added + addGames(batch);
+	}
+
+	/**
+	 * Play games between two AIs using the given weights and add their positions
+	 */
+	public int addSelfPlayGames(int games, int depth, EvaluationWeights weights, long seed) throws InterruptedException {
+		Tournament.Engine engine = new Tournament.Engine("self play", depth, 0, weights);
+		final Tournament tournament = new Tournament(engine, engine);
+		Random seeds = new Random(seed);
+		ArrayList<Future<GameRecord>> playing = new ArrayList<Future<GameRecord>>();
+		for (int game = 0; game < games; game++) {
+			final long gameSeed = seeds.nextLong();
+			playing.add(pool.submit(new Callable<GameRecord>() {
+				@Override
+				public GameRecord call() {
+					return tournament.playGame(true, gameSeed);
+				}
+			}));
+		}
+		ArrayList<GameRecord> records = new ArrayList<GameRecord>();
+		for (Future<GameRecord> future : playing) {
+			records.add(get(future));
+		}
+		return addGames(records);
+	}
+
+	private synchronized void append(Positions positions) {
+		int needed = positionCount + positions.count;
+		if (needed > results.length) {
+			int capacity = Math.max(needed, results.length * 2);
+			for (int feature = 0; feature < features.length; feature++) {
+				features[feature] = Arrays.copyOf(features[feature], capacity);
+			}
+			results = Arrays.copyOf(results, capacity);
+		}
+		for (int feature = 0; feature < features.length; feature++) {
+			System.arraycopy(positions.features[feature], 0, features[feature], positionCount, positions.count);
+		}
+		System.arraycopy(positions.results, 0, results, positionCount, positions.count);
+		positionCount = needed;
+	}
+
+	/**
+	 * @return the mean squared difference between each position's result and the win probability predicted
+	 * from its evaluation, 1 / (1 + e^(-scale * evaluation))
+	 */
+	public double error(EvaluationWeights weights, double scale) throws InterruptedException {
+		double[] w = new double[EvaluationWeights.FEATURE_COUNT];
+		for (int feature = 0; feature < w.length; feature++) {
+			w[feature] = weights.get(feature);
+		}
+		return sums(w, scale, false)[0] / positionCount;
+	}
+
+	/**
+	 * @return the scale which best turns the given weights' evaluations into win probabilities
+	 */
+	public double fitScale(EvaluationWeights weights) throws InterruptedException {
+		// Golden section search on the scale's logarithm
+		double low = -6;
+		double high = 0;
+		double ratio = (Math.sqrt(5) - 1) / 2;
+		for (int i = 0; i < 40; i++) {
+			double a = high - ratio * (high - low);
+			double b = low + ratio * (high - low);
+			if (error(weights, Math.pow(10, a)) < error(weights, Math.pow(10, b))) {
+				high = b;
+			} else {
+				low = a;
+			}
+		}
+		return Math.pow(10, (low + high) / 2);
+	}
+
+	/**
+	 * Fit the weights by gradient descent, with the scale fitted to the starting weights and then kept fixed
+	 * @return the fitted weights, rounded to whole numbers
+	 */
+	public EvaluationWeights tune(EvaluationWeights start, int iterations) throws InterruptedException {
+		if (positionCount == 0) {
+			throw new IllegalStateException("No positions to tune on");
+		}
+		double scale = fitScale(start);
+		int n = EvaluationWeights.FEATURE_COUNT;
+		double[] w = new double[n];
+		for (int feature = 0; feature < n; feature++) {
+			w[feature] = start.get(feature);
+		}
+		// Adam, so that features on different scales all move at a sensible rate
+		double[] m = new double[n];
+		double[] v = new double[n];
+		double beta1 = 0.9;
+		double beta2 = 0.999;
+		for (int t = 1; t <= iterations; t++) {
+			double[] sums = sums(w, scale, true);
+			for (int feature = 0; feature < n; feature++) {
+				double gradient = sums[feature + 1] / positionCount;
+				m[feature] = beta1 * m[feature] + (1 - beta1) * gradient;
+				v[feature] = beta2 * v[feature] + (1 - beta2) * gradient * gradient;
+				double mHat = m[feature] / (1 - Math.pow(beta1, t));
+				double vHat = v[feature] / (1 - Math.pow(beta2, t));
+				w[feature] -= LEARNING_RATE * mHat / (Math.sqrt(vHat) + 1e-12);
+			}
+		}
+		int[] rounded = new int[n];
+		for (int feature = 0; feature < n; feature++) {
+			rounded[feature] = (int) Math.round(w[feature]);
+		}
+		return new EvaluationWeights(rounded);
+	}
+
+	/**
+	 * Go over every position, split between the threads
+	 * @return the summed squared error, followed by its gradient with respect to each weight if asked for
+	 */
+	private double[] sums(final double[] w, final double scale, final boolean withGradient) throws InterruptedException {
+		int slice = (positionCount + threads - 1) / threads;
+		ArrayList<Future<double[]>> summing = new ArrayList<Future<double[]>>();
+		for (int start = 0; start < positionCount; start += slice) {
+			final int from = start;
+			final int to = Math.min(start + slice, positionCount);
+			summing.add(pool.submit(new Callable<double[]>() {
+				@Override
+				public double[] call() {
+					return sums(w, scale, withGradient, from, to);
+				}
+			}));
+		}
+		double[] total = new double[w.length + 1];
+		for (Future<double[]> future : summing) {
+			double[] part = get(future);
+			for (int i = 0; i < total.length; i++) {
+				total[i] += part[i];
+			}
+		}
+		return total;
+	}
+
+	private double[] sums(double[] w, double scale, boolean withGradient, int from, int to) {
+		double[] sums = new double[w.length + 1];
+		for (int i = from; i < to; i++) {
+			double evaluation = 0;
+			for (int feature = 0; feature < w.length; feature++) {
+				evaluation += w[feature] * features[feature][i];
+			}
+			double predicted = 1 / (1 + Math.exp(-scale * evaluation));
+			double difference = results[i] - predicted;
+			sums[0] += difference * difference;
+			if (withGradient) {
+				double slope = -2 * difference * predicted * (1 - predicted) * scale;
+				for (int feature = 0; feature < w.length; feature++) {
+					sums[feature + 1] += slope * features[feature][i];
+				}
+			}
+		}
+		return sums;
+	}
+
+	private static <T> T get(Future<T> future) throws InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Tuning task failed", e.getCause());
+		}
+	}
+
+	@Override
+	public void close() {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * EvaluationTuner source [weights file] [iterations] [threads]
+	 *
+	 * where the source is a GameRecordStore file, a GameArchive directory, or selfplay:games to play that
+	 * many games at depth 1. The weights file defaults to ./ai-weights.properties
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 1) {
+			System.out.println("Usage: EvaluationTuner games.qgr|archive-directory|selfplay:games [weights file] [iterations] [threads]");
+			return;
+		}
+		File out = new File(args.length > 1 ? args[1] : "./ai-weights.properties");
+		int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_ITERATIONS;
+		int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		EvaluationWeights start = EvaluationWeights.getDefault();
+		EvaluationTuner tuner = new EvaluationTuner(threads);
+		try {
+			long startNanos = System.nanoTime();
+			if (args[0].startsWith("selfplay:")) {
+				tuner.addSelfPlayGames(Integer.parseInt(args[0].substring("selfplay:".length())), 1, start, System.nanoTime());
+			} else if (new File(args[0]).isDirectory()) {
+				GameArchive archive = new GameArchive(new File(args[0]));
+				try {
+					tuner.addGames(archive);
+				} finally {
+					archive.close();
+				}
+			} else {
+				GameRecordScanner scanner = new GameRecordScanner(new File(args[0]));
+				try {
+					tuner.addGames(scanner);
+				} finally {
+					scanner.close();
+				}
+			}
+			double seconds = (System.nanoTime() - startNanos) / 1e9;
+			System.out.println(String.format("%d positions in %.1f s (%.0f a second)", tuner.getPositionCount(), seconds, tuner.getPositionCount() / seconds));
+			double scale = tuner.fitScale(start);
+			System.out.println("Before: " + start + ", error " + tuner.error(start, scale));
+			startNanos = System.nanoTime();
+			EvaluationWeights tuned = tuner.tune(start, iterations);
+			seconds = (System.nanoTime() - startNanos) / 1e9;
+			System.out.println(String.format("After: %s, error %s (%d iterations in %.1f s)", tuned, tuner.error(tuned, scale), iterations, seconds));
+			tuned.write(out, "Tuned on " + tuner.getPositionCount() + " positions from " + args[0]);
+			System.out.println("Weights saved to " + out);
+		} finally {
+			tuner.close();
+		}
+	}
+}
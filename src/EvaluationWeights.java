@@ -0,0 +1,174 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * EvaluationWeights are the weights the AI's evaluation gives to each feature of a position, seen from the
+ * AI's side. A position's score is the sum of each feature times its weight:
+ *
+ * the length of the opponent's shortest path to their goal
+ * the length of the AI's shortest path to its goal
+ * how many rows the AI's pawn is from its goal, ignoring walls
+ * the number of walls the AI has left
+ * the number of walls the opponent has left
+ *
+ * The weights are kept in a properties file, written by EvaluationTuner, which the AI reads from
+ * ./ai-weights.properties the first time it's needed. Without that file the AI uses the weights it has
+ * always played with.
+ */
+public class EvaluationWeights {
+
+	public static final int OPPONENT_PATH = 0;
+	public static final int OWN_PATH = 1;
+	public static final int GOAL_DISTANCE = 2;
+	public static final int OWN_WALLS = 3;
+	public static final int OPPONENT_WALLS = 4;
+	public static final int FEATURE_COUNT = 5;
+
+	private static final String[] NAMES = {"opponentPath", "ownPath", "goalDistance", "ownWalls", "opponentWalls"};
+	private static final int[] BUILT_IN = {35, -45, -1, 40, 0};
+	private static final String DEFAULT_PATH = "./ai-weights.properties";
+
+	private static EvaluationWeights defaultWeights;
+
+	private final int opponentPath;
+	private final int ownPath;
+	private final int goalDistance;
+	private final int ownWalls;
+	private final int opponentWalls;
+
+	/**
+	 * @param weights the weight of each feature, indexed by OPPONENT_PATH and so on
+	 */
+	public EvaluationWeights(int[] weights) {
+		if (weights.length != FEATURE_COUNT) {
+			throw new IllegalArgumentException("Need " + FEATURE_COUNT + " weights, not " + weights.length);
+		}
+		this.opponentPath = weights[OPPONENT_PATH];
+		this.ownPath = weights[OWN_PATH];
+		this.goalDistance = weights[GOAL_DISTANCE];
+		this.ownWalls = weights[OWN_WALLS];
+		this.opponentWalls = weights[OPPONENT_WALLS];
+	}
+
+	/**
+	 * @return the weights the AI was written with
+	 */
+	public static EvaluationWeights builtIn() {
+		return new EvaluationWeights(BUILT_IN);
+	}
+
+	/**
+	 * @return the weights in ./ai-weights.properties, or the built in weights if there's no such file or it
+	 * can't be read. The file is only read once
+	 */
+	public static synchronized EvaluationWeights getDefault() {
+		if (defaultWeights == null) {
+			File file = new File(DEFAULT_PATH);
+			defaultWeights = builtIn();
+			if (file.exists()) {
+				try {
+					defaultWeights = read(file);
+				} catch (IOException | IllegalArgumentException e) {
+					SystemLogger.log(LogLevel.WARNING, "Couldn't read AI weights; using the built in ones", "file", file, "error", e.getMessage());
+				}
+			}
+		}
+		return defaultWeights;
+	}
+
+	/**
+	 * Score a position from the AI's side
+	 */
+	public int evaluate(int opponentPathLength, int ownPathLength, int ownGoalDistance, int ownWallCount, int opponentWallCount) {
+		return opponentPath * opponentPathLength + ownPath * ownPathLength + goalDistance * ownGoalDistance
+				+ ownWalls * ownWallCount + opponentWalls * opponentWallCount;
+	}
+
+	/**
+	 * @return the weight of a feature
+	 * @param feature OPPONENT_PATH, OWN_PATH, GOAL_DISTANCE, OWN_WALLS or OPPONENT_WALLS
+	 */
+	public int get(int feature) {
+		return toArray()[feature];
+	}
+
+	public int[] toArray() {
+		return new int[] {opponentPath, ownPath, goalDistance, ownWalls, opponentWalls};
+	}
+
+	/**
+	 * @return the name of a feature in a weights file
+	 */
+	public static String getName(int feature) {
+		return NAMES[feature];
+	}
+
+	/**
+	 * Read weights from a properties file. Any weight the file leaves out is given its built in value
+	 * @throws IllegalArgumentException if a weight isn't a number
+	 */
+	public static EvaluationWeights read(File file) throws IOException {
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(file);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		int[] weights = BUILT_IN.clone();
+		for (int feature = 0; feature < FEATURE_COUNT; feature++) {
+			String value = properties.getProperty(NAMES[feature]);
+			if (value != null) {
+				try {
+					weights[feature] = Integer.parseInt(value.trim());
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Bad weight " + NAMES[feature] + "=" + value);
+				}
+			}
+		}
+		return new EvaluationWeights(weights);
+	}
+
+	public void write(File file, String comment) throws IOException {
+		Properties properties = new Properties();
+		int[] weights = toArray();
+		for (int feature = 0; feature < FEATURE_COUNT; feature++) {
+			properties.setProperty(NAMES[feature], Integer.toString(weights[feature]));
+		}
+		OutputStream out = new FileOutputStream(file);
+		try {
+			properties.store(out, comment);
+		} finally {
+			out.close();
+		}
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof EvaluationWeights && Arrays.equals(toArray(), ((EvaluationWeights) other).toArray());
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(toArray());
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder out = new StringBuilder();
+		int[] weights = toArray();
+		for (int feature = 0; feature < FEATURE_COUNT; feature++) {
+			if (feature > 0) {
+				out.append(", ");
+			}
+			out.append(NAMES[feature]).append('=').append(weights[feature]);
+		}
+		return out.toString();
+	}
+}
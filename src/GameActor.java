@@ -0,0 +1,99 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A GameActor runs every command for one game, one at a time, in the order they arrived. Commands come
+ * from each player's I/O thread and from timers; they are added to the actor's mailbox, which any number
+ * of threads can add to without locking, and run by whichever pool thread the actor is scheduled on.
+ * Because only one command for a game ever runs at once, the game's controller and board need no locks
+ * of their own, and thousands of games can share a pool with a thread per processor.
+ *
+ * An actor is only scheduled while its mailbox has commands in it. It runs a batch of commands each time
+ * it's scheduled, then goes to the back of the pool's queue if more are waiting, so one busy game can't
+ * starve the others.
+ */
+public class GameActor implements Runnable {
+
+	// The most commands run each time the actor is scheduled
+	private static final int BATCH_SIZE = 64;
+
+	private static ExecutorService sharedExecutor;
+
+	private ConcurrentLinkedQueue<Runnable> mailbox;
+	// Set while the actor is waiting in or running on the executor
+	private AtomicBoolean scheduled;
+	private Executor executor;
+
+	public GameActor() {
+		this(getSharedExecutor());
+	}
+
+	/**
+	 * @param executor the pool the actor's commands run on
+	 */
+	public GameActor(Executor executor) {
+		this.mailbox = new ConcurrentLinkedQueue<Runnable>();
+		this.scheduled = new AtomicBoolean();
+		this.executor = executor;
+	}
+
+	/**
+	 * @return the pool shared by every game in the process, with a thread per processor
+	 */
+	public static synchronized ExecutorService getSharedExecutor() {
+		if (sharedExecutor == null) {
+			final AtomicInteger threadNumber = new AtomicInteger();
+			sharedExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "GameActor-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return sharedExecutor;
+	}
+
+	/**
+	 * Add a command to the mailbox; it runs after every command added before it
+	 */
+	public void tell(Runnable command) {
+		mailbox.offer(command);
+		schedule();
+	}
+
+	/**
+	 * Run a batch of commands from the mailbox. Only ever called by the executor
+	 */
+	@Override
+	public void run() {
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			Runnable command = mailbox.poll();
+			if (command == null) {
+				break;
+			}
+			try {
+				command.run();
+			} catch (RuntimeException e) {
+				SystemLogger.logError("Game command failed: " + e);
+			}
+		}
+		scheduled.set(false);
+		// a command may have been added after the last poll but before scheduled was cleared
+		if (!mailbox.isEmpty()) {
+			schedule();
+		}
+	}
+
+	private void schedule() {
+		if (scheduled.compareAndSet(false, true)) {
+			executor.execute(this);
+		}
+	}
+}
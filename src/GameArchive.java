@@ -0,0 +1,481 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * GameArchive keeps finished games in a directory of segment files, so that any game can be found by its
+ * ID without reading the games before it. Each segment holds games with increasing IDs, framed the same way
+ * as in a GameRecordStore, and is named after the ID of its first game. A new segment is started once the
+ * current one reaches the segment size.
+ *
+ * Every segment has a sparse index of the offset of every 64th game, kept in memory and in a .idx file
+ * beside it. Finding a game is a binary search of the segments, then of the index, then a walk over at most
+ * 64 frames, all read through a memory mapping of the segment. The game itself is returned as an
+ * ArchivedGame reading straight from the mapping.
+ *
+ * Appends are serialised among themselves, but never block readers: a game, and its index entry, are only
+ * published to readers once they're written.
+ */
+public class GameArchive implements Closeable {
+
+	public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+	// A game in every INDEX_INTERVAL has an entry in its segment's index
+	public static final int INDEX_INTERVAL = 64;
+
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".qga";
+	private static final String INDEX_SUFFIX = ".idx";
+	// Each index entry is the game's ID and its frame's offset
+	private static final int INDEX_ENTRY_BYTES = 16;
+
+	private File directory;
+	private long segmentBytes;
+	// Copied on write, so readers can search it without locking
+	private volatile Segment[] segments;
+	private boolean closed;
+
+	/**
+	 * Open an archive in a directory, creating the directory if needed
+	 */
+	public GameArchive(File directory) throws IOException {
+		this(directory, DEFAULT_SEGMENT_BYTES);
+	}
+
+	/**
+	 * @param segmentBytes the size at which a new segment is started; at most Integer.MAX_VALUE, as segments are
+	 * read through a single mapping and int offsets
+	 */
+	public GameArchive(File directory, long segmentBytes) throws IOException {
+		if (segmentBytes <= 0) {
+			throw new IllegalArgumentException("Segment size must be positive: " + segmentBytes);
+		}
+		if (segmentBytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Segment size must be at most " + Integer.MAX_VALUE + " bytes: " + segmentBytes);
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Couldn't create game archive directory " + directory);
+		}
+		this.directory = directory;
+		this.segmentBytes = segmentBytes;
+		this.segments = openSegments();
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return the number of segment files in the archive
+	 */
+	public int getSegmentCount() {
+		return segments.length;
+	}
+
+	/**
+	 * @return the ID of the last game in the archive, or 0 if it's empty
+	 */
+	public long getLastGameID() {
+		Segment[] current = segments;
+		return (current.length == 0) ? 0 : current[current.length - 1].lastGameID;
+	}
+
+	/**
+	 * Add a game to the end of the archive. Its ID must be higher than any game already archived
+	 */
+	public synchronized void append(GameRecord record) throws IOException {
+		if (closed) {
+			throw new IllegalStateException("The game archive is closed");
+		}
+		long gameID = record.getGameID();
+		if (gameID <= getLastGameID()) {
+			throw new IllegalArgumentException("Game " + gameID + " is not after the last archived game " + getLastGameID());
+		}
+		ByteBuffer frame = ByteBuffer.allocate(GameRecordStore.FRAME_HEADER_BYTES + record.encodedLength());
+		frame.position(GameRecordStore.FRAME_HEADER_BYTES);
+		record.encode(frame);
+		ByteBuffer payload = frame.duplicate();
+		payload.position(GameRecordStore.FRAME_HEADER_BYTES);
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		frame.putInt(0, frame.capacity() - GameRecordStore.FRAME_HEADER_BYTES);
+		frame.putInt(4, (int) crc.getValue());
+		frame.flip();
+
+		Segment[] current = segments;
+		Segment segment = (current.length == 0) ? null : current[current.length - 1];
+		if (segment == null || (segment.size > 0 && segment.size + frame.remaining() > segmentBytes)) {
+			if (segment != null) {
+				segment.force();
+			}
+			segment = new Segment(segmentFile(gameID), gameID);
+			Segment[] grown = Arrays.copyOf(current, current.length + 1);
+			grown[current.length] = segment;
+			segments = grown;
+		}
+		segment.append(gameID, frame);
+	}
+
+	/**
+	 * Archive the records from a GameRecordStore scan which aren't archived yet
+	 * @return the number of games added
+	 */
+	public int importFrom(GameRecordScanner scanner) throws IOException {
+		int imported = 0;
+		GameRecord record;
+		while ((record = scanner.next()) != null) {
+			if (record.getGameID() > getLastGameID()) {
+				append(record);
+				imported++;
+			}
+		}
+		return imported;
+	}
+
+	/**
+	 * Make sure every game appended so far is on disk
+	 */
+	public synchronized void sync() throws IOException {
+		Segment[] current = segments;
+		if (current.length > 0) {
+			current[current.length - 1].force();
+		}
+	}
+
+	/**
+	 * @return the game with the given ID, or null if it isn't in the archive
+	 */
+	public ArchivedGame get(long gameID) throws IOException {
+		Segment segment = findSegment(gameID);
+		if (segment == null || gameID > segment.lastGameID) {
+			return null;
+		}
+		long size = segment.size;
+		ByteBuffer buffer = segment.map(size);
+		long offset = segment.indexedOffset(gameID);
+		while (offset < size) {
+			int length = buffer.getInt((int) offset);
+			long id = buffer.getLong((int) offset + GameRecordStore.FRAME_HEADER_BYTES + 1);
+			if (id == gameID) {
+				return slice(buffer, offset, length);
+			}
+			if (id > gameID) {
+				return null;
+			}
+			offset += GameRecordStore.FRAME_HEADER_BYTES + length;
+		}
+		return null;
+	}
+
+	/**
+	 * @return a cursor over the games from the given ID, or the first game after it, to the end of the archive
+	 */
+	public Cursor seek(long fromGameID) throws IOException {
+		Segment[] current = segments;
+		int index = Math.max(0, segmentIndex(current, fromGameID));
+		Cursor cursor = new Cursor(index);
+		if (index < current.length) {
+			cursor.offset = current[index].indexedOffset(fromGameID);
+		}
+		cursor.fromGameID = fromGameID;
+		return cursor;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		for (Segment segment : segments) {
+			segment.close();
+		}
+	}
+
+	/**
+	 * Reads the games in the archive in order. Games appended while reading are included
+	 */
+	public class Cursor {
+
+		private int segmentIndex;
+		private long offset;
+		private long fromGameID;
+
+		private Cursor(int segmentIndex) {
+			this.segmentIndex = segmentIndex;
+		}
+
+		/**
+		 * @return the next game, or null if there are none left
+		 */
+		public ArchivedGame next() throws IOException {
+			while (true) {
+				Segment[] current = segments;
+				if (segmentIndex >= current.length) {
+					return null;
+				}
+				Segment segment = current[segmentIndex];
+				long size = segment.size;
+				if (offset >= size) {
+					if (segmentIndex == current.length - 1) {
+						return null;
+					}
+					segmentIndex++;
+					offset = 0;
+					continue;
+				}
+				ByteBuffer buffer = segment.map(size);
+				int length = buffer.getInt((int) offset);
+				long frameOffset = offset;
+				offset += GameRecordStore.FRAME_HEADER_BYTES + length;
+				long id = buffer.getLong((int) frameOffset + GameRecordStore.FRAME_HEADER_BYTES + 1);
+				if (id >= fromGameID) {
+					return slice(buffer, frameOffset, length);
+				}
+			}
+		}
+	}
+
+	private static ArchivedGame slice(ByteBuffer buffer, long frameOffset, int length) {
+		ByteBuffer record = buffer.duplicate();
+		int start = (int) frameOffset + GameRecordStore.FRAME_HEADER_BYTES;
+		record.position(start).limit(start + length);
+		return new ArchivedGame(record.slice());
+	}
+
+	private Segment findSegment(long gameID) {
+		Segment[] current = segments;
+		int index = segmentIndex(current, gameID);
+		return (index < 0) ? null : current[index];
+	}
+
+	/**
+	 * @return the index of the last segment starting at or before the game, or -1 if there isn't one
+	 */
+	private static int segmentIndex(Segment[] current, long gameID) {
+		int low = 0;
+		int high = current.length - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (current[middle].firstGameID <= gameID) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return high;
+	}
+
+	private File segmentFile(long firstGameID) {
+		return new File(directory, String.format("%s%019d%s", SEGMENT_PREFIX, firstGameID, SEGMENT_SUFFIX));
+	}
+
+	private Segment[] openSegments() throws IOException {
+		String[] names = directory.list();
+		if (names == null) {
+			throw new IOException("Couldn't list game archive directory " + directory);
+		}
+		Arrays.sort(names);
+		Segment[] opened = new Segment[0];
+		for (String name : names) {
+			if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+				long firstGameID = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+				Segment segment = new Segment(new File(directory, name), firstGameID);
+				if (segment.size == 0) {
+					segment.close();
+					continue;
+				}
+				opened = Arrays.copyOf(opened, opened.length + 1);
+				opened[opened.length - 1] = segment;
+			}
+		}
+		return opened;
+	}
+
+	/**
+	 * One segment file and its index
+	 */
+	private static class Segment {
+
+		private File file;
+		private long firstGameID;
+		private FileChannel channel;
+		private FileChannel indexChannel;
+
+		// The bytes and games readers may see, published after each append
+		private volatile long size;
+		private volatile long lastGameID;
+		private int gameCount;
+
+		// Pairs of game ID and offset; entries below indexCount are never changed
+		private volatile long[] index;
+		private volatile int indexCount;
+
+		// The read-only mapping, replaced by a larger one when the segment grows past it; guarded by this
+		private volatile MappedByteBuffer mapping;
+
+		Segment(File file, long firstGameID) throws IOException {
+			this.file = file;
+			this.firstGameID = firstGameID;
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			File indexFile = new File(file.getPath().substring(0, file.getPath().length() - SEGMENT_SUFFIX.length()) + INDEX_SUFFIX);
+			this.indexChannel = FileChannel.open(indexFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			this.index = new long[2 * 16];
+			recover();
+		}
+
+		/**
+		 * Load the index, then walk the frames after its last entry to find the end of the segment, cutting off
+		 * a frame left half written by a crash
+		 */
+		private void recover() throws IOException {
+			long fileSize = channel.size();
+			ByteBuffer entries = ByteBuffer.allocate((int) (indexChannel.size() / INDEX_ENTRY_BYTES * INDEX_ENTRY_BYTES));
+			int read = 0;
+			while (entries.hasRemaining() && read >= 0) {
+				read = indexChannel.read(entries, entries.position());
+			}
+			entries.flip();
+			long previousID = firstGameID - 1;
+			while (entries.remaining() >= INDEX_ENTRY_BYTES) {
+				long id = entries.getLong();
+				long offset = entries.getLong();
+				if (id <= previousID || offset >= fileSize || (indexCount == 0 && (id != firstGameID || offset != 0))) {
+					break;
+				}
+				addIndexEntry(id, offset);
+				previousID = id;
+			}
+
+			long offset = (indexCount == 0) ? 0 : index[2 * indexCount - 1];
+			gameCount = (indexCount == 0) ? 0 : (indexCount - 1) * INDEX_INTERVAL;
+			ByteBuffer buffer = (fileSize == 0) ? ByteBuffer.allocate(0) : channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+			CRC32 crc = new CRC32();
+			lastGameID = firstGameID - 1;
+			while (offset + GameRecordStore.FRAME_HEADER_BYTES <= fileSize) {
+				int length = buffer.getInt((int) offset);
+				int checksum = buffer.getInt((int) offset + 4);
+				long end = offset + GameRecordStore.FRAME_HEADER_BYTES + length;
+				if (length < 9 || length > GameRecordStore.MAX_RECORD_BYTES || end > fileSize) {
+					break;
+				}
+				ByteBuffer payload = buffer.duplicate();
+				payload.position((int) offset + GameRecordStore.FRAME_HEADER_BYTES).limit((int) end);
+				crc.reset();
+				crc.update(payload);
+				if ((int) crc.getValue() != checksum) {
+					break;
+				}
+				long id = buffer.getLong((int) offset + GameRecordStore.FRAME_HEADER_BYTES + 1);
+				if (gameCount % INDEX_INTERVAL == 0 && (indexCount == 0 || index[2 * indexCount - 2] != id)) {
+					addIndexEntry(id, offset);
+				}
+				lastGameID = id;
+				gameCount++;
+				offset = end;
+			}
+			if (fileSize > offset) {
+				SystemLogger.logWarning("Cut " + (fileSize - offset) + " bytes of incomplete games from " + file);
+				channel.truncate(offset);
+			}
+			size = offset;
+
+			// Rewrite the index file to match what was found
+			ByteBuffer rewritten = ByteBuffer.allocate(indexCount * INDEX_ENTRY_BYTES);
+			for (int i = 0; i < 2 * indexCount; i++) {
+				rewritten.putLong(index[i]);
+			}
+			rewritten.flip();
+			indexChannel.truncate(0);
+			while (rewritten.hasRemaining()) {
+				indexChannel.write(rewritten, rewritten.position());
+			}
+		}
+
+		/**
+		 * Write a frame at the end of the segment, then publish it to readers
+		 */
+		void append(long gameID, ByteBuffer frame) throws IOException {
+			long offset = size;
+			int length = frame.remaining();
+			long position = offset;
+			while (frame.hasRemaining()) {
+				position += channel.write(frame, position);
+			}
+			if (gameCount % INDEX_INTERVAL == 0) {
+				ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+				entry.putLong(gameID).putLong(offset).flip();
+				long indexPosition = (long) indexCount * INDEX_ENTRY_BYTES;
+				while (entry.hasRemaining()) {
+					indexPosition += indexChannel.write(entry, indexPosition);
+				}
+				addIndexEntry(gameID, offset);
+			}
+			gameCount++;
+			size = offset + length;
+			lastGameID = gameID;
+		}
+
+		private void addIndexEntry(long gameID, long offset) {
+			long[] entries = index;
+			if (2 * indexCount == entries.length) {
+				entries = Arrays.copyOf(entries, 2 * entries.length);
+			}
+			entries[2 * indexCount] = gameID;
+			entries[2 * indexCount + 1] = offset;
+			index = entries;
+			indexCount++;
+		}
+
+		/**
+		 * @return the offset of the indexed game at or before the given one, where a search for it can start
+		 */
+		long indexedOffset(long gameID) {
+			int count = indexCount;
+			long[] entries = index;
+			int low = 0;
+			int high = count - 1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				if (entries[2 * middle] <= gameID) {
+					low = middle + 1;
+				} else {
+					high = middle - 1;
+				}
+			}
+			return (high < 0) ? 0 : entries[2 * high + 1];
+		}
+
+		/**
+		 * @return a read-only mapping covering at least the first length bytes of the segment
+		 */
+		ByteBuffer map(long length) throws IOException {
+			MappedByteBuffer current = mapping;
+			if (current == null || current.capacity() < length) {
+				synchronized (this) {
+					current = mapping;
+					if (current == null || current.capacity() < length) {
+						current = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+						mapping = current;
+					}
+				}
+			}
+			return current;
+		}
+
+		void force() throws IOException {
+			channel.force(false);
+			indexChannel.force(false);
+		}
+
+		void close() throws IOException {
+			channel.close();
+			indexChannel.close();
+		}
+	}
+}
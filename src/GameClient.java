@@ -23,7 +23,7 @@ public class GameClient extends Thread {
 	private Socket serverSocket;
 
 	// Server socket input/output
-	private PrintWriter out;
+	private volatile PrintWriter out;
 	private BufferedReader in;
 
 	private NetworkedBoardGUI gui;
@@ -39,6 +39,26 @@ public class GameClient extends Thread {
 
     private Alert alert;
 
+	// Address of the game server, kept so that a dropped connection can be re-established
+	private String IPAddress;
+	private int portAddress;
+	// Token identifying this client's session on the server, and the sequence number of the last event received
+	private String sessionToken;
+	private long lastSeenSequence;
+
+	// Heartbeats: the server pings every few seconds, so a connection silent for the timeout is dead
+	private static final long HEARTBEAT_INTERVAL_MILLIS = 5000;
+	private static final long IDLE_TIMEOUT_MILLIS = 20000;
+	private volatile long lastReadMillis;
+	// Whether run() is still going, so the watchdog stops rescheduling itself once it ends; the watchdog is
+	// rescheduled and cancelled under watchdogLock, so run() can't cancel a timeout that has already been replaced
+	private volatile boolean running;
+	private final Object watchdogLock = new Object();
+	private volatile HashedWheelTimer.Timeout watchdog;
+
+	private static final int RECONNECT_ATTEMPTS = 5;
+	private static final long RECONNECT_BACKOFF_MILLIS = 500;
+
 	public GameClient(GUI gui) {
 		this.gui = (NetworkedBoardGUI) gui;
 		guiCanBeLaunched = false;
@@ -48,9 +68,56 @@ public class GameClient extends Thread {
 	}
 
 	public void run() {
-		while (true) {
+		lastReadMillis = System.currentTimeMillis();
+		running = true;
+		scheduleWatchdog();
+		boolean connected = true;
+		while (connected) {
 			listenForServerInput();
+			connected = reconnect();
+		}
+		synchronized (watchdogLock) {
+			running = false;
+			watchdog.cancel();
 		}
+		SystemLogger.logInfo("Disconnected from server");
+	}
+
+	/**
+	 * Check on the server connection again after the heartbeat interval, unless the client has stopped
+	 */
+	private void scheduleWatchdog() {
+		synchronized (watchdogLock) {
+			if (!running) {
+				return;
+			}
+			watchdog = HashedWheelTimer.getSharedTimer().schedule(new Runnable() {
+				@Override
+				public void run() {
+					checkServerHeartbeat();
+				}
+			}, HEARTBEAT_INTERVAL_MILLIS);
+		}
+	}
+
+	/**
+	 * The server pings every few seconds, so a connection that has been silent for longer than the timeout
+	 * is dead. Closing the socket wakes the blocked read so the client can reconnect
+	 */
+	private void checkServerHeartbeat() {
+		if (!running) {
+			return;
+		}
+		if (System.currentTimeMillis() - lastReadMillis > IDLE_TIMEOUT_MILLIS) {
+			SystemLogger.logInfo("Server timed out");
+			lastReadMillis = System.currentTimeMillis();
+			try {
+				serverSocket.close();
+			} catch (Exception e) {
+				SystemLogger.logError(e.getMessage());
+			}
+		}
+		scheduleWatchdog();
 	}
 
 	public void setPlayerID(int id) {
@@ -75,6 +142,8 @@ public class GameClient extends Thread {
 	public void connectToServer(String IPAddress, int portAddress) {
 		if (portAddress <= 65535) {
 			try {
+				this.IPAddress = IPAddress;
+				this.portAddress = portAddress;
 				serverSocket = new Socket(IPAddress, portAddress);
 				out = new PrintWriter(serverSocket.getOutputStream(), true);
 				in = new BufferedReader(new InputStreamReader(serverSocket.getInputStream()));
@@ -94,64 +163,20 @@ public class GameClient extends Thread {
 
 		try {
 			while ((fromServer = in.readLine()) != null) {
+				lastReadMillis = System.currentTimeMillis();
 				String[] commands = fromServer.split("\\s+");
-				if (commands[0].equals("bootGUI")) {
-					guiCanBeLaunched = true;
-				}
-				else if (commands[0].equals("setID")) {
-					int id = Integer.parseInt(commands[1]);
-					setPlayerID(id);
-				}
-				else if (commands[0].equals("stats")) {
-					updatePlayerStats(commands);
+				if (commands[0].equals("ping")) {
+					out.println("pong");
 				}
-				else if (commands[0].equals("pawn")) {
-					updatePlayerPawnPosition(commands);
+				else if (commands[0].equals("event")) {
+					// events from the server's event log are tagged with a sequence number
+					lastSeenSequence = Long.parseLong(commands[1]);
+					String[] event = new String[commands.length - 2];
+					System.arraycopy(commands, 2, event, 0, event.length);
+					processCommand(event);
 				}
-				else if (commands[0].equals("currentPlayer")) {
-					updateCurrentPlayer(commands);
-				}
-				else if (commands[0].equals("highlight")) {
-					highlightAvailablePositions(commands);
-				}
-				else if (commands[0].equals("error")) {
-					displayErrorMessage(commands);
-				}
-				else if (commands[0].equals("wall")) {
-					updateWallPosition(commands);
-				}
-				else if (commands[0].equals("reset")) {
-                    gui.resetWalls();
-                }
-				else if (commands[0].equals("remove-wall-display")) {
-					removeWallDisplay(commands);
-				}
-				else if (commands[0].equals("coordinate")) {
-					int player1X = Integer.parseInt(commands[1]);
-					int player1Y = Integer.parseInt(commands[2]);
-					int player2X = Integer.parseInt(commands[3]);
-					int player2Y = Integer.parseInt(commands[4]);
-					int player3X;
-					int player3Y;
-					int player4X;
-					int player4Y;
-                    if (gui.getNumberOfPlayers() == 2) {
-                        player3X = -1;
-                        player3Y = -1;
-                        player4X = -1;
-                        player4Y = -1;
-                    } else {
-                        player3X = Integer.parseInt(commands[5]);
-                        player3Y = Integer.parseInt(commands[6]);
-                        player4X = Integer.parseInt(commands[7]);
-                        player4Y = Integer.parseInt(commands[8]);
-                    }
-					Platform.runLater(new Runnable() {
-					   @Override
-					   public void run() {
-					       gui.setInitialPawnPositions(player1X, player1Y, player2X, player2Y, player3X, player3Y, player4X, player4Y);
-					   }
-					});
+				else {
+					processCommand(commands);
 				}
 			}
 		} catch (Exception e) {
@@ -159,23 +184,142 @@ public class GameClient extends Thread {
 		}
 	}
 
+	/**
+	 * Act on a single message from the server
+	 */
+	private void processCommand(String[] commands) {
+		if (commands[0].equals("bootGUI")) {
+			guiCanBeLaunched = true;
+		}
+		else if (commands[0].equals("setID")) {
+			int id = Integer.parseInt(commands[1]);
+			setPlayerID(id);
+		}
+		else if (commands[0].equals("stats")) {
+			updatePlayerStats(commands);
+		}
+		else if (commands[0].equals("pawn")) {
+			updatePlayerPawnPosition(commands);
+		}
+		else if (commands[0].equals("currentPlayer")) {
+			updateCurrentPlayer(commands);
+		}
+		else if (commands[0].equals("clock")) {
+			updatePlayerClock(commands);
+		}
+		else if (commands[0].equals("available")) {
+			highlightAvailablePositions(commands);
+		}
+		else if (commands[0].equals("error")) {
+			displayErrorMessage(commands);
+		}
+		else if (commands[0].equals("wall")) {
+			updateWallPosition(commands);
+		}
+		else if (commands[0].equals("reset")) {
+			gui.resetWalls();
+		}
+		else if (commands[0].equals("remove-wall-display")) {
+			removeWallDisplay(commands);
+		}
+		else if (commands[0].equals("game-over")) {
+			// sent by lobby games, which end when a player wins
+			gui.displayErrorMessage(Translate.gameOver());
+		}
+		else if (commands[0].equals("abandoned")) {
+			gui.displayErrorMessage("A player left the game");
+		}
+		else if (commands[0].equals("session")) {
+			sessionToken = commands[1];
+		}
+		else if (commands[0].equals("resync")) {
+			// the server sent a snapshot in place of the events this client missed
+			lastSeenSequence = Long.parseLong(commands[1]);
+		}
+		else if (commands[0].equals("coordinate")) {
+			int player1X = Integer.parseInt(commands[1]);
+			int player1Y = Integer.parseInt(commands[2]);
+			int player2X = Integer.parseInt(commands[3]);
+			int player2Y = Integer.parseInt(commands[4]);
+			int player3X;
+			int player3Y;
+			int player4X;
+			int player4Y;
+			if (gui.getNumberOfPlayers() == 2) {
+				player3X = -1;
+				player3Y = -1;
+				player4X = -1;
+				player4Y = -1;
+			} else {
+				player3X = Integer.parseInt(commands[5]);
+				player3Y = Integer.parseInt(commands[6]);
+				player4X = Integer.parseInt(commands[7]);
+				player4Y = Integer.parseInt(commands[8]);
+			}
+			Platform.runLater(new Runnable() {
+			   @Override
+			   public void run() {
+			       gui.setInitialPawnPositions(player1X, player1Y, player2X, player2Y, player3X, player3Y, player4X, player4Y);
+			   }
+			});
+		}
+	}
+
+	/**
+	 * Try to re-establish a dropped connection to the server and resume this client's session
+	 * @return Whether the session was resumed
+	 */
+	private boolean reconnect() {
+		if (sessionToken == null) {
+			return false;
+		}
+		for (int attempt = 1; attempt <= RECONNECT_ATTEMPTS; attempt++) {
+			try {
+				Thread.sleep(RECONNECT_BACKOFF_MILLIS * attempt);
+				serverSocket = new Socket(IPAddress, portAddress);
+				in = new BufferedReader(new InputStreamReader(serverSocket.getInputStream()));
+				out = new PrintWriter(serverSocket.getOutputStream(), true);
+				out.println("resume " + sessionToken + " " + lastSeenSequence);
+				lastReadMillis = System.currentTimeMillis();
+				SystemLogger.logInfo("Reconnected to server");
+				return true;
+			} catch (Exception e) {
+				SystemLogger.logError("Reconnection attempt " + attempt + " failed: " + e.getMessage());
+			}
+		}
+		return false;
+	}
+
 	public void sendMove(int x, int y) {
-		out.println("move " + x + " " + y + " " + playerID);
+		sendPlay(MoveCodec.pawn(playerID, x, y));
 	}
 
 	public void sendWallMove(int topLeftX, int topLeftY, WallPlacement orientation) {
-		out.println("wall " + topLeftX + " " + topLeftY + " " + orientation + " " + playerID);
+		sendPlay(MoveCodec.wall(playerID, topLeftX, topLeftY, orientation));
 	}
 
 	public void sendWallRemoval(int topLeftX, int topLeftY, WallPlacement orientation) {
+		sendPlay(MoveCodec.wallRemoval(playerID, topLeftX, topLeftY, orientation));
+	}
 
-		out.println("remove-wall " + topLeftX + " " + topLeftY + " " + orientation + " " + playerID);
+	/**
+	 * Send a move to the server in MoveNotation
+	 */
+	private void sendPlay(int move) {
+		out.println("play " + MoveNotation.toText(move) + " " + playerID);
 	}
 
 	public void requestCurrentPlayerAvailableMoves() {
 		out.println("available");
 	}
 
+	/**
+	 * Ask a GameLobby to seat this client in the next game of the given kind
+	 */
+	public void joinLobbyQueue(GameMode gameMode, int numberOfPlayers) {
+		out.println("queue " + gameMode + " " + numberOfPlayers);
+	}
+
 	public void requestInitialPlayerPawnPositions() {
 		out.println("start-coordinates");
 	}
@@ -189,18 +333,14 @@ public class GameClient extends Thread {
 	}
 
 	private void removeWallDisplay(String[] commands) {
-		int topLeftX = Integer.parseInt(commands[1]);
-		int topLeftY = Integer.parseInt(commands[2]);
-		WallPlacement orientation = WallPlacement.valueOf(commands[3]);
-		gui.removeWallDisplay(topLeftX, topLeftY, orientation);
+		int wall = MoveNotation.parse(commands[1], 1);
+		gui.removeWallDisplay(MoveCodec.x(wall), MoveCodec.y(wall), MoveCodec.orientation(wall));
 	}
 
     private void updateWallPosition(String[] commands) {
-        int topLeftX = Integer.parseInt(commands[1]);
-        int topLeftY = Integer.parseInt(commands[2]);
-        WallPlacement orientation = WallPlacement.valueOf(commands[3]);
-        int playerID = Integer.parseInt(commands[4]);
-        gui.displayWall(topLeftX, topLeftY, orientation, playerID);
+        int playerID = Integer.parseInt(commands[2]);
+        int wall = MoveNotation.parse(commands[1], playerID);
+        gui.displayWall(MoveCodec.x(wall), MoveCodec.y(wall), MoveCodec.orientation(wall), playerID);
     }
 
     private void displayErrorMessage(String[] commands) {
@@ -211,10 +351,19 @@ public class GameClient extends Thread {
         gui.displayErrorMessage(message.toString());
     }
 
+    /**
+     * Highlight the squares set in the pawn bitmasks of an "available" message; the wall bitmasks that
+     * follow them aren't shown by the GUI
+     */
     private void highlightAvailablePositions(String[] commands) {
-        int x = Integer.parseInt(commands[1]);
-        int y = Integer.parseInt(commands[2]);
-        gui.highlightPositionAvailability(x, y);
+        long pawnLow = Long.parseUnsignedLong(commands[1], 16);
+        long pawnHigh = Long.parseUnsignedLong(commands[2], 16);
+        for (int cell = 0; cell < 81; cell++) {
+            boolean available = (cell < 64) ? ((pawnLow >>> cell) & 1) == 1 : ((pawnHigh >>> (cell - 64)) & 1) == 1;
+            if (available) {
+                gui.highlightPositionAvailability((cell % 9) * 2, (cell / 9) * 2);
+            }
+        }
     }
 
     private void updateCurrentPlayer(String[] commands) {
@@ -222,6 +371,20 @@ public class GameClient extends Thread {
         gui.updateActivePlayer(playerID);
     }
 
+    /**
+     * Show the time a player has left on their turn clock, sent after each of their turns in timed games
+     */
+    private void updatePlayerClock(String[] commands) {
+        int playerID = Integer.parseInt(commands[1]);
+        long remainingMillis = Long.parseLong(commands[2]);
+        Platform.runLater(new Runnable() {
+            @Override
+            public void run() {
+                gui.updatePlayerClock(remainingMillis, playerID);
+            }
+        });
+    }
+
     private void updatePlayerPawnPosition(String[] commands) {
         int x = Integer.parseInt(commands[1]);
         int y = Integer.parseInt(commands[2]);
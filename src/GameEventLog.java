@@ -0,0 +1,151 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * GameEventLog is an append-only, in-memory record of the messages broadcast to every player in a
+ * networked game. Each event is given a sequence number so that a client whose connection drops can
+ * resume by asking for the events it missed since the last sequence number it saw.
+ *
+ * Only the most recent events are retained. Alongside them the log folds every event into a compact
+ * picture of the board (walls, pawns, stats and the active player), so that a client which has missed
+ * too much can be brought up to date with a snapshot instead of a long replay.
+ */
+public class GameEventLog {
+
+	private static final int DEFAULT_CAPACITY = 512;
+	private static final int DEFAULT_REPLAY_LIMIT = 64;
+
+	// Ring buffer of the most recently appended events
+	private String[] events;
+	// Sequence number of the last event appended; 0 when nothing has been logged yet
+	private long lastSequence;
+	// Gaps larger than this are answered with a snapshot rather than a replay
+	private int replayLimit;
+
+	// Materialised state used to build snapshots, keyed by "x y orientation" for walls and player ID otherwise
+	private LinkedHashMap<String, String> wallEvents;
+	private String[] pawnEvents;
+	private String[] statsEvents;
+	private String currentPlayerEvent;
+
+	public GameEventLog() {
+		this(DEFAULT_CAPACITY, DEFAULT_REPLAY_LIMIT);
+	}
+
+	/**
+	 * @param capacity the number of events to retain for replay
+	 * @param replayLimit the largest gap (in events) that will be replayed rather than snapshotted
+	 */
+	public GameEventLog(int capacity, int replayLimit) {
+		if (capacity <= 0 || replayLimit <= 0) {
+			throw new IllegalArgumentException("Event log capacity and replay limit must be positive");
+		}
+		this.events = new String[capacity];
+		this.replayLimit = Math.min(replayLimit, capacity);
+		this.wallEvents = new LinkedHashMap<String, String>();
+		this.pawnEvents = new String[5];
+		this.statsEvents = new String[5];
+	}
+
+	/**
+	 * Append an event to the log
+	 * @param event the protocol message broadcast to the players
+	 * @return the sequence number given to the event
+	 */
+	public synchronized long append(String event) {
+		lastSequence++;
+		events[(int) (lastSequence % events.length)] = event;
+		fold(event);
+		return lastSequence;
+	}
+
+	public synchronized long getLastSequence() {
+		return lastSequence;
+	}
+
+	/**
+	 * @param lastSeen the sequence number of the last event a client received
+	 * @return whether the events after lastSeen are still held and few enough to be replayed one by one
+	 */
+	public synchronized boolean canReplayFrom(long lastSeen) {
+		return lastSeen >= 0 && lastSeen <= lastSequence && (lastSequence - lastSeen) <= replayLimit;
+	}
+
+	/**
+	 * Give the events appended after the given sequence number, oldest first. Callers should check
+	 * canReplayFrom first; any events that are no longer retained are skipped.
+	 * @param lastSeen the sequence number of the last event a client received
+	 * @return the missed events, the event at index i having sequence number lastSeen + 1 + i
+	 */
+	public synchronized ArrayList<String> eventsAfter(long lastSeen) {
+		ArrayList<String> missed = new ArrayList<String>();
+		long from = Math.max(lastSeen + 1, lastSequence - events.length + 1);
+		for (long sequence = from; sequence <= lastSequence; sequence++) {
+			missed.add(events[(int) (sequence % events.length)]);
+		}
+		return missed;
+	}
+
+	/**
+	 * Give the smallest list of messages that brings a client's GUI to the current state of the game.
+	 * The list begins with a reset, so it can be applied to a GUI in any state.
+	 */
+	public synchronized ArrayList<String> snapshot() {
+		ArrayList<String> snapshot = new ArrayList<String>();
+		snapshot.add("reset");
+		snapshot.addAll(wallEvents.values());
+		for (int id = 1; id < pawnEvents.length; id++) {
+			if (pawnEvents[id] != null) {
+				snapshot.add(pawnEvents[id]);
+			}
+			if (statsEvents[id] != null) {
+				snapshot.add(statsEvents[id]);
+			}
+		}
+		if (currentPlayerEvent != null) {
+			snapshot.add(currentPlayerEvent);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Forget every event, e.g. when the game the log belongs to is over and its room is reused
+	 */
+	public synchronized void clear() {
+		for (int i = 0; i < events.length; i++) {
+			events[i] = null;
+		}
+		lastSequence = 0;
+		wallEvents.clear();
+		for (int id = 0; id < pawnEvents.length; id++) {
+			pawnEvents[id] = null;
+			statsEvents[id] = null;
+		}
+		currentPlayerEvent = null;
+	}
+
+	/**
+	 * Update the materialised board state with an event
+	 */
+	private void fold(String event) {
+		String[] commands = event.split("\\s+");
+		if (commands[0].equals("wall")) {
+			wallEvents.put(commands[1], event);
+		}
+		else if (commands[0].equals("remove-wall-display")) {
+			wallEvents.remove(commands[1]);
+		}
+		else if (commands[0].equals("reset")) {
+			wallEvents.clear();
+		}
+		else if (commands[0].equals("pawn")) {
+			pawnEvents[Integer.parseInt(commands[3])] = event;
+		}
+		else if (commands[0].equals("stats")) {
+			statsEvents[Integer.parseInt(commands[3])] = event;
+		}
+		else if (commands[0].equals("currentPlayer")) {
+			currentPlayerEvent = event;
+		}
+	}
+}
@@ -0,0 +1,293 @@
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * GameLobby lets one server process host any number of networked games. Clients connect to the lobby,
+ * ask to join the queue for a game mode and number of players, and are seated in a GameRoom as soon as
+ * enough players are waiting in that queue. Rooms are taken from a pool and returned to it when their
+ * game is over, so a busy lobby isn't constantly building new boards.
+ *
+ * Queueing is lock free: a client's I/O thread simply adds itself to the queue. Whichever thread then
+ * wins the queue's match lock seats everyone who is waiting, so players are never left waiting behind
+ * a lock held by another client.
+ *
+ * Unlike GameServer the lobby has no GUI; it can be run on its own with the main method below.
+ */
+public class GameLobby {
+
+	// One queue for each combination of game mode and number of players
+	private static final int QUEUE_COUNT = 4;
+
+	private static final Metrics.Gauge ACTIVE_GAMES = Metrics.gauge("quoridor_active_games", "Games being played in lobby rooms");
+	private static final Metrics.Gauge WAITING_PLAYERS = Metrics.gauge("quoridor_waiting_players", "Players waiting in lobby queues");
+	private static final Metrics.Counter GAMES_STARTED = Metrics.counter("quoridor_games_started_total", "Games started by the lobby");
+
+	private ServerSocket serverSocket;
+
+	private ArrayList<ConcurrentLinkedQueue<ClientSocketIOThread>> waitingPlayers;
+	private AtomicInteger[] waitingCounts;
+	private ReentrantLock[] matchLocks;
+	private ArrayList<ConcurrentLinkedQueue<GameRoom>> roomPools;
+
+	// Session tokens of seated players, mapped to their rooms so that dropped players can be found again
+	private ConcurrentHashMap<String, GameRoom> sessionRooms;
+	private AtomicInteger activeRooms;
+	// Each player's thinking time per game; 0 for untimed games
+	private volatile long turnClockMillis;
+	// What happens to clients which fall too far behind the messages sent to them
+	private volatile OverflowPolicy overflowPolicy = OverflowPolicy.DROP_TO_SNAPSHOT;
+
+	public GameLobby() {
+		waitingPlayers = new ArrayList<ConcurrentLinkedQueue<ClientSocketIOThread>>(QUEUE_COUNT);
+		roomPools = new ArrayList<ConcurrentLinkedQueue<GameRoom>>(QUEUE_COUNT);
+		waitingCounts = new AtomicInteger[QUEUE_COUNT];
+		matchLocks = new ReentrantLock[QUEUE_COUNT];
+		for (int queue = 0; queue < QUEUE_COUNT; queue++) {
+			waitingPlayers.add(new ConcurrentLinkedQueue<ClientSocketIOThread>());
+			roomPools.add(new ConcurrentLinkedQueue<GameRoom>());
+			waitingCounts[queue] = new AtomicInteger();
+			matchLocks[queue] = new ReentrantLock();
+		}
+		sessionRooms = new ConcurrentHashMap<String, GameRoom>();
+		activeRooms = new AtomicInteger();
+	}
+
+	/**
+	 * Open the lobby's server socket and start accepting clients on a background thread
+	 */
+	public void start(String IPAddress, int portAddress) throws IOException {
+		serverSocket = new ServerSocket(portAddress, 1024, InetAddress.getByName(IPAddress));
+		SystemLogger.logInfo("Lobby created on port " + serverSocket.getLocalPort());
+		Thread acceptor = new Thread("LobbyAcceptor") {
+			@Override
+			public void run() {
+				listenForConnectionRequests();
+			}
+		};
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * Stop accepting clients
+	 */
+	public void stop() {
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			SystemLogger.logError(e.getMessage());
+		}
+	}
+
+	/**
+	 * @return the port the lobby is listening on; useful when it was started on port 0
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Give every player in games started from now on a chess-style clock
+	 * @param turnClockMillis each player's thinking time per game; 0 for untimed games
+	 */
+	public void setTurnClockMillis(long turnClockMillis) {
+		this.turnClockMillis = turnClockMillis;
+	}
+
+	public long getTurnClockMillis() {
+		return turnClockMillis;
+	}
+
+	/**
+	 * Choose what happens to clients connecting from now on when their outbound queue fills up
+	 */
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	public int getActiveRoomCount() {
+		return activeRooms.get();
+	}
+
+	public int getWaitingPlayerCount(GameMode gameMode, int numberOfPlayers) {
+		return waitingCounts[queueIndex(gameMode, numberOfPlayers)].get();
+	}
+
+	private void listenForConnectionRequests() {
+		while (!serverSocket.isClosed()) {
+			try {
+				ClientSocketIOThread ioThread = new ClientSocketIOThread(serverSocket.accept(), this);
+				ioThread.setOverflowPolicy(overflowPolicy);
+				ioThread.start();
+			} catch (IOException e) {
+				if (!serverSocket.isClosed()) {
+					SystemLogger.logError(e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add a player to the queue for a game, and start the game if enough players are now waiting
+	 * @param player the I/O thread of the player's connection
+	 * @param gameMode standard or challenge rules
+	 * @param numberOfPlayers 2 or 4
+	 */
+	public void enqueue(ClientSocketIOThread player, GameMode gameMode, int numberOfPlayers) {
+		int queue = queueIndex(gameMode, numberOfPlayers);
+		waitingPlayers.get(queue).offer(player);
+		waitingCounts[queue].incrementAndGet();
+		WAITING_PLAYERS.increment();
+		player.sendMessage("queued " + gameMode + " " + numberOfPlayers);
+		matchPlayers(queue);
+	}
+
+	/**
+	 * Seat waiting players in rooms while there are enough of them. Only one thread matches a queue at a
+	 * time; any other thread finding the lock taken leaves its player to be seated by the lock holder, which
+	 * checks the queue again after releasing the lock
+	 */
+	private void matchPlayers(int queue) {
+		int needed = playersNeeded(queue);
+		ConcurrentLinkedQueue<ClientSocketIOThread> waiting = waitingPlayers.get(queue);
+		ReentrantLock matchLock = matchLocks[queue];
+		while (waitingCounts[queue].get() >= needed && matchLock.tryLock()) {
+			try {
+				while (waitingCounts[queue].get() >= needed) {
+					ClientSocketIOThread[] players = new ClientSocketIOThread[needed];
+					int found = 0;
+					while (found < needed) {
+						ClientSocketIOThread player = waiting.poll();
+						if (player == null) {
+							break;
+						}
+						waitingCounts[queue].decrementAndGet();
+						WAITING_PLAYERS.decrement();
+						// players who disconnected or were seated while waiting are dropped here rather than searched for
+						if (player.isQueued()) {
+							players[found] = player;
+							found++;
+						}
+					}
+					if (found < needed) {
+						for (int i = 0; i < found; i++) {
+							waiting.offer(players[i]);
+							waitingCounts[queue].incrementAndGet();
+							WAITING_PLAYERS.increment();
+						}
+						break;
+					}
+					acquireRoom(queue).start(players);
+				}
+			} finally {
+				matchLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Take a finished room from the pool, or build a new one if the pool is empty
+	 */
+	private GameRoom acquireRoom(int queue) {
+		GameRoom room = roomPools.get(queue).poll();
+		if (room == null) {
+			room = new GameRoom(this, queue < 2 ? GameMode.STANDARD : GameMode.CHALLENGE, queue % 2 == 1);
+		}
+		activeRooms.incrementAndGet();
+		ACTIVE_GAMES.increment();
+		GAMES_STARTED.increment();
+		return room;
+	}
+
+	/**
+	 * Return a finished room to the pool
+	 */
+	public void recycle(GameRoom room) {
+		activeRooms.decrementAndGet();
+		ACTIVE_GAMES.decrement();
+		roomPools.get(queueIndex(room.getGameMode(), room.isFourPlayerMode() ? 4 : 2)).offer(room);
+	}
+
+	public void registerSession(String token, GameRoom room) {
+		sessionRooms.put(token, room);
+	}
+
+	public void unregisterSession(String token) {
+		sessionRooms.remove(token);
+	}
+
+	/**
+	 * Reattach a player that lost its connection to the room it was playing in
+	 * @return whether the session was found and resumed
+	 */
+	public boolean resumeSession(String token, long lastSeenSequence, ClientSocketIOThread ioThread) {
+		GameRoom room = sessionRooms.get(token);
+		if (room == null) {
+			return false;
+		}
+		ioThread.setController(room.getController());
+		return room.getController().resumeSession(token, lastSeenSequence, ioThread);
+	}
+
+	private int queueIndex(GameMode gameMode, int numberOfPlayers) {
+		if (numberOfPlayers != 2 && numberOfPlayers != 4) {
+			throw new IllegalArgumentException("Games are for 2 or 4 players");
+		}
+		int queue = (gameMode == GameMode.CHALLENGE) ? 2 : 0;
+		if (numberOfPlayers == 4) {
+			queue++;
+		}
+		return queue;
+	}
+
+	private int playersNeeded(int queue) {
+		return (queue % 2 == 1) ? 4 : 2;
+	}
+
+	/**
+	 * Run a lobby without the game's GUI
+	 * @param args optionally the IP address and port to listen on; localhost and 33333 by default. A third
+	 * argument gives the local port to serve metrics on, 9464 by default. Player ratings are kept up to date
+	 * from the game record store and checkpointed to ./ratings.qrt
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		SystemLogger.init();
+		String IPAddress = args.length > 0 ? args[0] : "localhost";
+		int portAddress = args.length > 1 ? Integer.parseInt(args[1]) : 33333;
+		GameLobby lobby = new GameLobby();
+		lobby.start(IPAddress, portAddress);
+		System.out.println("Lobby listening on " + IPAddress + ":" + lobby.getPort());
+		int metricsPort = args.length > 2 ? Integer.parseInt(args[2]) : MetricsServer.DEFAULT_PORT;
+		try {
+			new MetricsServer().start(metricsPort);
+			System.out.println("Metrics at http://localhost:" + metricsPort + "/metrics");
+		} catch (IOException e) {
+			SystemLogger.logError("Couldn't serve metrics: " + e.getMessage());
+		}
+		final RatingService ratings = new RatingService(new File("./ratings.qrt"));
+		ratings.recover(GameRecordStore.getDefault());
+		Runtime.getRuntime().addShutdownHook(new Thread("RatingCheckpoint") {
+			@Override
+			public void run() {
+				try {
+					ratings.checkpoint();
+				} catch (IOException e) {
+					SystemLogger.logError("Couldn't write rating checkpoint: " + e.getMessage());
+				}
+			}
+		});
+		// the acceptor is a daemon thread, so keep the process alive for it
+		Thread.currentThread().join();
+	}
+}
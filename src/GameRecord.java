@@ -0,0 +1,203 @@
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A GameRecord is the full history of one game: its rules, players, every move in MoveCodec form, when it
+ * started and finished, and who won. Controllers add moves to a record as they're made and hand it to the
+ * GameRecordStore when the game is over.
+ *
+ * Records are stored in a compact binary form:
+ *
+ * byte format version, long game ID, long start time, long end time, byte game mode, byte number of
+ * players, each player's name as a short length and UTF-8 bytes, byte winner ID (0 if nobody won),
+ * int number of moves, then each move as a 16 bit MoveCodec code
+ */
+public class GameRecord {
+
+	private static final byte FORMAT_VERSION = 1;
+
+	private long gameID;
+	private long startMillis;
+	private long endMillis;
+	private GameMode gameMode;
+	private String[] playerNames;
+	private int winnerID;
+	private short[] moves;
+	private int moveCount;
+
+	/**
+	 * Start a record for a game beginning now
+	 * @param gameMode the game's rules
+	 * @param numberOfPlayers 2 or 4; the players are named Player 1, Player 2 and so on until setPlayerName is called
+	 */
+	public GameRecord(GameMode gameMode, int numberOfPlayers) {
+		this.gameMode = gameMode;
+		this.startMillis = System.currentTimeMillis();
+		this.playerNames = new String[numberOfPlayers];
+		for (int i = 0; i < numberOfPlayers; i++) {
+			playerNames[i] = "Player " + (i + 1);
+		}
+		this.moves = new short[64];
+	}
+
+	/**
+	 * Start a record for a game beginning now on the given board
+	 */
+	public static GameRecord forBoard(Board board) {
+		GameMode gameMode = (board instanceof ChallengeBoard) ? GameMode.CHALLENGE : GameMode.STANDARD;
+		return new GameRecord(gameMode, (board.getPlayer3() == null) ? 2 : 4);
+	}
+
+	/**
+	 * Add a move to the game's history
+	 * @param code the move, encoded by MoveCodec
+	 */
+	public void addMove(int code) {
+		if (moveCount == moves.length) {
+			moves = Arrays.copyOf(moves, moveCount * 2);
+		}
+		moves[moveCount++] = (short) code;
+	}
+
+	/**
+	 * Mark the game as over now
+	 * @param winnerID the ID of the player who won, or 0 if the game was abandoned
+	 */
+	public void finish(int winnerID) {
+		this.winnerID = winnerID;
+		this.endMillis = System.currentTimeMillis();
+	}
+
+	public long getGameID() {
+		return gameID;
+	}
+
+	/**
+	 * Set by the GameRecordStore when the record is written; IDs count up from 1 in the order games are stored
+	 */
+	public void setGameID(long gameID) {
+		this.gameID = gameID;
+	}
+
+	public long getStartMillis() {
+		return startMillis;
+	}
+
+	public long getEndMillis() {
+		return endMillis;
+	}
+
+	public GameMode getGameMode() {
+		return gameMode;
+	}
+
+	public int getNumberOfPlayers() {
+		return playerNames.length;
+	}
+
+	public String getPlayerName(int playerID) {
+		return playerNames[playerID - 1];
+	}
+
+	public void setPlayerName(int playerID, String name) {
+		playerNames[playerID - 1] = name;
+	}
+
+	public int getWinnerID() {
+		return winnerID;
+	}
+
+	public int getMoveCount() {
+		return moveCount;
+	}
+
+	/**
+	 * @return the move with the given index, encoded by MoveCodec
+	 */
+	public int getMove(int index) {
+		if (index < 0 || index >= moveCount) {
+			throw new IndexOutOfBoundsException("Move " + index + " of " + moveCount);
+		}
+		return moves[index] & 0xffff;
+	}
+
+	/**
+	 * @return the number of bytes encode() writes
+	 */
+	public int encodedLength() {
+		int length = 1 + 8 + 8 + 8 + 1 + 1 + 1 + 4 + 2 * moveCount;
+		for (String name : playerNames) {
+			length += 2 + name.getBytes(StandardCharsets.UTF_8).length;
+		}
+		return length;
+	}
+
+	/**
+	 * Write the record in its binary form at the buffer's position
+	 */
+	public void encode(ByteBuffer buffer) {
+		buffer.put(FORMAT_VERSION);
+		buffer.putLong(gameID);
+		buffer.putLong(startMillis);
+		buffer.putLong(endMillis);
+		buffer.put((byte) gameMode.ordinal());
+		buffer.put((byte) playerNames.length);
+		for (String name : playerNames) {
+			byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+			buffer.putShort((short) bytes.length);
+			buffer.put(bytes);
+		}
+		buffer.put((byte) winnerID);
+		buffer.putInt(moveCount);
+		for (int i = 0; i < moveCount; i++) {
+			buffer.putShort(moves[i]);
+		}
+	}
+
+	/**
+	 * Read a record in its binary form from the buffer's position
+	 * @throws IllegalArgumentException if the bytes aren't a record
+	 */
+	public static GameRecord decode(ByteBuffer buffer) {
+		try {
+			byte version = buffer.get();
+			if (version != FORMAT_VERSION) {
+				throw new IllegalArgumentException("Unknown game record version " + version);
+			}
+			long gameID = buffer.getLong();
+			long startMillis = buffer.getLong();
+			long endMillis = buffer.getLong();
+			GameMode gameMode = GameMode.values()[buffer.get()];
+			int numberOfPlayers = buffer.get();
+			if (numberOfPlayers < 1 || numberOfPlayers > 8) {
+				throw new IllegalArgumentException("Bad number of players " + numberOfPlayers);
+			}
+			GameRecord record = new GameRecord(gameMode, numberOfPlayers);
+			for (int id = 1; id <= record.getNumberOfPlayers(); id++) {
+				byte[] bytes = new byte[buffer.getShort() & 0xffff];
+				buffer.get(bytes);
+				record.setPlayerName(id, new String(bytes, StandardCharsets.UTF_8));
+			}
+			record.gameID = gameID;
+			record.startMillis = startMillis;
+			record.endMillis = endMillis;
+			record.winnerID = buffer.get();
+			int moveCount = buffer.getInt();
+			if (moveCount < 0 || moveCount * 2 > buffer.remaining()) {
+				throw new IllegalArgumentException("Bad move count " + moveCount);
+			}
+			record.moves = new short[Math.max(moveCount, 1)];
+			for (int i = 0; i < moveCount; i++) {
+				record.moves[i] = buffer.getShort();
+			}
+			record.moveCount = moveCount;
+			return record;
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Game record is truncated");
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Unknown game mode");
+		}
+	}
+}
@@ -0,0 +1,12 @@
+/**
+ * A GameRecordListener is told about each game once a GameRecordStore has written it to disk
+ */
+public interface GameRecordListener {
+
+	/**
+	 * Called on the store's writer thread, in game ID order
+	 * @param record the game, with its game ID set
+	 * @param endOffset the offset in the store's file just after the game, where a GameRecordScanner can carry on from
+	 */
+	public void gameStored(GameRecord record, long endOffset);
+}
@@ -0,0 +1,76 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * GameRecordScanner reads the records in a GameRecordStore file one after another, from the start or from
+ * an offset previously given by getOffset(). Scanning stops at the end of the file, or at a record which
+ * was only partly written or is corrupt, since everything after it can't be trusted.
+ */
+public class GameRecordScanner implements Closeable {
+
+	private DataInputStream in;
+	private long offset;
+
+	/**
+	 * Scan a store's file from the start
+	 */
+	public GameRecordScanner(File file) throws IOException {
+		this(file, 0);
+	}
+
+	/**
+	 * Scan a store's file from an offset previously given by getOffset()
+	 */
+	public GameRecordScanner(File file, long offset) throws IOException {
+		FileInputStream fileIn = new FileInputStream(file);
+		fileIn.getChannel().position(offset);
+		this.in = new DataInputStream(new BufferedInputStream(fileIn, 1 << 16));
+		this.offset = offset;
+	}
+
+	/**
+	 * @return the next record, or null at the end of the file or at a partly written or corrupt record
+	 */
+	public GameRecord next() throws IOException {
+		try {
+			int length = in.readInt();
+			int checksum = in.readInt();
+			if (length <= 0 || length > GameRecordStore.MAX_RECORD_BYTES) {
+				return null;
+			}
+			byte[] payload = new byte[length];
+			in.readFully(payload);
+			CRC32 crc = new CRC32();
+			crc.update(payload);
+			if ((int) crc.getValue() != checksum) {
+				return null;
+			}
+			GameRecord record = GameRecord.decode(ByteBuffer.wrap(payload));
+			offset += GameRecordStore.FRAME_HEADER_BYTES + length;
+			return record;
+		} catch (EOFException e) {
+			return null;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the offset just after the last record returned by next(), where a later scan can carry on from
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,296 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * GameRecordStore keeps the record of every finished game in an append-only file. Each record is framed by
+ * its length and a CRC32 checksum:
+ *
+ * int record length, int checksum of the record, the record as written by GameRecord.encode()
+ *
+ * Appending only puts the record on a queue, so game threads never wait on the disk. A background thread
+ * writes whatever has queued up in one go and then syncs the file once for the whole batch (a group
+ * commit), so the cost of syncing is shared by however many games finished in the meantime. The thread
+ * also numbers the games, in the order they're written.
+ *
+ * When a store is opened, a record left half written by a crash is cut off the end of the file. If a batch
+ * can't be written, whatever of it reached the file is cut off straight away and the store fails: records
+ * queued after it are dropped, and appending or flushing reports the error from then on.
+ *
+ * GameRecordListeners are told about each record once its batch is synced.
+ */
+public class GameRecordStore {
+
+	public static final int FRAME_HEADER_BYTES = 8;
+	public static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+	private static final String DEFAULT_PATH = "./games.qgr";
+	// The most records written in one batch
+	private static final int MAX_BATCH = 4096;
+
+	private static final Metrics.Counter RECORDS_STORED = Metrics.counter("quoridor_game_records_stored_total", "Game records written to the game record store");
+	private static final Metrics.Histogram BATCH_SIZE = Metrics.histogram("quoridor_game_record_batch_records", "Game records written per group commit");
+	private static final Metrics.Histogram SYNC_TIME = Metrics.histogram("quoridor_game_record_sync_microseconds", "Time taken to sync each batch of game records to disk");
+
+	private static GameRecordStore defaultStore;
+
+	private File file;
+	private FileChannel channel;
+	private ConcurrentLinkedQueue<GameRecord> pending;
+	private CopyOnWriteArrayList<GameRecordListener> listeners;
+	private AtomicLong appendedCount;
+	// Records written and synced, or given up on after an error; guarded by this
+	private long completedCount;
+	private long nextGameID;
+
+	private Thread writer;
+	private volatile boolean running;
+	// Why the store stopped writing, or null while it's working
+	private volatile IOException failure;
+
+	/**
+	 * Open a store, creating its file if needed, and start its writer thread
+	 */
+	public GameRecordStore(File file) throws IOException {
+		this(file, FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+	}
+
+	/**
+	 * Open a store whose file has already been opened as a channel, e.g. by a test standing in for the disk
+	 */
+	GameRecordStore(File file, FileChannel channel) throws IOException {
+		this.file = file;
+		this.pending = new ConcurrentLinkedQueue<GameRecord>();
+		this.listeners = new CopyOnWriteArrayList<GameRecordListener>();
+		this.appendedCount = new AtomicLong();
+		this.channel = channel;
+		recover();
+		this.running = true;
+		this.writer = new Thread("GameRecordWriter") {
+			@Override
+			public void run() {
+				writeRecords();
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * @return the store in ./games.qgr used by the game controllers, opened on first use
+	 */
+	public static synchronized GameRecordStore getDefault() throws IOException {
+		if (defaultStore == null) {
+			final GameRecordStore store = new GameRecordStore(new File(DEFAULT_PATH));
+			Runtime.getRuntime().addShutdownHook(new Thread("GameRecordFlush") {
+				@Override
+				public void run() {
+					store.close();
+				}
+			});
+			defaultStore = store;
+		}
+		return defaultStore;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Tell a listener about every game written from now on
+	 */
+	public void addListener(GameRecordListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(GameRecordListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Queue a finished game to be written. Returns straight away; the record is given its game ID when it's written
+	 * @throws IOException if the store has failed to write an earlier batch
+	 */
+	public void append(GameRecord record) throws IOException {
+		checkFailure();
+		if (!running) {
+			throw new IllegalStateException("The game record store is closed");
+		}
+		pending.offer(record);
+		appendedCount.incrementAndGet();
+		LockSupport.unpark(writer);
+	}
+
+	/**
+	 * Wait until every record appended so far is on disk
+	 * @throws IOException if the store failed, so some of them may never be written
+	 */
+	public void flush() throws InterruptedException, IOException {
+		long target = appendedCount.get();
+		synchronized (this) {
+			while (completedCount < target && writer.isAlive()) {
+				wait(100);
+			}
+		}
+		checkFailure();
+	}
+
+	private void checkFailure() throws IOException {
+		IOException failure = this.failure;
+		if (failure != null) {
+			throw new IOException("The game record store failed: " + failure.getMessage(), failure);
+		}
+	}
+
+	/**
+	 * Write out the records still queued and close the file
+	 */
+	public void close() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+			channel.close();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			SystemLogger.logError("Couldn't close game record store: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Read the records in the store from the start. Records still queued aren't included
+	 */
+	public GameRecordScanner scan() throws IOException {
+		return new GameRecordScanner(file);
+	}
+
+	/**
+	 * Find the end of the last complete record, cut off anything after it, and carry on the game IDs
+	 */
+	private void recover() throws IOException {
+		GameRecordScanner scanner = new GameRecordScanner(file);
+		long lastGameID = 0;
+		try {
+			GameRecord record;
+			while ((record = scanner.next()) != null) {
+				lastGameID = record.getGameID();
+			}
+		} finally {
+			scanner.close();
+		}
+		if (channel.size() > scanner.getOffset()) {
+			SystemLogger.logWarning("Cut " + (channel.size() - scanner.getOffset()) + " bytes of incomplete game records from " + file);
+			channel.truncate(scanner.getOffset());
+		}
+		channel.position(scanner.getOffset());
+		nextGameID = lastGameID + 1;
+	}
+
+	private void writeRecords() {
+		ArrayList<GameRecord> batch = new ArrayList<GameRecord>();
+		while (true) {
+			GameRecord record;
+			while (batch.size() < MAX_BATCH && (record = pending.poll()) != null) {
+				batch.add(record);
+			}
+			if (batch.isEmpty()) {
+				if (!running) {
+					return;
+				}
+				LockSupport.park(this);
+				continue;
+			}
+			try {
+				writeBatch(batch);
+			} catch (IOException e) {
+				SystemLogger.logError("Couldn't write " + batch.size() + " game records; storing no more: " + e.getMessage());
+				failure = e;
+			}
+			long completed = batch.size();
+			batch.clear();
+			if (failure != null) {
+				// give up on the records still queued, so nothing waits for them
+				while (pending.poll() != null) {
+					completed++;
+				}
+			}
+			synchronized (this) {
+				completedCount += completed;
+				notifyAll();
+			}
+			if (failure != null) {
+				return;
+			}
+		}
+	}
+
+	private void writeBatch(ArrayList<GameRecord> batch) throws IOException {
+		int size = 0;
+		for (GameRecord record : batch) {
+			record.setGameID(nextGameID++);
+			size += FRAME_HEADER_BYTES + record.encodedLength();
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		CRC32 crc = new CRC32();
+		long batchOffset = channel.position();
+		long[] endOffsets = new long[batch.size()];
+		for (int i = 0; i < batch.size(); i++) {
+			GameRecord record = batch.get(i);
+			int frameStart = buffer.position();
+			buffer.position(frameStart + FRAME_HEADER_BYTES);
+			record.encode(buffer);
+			int length = buffer.position() - frameStart - FRAME_HEADER_BYTES;
+			ByteBuffer payload = buffer.duplicate();
+			payload.position(frameStart + FRAME_HEADER_BYTES).limit(buffer.position());
+			crc.reset();
+			crc.update(payload);
+			buffer.putInt(frameStart, length);
+			buffer.putInt(frameStart + 4, (int) crc.getValue());
+			endOffsets[i] = batchOffset + buffer.position();
+		}
+		buffer.flip();
+		long startNanos;
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			startNanos = System.nanoTime();
+			channel.force(false);
+		} catch (IOException e) {
+			// cut off whatever part of the batch was written, so the file ends with a complete record
+			nextGameID -= batch.size();
+			try {
+				channel.truncate(batchOffset);
+				channel.position(batchOffset);
+			} catch (IOException truncateFailure) {
+				e.addSuppressed(truncateFailure);
+			}
+			throw e;
+		}
+		SYNC_TIME.recordNanosSince(startNanos);
+		BATCH_SIZE.record(batch.size());
+		RECORDS_STORED.add(batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			for (GameRecordListener listener : listeners) {
+				try {
+					listener.gameStored(batch.get(i), endOffsets[i]);
+				} catch (RuntimeException e) {
+					SystemLogger.logError("Game record listener failed on game " + batch.get(i).getGameID() + ": " + e);
+				}
+			}
+		}
+	}
+}
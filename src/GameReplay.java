@@ -0,0 +1,265 @@
+import java.util.ArrayList;
+
+/**
+ * GameReplay rebuilds the board as it stood after any move of a recorded game, by making the game's moves
+ * with MoveCodec.apply on a fresh StandardBoard or ChallengeBoard.
+ *
+ * Every KEYFRAME_INTERVAL moves a keyframe is kept: the pawns, walls, wall and move counts and whose turn
+ * it is. Seeking to a move starts from the nearest keyframe at or before it, so it never makes more than
+ * KEYFRAME_INTERVAL moves whatever the length of the game. Stepping forwards just makes the next move.
+ *
+ * The board can be read directly for analysis, or a GUI can be given to be redrawn after every step or
+ * seek. The replay isn't thread safe, and with a JavaFX GUI it should only be used on the FX thread.
+ */
+public class GameReplay {
+
+	public static final int KEYFRAME_INTERVAL = 16;
+
+	/**
+	 * The state of the board after a number of moves
+	 */
+	private static class Keyframe {
+
+		private int[] walls;
+		private int[] pawnX;
+		private int[] pawnY;
+		private int[] wallCounts;
+		private int[] moveCounts;
+		private int currentPlayerID;
+	}
+
+	private GameMode gameMode;
+	private int numberOfPlayers;
+	private int[] moves;
+	private Keyframe[] keyframes;
+
+	private Board board;
+	// The number of moves made on the board
+	private int position;
+	// The walls on the board, as MoveCodec wall placements by their owners
+	private ArrayList<Integer> walls;
+	private GUI gui;
+
+	public GameReplay(GameRecord record) {
+		this(record.getGameMode(), record.getNumberOfPlayers(), movesOf(record));
+	}
+
+	public GameReplay(ArchivedGame game) {
+		this(game.getGameMode(), game.getNumberOfPlayers(), movesOf(game));
+	}
+
+	/**
+	 * @param moves the game's moves, encoded by MoveCodec
+	 * @throws IllegalArgumentException if a move can't be made
+	 */
+	public GameReplay(GameMode gameMode, int numberOfPlayers, int[] moves) {
+		this.gameMode = gameMode;
+		this.numberOfPlayers = numberOfPlayers;
+		this.moves = moves;
+		this.keyframes = new Keyframe[moves.length / KEYFRAME_INTERVAL + 1];
+		this.board = newBoard();
+		this.walls = new ArrayList<Integer>();
+		keyframes[0] = keyframe();
+		for (int i = 0; i < moves.length; i++) {
+			step();
+			if (position % KEYFRAME_INTERVAL == 0) {
+				keyframes[position / KEYFRAME_INTERVAL] = keyframe();
+			}
+		}
+		restore(keyframes[0]);
+		position = 0;
+	}
+
+	private static int[] movesOf(GameRecord record) {
+		int[] moves = new int[record.getMoveCount()];
+		for (int i = 0; i < moves.length; i++) {
+			moves[i] = record.getMove(i);
+		}
+		return moves;
+	}
+
+	private static int[] movesOf(ArchivedGame game) {
+		int[] moves = new int[game.getMoveCount()];
+		for (int i = 0; i < moves.length; i++) {
+			moves[i] = game.getMove(i);
+		}
+		return moves;
+	}
+
+	/**
+	 * Redraw a GUI whenever the replay moves, starting now
+	 */
+	public void setGUI(GUI gui) {
+		this.gui = gui;
+		refreshGUI();
+	}
+
+	/**
+	 * @return the board after the moves made so far. It's replaced on a seek backwards, so shouldn't be kept
+	 */
+	public Board getBoard() {
+		return board;
+	}
+
+	/**
+	 * @return the number of moves made so far
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	public int getMoveCount() {
+		return moves.length;
+	}
+
+	/**
+	 * @return the move with the given index, encoded by MoveCodec
+	 */
+	public int getMove(int index) {
+		return moves[index];
+	}
+
+	/**
+	 * Make the next move
+	 * @return false if the game has no more moves
+	 */
+	public boolean stepForward() {
+		if (position == moves.length) {
+			return false;
+		}
+		step();
+		refreshGUI();
+		return true;
+	}
+
+	/**
+	 * Take back the last move
+	 * @return false if no moves have been made
+	 */
+	public boolean stepBack() {
+		if (position == 0) {
+			return false;
+		}
+		seek(position - 1);
+		return true;
+	}
+
+	/**
+	 * Show the board after the given number of moves
+	 */
+	public void seek(int moveCount) {
+		if (moveCount < 0 || moveCount > moves.length) {
+			throw new IndexOutOfBoundsException("Move " + moveCount + " of " + moves.length);
+		}
+		int keyframe = moveCount / KEYFRAME_INTERVAL;
+		// Carry on from here if that's no further than from the keyframe
+		if (moveCount < position || position < keyframe * KEYFRAME_INTERVAL) {
+			restore(keyframes[keyframe]);
+			position = keyframe * KEYFRAME_INTERVAL;
+		}
+		while (position < moveCount) {
+			step();
+		}
+		refreshGUI();
+	}
+
+	public void seekToEnd() {
+		seek(moves.length);
+	}
+
+	/**
+	 * Make the next move, keeping track of the walls on the board
+	 */
+	private void step() {
+		int move = moves[position];
+		MoveCodec.apply(board, move);
+		switch (MoveCodec.kind(move)) {
+			case WALL_HORIZONTAL:
+			case WALL_VERTICAL:
+				walls.add(move);
+				break;
+			case REMOVE_HORIZONTAL:
+			case REMOVE_VERTICAL:
+				for (int i = 0; i < walls.size(); i++) {
+					int wall = walls.get(i);
+					if (MoveCodec.x(wall) == MoveCodec.x(move) && MoveCodec.y(wall) == MoveCodec.y(move)
+							&& MoveCodec.orientation(wall) == MoveCodec.orientation(move)) {
+						walls.remove(i);
+						break;
+					}
+				}
+				break;
+			default:
+				break;
+		}
+		position++;
+	}
+
+	private Board newBoard() {
+		if (gameMode == GameMode.CHALLENGE) {
+			return new ChallengeBoard(numberOfPlayers == 4);
+		}
+		return new StandardBoard(numberOfPlayers == 4);
+	}
+
+	private Keyframe keyframe() {
+		Keyframe keyframe = new Keyframe();
+		keyframe.walls = new int[walls.size()];
+		for (int i = 0; i < walls.size(); i++) {
+			keyframe.walls[i] = walls.get(i);
+		}
+		keyframe.pawnX = new int[numberOfPlayers];
+		keyframe.pawnY = new int[numberOfPlayers];
+		keyframe.wallCounts = new int[numberOfPlayers];
+		keyframe.moveCounts = new int[numberOfPlayers];
+		for (int id = 1; id <= numberOfPlayers; id++) {
+			Player player = board.getPlayer(id);
+			keyframe.pawnX[id - 1] = player.getPosition().getX();
+			keyframe.pawnY[id - 1] = player.getPosition().getY();
+			keyframe.wallCounts[id - 1] = player.getWallCount();
+			keyframe.moveCounts[id - 1] = player.getMoveCount();
+		}
+		keyframe.currentPlayerID = board.getCurrentPlayer().getID();
+		return keyframe;
+	}
+
+	/**
+	 * Set up a new board as it was at a keyframe. The pawns are put in place first; the walls are then
+	 * placed by their owners, which always succeeds since they were all on the board together with the
+	 * pawns where they are
+	 */
+	private void restore(Keyframe keyframe) {
+		board = newBoard();
+		walls.clear();
+		for (int id = 1; id <= numberOfPlayers; id++) {
+			board.getPlayer(id).setPosition(board.getPosition(keyframe.pawnX[id - 1], keyframe.pawnY[id - 1]));
+		}
+		for (int wall : keyframe.walls) {
+			board.setCurrentPlayer(board.getPlayer(MoveCodec.playerID(wall)));
+			board.placeWalls(MoveCodec.x(wall), MoveCodec.y(wall), MoveCodec.orientation(wall));
+			walls.add(wall);
+		}
+		for (int id = 1; id <= numberOfPlayers; id++) {
+			board.getPlayer(id).setWallCount(keyframe.wallCounts[id - 1]);
+			board.getPlayer(id).setMoveCount(keyframe.moveCounts[id - 1]);
+		}
+		board.setCurrentPlayer(board.getPlayer(keyframe.currentPlayerID));
+	}
+
+	private void refreshGUI() {
+		if (gui == null) {
+			return;
+		}
+		gui.resetWalls();
+		for (int wall : walls) {
+			gui.displayWall(MoveCodec.x(wall), MoveCodec.y(wall), MoveCodec.orientation(wall), MoveCodec.playerID(wall));
+		}
+		for (int id = 1; id <= numberOfPlayers; id++) {
+			Player player = board.getPlayer(id);
+			gui.updatePlayerPawnPosition(player.getPosition().getX(), player.getPosition().getY(), id);
+			gui.updatePlayerWallCount(player.getWallCount(), id);
+			gui.updatePlayerMoveCount(player.getMoveCount(), id);
+		}
+		gui.updateActivePlayer(board.getCurrentPlayer().getID());
+	}
+}
@@ -0,0 +1,152 @@
+import java.util.ArrayList;
+
+/**
+ * A GameRoom hosts one networked game on behalf of the GameLobby. It owns the game's Board and
+ * NetworkedGameController, attaches the matched players' I/O threads to the controller when the
+ * game starts, and hands itself back to the lobby's pool once the game is over.
+ *
+ * Everything the room does with its game runs on the game's actor, so it's never done at the same time
+ * as a player's move.
+ */
+public class GameRoom {
+
+	private GameLobby lobby;
+	private GameMode gameMode;
+	private boolean fourPlayerMode;
+
+	private Board board;
+	private NetworkedGameController controller;
+
+	// Whether players are seated in the room
+	private boolean inUse;
+	// Session tokens handed to the players, so they can be forgotten when the room is recycled
+	private ArrayList<String> sessionTokens;
+
+	public GameRoom(GameLobby lobby, GameMode gameMode, boolean fourPlayerMode) {
+		this.lobby = lobby;
+		this.gameMode = gameMode;
+		this.fourPlayerMode = fourPlayerMode;
+		if (gameMode == GameMode.CHALLENGE) {
+			board = new ChallengeBoard(fourPlayerMode);
+		} else {
+			board = new StandardBoard(fourPlayerMode);
+		}
+		controller = new NetworkedGameController(board);
+		controller.setRoom(this);
+		sessionTokens = new ArrayList<String>();
+	}
+
+	public GameMode getGameMode() {
+		return gameMode;
+	}
+
+	public boolean isFourPlayerMode() {
+		return fourPlayerMode;
+	}
+
+	public NetworkedGameController getController() {
+		return controller;
+	}
+
+	/**
+	 * Seat the matched players and boot their GUIs
+	 * @param players the players' I/O threads; player 1 first
+	 */
+	public void start(final ClientSocketIOThread[] players) {
+		controller.tell(new Runnable() {
+			@Override
+			public void run() {
+				seatPlayers(players);
+			}
+		});
+	}
+
+	private void seatPlayers(ClientSocketIOThread[] players) {
+		inUse = true;
+		controller.setPlayer1IO(players[0]);
+		controller.setPlayer2IO(players[1]);
+		if (fourPlayerMode) {
+			controller.setPlayer3IO(players[2]);
+			controller.setPlayer4IO(players[3]);
+		}
+		for (int i = 0; i < players.length; i++) {
+			int playerID = i + 1;
+			String token = controller.openSession(playerID);
+			sessionTokens.add(token);
+			lobby.registerSession(token, this);
+			players[i].setController(controller);
+			players[i].sendMessage("bootGUI");
+			players[i].sendMessage("setID " + playerID);
+			players[i].sendMessage("session " + token);
+		}
+		controller.setTurnClock(lobby.getTurnClockMillis());
+		controller.startTurnClock();
+		SystemLogger.log(LogLevel.INFO, "Room started", "mode", gameMode, "players", players.length);
+	}
+
+	/**
+	 * Called by the controller when a player has won. Tells the players the result, detaches them so
+	 * they can queue again, and returns the room to the lobby's pool. The board has already been
+	 * reset to its starting state by the winning move.
+	 * @param winnerID the ID of the player who won
+	 */
+	public void finish(int winnerID) {
+		if (!inUse) {
+			return;
+		}
+		for (ClientSocketIOThread player : seatedPlayers()) {
+			player.sendMessage("game-over " + winnerID);
+		}
+		release();
+		SystemLogger.log(LogLevel.INFO, "Room finished", "winner", winnerID);
+	}
+
+	/**
+	 * Called by the controller when a player's connection dropped and they didn't resume in time. The
+	 * other players are told and detached, and the board is reset so the room can be reused
+	 * @param leaver the I/O thread of the player who left
+	 */
+	public void abandon(ClientSocketIOThread leaver) {
+		if (!inUse) {
+			return;
+		}
+		for (ClientSocketIOThread player : seatedPlayers()) {
+			if (player != leaver) {
+				player.sendMessage("abandoned");
+			}
+		}
+		board.reset();
+		release();
+		SystemLogger.logInfo("Room abandoned");
+	}
+
+	/**
+	 * Detach the players so they can queue again, and return the room to the lobby's pool
+	 */
+	private void release() {
+		for (ClientSocketIOThread player : seatedPlayers()) {
+			player.setController(null);
+		}
+		for (String token : sessionTokens) {
+			lobby.unregisterSession(token);
+		}
+		sessionTokens.clear();
+		inUse = false;
+		controller.detachPlayers();
+		lobby.recycle(this);
+	}
+
+	/**
+	 * @return the players' current I/O threads, which change when a player resumes on a new connection
+	 */
+	private ArrayList<ClientSocketIOThread> seatedPlayers() {
+		ArrayList<ClientSocketIOThread> seated = new ArrayList<ClientSocketIOThread>(4);
+		seated.add(controller.getPlayer1IO());
+		seated.add(controller.getPlayer2IO());
+		if (fourPlayerMode) {
+			seated.add(controller.getPlayer3IO());
+			seated.add(controller.getPlayer4IO());
+		}
+		return seated;
+	}
+}
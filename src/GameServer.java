@@ -91,6 +91,8 @@ public class GameServer {
 			player2IOThread.sendMessage("bootGUI");
 			player1IOThread.sendMessage("setID " + 1);
 			player2IOThread.sendMessage("setID " + 2);
+			player1IOThread.sendMessage("session " + controller.openSession(1));
+			player2IOThread.sendMessage("session " + controller.openSession(2));
 			if (numberOfPlayers == 4) {
 				controller.setPlayer3IO(player3IOThread);
 				controller.setPlayer4IO(player4IOThread);
@@ -98,7 +100,10 @@ public class GameServer {
 				player4IOThread.sendMessage("bootGUI");
 				player3IOThread.sendMessage("setID " + 3);
 				player4IOThread.sendMessage("setID " + 4);
+				player3IOThread.sendMessage("session " + controller.openSession(3));
+				player4IOThread.sendMessage("session " + controller.openSession(4));
 			}
+			listenForReconnections();
 			SystemLogger.logInfo("Game begun");
             showAlert("Game has begun");
 		} catch (IOException e) {
@@ -107,6 +112,30 @@ public class GameServer {
 		}
 	}
 
+	/**
+	 * Keep accepting connections once the game has begun, so that players whose connection dropped
+	 * can resume their session. Each new connection gets its own I/O thread, which hands the client
+	 * back to the controller when it receives a resume request
+	 */
+	private void listenForReconnections() {
+		Thread listener = new Thread("ReconnectionListener") {
+			@Override
+			public void run() {
+				while (!serverSocket.isClosed()) {
+					try {
+						ClientSocketIOThread ioThread = new ClientSocketIOThread(serverSocket.accept(), controller);
+						SystemLogger.logInfo("Client socket reconnected");
+						ioThread.start();
+					} catch (IOException e) {
+						SystemLogger.logError(e.getMessage());
+					}
+				}
+			}
+		};
+		listener.setDaemon(true);
+		listener.start();
+	}
+
 	private void initThreads() {
 		player1IOThread.start();
 		player2IOThread.start();
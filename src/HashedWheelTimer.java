@@ -0,0 +1,167 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * HashedWheelTimer runs delayed tasks for every connection and game in the process on one thread.
+ *
+ * Time is cut into ticks, and the wheel has one bucket of tasks per tick. A task due n ticks from now goes
+ * in the bucket n places ahead of the wheel's hand, along with how many full turns of the wheel it must
+ * wait first. Each tick the timer thread moves the hand on one bucket and runs the tasks in it that are
+ * due, so scheduling and cancelling are O(1) however many timeouts are pending. Tasks are only accurate
+ * to a tick, which is plenty for heartbeats and turn clocks.
+ *
+ * Tasks run on the timer thread, so they should be short: send a message, close a socket or hand work
+ * to a game.
+ */
+public class HashedWheelTimer {
+
+	private static final long DEFAULT_TICK_MILLIS = 100;
+	private static final int DEFAULT_WHEEL_SIZE = 512;
+
+	private static HashedWheelTimer sharedTimer;
+
+	private long tickMillis;
+	private ArrayList<ArrayList<Timeout>> wheel;
+	// Timeouts scheduled since the last tick; only the timer thread touches the wheel itself
+	private ConcurrentLinkedQueue<Timeout> pendingTimeouts;
+	private long tick;
+	private Thread worker;
+	private volatile boolean running;
+
+	/**
+	 * @param tickMillis the length of one tick of the wheel
+	 * @param wheelSize the number of buckets in the wheel
+	 */
+	public HashedWheelTimer(long tickMillis, int wheelSize) {
+		if (tickMillis <= 0 || wheelSize <= 0) {
+			throw new IllegalArgumentException("Tick length and wheel size must be positive");
+		}
+		this.tickMillis = tickMillis;
+		this.wheel = new ArrayList<ArrayList<Timeout>>(wheelSize);
+		for (int i = 0; i < wheelSize; i++) {
+			wheel.add(new ArrayList<Timeout>());
+		}
+		this.pendingTimeouts = new ConcurrentLinkedQueue<Timeout>();
+		this.running = true;
+		this.worker = new Thread("HashedWheelTimer") {
+			@Override
+			public void run() {
+				turnWheel();
+			}
+		};
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * @return the timer shared by every connection and game in the process
+	 */
+	public static synchronized HashedWheelTimer getSharedTimer() {
+		if (sharedTimer == null) {
+			sharedTimer = new HashedWheelTimer(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+		}
+		return sharedTimer;
+	}
+
+	/**
+	 * Run a task once after a delay
+	 * @param task the task to run on the timer thread
+	 * @param delayMillis how long to wait before running it
+	 * @return a handle which can be used to cancel the task
+	 */
+	public Timeout schedule(Runnable task, long delayMillis) {
+		Timeout timeout = new Timeout(task, System.currentTimeMillis() + Math.max(0, delayMillis));
+		pendingTimeouts.offer(timeout);
+		return timeout;
+	}
+
+	/**
+	 * Stop the timer thread; pending tasks are never run
+	 */
+	public void stop() {
+		running = false;
+		worker.interrupt();
+	}
+
+	private void turnWheel() {
+		long startMillis = System.currentTimeMillis();
+		while (running) {
+			long nextTickMillis = startMillis + (tick + 1) * tickMillis;
+			long sleepMillis = nextTickMillis - System.currentTimeMillis();
+			if (sleepMillis > 0) {
+				try {
+					Thread.sleep(sleepMillis);
+				} catch (InterruptedException e) {
+					if (!running) {
+						return;
+					}
+				}
+			}
+			placePendingTimeouts(startMillis);
+			runDueTimeouts(wheel.get((int) (tick % wheel.size())));
+			tick++;
+		}
+	}
+
+	/**
+	 * Put newly scheduled timeouts into the bucket for the tick they're due on
+	 */
+	private void placePendingTimeouts(long startMillis) {
+		Timeout timeout;
+		while ((timeout = pendingTimeouts.poll()) != null) {
+			if (timeout.isCancelled()) {
+				continue;
+			}
+			long dueTick = Math.max(tick, (timeout.deadlineMillis - startMillis) / tickMillis);
+			timeout.remainingRounds = (dueTick - tick) / wheel.size();
+			wheel.get((int) (dueTick % wheel.size())).add(timeout);
+		}
+	}
+
+	private void runDueTimeouts(ArrayList<Timeout> bucket) {
+		Iterator<Timeout> iter = bucket.iterator();
+		while (iter.hasNext()) {
+			Timeout timeout = iter.next();
+			if (timeout.isCancelled()) {
+				iter.remove();
+			} else if (timeout.remainingRounds > 0) {
+				timeout.remainingRounds--;
+			} else {
+				iter.remove();
+				try {
+					timeout.task.run();
+				} catch (RuntimeException e) {
+					SystemLogger.logError("Timer task failed: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Handle for a scheduled task
+	 */
+	public static class Timeout {
+
+		private Runnable task;
+		private long deadlineMillis;
+		private long remainingRounds;
+		private volatile boolean cancelled;
+
+		private Timeout(Runnable task, long deadlineMillis) {
+			this.task = task;
+			this.deadlineMillis = deadlineMillis;
+		}
+
+		/**
+		 * Stop the task from running if it hasn't already
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+
+		public boolean isCancelled() {
+			return cancelled;
+		}
+	}
+}
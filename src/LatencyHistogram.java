@@ -0,0 +1,136 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram counts recorded values in log-linear buckets, in the style of an HDR histogram: every
+ * power of two is split into 64 equal buckets, so any recorded value can be read back to within about 1.5%
+ * however large it is, while the whole histogram stays a fixed array of counters.
+ *
+ * Recording is lock free and allocation free, so it can be done from many threads on a hot path.
+ * Values are plain longs; callers pick the unit (microseconds for the network code).
+ */
+public class LatencyHistogram {
+
+	// Values below SUB_BUCKETS get a bucket each; above that each power of two gets HALF_BUCKETS buckets
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_BUCKETS = SUB_BUCKETS / 2;
+	// Values are capped at 2^40, which is over 12 days in microseconds
+	private static final int MAX_MAGNITUDE = 40;
+	private static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * HALF_BUCKETS;
+
+	private AtomicLongArray counts;
+	private AtomicLong totalCount;
+	private AtomicLong totalValue;
+	private AtomicLong maxValue;
+
+	public LatencyHistogram() {
+		counts = new AtomicLongArray(BUCKET_COUNT);
+		totalCount = new AtomicLong();
+		totalValue = new AtomicLong();
+		maxValue = new AtomicLong();
+	}
+
+	/**
+	 * Record a value; negative values are recorded as 0
+	 */
+	public void record(long value) {
+		value = Math.max(0, Math.min(value, (1L << MAX_MAGNITUDE) - 1));
+		counts.incrementAndGet(bucketIndex(value));
+		totalCount.incrementAndGet();
+		totalValue.addAndGet(value);
+		long max = maxValue.get();
+		while (value > max && !maxValue.compareAndSet(max, value)) {
+			max = maxValue.get();
+		}
+	}
+
+	public long getCount() {
+		return totalCount.get();
+	}
+
+	public long getSum() {
+		return totalValue.get();
+	}
+
+	public long getMax() {
+		return maxValue.get();
+	}
+
+	public double getMean() {
+		long count = totalCount.get();
+		return (count == 0) ? 0 : (double) totalValue.get() / count;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the upper bound of the bucket holding the value at the percentile, or 0 if nothing was recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long count = totalCount.get();
+		if (count == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(count * Math.min(100, percentile) / 100.0));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts.get(i);
+			if (seen >= target) {
+				return Math.min(bucketUpperBound(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * @return the number of values recorded in each bucket; bucket i holds values from
+	 * bucketLowerBound(i) up to and including bucketUpperBound(i)
+	 */
+	public long[] getBucketCounts() {
+		long[] snapshot = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			snapshot[i] = counts.get(i);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Forget every recorded value
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts.set(i, 0);
+		}
+		totalCount.set(0);
+		totalValue.set(0);
+		maxValue.set(0);
+	}
+
+	public static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		int shift = magnitude - (SUB_BUCKET_BITS - 1);
+		int top = (int) (value >>> shift);
+		return SUB_BUCKETS + (shift - 1) * HALF_BUCKETS + (top - HALF_BUCKETS);
+	}
+
+	public static long bucketLowerBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int offset = index - SUB_BUCKETS;
+		int shift = offset / HALF_BUCKETS + 1;
+		long top = offset % HALF_BUCKETS + HALF_BUCKETS;
+		return top << shift;
+	}
+
+	public static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKETS) / HALF_BUCKETS + 1;
+		return bucketLowerBound(index) + (1L << shift) - 1;
+	}
+}
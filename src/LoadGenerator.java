@@ -0,0 +1,139 @@
+import java.io.IOException;
+
+/**
+ * LoadGenerator measures how the game server copes with many games at once. It starts a GameLobby in
+ * this process (or uses one already running elsewhere), connects enough LoadTestClients to fill the
+ * requested number of games, lets them play for a while, and then reports the move throughput and the
+ * distribution of move latencies: the time from a client sending a move until the server's broadcast of
+ * it arrives back.
+ *
+ * Usage: LoadGenerator [games] [seconds] [players] [host port]
+ * e.g. LoadGenerator 200 30 2 runs 200 two player games for 30 seconds against an in-process lobby.
+ */
+public class LoadGenerator {
+
+	private static final int DEFAULT_GAMES = 50;
+	private static final int DEFAULT_SECONDS = 10;
+	private static final int DEFAULT_PLAYERS = 2;
+
+	private int games;
+	private int seconds;
+	private int numberOfPlayers;
+	private String IPAddress;
+	private int portAddress;
+	private LatencyHistogram latencies;
+
+	/**
+	 * @param IPAddress the lobby to test, or null to start one in this process
+	 */
+	public LoadGenerator(int games, int seconds, int numberOfPlayers, String IPAddress, int portAddress) {
+		if (games <= 0 || seconds <= 0) {
+			throw new IllegalArgumentException("The number of games and seconds must be positive");
+		}
+		if (numberOfPlayers != 2 && numberOfPlayers != 4) {
+			throw new IllegalArgumentException("Games have 2 or 4 players");
+		}
+		this.games = games;
+		this.seconds = seconds;
+		this.numberOfPlayers = numberOfPlayers;
+		this.IPAddress = IPAddress;
+		this.portAddress = portAddress;
+		this.latencies = new LatencyHistogram();
+	}
+
+	public LatencyHistogram getLatencies() {
+		return latencies;
+	}
+
+	/**
+	 * Run the test and print the report
+	 */
+	public void run() throws IOException, InterruptedException {
+		GameLobby lobby = null;
+		if (IPAddress == null) {
+			lobby = new GameLobby();
+			lobby.start("localhost", 0);
+			IPAddress = "localhost";
+			portAddress = lobby.getPort();
+		}
+		long startMillis = System.currentTimeMillis();
+		long stopAtMillis = startMillis + seconds * 1000L;
+		LoadTestClient[] clients = new LoadTestClient[games * numberOfPlayers];
+		for (int i = 0; i < clients.length; i++) {
+			clients[i] = new LoadTestClient(IPAddress, portAddress, numberOfPlayers, stopAtMillis, latencies, i);
+			clients[i].start();
+		}
+		for (LoadTestClient client : clients) {
+			client.join();
+		}
+		long elapsedMillis = System.currentTimeMillis() - startMillis;
+		if (lobby != null) {
+			lobby.stop();
+		}
+		report(clients, elapsedMillis);
+	}
+
+	private void report(LoadTestClient[] clients, long elapsedMillis) {
+		long moves = 0;
+		long rejected = 0;
+		long gamesFinished = 0;
+		for (LoadTestClient client : clients) {
+			moves += client.getMovesMade();
+			rejected += client.getMovesRejected();
+			gamesFinished += client.getGamesFinished();
+		}
+		double elapsedSeconds = elapsedMillis / 1000.0;
+		System.out.println("Games: " + games + " x " + numberOfPlayers + " players for " + elapsedSeconds + "s");
+		System.out.println("Moves: " + moves + " (" + String.format("%.1f", moves / elapsedSeconds) + "/s), "
+				+ rejected + " rejected, " + (gamesFinished / numberOfPlayers) + " games finished");
+		System.out.println("Move latency (us): mean " + String.format("%.1f", latencies.getMean())
+				+ ", p50 " + latencies.getValueAtPercentile(50)
+				+ ", p90 " + latencies.getValueAtPercentile(90)
+				+ ", p99 " + latencies.getValueAtPercentile(99)
+				+ ", p99.9 " + latencies.getValueAtPercentile(99.9)
+				+ ", max " + latencies.getMax());
+		printHistogram();
+	}
+
+	/**
+	 * Print the latency distribution, merging the histogram's buckets into one row per power of two
+	 */
+	private void printHistogram() {
+		long total = latencies.getCount();
+		if (total == 0) {
+			return;
+		}
+		long[] counts = latencies.getBucketCounts();
+		long rowUpperBound = 1;
+		long rowCount = 0;
+		long seen = 0;
+		for (int i = 0; i < counts.length && seen < total; i++) {
+			if (LatencyHistogram.bucketLowerBound(i) >= rowUpperBound) {
+				seen += printRow(rowUpperBound, rowCount, seen, total);
+				rowCount = 0;
+				while (LatencyHistogram.bucketLowerBound(i) >= rowUpperBound) {
+					rowUpperBound *= 2;
+				}
+			}
+			rowCount += counts[i];
+		}
+		printRow(rowUpperBound, rowCount, seen, total);
+	}
+
+	private long printRow(long rowUpperBound, long rowCount, long seen, long total) {
+		if (rowCount > 0) {
+			double cumulative = 100.0 * (seen + rowCount) / total;
+			System.out.println(String.format("  < %10d us %10d  %6.2f%%", rowUpperBound, rowCount, cumulative));
+		}
+		return rowCount;
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int games = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+		int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+		int players = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_PLAYERS;
+		String host = (args.length > 4) ? args[3] : null;
+		int port = (args.length > 4) ? Integer.parseInt(args[4]) : 0;
+		new LoadGenerator(games, seconds, players, host, port).run();
+	}
+}
@@ -0,0 +1,239 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * LoadTestClient is a headless player for load testing. It speaks the same protocol as GameClient, joins
+ * a GameLobby queue, and plays random legal moves for as long as it's told to, joining another game each
+ * time one ends.
+ *
+ * It keeps its own copy of the game's board, updated from the server's events, and uses the Board rules
+ * to choose its moves. Mostly it steps along its shortest path so that games finish; otherwise it makes a
+ * random pawn move or places a random legal wall. The time from sending each move until the server's
+ * broadcast of it arrives back is recorded in the shared histogram.
+ */
+public class LoadTestClient extends Thread {
+
+	// Chances of placing a wall (when any are left) and, otherwise, of a random rather than shortest path step
+	private static final double WALL_PROBABILITY = 0.15;
+	private static final double RANDOM_STEP_PROBABILITY = 0.3;
+
+	private String IPAddress;
+	private int portAddress;
+	private int numberOfPlayers;
+	private long stopAtMillis;
+	private LatencyHistogram latencies;
+	private Random random;
+
+	private Socket socket;
+	private PrintWriter out;
+	private BufferedReader in;
+
+	// This client's copy of the board, and its ID in the current game; 0 between games
+	private StandardBoard board;
+	private int playerID;
+	// When the move awaiting its broadcast was sent; 0 when no move is outstanding
+	private long moveSentNanos;
+
+	private long movesMade;
+	private long movesRejected;
+	private long gamesFinished;
+
+	/**
+	 * @param latencies histogram shared by every client, recording move-to-broadcast latency in microseconds
+	 * @param seed seed for the client's choice of moves
+	 */
+	public LoadTestClient(String IPAddress, int portAddress, int numberOfPlayers, long stopAtMillis,
+			LatencyHistogram latencies, long seed) {
+		super("LoadTestClient");
+		this.IPAddress = IPAddress;
+		this.portAddress = portAddress;
+		this.numberOfPlayers = numberOfPlayers;
+		this.stopAtMillis = stopAtMillis;
+		this.latencies = latencies;
+		this.random = new Random(seed);
+		setDaemon(true);
+	}
+
+	public long getMovesMade() {
+		return movesMade;
+	}
+
+	public long getMovesRejected() {
+		return movesRejected;
+	}
+
+	public long getGamesFinished() {
+		return gamesFinished;
+	}
+
+	public void run() {
+		try {
+			socket = new Socket(IPAddress, portAddress);
+			socket.setTcpNoDelay(true);
+			// wake up now and then to check whether the test is over
+			socket.setSoTimeout(1000);
+			out = new PrintWriter(socket.getOutputStream(), true);
+			in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+			out.println("queue " + GameMode.STANDARD + " " + numberOfPlayers);
+			while (System.currentTimeMillis() < stopAtMillis) {
+				String fromServer;
+				try {
+					fromServer = in.readLine();
+				} catch (java.net.SocketTimeoutException e) {
+					continue;
+				}
+				if (fromServer == null) {
+					break;
+				}
+				processCommand(fromServer.split("\\s+"));
+			}
+		} catch (IOException e) {
+			SystemLogger.logError(e.getMessage());
+		} finally {
+			try {
+				if (socket != null) {
+					socket.close();
+				}
+			} catch (IOException e) {
+				SystemLogger.logError(e.getMessage());
+			}
+		}
+	}
+
+	private void processCommand(String[] commands) {
+		if (commands[0].equals("ping")) {
+			out.println("pong");
+		}
+		else if (commands[0].equals("setID")) {
+			// a new game has started
+			playerID = Integer.parseInt(commands[1]);
+			board = new StandardBoard(numberOfPlayers == 4);
+			if (playerID == 1) {
+				makeMove();
+			}
+		}
+		else if (commands[0].equals("event")) {
+			String[] event = new String[commands.length - 2];
+			System.arraycopy(commands, 2, event, 0, event.length);
+			applyEvent(event);
+		}
+		else if (commands[0].equals("error")) {
+			if (moveSentNanos != 0) {
+				movesRejected++;
+				makeMove();
+			}
+		}
+		else if (commands[0].equals("game-over") || commands[0].equals("abandoned")) {
+			gamesFinished++;
+			playerID = 0;
+			moveSentNanos = 0;
+			out.println("queue " + GameMode.STANDARD + " " + numberOfPlayers);
+		}
+	}
+
+	/**
+	 * Update the copy of the board with an event broadcast by the server
+	 */
+	private void applyEvent(String[] event) {
+		if (board == null) {
+			return;
+		}
+		if (event[0].equals("pawn")) {
+			int id = Integer.parseInt(event[3]);
+			getPlayer(id).setPosition(board.getPosition(Integer.parseInt(event[1]), Integer.parseInt(event[2])));
+			moveBroadcast(id);
+		}
+		else if (event[0].equals("wall")) {
+			int wall = MoveNotation.parse(event[1], Integer.parseInt(event[2]));
+			Position topLeft = board.getPosition(MoveCodec.x(wall), MoveCodec.y(wall));
+			board.assignWallsFromTopLeftClockwise(topLeft, MoveCodec.orientation(wall));
+			moveBroadcast(MoveCodec.playerID(wall));
+		}
+		else if (event[0].equals("stats")) {
+			getPlayer(Integer.parseInt(event[3])).setWallCount(Integer.parseInt(event[2]));
+		}
+		else if (event[0].equals("reset")) {
+			board.resetWalledOffPositions();
+		}
+		else if (event[0].equals("currentPlayer")) {
+			int id = Integer.parseInt(event[1]);
+			board.setCurrentPlayer(getPlayer(id));
+			if (id == playerID && moveSentNanos == 0) {
+				makeMove();
+			}
+		}
+	}
+
+	/**
+	 * Record the latency of this client's move when the server's broadcast of it arrives
+	 */
+	private void moveBroadcast(int id) {
+		if (id == playerID && moveSentNanos != 0) {
+			latencies.record((System.nanoTime() - moveSentNanos) / 1000);
+			moveSentNanos = 0;
+			movesMade++;
+		}
+	}
+
+	private void makeMove() {
+		Player me = getPlayer(playerID);
+		board.setCurrentPlayer(me);
+		moveSentNanos = System.nanoTime();
+		if (me.hasWalls() && random.nextDouble() < WALL_PROBABILITY) {
+			for (int attempt = 0; attempt < 20; attempt++) {
+				int x = random.nextInt(8);
+				int y = random.nextInt(8);
+				WallPlacement orientation = random.nextBoolean() ? WallPlacement.VERTICAL : WallPlacement.HORIZONTAL;
+				if (board.wallPlacementIsLegal(x, y, orientation)) {
+					out.println("play " + MoveNotation.toText(MoveCodec.wall(playerID, x, y, orientation)) + " " + playerID);
+					return;
+				}
+			}
+		}
+		ArrayList<Position> positions = board.getCurrentPlayerOccupiablePositions();
+		if (positions.isEmpty()) {
+			// boxed in by the other pawns; ask again and hope the server disagrees
+			out.println("available");
+			moveSentNanos = 0;
+			return;
+		}
+		Position next = positions.get(random.nextInt(positions.size()));
+		if (playerID <= 2 && random.nextDouble() >= RANDOM_STEP_PROBABILITY) {
+			next = shortestPathStep(positions);
+		}
+		out.println("play " + MoveNotation.toText(MoveCodec.pawn(playerID, next.getX(), next.getY())) + " " + playerID);
+	}
+
+	/**
+	 * Give the step that leaves player 1 or 2 with the shortest path to their goal row
+	 */
+	private Position shortestPathStep(ArrayList<Position> positions) {
+		int goal = (playerID == 1) ? 8 : 0;
+		Position best = positions.get(0);
+		int bestLength = Integer.MAX_VALUE;
+		for (Position pos : positions) {
+			int length = Utility.shortestPathLenght(board.getPositions(), pos, goal);
+			if (length >= 0 && length < bestLength) {
+				bestLength = length;
+				best = pos;
+			}
+		}
+		return best;
+	}
+
+	private Player getPlayer(int id) {
+		if (id == 1) {
+			return board.getPlayer1();
+		} else if (id == 2) {
+			return board.getPlayer2();
+		} else if (id == 3) {
+			return board.getPlayer3();
+		}
+		return board.getPlayer4();
+	}
+}
@@ -19,6 +19,8 @@ public class LocalGameController<T> implements Controller {
     private Board board;
     // GUI (View) representing the game board
     private GUI gui;
+    // Moves made so far in the current game; null until the first move
+    private GameRecord record;
 
 	/**
 	 * Create a LocalGameController object and link it to a board and a gui object
@@ -58,6 +60,7 @@ public class LocalGameController<T> implements Controller {
     public void placeWall(int topLeftX, int topLeftY, WallPlacement orientation, int playerID) {
     	try {
     		board.placeWalls(topLeftX, topLeftY, orientation);
+    		recordMove(MoveCodec.wall(board.getPreviousPlayer().getID(), topLeftX, topLeftY, orientation));
     		gui.displayWall(topLeftX, topLeftY, orientation, board.getPreviousPlayer().getID());
     		gui.updatePlayerMoveCount(board.getPreviousPlayer().getMoveCount(), board.getPreviousPlayer().getID());
     		gui.updatePlayerWallCount(board.getPreviousPlayer().getWallCount(), board.getPreviousPlayer().getID());
@@ -78,6 +81,7 @@ public class LocalGameController<T> implements Controller {
     	if (this.board instanceof ChallengeBoard) {
     		boolean wallsRemoved = ((ChallengeBoard) board).removeWalls(topLeftX, topLeftY, orientation);
     		if (wallsRemoved) {
+    			recordMove(MoveCodec.wallRemoval(board.getPreviousPlayer().getID(), topLeftX, topLeftY, orientation));
     			gui.removeWallDisplay(topLeftX, topLeftY, orientation);
     			gui.updatePlayerMoveCount(board.getPreviousPlayer().getMoveCount(), board.getPreviousPlayer().getID());
     			gui.updatePlayerWallCount(board.getCurrentPlayer().getWallCount(), board.getCurrentPlayer().getID());
@@ -98,6 +102,7 @@ public class LocalGameController<T> implements Controller {
     	try {
 			int currentPlayerID = board.getCurrentPlayer().getID();
     		boolean gameOver = board.movePawn(posX, posY);
+			recordMove(MoveCodec.pawn(currentPlayerID, posX, posY));
 			gui.updatePlayerMoveCount(board.getPreviousPlayer().getMoveCount(), board.getPreviousPlayer().getID());
 			gui.updatePlayerPawnPosition(board.getPreviousPlayer().getPosition().getX(), board.getPreviousPlayer().getPosition().getY(), board.getPreviousPlayer().getID());
 			gui.updateActivePlayer(board.getCurrentPlayer().getID());
@@ -105,13 +110,14 @@ public class LocalGameController<T> implements Controller {
 				GameOverGUI gameOverGUI = new GameOverGUI((Controller) this);
 				StatsWriter statsWriter;
 				if (board.getPlayer3() == null) {
-					statsWriter = new StatsWriter(currentPlayerID, 2);
+					statsWriter = new StatsWriter(currentPlayerID, 2, record);
 				} else {
-					statsWriter = new StatsWriter(currentPlayerID, 4);
+					statsWriter = new StatsWriter(currentPlayerID, 4, record);
 				}
+				record = null;
                 gameOverGUI.start(new Stage());
 				try {
-					statsWriter.writeStatsToCSV();
+					statsWriter.writeStats();
 				} catch (IOException e) {
 					SystemLogger.logError(e.getMessage());
 				}
@@ -121,6 +127,17 @@ public class LocalGameController<T> implements Controller {
     	}
     }
 
+	/**
+	 * Add a move to the current game's record, starting the record on the game's first move
+	 * @param code The move, encoded by MoveCodec
+	 */
+    private void recordMove(int code) {
+    	if (record == null) {
+    		record = GameRecord.forBoard(board);
+    	}
+    	record.addMove(code);
+    }
+
 	/**
 	 * Reset the game in the board class then update the GUI
 	 */
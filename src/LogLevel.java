@@ -0,0 +1,6 @@
+/**
+ * Severity of a SystemLogger message, least severe first
+ */
+public enum LogLevel {
+	DEBUG, INFO, WARNING, ERROR
+}
@@ -0,0 +1,309 @@
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+
+/**
+ * Metrics is the process-wide registry of counters, gauges and latency histograms for the server, the
+ * game controllers and the AI. Like SystemLogger it is used through static methods.
+ *
+ * Metrics are created once, usually into a static final field of the class that updates them, and then
+ * updated on the hot path. Counters and gauges are LongAdders and histograms are LatencyHistograms, so
+ * updating a metric never takes a lock or allocates. Nothing is added up or formatted until someone reads
+ * the metrics, through MetricsServer's Prometheus endpoint or the JMX bean registered by registerMBean().
+ */
+public class Metrics {
+
+	private static final String MBEAN_NAME = "QuoridorGame:type=Metrics";
+
+	// Every metric by name; sorted so that the exported text is stable
+	private static ConcurrentSkipListMap<String, Metric> metrics = new ConcurrentSkipListMap<String, Metric>();
+
+	/**
+	 * Give the counter with the given name, creating it if it doesn't exist yet
+	 * @param name the Prometheus name of the counter, e.g. quoridor_moves_total
+	 * @param help a description of what is counted
+	 */
+	public static Counter counter(String name, String help) {
+		return (Counter) register(new Counter(name, help));
+	}
+
+	/**
+	 * Give the gauge with the given name, creating it if it doesn't exist yet
+	 */
+	public static Gauge gauge(String name, String help) {
+		return (Gauge) register(new Gauge(name, help));
+	}
+
+	/**
+	 * Give the histogram with the given name, creating it if it doesn't exist yet
+	 * @param name the Prometheus name of the histogram, ending in its unit, e.g. quoridor_command_microseconds
+	 */
+	public static Histogram histogram(String name, String help) {
+		return (Histogram) register(new Histogram(name, help));
+	}
+
+	private static Metric register(Metric metric) {
+		Metric existing = metrics.putIfAbsent(metric.name, metric);
+		if (existing == null) {
+			return metric;
+		}
+		if (existing.getClass() != metric.getClass()) {
+			throw new IllegalArgumentException("Metric " + metric.name + " is already registered as a " + existing.type());
+		}
+		return existing;
+	}
+
+	/**
+	 * Write every metric in the Prometheus text format. Histograms are written as summaries, with their
+	 * 50th, 90th, 99th and 99.9th percentiles
+	 */
+	public static String toPrometheusText() {
+		StringBuilder text = new StringBuilder();
+		for (Metric metric : metrics.values()) {
+			text.append("# HELP ").append(metric.name).append(' ').append(metric.help).append('\n');
+			text.append("# TYPE ").append(metric.name).append(' ').append(metric.type()).append('\n');
+			metric.appendSamples(text);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Make the metrics readable over JMX, each as an attribute of one bean. Histograms appear as their
+	 * count, mean and percentiles
+	 */
+	public static void registerMBean() {
+		try {
+			ObjectName name = new ObjectName(MBEAN_NAME);
+			if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), name);
+			}
+		} catch (JMException e) {
+			SystemLogger.logError("Couldn't register metrics bean: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * A named metric
+	 */
+	public static abstract class Metric {
+
+		private String name;
+		private String help;
+
+		private Metric(String name, String help) {
+			this.name = name;
+			this.help = help;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		abstract String type();
+
+		abstract void appendSamples(StringBuilder text);
+
+		/**
+		 * Add the metric's values to a map of JMX attribute names to values
+		 */
+		abstract void putAttributes(Map<String, Object> attributes);
+	}
+
+	/**
+	 * A count that only goes up, e.g. of moves made
+	 */
+	public static class Counter extends Metric {
+
+		private LongAdder count = new LongAdder();
+
+		private Counter(String name, String help) {
+			super(name, help);
+		}
+
+		public void increment() {
+			count.increment();
+		}
+
+		public void add(long amount) {
+			count.add(amount);
+		}
+
+		public long get() {
+			return count.sum();
+		}
+
+		String type() {
+			return "counter";
+		}
+
+		void appendSamples(StringBuilder text) {
+			text.append(getName()).append(' ').append(get()).append('\n');
+		}
+
+		void putAttributes(Map<String, Object> attributes) {
+			attributes.put(getName(), get());
+		}
+	}
+
+	/**
+	 * A value that goes up and down, e.g. the number of open connections
+	 */
+	public static class Gauge extends Metric {
+
+		private LongAdder value = new LongAdder();
+
+		private Gauge(String name, String help) {
+			super(name, help);
+		}
+
+		public void increment() {
+			value.increment();
+		}
+
+		public void decrement() {
+			value.decrement();
+		}
+
+		public long get() {
+			return value.sum();
+		}
+
+		String type() {
+			return "gauge";
+		}
+
+		void appendSamples(StringBuilder text) {
+			text.append(getName()).append(' ').append(get()).append('\n');
+		}
+
+		void putAttributes(Map<String, Object> attributes) {
+			attributes.put(getName(), get());
+		}
+	}
+
+	/**
+	 * The distribution of a latency or other value, e.g. how long commands take to run
+	 */
+	public static class Histogram extends Metric {
+
+		private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+		private LatencyHistogram histogram = new LatencyHistogram();
+
+		private Histogram(String name, String help) {
+			super(name, help);
+		}
+
+		public void record(long value) {
+			histogram.record(value);
+		}
+
+		/**
+		 * Record the time since an earlier System.nanoTime(), in microseconds
+		 */
+		public void recordNanosSince(long startNanos) {
+			histogram.record((System.nanoTime() - startNanos) / 1000);
+		}
+
+		public LatencyHistogram getHistogram() {
+			return histogram;
+		}
+
+		String type() {
+			return "summary";
+		}
+
+		void appendSamples(StringBuilder text) {
+			for (double quantile : QUANTILES) {
+				text.append(getName()).append("{quantile=\"").append(quantile).append("\"} ")
+						.append(histogram.getValueAtPercentile(quantile * 100)).append('\n');
+			}
+			text.append(getName()).append("_sum ").append(histogram.getSum()).append('\n');
+			text.append(getName()).append("_count ").append(histogram.getCount()).append('\n');
+		}
+
+		void putAttributes(Map<String, Object> attributes) {
+			attributes.put(getName() + "_count", histogram.getCount());
+			attributes.put(getName() + "_mean", histogram.getMean());
+			attributes.put(getName() + "_p50", histogram.getValueAtPercentile(50));
+			attributes.put(getName() + "_p99", histogram.getValueAtPercentile(99));
+			attributes.put(getName() + "_p999", histogram.getValueAtPercentile(99.9));
+			attributes.put(getName() + "_max", histogram.getMax());
+		}
+	}
+
+	/**
+	 * Read-only JMX view of the registry. Its attributes are worked out when it's asked for them, so
+	 * metrics registered after the bean still show up
+	 */
+	private static class MetricsMBean implements DynamicMBean {
+
+		private Map<String, Object> readAttributes() {
+			Map<String, Object> attributes = new java.util.TreeMap<String, Object>();
+			for (Metric metric : metrics.values()) {
+				metric.putAttributes(attributes);
+			}
+			return attributes;
+		}
+
+		@Override
+		public Object getAttribute(String attribute) throws AttributeNotFoundException {
+			Object value = readAttributes().get(attribute);
+			if (value == null) {
+				throw new AttributeNotFoundException(attribute);
+			}
+			return value;
+		}
+
+		@Override
+		public AttributeList getAttributes(String[] names) {
+			Map<String, Object> attributes = readAttributes();
+			AttributeList list = new AttributeList();
+			for (String name : names) {
+				if (attributes.containsKey(name)) {
+					list.add(new Attribute(name, attributes.get(name)));
+				}
+			}
+			return list;
+		}
+
+		@Override
+		public MBeanInfo getMBeanInfo() {
+			Map<String, Object> attributes = readAttributes();
+			MBeanAttributeInfo[] infos = new MBeanAttributeInfo[attributes.size()];
+			int i = 0;
+			for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+				infos[i++] = new MBeanAttributeInfo(attribute.getKey(), attribute.getValue().getClass().getName(),
+						attribute.getKey(), true, false, false);
+			}
+			return new MBeanInfo(Metrics.class.getName(), "Quoridor server metrics", infos, null,
+					new MBeanOperationInfo[0], null);
+		}
+
+		@Override
+		public void setAttribute(Attribute attribute) {
+			throw new UnsupportedOperationException("Metrics are read only");
+		}
+
+		@Override
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+
+		@Override
+		public Object invoke(String actionName, Object[] params, String[] signature) {
+			throw new UnsupportedOperationException("Metrics have no operations");
+		}
+	}
+}
@@ -0,0 +1,53 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * MetricsServer serves the Metrics registry over HTTP in the Prometheus text format, at /metrics on the
+ * loopback interface only. The text is built when a request comes in, so the server costs nothing
+ * between scrapes.
+ */
+public class MetricsServer {
+
+	public static final int DEFAULT_PORT = 9464;
+
+	private HttpServer server;
+
+	/**
+	 * Start serving metrics on a background thread
+	 * @param port the port to listen on; 0 picks a free one
+	 */
+	public void start(int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/metrics", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				byte[] body = Metrics.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+			}
+		});
+		server.start();
+		Metrics.registerMBean();
+		SystemLogger.logInfo("Metrics served on port " + getPort());
+	}
+
+	public void stop() {
+		if (server != null) {
+			server.stop(0);
+		}
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+}
@@ -39,4 +39,22 @@ public class Move {
 		this.y = y;
 	}
 
+	/**
+	 * @return the move encoded by MoveCodec, as made by the given player
+	 */
+	public int encode(int playerID) {
+		if (orientation == WallPlacement.NULL) {
+			return MoveCodec.pawn(playerID, x, y);
+		}
+		return MoveCodec.wall(playerID, x, y, orientation);
+	}
+
+	/**
+	 * @return the move in MoveNotation, e.g. e2 or e3h
+	 */
+	@Override
+	public String toString() {
+		return MoveNotation.toText(encode(1));
+	}
+
 }
@@ -0,0 +1,143 @@
+/**
+ * MoveCodec packs a move into a fixed-width 16 bit code, so that games can be stored as compact arrays of
+ * moves and read back without parsing:
+ *
+ * bits 0-4 the x coordinate, of the pawn's new position or the wall's top left
+ * bits 5-9 the y coordinate
+ * bits 10-12 the kind of move
+ * bits 13-15 the ID of the player who moved, less one
+ */
+public class MoveCodec {
+
+	/**
+	 * The kinds of move a player can make. A pass is a turn forfeited, e.g. when a player's clock runs out
+	 */
+	public enum Kind {
+		PAWN, WALL_HORIZONTAL, WALL_VERTICAL, REMOVE_HORIZONTAL, REMOVE_VERTICAL, PASS
+	}
+
+	private static final Kind[] KINDS = Kind.values();
+
+	private static final int COORDINATE_BITS = 5;
+	private static final int COORDINATE_MASK = (1 << COORDINATE_BITS) - 1;
+	private static final int KIND_SHIFT = 2 * COORDINATE_BITS;
+	private static final int PLAYER_SHIFT = KIND_SHIFT + 3;
+
+	public static int pawn(int playerID, int x, int y) {
+		return encode(Kind.PAWN, playerID, x, y);
+	}
+
+	public static int wall(int playerID, int topLeftX, int topLeftY, WallPlacement orientation) {
+		Kind kind = (orientation == WallPlacement.HORIZONTAL) ? Kind.WALL_HORIZONTAL : Kind.WALL_VERTICAL;
+		return encode(kind, playerID, topLeftX, topLeftY);
+	}
+
+	public static int wallRemoval(int playerID, int topLeftX, int topLeftY, WallPlacement orientation) {
+		Kind kind = (orientation == WallPlacement.HORIZONTAL) ? Kind.REMOVE_HORIZONTAL : Kind.REMOVE_VERTICAL;
+		return encode(kind, playerID, topLeftX, topLeftY);
+	}
+
+	public static int pass(int playerID) {
+		return encode(Kind.PASS, playerID, 0, 0);
+	}
+
+	/**
+	 * @param kind the kind of move
+	 * @param playerID the ID of the player moving, 1 to 8
+	 * @param x the x coordinate, 0 to 31
+	 * @param y the y coordinate, 0 to 31
+	 */
+	public static int encode(Kind kind, int playerID, int x, int y) {
+		if (playerID < 1 || playerID > 8 || x < 0 || x > COORDINATE_MASK || y < 0 || y > COORDINATE_MASK) {
+			throw new IllegalArgumentException("Move out of range: player " + playerID + " at " + x + ", " + y);
+		}
+		return (playerID - 1) << PLAYER_SHIFT | kind.ordinal() << KIND_SHIFT | y << COORDINATE_BITS | x;
+	}
+
+	public static Kind kind(int code) {
+		int kind = (code >>> KIND_SHIFT) & 7;
+		if (kind >= KINDS.length) {
+			throw new IllegalArgumentException("Not a move: " + code);
+		}
+		return KINDS[kind];
+	}
+
+	public static int playerID(int code) {
+		return ((code >>> PLAYER_SHIFT) & 7) + 1;
+	}
+
+	public static int x(int code) {
+		return code & COORDINATE_MASK;
+	}
+
+	public static int y(int code) {
+		return (code >>> COORDINATE_BITS) & COORDINATE_MASK;
+	}
+
+	/**
+	 * @return the orientation of a wall placed or removed, or WallPlacement.NULL for pawn moves and passes
+	 */
+	public static WallPlacement orientation(int code) {
+		switch (kind(code)) {
+			case WALL_HORIZONTAL:
+			case REMOVE_HORIZONTAL:
+				return WallPlacement.HORIZONTAL;
+			case WALL_VERTICAL:
+			case REMOVE_VERTICAL:
+				return WallPlacement.VERTICAL;
+			default:
+				return WallPlacement.NULL;
+		}
+	}
+
+	/**
+	 * Make a recorded move on a board, as the player who made it. Walls are placed and removed by the
+	 * board's own rules; a pawn move is checked but, unlike Board.movePawn, a winning move leaves the pawn
+	 * on its goal rather than resetting the board, so a replayed game can be shown as it finished
+	 * @throws IllegalArgumentException if the move isn't legal on the board
+	 */
+	public static void apply(Board board, int code) {
+		Player player = board.getPlayer(playerID(code));
+		if (player == null) {
+			throw new IllegalArgumentException("No such player: " + toString(code));
+		}
+		board.setCurrentPlayer(player);
+		int x = x(code);
+		int y = y(code);
+		switch (kind(code)) {
+			case PAWN:
+				if (!board.isValidMove(player, x, y)) {
+					throw new IllegalArgumentException("Illegal move: " + toString(code));
+				}
+				player.setPosition(board.getPosition(x, y));
+				player.incrementMoveCount();
+				board.switchPlayer();
+				break;
+			case WALL_HORIZONTAL:
+			case WALL_VERTICAL:
+				try {
+					board.placeWalls(x, y, orientation(code));
+				} catch (IllegalStateException e) {
+					throw new IllegalArgumentException("Illegal move: " + toString(code));
+				}
+				break;
+			case REMOVE_HORIZONTAL:
+			case REMOVE_VERTICAL:
+				if (!(board instanceof ChallengeBoard) || !((ChallengeBoard) board).removeWalls(x, y, orientation(code))) {
+					throw new IllegalArgumentException("Illegal move: " + toString(code));
+				}
+				break;
+			case PASS:
+				board.switchPlayer();
+				break;
+		}
+	}
+
+	public static String toString(int code) {
+		Kind kind = kind(code);
+		if (kind == Kind.PASS) {
+			return "player " + playerID(code) + " PASS";
+		}
+		return "player " + playerID(code) + " " + kind + " " + x(code) + " " + y(code);
+	}
+}
@@ -0,0 +1,306 @@
+import java.nio.ByteBuffer;
+
+/**
+ * MoveNotation writes and reads moves in a compact text notation and a dense binary form.
+ *
+ * In text, squares are named by a file letter (a for x = 0) and a rank number (1 for y = 0), so player 1
+ * starts on e1. A pawn move is the square moved to, e.g. e2. A wall is the square at its top left followed
+ * by h or v, e.g. e3h. A wall removal in challenge games is written with an x in front, e.g. xe3h, and a
+ * forfeited turn is a single -.
+ *
+ * In binary most moves take one byte: 0-80 are pawn moves to the square y * 9 + x, 81-144 horizontal
+ * walls and 145-208 vertical walls at y * 8 + x. Removals are an escape byte followed by the wall's byte,
+ * a pass is an escape byte on its own, and any other move is written in full as an escape byte followed
+ * by its two byte MoveCodec code.
+ *
+ * Neither form says who moved; players take turns, so a game's moves are read in turn order starting with
+ * player 1. A move out of turn is written with its player in front (3:e2 in text, or in full in binary).
+ * Nothing is allocated when moves are written to a char array or ByteBuffer, or parsed from a CharSequence.
+ */
+public class MoveNotation {
+
+	// The longest move in text: a player, an x, a two digit rank and an orientation
+	public static final int MAX_TEXT_LENGTH = 7;
+
+	private static final int BOARD_SIZE = 9;
+	private static final int WALL_SQUARES = (BOARD_SIZE - 1) * (BOARD_SIZE - 1);
+	private static final int HORIZONTAL_WALLS = BOARD_SIZE * BOARD_SIZE;
+	private static final int VERTICAL_WALLS = HORIZONTAL_WALLS + WALL_SQUARES;
+	private static final int REMOVE_HORIZONTAL = VERTICAL_WALLS + WALL_SQUARES;
+	private static final int REMOVE_VERTICAL = REMOVE_HORIZONTAL + 1;
+	private static final int PASS = REMOVE_HORIZONTAL + 2;
+	private static final int FULL = REMOVE_HORIZONTAL + 3;
+
+	/**
+	 * @return the move in text, without its player
+	 */
+	public static String toText(int code) {
+		char[] text = new char[MAX_TEXT_LENGTH];
+		return new String(text, 0, write(code, false, text, 0));
+	}
+
+	public static void append(StringBuilder out, int code) {
+		char[] text = new char[MAX_TEXT_LENGTH];
+		out.append(text, 0, write(code, false, text, 0));
+	}
+
+	/**
+	 * Write a move in text
+	 * @param withPlayer whether to put the move's player in front
+	 * @return the offset just after the move
+	 */
+	public static int write(int code, boolean withPlayer, char[] out, int offset) {
+		if (withPlayer) {
+			out[offset++] = (char) ('0' + MoveCodec.playerID(code));
+			out[offset++] = ':';
+		}
+		MoveCodec.Kind kind = MoveCodec.kind(code);
+		if (kind == MoveCodec.Kind.PASS) {
+			out[offset++] = '-';
+			return offset;
+		}
+		if (kind == MoveCodec.Kind.REMOVE_HORIZONTAL || kind == MoveCodec.Kind.REMOVE_VERTICAL) {
+			out[offset++] = 'x';
+		}
+		int x = MoveCodec.x(code);
+		int rank = MoveCodec.y(code) + 1;
+		if (x >= 26) {
+			throw new IllegalArgumentException("No file letter for " + MoveCodec.toString(code));
+		}
+		out[offset++] = (char) ('a' + x);
+		if (rank >= 10) {
+			out[offset++] = (char) ('0' + rank / 10);
+		}
+		out[offset++] = (char) ('0' + rank % 10);
+		if (kind != MoveCodec.Kind.PAWN) {
+			out[offset++] = (MoveCodec.orientation(code) == WallPlacement.HORIZONTAL) ? 'h' : 'v';
+		}
+		return offset;
+	}
+
+	/**
+	 * Read a move from text
+	 * @param playerID the player who made it, unless the text names one
+	 * @return the move, encoded by MoveCodec
+	 * @throws IllegalArgumentException if the text isn't a move
+	 */
+	public static int parse(CharSequence text, int playerID) {
+		return parse(text, 0, text.length(), playerID);
+	}
+
+	/**
+	 * Read a move from part of some text
+	 * @param start the index of the move's first character
+	 * @param end the index just after its last
+	 */
+	public static int parse(CharSequence text, int start, int end, int playerID) {
+		int i = start;
+		if (end - i >= 2 && text.charAt(i + 1) == ':') {
+			playerID = text.charAt(i) - '0';
+			i += 2;
+		}
+		if (end - i == 1 && text.charAt(i) == '-') {
+			return MoveCodec.pass(playerID);
+		}
+		boolean removal = i < end && text.charAt(i) == 'x';
+		if (removal) {
+			i++;
+		}
+		if (i >= end || text.charAt(i) < 'a' || text.charAt(i) > 'z') {
+			throw notAMove(text, start, end);
+		}
+		int x = text.charAt(i++) - 'a';
+		int rank = 0;
+		int digits = 0;
+		while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9' && digits < 2) {
+			rank = rank * 10 + (text.charAt(i++) - '0');
+			digits++;
+		}
+		if (rank < 1) {
+			throw notAMove(text, start, end);
+		}
+		int y = rank - 1;
+		if (i == end && !removal) {
+			return MoveCodec.pawn(playerID, x, y);
+		}
+		if (i != end - 1 || (text.charAt(i) != 'h' && text.charAt(i) != 'v')) {
+			throw notAMove(text, start, end);
+		}
+		WallPlacement orientation = (text.charAt(i) == 'h') ? WallPlacement.HORIZONTAL : WallPlacement.VERTICAL;
+		return removal ? MoveCodec.wallRemoval(playerID, x, y, orientation) : MoveCodec.wall(playerID, x, y, orientation);
+	}
+
+	private static IllegalArgumentException notAMove(CharSequence text, int start, int end) {
+		return new IllegalArgumentException("Not a move: " + text.subSequence(start, end));
+	}
+
+	/**
+	 * @return the game's moves in text, separated by spaces
+	 */
+	public static String gameToText(GameRecord record) {
+		StringBuilder out = new StringBuilder(record.getMoveCount() * 4);
+		char[] text = new char[MAX_TEXT_LENGTH];
+		int playerID = 1;
+		for (int i = 0; i < record.getMoveCount(); i++) {
+			int code = record.getMove(i);
+			if (i > 0) {
+				out.append(' ');
+			}
+			out.append(text, 0, write(code, MoveCodec.playerID(code) != playerID, text, 0));
+			playerID = MoveCodec.playerID(code) % record.getNumberOfPlayers() + 1;
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Add the moves in some text, as written by gameToText, to a record
+	 */
+	public static void parseGame(CharSequence text, GameRecord record) {
+		int playerID = 1;
+		int i = 0;
+		while (i < text.length()) {
+			if (text.charAt(i) == ' ') {
+				i++;
+				continue;
+			}
+			int end = i;
+			while (end < text.length() && text.charAt(end) != ' ') {
+				end++;
+			}
+			int code = parse(text, i, end, playerID);
+			record.addMove(code);
+			playerID = MoveCodec.playerID(code) % record.getNumberOfPlayers() + 1;
+			i = end;
+		}
+	}
+
+	/**
+	 * Write a move in binary
+	 * @param playerID the player whose turn it is; a move by anyone else is written in full
+	 */
+	public static void writeMove(ByteBuffer out, int code, int playerID) {
+		if (!isShort(code, playerID)) {
+			out.put((byte) FULL);
+			out.putShort((short) code);
+			return;
+		}
+		int x = MoveCodec.x(code);
+		int y = MoveCodec.y(code);
+		switch (MoveCodec.kind(code)) {
+			case PAWN:
+				out.put((byte) (y * BOARD_SIZE + x));
+				break;
+			case WALL_HORIZONTAL:
+				out.put((byte) (HORIZONTAL_WALLS + y * (BOARD_SIZE - 1) + x));
+				break;
+			case WALL_VERTICAL:
+				out.put((byte) (VERTICAL_WALLS + y * (BOARD_SIZE - 1) + x));
+				break;
+			case REMOVE_HORIZONTAL:
+				out.put((byte) REMOVE_HORIZONTAL);
+				out.put((byte) (y * (BOARD_SIZE - 1) + x));
+				break;
+			case REMOVE_VERTICAL:
+				out.put((byte) REMOVE_VERTICAL);
+				out.put((byte) (y * (BOARD_SIZE - 1) + x));
+				break;
+			case PASS:
+				out.put((byte) PASS);
+				break;
+		}
+	}
+
+	/**
+	 * @return whether a move can be written without being written in full
+	 */
+	private static boolean isShort(int code, int playerID) {
+		int x = MoveCodec.x(code);
+		int y = MoveCodec.y(code);
+		int size = (MoveCodec.kind(code) == MoveCodec.Kind.PAWN) ? BOARD_SIZE : BOARD_SIZE - 1;
+		return MoveCodec.playerID(code) == playerID && x < size && y < size;
+	}
+
+	/**
+	 * Read a move written by writeMove
+	 * @param playerID the player whose turn it is
+	 * @throws IllegalArgumentException if the bytes aren't a move
+	 */
+	public static int readMove(ByteBuffer in, int playerID) {
+		int first = in.get() & 0xff;
+		if (first < HORIZONTAL_WALLS) {
+			return MoveCodec.pawn(playerID, first % BOARD_SIZE, first / BOARD_SIZE);
+		}
+		if (first < VERTICAL_WALLS) {
+			int square = first - HORIZONTAL_WALLS;
+			return MoveCodec.wall(playerID, square % (BOARD_SIZE - 1), square / (BOARD_SIZE - 1), WallPlacement.HORIZONTAL);
+		}
+		if (first < REMOVE_HORIZONTAL) {
+			int square = first - VERTICAL_WALLS;
+			return MoveCodec.wall(playerID, square % (BOARD_SIZE - 1), square / (BOARD_SIZE - 1), WallPlacement.VERTICAL);
+		}
+		if (first == REMOVE_HORIZONTAL || first == REMOVE_VERTICAL) {
+			int square = in.get() & 0xff;
+			WallPlacement orientation = (first == REMOVE_HORIZONTAL) ? WallPlacement.HORIZONTAL : WallPlacement.VERTICAL;
+			return MoveCodec.wallRemoval(playerID, square % (BOARD_SIZE - 1), square / (BOARD_SIZE - 1), orientation);
+		}
+		if (first == PASS) {
+			return MoveCodec.pass(playerID);
+		}
+		if (first == FULL) {
+			int code = in.getShort() & 0xffff;
+			MoveCodec.kind(code);
+			return code;
+		}
+		throw new IllegalArgumentException("Not a move: byte " + first);
+	}
+
+	/**
+	 * @return the number of bytes writeGame will take for the record's moves
+	 */
+	public static int binaryLength(GameRecord record) {
+		int length = 4;
+		int playerID = 1;
+		for (int i = 0; i < record.getMoveCount(); i++) {
+			int code = record.getMove(i);
+			MoveCodec.Kind kind = MoveCodec.kind(code);
+			if (!isShort(code, playerID)) {
+				length += 3;
+			} else if (kind == MoveCodec.Kind.REMOVE_HORIZONTAL || kind == MoveCodec.Kind.REMOVE_VERTICAL) {
+				length += 2;
+			} else {
+				length += 1;
+			}
+			playerID = MoveCodec.playerID(code) % record.getNumberOfPlayers() + 1;
+		}
+		return length;
+	}
+
+	/**
+	 * Write the record's moves in binary: an int count, then each move
+	 */
+	public static void writeGame(ByteBuffer out, GameRecord record) {
+		out.putInt(record.getMoveCount());
+		int playerID = 1;
+		for (int i = 0; i < record.getMoveCount(); i++) {
+			int code = record.getMove(i);
+			writeMove(out, code, playerID);
+			playerID = MoveCodec.playerID(code) % record.getNumberOfPlayers() + 1;
+		}
+	}
+
+	/**
+	 * Add the moves written by writeGame to a record
+	 */
+	public static void readGame(ByteBuffer in, GameRecord record) {
+		int count = in.getInt();
+		if (count < 0) {
+			throw new IllegalArgumentException("Bad move count " + count);
+		}
+		int playerID = 1;
+		for (int i = 0; i < count; i++) {
+			int code = readMove(in, playerID);
+			record.addMove(code);
+			playerID = MoveCodec.playerID(code) % record.getNumberOfPlayers() + 1;
+		}
+	}
+}
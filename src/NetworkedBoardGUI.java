@@ -1,4 +1,8 @@
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -16,6 +20,7 @@ import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextAlignment;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 /**
  * This class is used to draw the 18x18 board for Quoridor when playing a networked game.
@@ -65,6 +70,17 @@ public class NetworkedBoardGUI extends Application implements GUI {
     private int player4WallCount;
     private Text player4Walls;
 
+    // Time left on each player's turn clock; blank in untimed games, where the server never sends it
+    private Text player1Clock;
+    private Text player2Clock;
+    private Text player3Clock;
+    private Text player4Clock;
+    // Each player's time as last sent by the server, and the player whose time is counting down since when
+    private final long[] clockMillis = new long[5];
+    private volatile int clockPlayerID;
+    private volatile long clockStartedMillis;
+    private Timeline clockTimeline;
+
     private Rectangle[][] grids;
     private Button highlightPositionsButton;
     private Circle firstPawn;
@@ -109,6 +125,10 @@ public class NetworkedBoardGUI extends Application implements GUI {
         player4Moves = new Text((Translate.moves() + ": ") + 0);
         player4WallCount = 10;
         player4Walls = new Text((Translate.walls() + ": ") + player3WallCount);
+        player1Clock = new Text("");
+        player2Clock = new Text("");
+        player3Clock = new Text("");
+        player4Clock = new Text("");
         errorPaneText = new Text("");
         this.numberOfPlayers = numberOfPlayers;
         player1Title = new Text("Player 1");
@@ -291,28 +311,32 @@ public class NetworkedBoardGUI extends Application implements GUI {
         player1Moves.setFont(Font.font("Calibri", FontWeight.NORMAL, 15));
         player1Title.setFont(Font.font("Calibri", FontWeight.BOLD, 15));
         player1Title.setFill(Color.ORANGE);
-        player1StatsPane.getChildren().addAll(player1Moves, player1Title, player1Walls);
+        player1Clock.setFont(Font.font("Calibri", FontWeight.NORMAL, 15));
+        player1StatsPane.getChildren().addAll(player1Moves, player1Title, player1Walls, player1Clock);
         errorPane.getChildren().addAll(errorPaneText);
         player2Walls.setTextAlignment(TextAlignment.CENTER);
         player2Walls.setFont(Font.font("Calibri", FontWeight.NORMAL, 15));
         player2Moves.setTextAlignment(TextAlignment.CENTER);
         player2Moves.setFont(Font.font("Calibri", FontWeight.NORMAL, 15));
         player2Title.setFont(Font.font("Calibri", FontWeight.BOLD, 15));
-        player2StatsPane.getChildren().addAll(player2Moves, player2Title, player2Walls);
+        player2Clock.setFont(Font.font("Calibri", FontWeight.NORMAL, 15));
+        player2StatsPane.getChildren().addAll(player2Moves, player2Title, player2Walls, player2Clock);
         if (numberOfPlayers == 4) {
             player3Walls.setTextAlignment(TextAlignment.CENTER);
             player3Walls.setFont(Font.font("Calibri", FontWeight.NORMAL, 15));
             player3Moves.setTextAlignment(TextAlignment.CENTER);
             player3Moves.setFont(Font.font("Calibri", FontWeight.NORMAL, 15));
             player3Title.setFont(Font.font("Calibri", FontWeight.BOLD, 15));
-            player3StatsPane.getChildren().addAll(player3Moves, player3Title, player3Walls);
+            player3Clock.setFont(Font.font("Calibri", FontWeight.NORMAL, 15));
+            player3StatsPane.getChildren().addAll(player3Moves, player3Title, player3Walls, player3Clock);
 
             player4Walls.setTextAlignment(TextAlignment.CENTER);
             player4Walls.setFont(Font.font("Calibri", FontWeight.NORMAL, 15));
             player4Moves.setTextAlignment(TextAlignment.CENTER);
             player4Moves.setFont(Font.font("Calibri", FontWeight.NORMAL, 15));
             player4Title.setFont(Font.font("Calibri", FontWeight.BOLD, 15));
-            player4StatsPane.getChildren().addAll(player4Moves, player4Title, player4Walls);
+            player4Clock.setFont(Font.font("Calibri", FontWeight.NORMAL, 15));
+            player4StatsPane.getChildren().addAll(player4Moves, player4Title, player4Walls, player4Clock);
         }
     }
 
@@ -436,10 +460,58 @@ public class NetworkedBoardGUI extends Application implements GUI {
         }
     }
 
+    /**
+     * Show how long a player has left on their turn clock. Must be called on the JavaFX thread; the first
+     * call starts counting the active player's time down between the server's updates
+     * @param remainingMillis The player's remaining time
+     * @param playerID The ID of the player to update
+     */
+    public void updatePlayerClock(long remainingMillis, int playerID) {
+        clockMillis[playerID] = remainingMillis;
+        if (playerID == clockPlayerID) {
+            clockStartedMillis = System.currentTimeMillis();
+        }
+        showPlayerClock(remainingMillis, playerID);
+        if (clockTimeline == null) {
+            clockTimeline = new Timeline(new KeyFrame(Duration.seconds(1), new EventHandler<ActionEvent>() {
+                @Override
+                public void handle(ActionEvent event) {
+                    int activePlayerID = clockPlayerID;
+                    if (activePlayerID != 0) {
+                        long elapsed = System.currentTimeMillis() - clockStartedMillis;
+                        showPlayerClock(Math.max(0, clockMillis[activePlayerID] - elapsed), activePlayerID);
+                    }
+                }
+            }));
+            clockTimeline.setCycleCount(Animation.INDEFINITE);
+            clockTimeline.play();
+        }
+    }
+
+    private void showPlayerClock(long remainingMillis, int playerID) {
+        long seconds = (remainingMillis + 999) / 1000;
+        String time = Translate.time() + ": " + seconds / 60 + ":" + String.format("%02d", seconds % 60);
+        if (playerID == 1) {
+            player1Clock.setText(time);
+        }
+        else if (playerID == 2) {
+            player2Clock.setText(time);
+        }
+        else if (playerID == 3) {
+            player3Clock.setText(time);
+        }
+        else if (playerID == 4) {
+            player4Clock.setText(time);
+        }
+    }
+
     /**
      * Set the active player to the next player
      */
     public void updateActivePlayer(int playerID) {
+        // the new player's clock counts down from now
+        clockStartedMillis = System.currentTimeMillis();
+        clockPlayerID = playerID;
     	if (playerID == 1) {
             player1Title.setFill(Color.ORANGE);
             player2Title.setFill(Color.BLACK);
@@ -1,5 +1,7 @@
 import java.io.IOException;
+import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 /**
  * NetworkedGameController acts as the controller object for a game being played on a
@@ -7,20 +9,58 @@ import java.util.ArrayList;
  * the frontend after changes in the backend have been performed.
  * It also implements the Controller interface.
  *
+ * Commands from the players' I/O threads and from timers are handed to the game's GameActor with tell(),
+ * so the controller and board are only ever used by one thread at a time.
+ *
  * @author Ben Lawton
  * @author Junaid Rasheed
  */
 public class NetworkedGameController implements Controller {
 
-	private ClientSocketIOThread player1IO;
-	private ClientSocketIOThread player2IO;
-	private ClientSocketIOThread player3IO;
-	private ClientSocketIOThread player4IO;
+	private static final Metrics.Counter PAWN_MOVES = Metrics.counter("quoridor_pawn_moves_total", "Pawn moves made in networked games");
+	private static final Metrics.Counter WALLS_PLACED = Metrics.counter("quoridor_walls_placed_total", "Walls placed in networked games");
+	private static final Metrics.Counter WALLS_REMOVED = Metrics.counter("quoridor_walls_removed_total", "Walls removed in networked challenge games");
+	private static final Metrics.Counter REJECTED_COMMANDS = Metrics.counter("quoridor_rejected_commands_total", "Moves rejected as out of turn or against the rules");
+	private static final Metrics.Counter GAMES_WON = Metrics.counter("quoridor_games_won_total", "Networked games won, including on time");
+	private static final Metrics.Counter GAMES_ABANDONED = Metrics.counter("quoridor_games_abandoned_total", "Networked games given up after a player failed to reconnect");
+	private static final Metrics.Counter FLAG_FALLS = Metrics.counter("quoridor_flag_falls_total", "Players who ran out of time on their turn clock");
+
+	private volatile ClientSocketIOThread player1IO;
+	private volatile ClientSocketIOThread player2IO;
+	private volatile ClientSocketIOThread player3IO;
+	private volatile ClientSocketIOThread player4IO;
 
 	private Board board;
+	// Runs the game's commands one at a time
+	private GameActor actor;
+
+	// Every update broadcast to the players, kept so that dropped players can catch up when they reconnect
+	private GameEventLog eventLog;
+	// Session tokens handed to each player, mapped to their player IDs
+	private HashMap<String, Integer> sessions;
+	private SecureRandom random;
+
+	// The current player's legal moves, cached until the next move is made
+	private volatile String availableMovesMessage;
+
+	// Moves made so far in the current game; null until the first move
+	private GameRecord record;
+
+	// Chess-style clocks for each player; null when the game isn't timed
+	private TurnClock turnClock;
+
+	// How long a player whose connection dropped has to resume their session before the game is given up
+	private static final long RESUME_GRACE_MILLIS = 60000;
+
+	// The lobby room hosting the game, if the game was set up by a GameLobby rather than a GameServer
+	private GameRoom room;
 
 	public NetworkedGameController(Board board) {
 		this.board = board;
+		this.actor = new GameActor();
+		this.eventLog = new GameEventLog();
+		this.sessions = new HashMap<String, Integer>();
+		this.random = new SecureRandom();
 	}
 
 	public void setPlayer1IO(ClientSocketIOThread ioThread) {
@@ -47,6 +87,69 @@ public class NetworkedGameController implements Controller {
 		}
 	}
 
+	public void setRoom(GameRoom room) {
+		this.room = room;
+	}
+
+	/**
+	 * Run a command against the game once every command sent before it has run. Anything that reads or
+	 * changes the game, other than setting it up before the players connect, should be sent this way
+	 */
+	public void tell(Runnable command) {
+		actor.tell(command);
+	}
+
+	/**
+	 * Forget the players, their sessions, the game's event log and the cached legal moves so that the
+	 * controller can host another game
+	 */
+	public void detachPlayers() {
+		if (turnClock != null) {
+			turnClock.stop();
+		}
+		// the room may have reset the board itself, e.g. when the game was abandoned
+		availableMovesMessage = null;
+		synchronized (eventLog) {
+			player1IO = null;
+			player2IO = null;
+			player3IO = null;
+			player4IO = null;
+			eventLog.clear();
+		}
+		synchronized (sessions) {
+			sessions.clear();
+		}
+	}
+
+	/**
+	 * @return whether the I/O thread belongs to one of the game's players
+	 */
+	public boolean isSeated(ClientSocketIOThread ioThread) {
+		return getPlayerID(ioThread) != 0;
+	}
+
+	/**
+	 * @return the ID of the player an I/O thread belongs to, or 0 if it isn't seated in the game
+	 */
+	public int getPlayerID(ClientSocketIOThread ioThread) {
+		if (ioThread == null) {
+			return 0;
+		}
+		if (ioThread == player1IO) {
+			return 1;
+		}
+		if (ioThread == player2IO) {
+			return 2;
+		}
+		if (ioThread == player3IO) {
+			return 3;
+		}
+		if (ioThread == player4IO) {
+			return 4;
+		}
+		return 0;
+	}
+
 	public ClientSocketIOThread getPlayer4IO() {
 		return player4IO;
 	}
@@ -69,23 +172,66 @@ public class NetworkedGameController implements Controller {
 	}
 
 	/**
-	 * Get the available positions a player can move into and then highlight them in the GUI
+	 * Get the available positions a player can move into and then highlight them in every player's GUI
 	 */
 	@Override
 	public void showCurrentPlayerMoves() {
-		ArrayList<Position> availablePositions = board.getCurrentPlayerOccupiablePositions();
-    	if (availablePositions.size() > 0) {
-    		for (Position pos : availablePositions) {
-				int x = pos.getX() * 2;
-				int y = pos.getY() * 2;
-    			player1IO.sendAvailableMove(x, y);
-    			player2IO.sendAvailableMove(x, y);
-				if (player3IO != null) {
-					player3IO.sendAvailableMove(x, y);
-					player4IO.sendAvailableMove(x, y);
+		String availableMoves = getAvailableMovesMessage();
+		player1IO.sendMessage(availableMoves);
+		player2IO.sendMessage(availableMoves);
+		if (player3IO != null) {
+			player3IO.sendMessage(availableMoves);
+			player4IO.sendMessage(availableMoves);
+		}
+	}
+
+	/**
+	 * Send the current player's legal moves to the player who asked for them
+	 * @param requester The I/O thread of the player who asked
+	 */
+	public void sendAvailableMoves(ClientSocketIOThread requester) {
+		requester.sendMessage(getAvailableMovesMessage());
+	}
+
+	/**
+	 * Give the current player's legal moves as a single message:
+	 *
+	 * available <pawn bits 0-63> <pawn bits 64-80> <vertical wall bits> <horizontal wall bits>
+	 *
+	 * Each field is a hexadecimal bitmask. Pawn bit (y * 9 + x) is set if the pawn can move to (x, y), and
+	 * wall bit (y * 8 + x) is set if a wall with its top left at (x, y) can be placed. The moves are worked
+	 * out on the first request in a turn and reused until a move is made, so repeated requests cost nothing
+	 */
+	private String getAvailableMovesMessage() {
+		String availableMoves = availableMovesMessage;
+		if (availableMoves == null) {
+			long pawnLow = 0;
+			long pawnHigh = 0;
+			for (Position pos : board.getCurrentPlayerOccupiablePositions()) {
+				int cell = pos.getY() * 9 + pos.getX();
+				if (cell < 64) {
+					pawnLow |= 1L << cell;
+				} else {
+					pawnHigh |= 1L << (cell - 64);
+				}
+			}
+			long verticalWalls = 0;
+			long horizontalWalls = 0;
+			for (int y = 0; y < 8; y++) {
+				for (int x = 0; x < 8; x++) {
+					if (board.wallPlacementIsLegal(x, y, WallPlacement.VERTICAL)) {
+						verticalWalls |= 1L << (y * 8 + x);
+					}
+					if (board.wallPlacementIsLegal(x, y, WallPlacement.HORIZONTAL)) {
+						horizontalWalls |= 1L << (y * 8 + x);
+					}
 				}
-    		}
-    	}
+			}
+			availableMoves = "available " + Long.toHexString(pawnLow) + " " + Long.toHexString(pawnHigh) + " "
+					+ Long.toHexString(verticalWalls) + " " + Long.toHexString(horizontalWalls);
+			availableMovesMessage = availableMoves;
+		}
+		return availableMoves;
 	}
 
 	/**
@@ -99,36 +245,43 @@ public class NetworkedGameController implements Controller {
 		if (board.getCurrentPlayer().getID() == playerID) {
 			try {
 				board.placeWalls(topLeftX, topLeftY, orientation);
+				WALLS_PLACED.increment();
+				recordMove(MoveCodec.wall(playerID, topLeftX, topLeftY, orientation));
+				availableMovesMessage = null;
 				sendWallUpdate(topLeftX, topLeftY, orientation);
+				advanceTurnClock();
 			}
 			catch (IllegalStateException e) {
-				if (playerID == 1) {
-					player1IO.sendErrorMessage(e.getMessage());
-				}
-				else if (playerID == 2) {
-					player2IO.sendErrorMessage(e.getMessage());
-				}
-				else if (playerID == 3) {
-					player3IO.sendErrorMessage(e.getMessage());
-				}
-				else if (playerID == 4) {
-					player4IO.sendErrorMessage(e.getMessage());
-				}
+				rejectCommand(playerID, e.getMessage());
 			}
 		}
 		else {
-			if (playerID == 1) {
-				player1IO.sendErrorMessage("It isn't your turn.");
-			}
-			else if (playerID == 2) {
-				player2IO.sendErrorMessage("It isn't your turn.");
-			}
-			if (playerID == 3) {
-				player3IO.sendErrorMessage("It isn't your turn.");
-			}
-			else if (playerID == 4) {
-				player4IO.sendErrorMessage("It isn't your turn.");
-			}
+			rejectCommand(playerID, "It isn't your turn.");
+		}
+	}
+
+	/**
+	 * Tell a player their command was against the rules
+	 * @param playerID The ID of the player whose command was rejected
+	 * @param message Why it was rejected
+	 */
+	private void rejectCommand(int playerID, String message) {
+		REJECTED_COMMANDS.increment();
+		sendErrorMessage(playerID, message);
+	}
+
+	private void sendErrorMessage(int playerID, String message) {
+		if (playerID == 1) {
+			player1IO.sendErrorMessage(message);
+		}
+		else if (playerID == 2) {
+			player2IO.sendErrorMessage(message);
+		}
+		else if (playerID == 3) {
+			player3IO.sendErrorMessage(message);
+		}
+		else if (playerID == 4) {
+			player4IO.sendErrorMessage(message);
 		}
 	}
 
@@ -181,60 +334,25 @@ public class NetworkedGameController implements Controller {
 			try {
 				int currentPlayerID = board.getCurrentPlayer().getID();
 				boolean gameOver = board.movePawn(posX, posY);
+				PAWN_MOVES.increment();
+				recordMove(MoveCodec.pawn(currentPlayerID, posX, posY));
+				availableMovesMessage = null;
                 Player prevPlayer = board.getPreviousPlayer();
                 sendPawnUpdate(prevPlayer);
                 if (gameOver) {
                     resetGame();
-					GameOverGUI gameOverGUI = new GameOverGUI(this);
-					StatsWriter statsWriter;
-					if (board.getPlayer3() == null) {
-						statsWriter = new StatsWriter(currentPlayerID, 2);
-					} else {
-						statsWriter = new StatsWriter(currentPlayerID, 4);
-					}
-					statsWriter.writeStatsToCSV();
-                }
-			} catch (IllegalArgumentException e) {
-				if (playerID == 1) {
-					player1IO.sendErrorMessage(e.getMessage());
-				}
-				else if (playerID == 2) {
-					player2IO.sendErrorMessage(e.getMessage());
-				}
-				else if (playerID == 3) {
-					player3IO.sendErrorMessage(e.getMessage());
-				}
-				else if (playerID == 4) {
-					player4IO.sendErrorMessage(e.getMessage());
+					gameOver(currentPlayerID);
+                } else {
+					advanceTurnClock();
 				}
+			} catch (IllegalArgumentException e) {
+				rejectCommand(playerID, e.getMessage());
 			} catch (IOException e) {
-				if (playerID == 1) {
-					player1IO.sendErrorMessage(e.getMessage());
-				}
-				else if (playerID == 2) {
-					player2IO.sendErrorMessage(e.getMessage());
-				}
-				else if (playerID == 3) {
-					player3IO.sendErrorMessage(e.getMessage());
-				}
-				else if (playerID == 4) {
-					player4IO.sendErrorMessage(e.getMessage());
-				}
+				sendErrorMessage(playerID, e.getMessage());
 			}
 		}
 		else {
-			if (playerID == 1) {
-				player1IO.sendErrorMessage("It isn't your turn.");
-			}
-			else if (playerID == 2) {
-				player2IO.sendErrorMessage("It isn't your turn.");
-			}
-			else if (playerID == 3) {
-				player3IO.sendErrorMessage("It isn't your turn.");
-			}
-			else if (playerID == 4) {
-				player4IO.sendErrorMessage("It isn't your turn.");
-			}
+			rejectCommand(playerID, "It isn't your turn.");
 		}
 	}
 
@@ -250,32 +368,176 @@ public class NetworkedGameController implements Controller {
 			if (this.board instanceof ChallengeBoard) {
 				boolean wallsRemoved = ((ChallengeBoard) board).removeWalls(topLeftX, topLeftY, orientation);
 				if (wallsRemoved) {
+					WALLS_REMOVED.increment();
+					recordMove(MoveCodec.wallRemoval(playerID, topLeftX, topLeftY, orientation));
+					availableMovesMessage = null;
 					sendWallRemovalUpdate(topLeftX, topLeftY, orientation);
+					advanceTurnClock();
 				} else {
-					if (playerID == 1) {
-						player1IO.sendErrorMessage("You can't remove that wall");
-					} else if (playerID == 2) {
-						player2IO.sendErrorMessage("You can't remove that wall");
-					}
-					else if (playerID == 3) {
-						player3IO.sendErrorMessage("You can't remove that wall");
-					} else if (playerID == 4) {
-						player4IO.sendErrorMessage("You can't remove that wall");
-					}
+					rejectCommand(playerID, "You can't remove that wall");
 				}
 			}
 		} else {
-			if (playerID == 1) {
-				player1IO.sendErrorMessage("It isn't your turn.");
+			rejectCommand(playerID, "It isn't your turn.");
+		}
+	}
+
+	/**
+	 * Record the result of a finished game. The board has already been reset for the next game
+	 * @param winnerID The ID of the player who won
+	 */
+	private void gameOver(int winnerID) throws IOException {
+		GAMES_WON.increment();
+		if (room != null) {
+			// lobby games have no server GUI or player names; the room reports the result
+			storeRecord(winnerID);
+			room.finish(winnerID);
+			return;
+		}
+		startTurnClock();
+		GameOverGUI gameOverGUI = new GameOverGUI(this);
+		StatsWriter statsWriter;
+		if (board.getPlayer3() == null) {
+			statsWriter = new StatsWriter(winnerID, 2, record);
+		} else {
+			statsWriter = new StatsWriter(winnerID, 4, record);
+		}
+		record = null;
+		statsWriter.writeStats();
+	}
+
+	/**
+	 * Add a move to the current game's record, starting the record on the game's first move
+	 * @param code The move, encoded by MoveCodec
+	 */
+	private void recordMove(int code) {
+		if (record == null) {
+			record = GameRecord.forBoard(board);
+		}
+		record.addMove(code);
+	}
+
+	/**
+	 * Put the current game's record in the game record store and start afresh for the next game
+	 * @param winnerID The ID of the player who won, or 0 if the game was abandoned
+	 */
+	private void storeRecord(int winnerID) {
+		if (record == null) {
+			record = GameRecord.forBoard(board);
+		}
+		record.finish(winnerID);
+		try {
+			GameRecordStore.getDefault().append(record);
+		} catch (IOException e) {
+			SystemLogger.logError("Couldn't store game record: " + e.getMessage());
+		}
+		record = null;
+	}
+
+	/**
+	 * Give each player a chess-style clock for the game; a budget of 0 turns the clocks off
+	 * @param budgetMillis Each player's thinking time for the whole game
+	 */
+	public void setTurnClock(long budgetMillis) {
+		if (turnClock != null) {
+			turnClock.stop();
+		}
+		turnClock = (budgetMillis > 0) ? new TurnClock(this, budgetMillis) : null;
+	}
+
+	/**
+	 * Give every player their full time budget, tell everyone how long that is, and start the current
+	 * player's clock
+	 */
+	public void startTurnClock() {
+		if (turnClock != null) {
+			turnClock.reset();
+			int numberOfPlayers = (player3IO != null) ? 4 : 2;
+			for (int playerID = 1; playerID <= numberOfPlayers; playerID++) {
+				broadcast("clock " + playerID + " " + turnClock.getRemainingMillis(playerID));
+			}
+			broadcast("currentPlayer " + board.getCurrentPlayer().getID());
+			turnClock.startTurn(board.getCurrentPlayer().getID());
+		}
+	}
+
+	/**
+	 * Stop the clock of the player who just moved, tell everyone how long they have left, and start the
+	 * clock of the player whose turn it now is
+	 */
+	private void advanceTurnClock() {
+		if (turnClock != null) {
+			int previousPlayerID = board.getPreviousPlayer().getID();
+			turnClock.startTurn(board.getCurrentPlayer().getID());
+			broadcast("clock " + previousPlayerID + " " + turnClock.getRemainingMillis(previousPlayerID));
+		}
+	}
+
+	/**
+	 * Called by the turn clock when a player runs out of time. As in chess, a player who runs out of time
+	 * in a two player game loses it; in a four player game they forfeit each of their remaining turns
+	 * @param playerID The ID of the player whose time ran out
+	 */
+	public void playerOutOfTime(int playerID) {
+		if (board.getCurrentPlayer().getID() != playerID) {
+			return;
+		}
+		SystemLogger.logInfo("Player " + playerID + " ran out of time");
+		FLAG_FALLS.increment();
+		broadcast("clock " + playerID + " 0");
+		availableMovesMessage = null;
+		if (board.getPlayer3() == null) {
+			int winnerID = board.getPreviousPlayer().getID();
+			board.reset();
+			resetGame();
+			try {
+				gameOver(winnerID);
+			} catch (IOException e) {
+				SystemLogger.logError(e.getMessage());
 			}
-			else if (playerID == 2) {
-				player2IO.sendErrorMessage("It isn't your turn.");
+		} else {
+			recordMove(MoveCodec.pass(playerID));
+			board.switchPlayer();
+			broadcast("currentPlayer " + board.getCurrentPlayer().getID());
+			advanceTurnClock();
+		}
+	}
+
+	/**
+	 * Called by a player's I/O thread when its connection ends. If the player hasn't resumed their session
+	 * within the grace period, the game is given up so that its resources can be reclaimed
+	 * @param ioThread The I/O thread whose connection ended
+	 */
+	public void connectionLost(final ClientSocketIOThread ioThread) {
+		HashedWheelTimer.getSharedTimer().schedule(new Runnable() {
+			@Override
+			public void run() {
+				tell(new Runnable() {
+					@Override
+					public void run() {
+						abandonIfNotResumed(ioThread);
+					}
+				});
 			}
-			if (playerID == 3) {
-				player3IO.sendErrorMessage("It isn't your turn.");
+		}, RESUME_GRACE_MILLIS);
+	}
+
+	/**
+	 * Give up the game if the player whose connection ended is still using the same I/O thread, i.e.
+	 * hasn't resumed their session on a new connection
+	 */
+	private void abandonIfNotResumed(ClientSocketIOThread ioThread) {
+		if (isSeated(ioThread)) {
+			SystemLogger.logInfo("Player didn't reconnect; abandoning game");
+			GAMES_ABANDONED.increment();
+			if (turnClock != null) {
+				turnClock.stop();
 			}
-			else if (playerID == 4) {
-				player4IO.sendErrorMessage("It isn't your turn.");
+			if (room != null) {
+				storeRecord(0);
+				room.abandon(ioThread);
+			} else {
+				record = null;
 			}
 		}
 	}
@@ -284,57 +546,20 @@ public class NetworkedGameController implements Controller {
 	 * Reset the game in the board class then update the GUI
 	 */
 	public void resetGame() {
-        Player player1 = board.getPlayer1();
-        Player player2 = board.getPlayer2();
-        // send updates to player 1's GUI
-        player1IO.sendStatsUpdate(player1.getMoveCount(), player1.getWallCount(), player1.getID());
-        player1IO.sendStatsUpdate(player2.getMoveCount(), player2.getWallCount(), player2.getID());
-        player1IO.sendPawnUpdate(player1.getPosition().getX(), player1.getPosition().getY(), player1.getID());
-        player1IO.sendPawnUpdate(player2.getPosition().getX(), player2.getPosition().getY(), player2.getID());
-        // send updates for player 2's GUI
-        player2IO.sendStatsUpdate(player2.getMoveCount(), player2.getWallCount(), player2.getID());
-        player2IO.sendStatsUpdate(player1.getMoveCount(), player1.getWallCount(), player1.getID());
-        player2IO.sendPawnUpdate(player2.getPosition().getX(), player2.getPosition().getY(), player2.getID());
-        player2IO.sendPawnUpdate(player1.getPosition().getX(), player1.getPosition().getY(), player1.getID());
-        // send commands to reset both GUI's walls
-        player1IO.sendResetWalls();
-        player2IO.sendResetWalls();
+		availableMovesMessage = null;
+		broadcastStatsUpdate(board.getPlayer1());
+		broadcastStatsUpdate(board.getPlayer2());
+		broadcastPawnUpdate(board.getPlayer1());
+		broadcastPawnUpdate(board.getPlayer2());
 		if (player3IO != null) {
-			Player player3 = board.getPlayer3();
-			Player player4 = board.getPlayer4();
-			// send updates to player 1's GUI
-			player1IO.sendStatsUpdate(player3.getMoveCount(), player3.getWallCount(), player3.getID());
-			player1IO.sendStatsUpdate(player4.getMoveCount(), player4.getWallCount(), player4.getID());
-			player1IO.sendPawnUpdate(player3.getPosition().getX(), player3.getPosition().getY(), player3.getID());
-			player1IO.sendPawnUpdate(player4.getPosition().getX(), player4.getPosition().getY(), player4.getID());
-			// send updates for player 2's GUI
-			player2IO.sendStatsUpdate(player3.getMoveCount(), player3.getWallCount(), player3.getID());
-			player2IO.sendStatsUpdate(player4.getMoveCount(), player4.getWallCount(), player4.getID());
-			player2IO.sendPawnUpdate(player3.getPosition().getX(), player3.getPosition().getY(), player3.getID());
-			player2IO.sendPawnUpdate(player4.getPosition().getX(), player4.getPosition().getY(), player4.getID());
-			// send updates to player 3's GUI
-			player3IO.sendStatsUpdate(player1.getMoveCount(), player1.getWallCount(), player1.getID());
-			player3IO.sendStatsUpdate(player2.getMoveCount(), player2.getWallCount(), player2.getID());
-			player3IO.sendStatsUpdate(player3.getMoveCount(), player3.getWallCount(), player3.getID());
-			player3IO.sendStatsUpdate(player4.getMoveCount(), player4.getWallCount(), player4.getID());
-			player3IO.sendPawnUpdate(player1.getPosition().getX(), player1.getPosition().getY(), player1.getID());
-			player3IO.sendPawnUpdate(player2.getPosition().getX(), player2.getPosition().getY(), player2.getID());
-			player3IO.sendPawnUpdate(player3.getPosition().getX(), player3.getPosition().getY(), player3.getID());
-			player3IO.sendPawnUpdate(player4.getPosition().getX(), player4.getPosition().getY(), player4.getID());
-			// send updates to player 4's GUI
-			player4IO.sendStatsUpdate(player1.getMoveCount(), player1.getWallCount(), player1.getID());
-			player4IO.sendStatsUpdate(player2.getMoveCount(), player2.getWallCount(), player2.getID());
-			player4IO.sendStatsUpdate(player3.getMoveCount(), player3.getWallCount(), player3.getID());
-			player4IO.sendStatsUpdate(player4.getMoveCount(), player4.getWallCount(), player4.getID());
-			player4IO.sendPawnUpdate(player1.getPosition().getX(), player1.getPosition().getY(), player1.getID());
-			player4IO.sendPawnUpdate(player2.getPosition().getX(), player2.getPosition().getY(), player2.getID());
-			player4IO.sendPawnUpdate(player3.getPosition().getX(), player3.getPosition().getY(), player3.getID());
-			player4IO.sendPawnUpdate(player4.getPosition().getX(), player4.getPosition().getY(), player4.getID());
-			// send commands to reset both GUI's walls
-			player3IO.sendResetWalls();
-			player4IO.sendResetWalls();
-
+			broadcastStatsUpdate(board.getPlayer3());
+			broadcastStatsUpdate(board.getPlayer4());
+			broadcastPawnUpdate(board.getPlayer3());
+			broadcastPawnUpdate(board.getPlayer4());
 		}
+		// reset every GUI's walls
+		broadcast("reset");
+		broadcast("currentPlayer " + board.getCurrentPlayer().getID());
     }
 
 	/**
@@ -344,48 +569,14 @@ public class NetworkedGameController implements Controller {
 	 * @param orientation Whether the wall is horizontal or vertical
      */
 	private void sendWallRemovalUpdate(int topLeftX, int topLeftY, WallPlacement orientation) {
-
-		player1IO.sendRemoveWallDisplay(topLeftX, topLeftY, orientation);
-		player2IO.sendRemoveWallDisplay(topLeftX, topLeftY, orientation);
-
-		Player player1 = board.getPlayer1();
-		Player player2 = board.getPlayer2();
-
-		player1IO.sendStatsUpdate(player1.getMoveCount(), player1.getWallCount(), player1.getID());
-		player1IO.sendStatsUpdate(player2.getMoveCount(), player2.getWallCount(), player2.getID());
-		player2IO.sendStatsUpdate(player1.getMoveCount(), player1.getWallCount(), player1.getID());
-		player2IO.sendStatsUpdate(player2.getMoveCount(), player2.getWallCount(), player2.getID());
-
-		player1IO.sendCurrentPlayerGUIUpdate(board.getCurrentPlayer().getID());
-        player2IO.sendCurrentPlayerGUIUpdate(board.getCurrentPlayer().getID());
-
+		broadcast("remove-wall-display " + MoveNotation.toText(MoveCodec.wall(1, topLeftX, topLeftY, orientation)));
+		broadcastStatsUpdate(board.getPlayer1());
+		broadcastStatsUpdate(board.getPlayer2());
 		if (player3IO != null) {
-
-			player3IO.sendRemoveWallDisplay(topLeftX, topLeftY, orientation);
-			player4IO.sendRemoveWallDisplay(topLeftX, topLeftY, orientation);
-
-			Player player3 = board.getPlayer3();
-			Player player4 = board.getPlayer4();
-
-			player1IO.sendStatsUpdate(player3.getMoveCount(), player3.getWallCount(), player3.getID());
-			player1IO.sendStatsUpdate(player4.getMoveCount(), player4.getWallCount(), player4.getID());
-			player2IO.sendStatsUpdate(player3.getMoveCount(), player3.getWallCount(), player3.getID());
-			player2IO.sendStatsUpdate(player4.getMoveCount(), player4.getWallCount(), player4.getID());
-
-			player3IO.sendStatsUpdate(player1.getMoveCount(), player1.getWallCount(), player1.getID());
-			player3IO.sendStatsUpdate(player2.getMoveCount(), player2.getWallCount(), player2.getID());
-			player3IO.sendStatsUpdate(player3.getMoveCount(), player3.getWallCount(), player3.getID());
-			player3IO.sendStatsUpdate(player4.getMoveCount(), player4.getWallCount(), player4.getID());
-
-			player4IO.sendStatsUpdate(player1.getMoveCount(), player1.getWallCount(), player1.getID());
-			player4IO.sendStatsUpdate(player2.getMoveCount(), player2.getWallCount(), player2.getID());
-			player4IO.sendStatsUpdate(player3.getMoveCount(), player3.getWallCount(), player3.getID());
-			player4IO.sendStatsUpdate(player4.getMoveCount(), player4.getWallCount(), player4.getID());
-
-			player3IO.sendCurrentPlayerGUIUpdate(board.getCurrentPlayer().getID());
-			player4IO.sendCurrentPlayerGUIUpdate(board.getCurrentPlayer().getID());
-
+			broadcastStatsUpdate(board.getPlayer3());
+			broadcastStatsUpdate(board.getPlayer4());
 		}
+		broadcast("currentPlayer " + board.getCurrentPlayer().getID());
 	}
 
 	/**
@@ -395,50 +586,135 @@ public class NetworkedGameController implements Controller {
 	 * @param orientation Whether the wall is horizontal or vertical
      */
 	private void sendWallUpdate(int topLeftX, int topLeftY, WallPlacement orientation) {
-        player1IO.sendWallUpdate(topLeftX, topLeftY, orientation, board.getPreviousPlayer().getID());
-        player2IO.sendWallUpdate(topLeftX, topLeftY, orientation, board.getPreviousPlayer().getID());
-
-        player1IO.sendStatsUpdate(board.getPreviousPlayer().getMoveCount(), board.getPreviousPlayer().getWallCount(), board.getPreviousPlayer().getID());
-        player2IO.sendStatsUpdate(board.getPreviousPlayer().getMoveCount(), board.getPreviousPlayer().getWallCount(), board.getPreviousPlayer().getID());
-
-        player1IO.sendCurrentPlayerGUIUpdate(board.getCurrentPlayer().getID());
-        player2IO.sendCurrentPlayerGUIUpdate(board.getCurrentPlayer().getID());
-
-		if(player3IO != null) {
+		int playerID = board.getPreviousPlayer().getID();
+		broadcast("wall " + MoveNotation.toText(MoveCodec.wall(playerID, topLeftX, topLeftY, orientation)) + " " + playerID);
+		broadcastStatsUpdate(board.getPreviousPlayer());
+		broadcast("currentPlayer " + board.getCurrentPlayer().getID());
+	}
 
-			player3IO.sendWallUpdate(topLeftX, topLeftY, orientation, board.getPreviousPlayer().getID());
-			player4IO.sendWallUpdate(topLeftX, topLeftY, orientation, board.getPreviousPlayer().getID());
+	/**
+	 * Send an update to each player to move a pawn
+	 * @param prevPlayer The position of the player whose pawn has moved
+     */
+    private void sendPawnUpdate(Player prevPlayer) {
+		broadcastPawnUpdate(prevPlayer);
+		broadcastStatsUpdate(prevPlayer);
+		broadcast("currentPlayer " + board.getCurrentPlayer().getID());
+    }
 
-			player3IO.sendStatsUpdate(board.getPreviousPlayer().getMoveCount(), board.getPreviousPlayer().getWallCount(), board.getPreviousPlayer().getID());
-			player4IO.sendStatsUpdate(board.getPreviousPlayer().getMoveCount(), board.getPreviousPlayer().getWallCount(), board.getPreviousPlayer().getID());
+	private void broadcastPawnUpdate(Player player) {
+		broadcast("pawn " + player.getPosition().getX() + " " + player.getPosition().getY() + " " + player.getID());
+	}
 
-			player3IO.sendCurrentPlayerGUIUpdate(board.getCurrentPlayer().getID());
-			player4IO.sendCurrentPlayerGUIUpdate(board.getCurrentPlayer().getID());
+	private void broadcastStatsUpdate(Player player) {
+		broadcast("stats " + player.getMoveCount() + " " + player.getWallCount() + " " + player.getID());
+	}
 
+	/**
+	 * Append an event to the game's event log and send it, tagged with its sequence number, to every player
+	 * @param event The protocol message to send
+	 */
+	private void broadcast(String event) {
+		synchronized (eventLog) {
+			long sequence = eventLog.append(event);
+			player1IO.sendEvent(sequence, event);
+			player2IO.sendEvent(sequence, event);
+			if (player3IO != null) {
+				player3IO.sendEvent(sequence, event);
+				player4IO.sendEvent(sequence, event);
+			}
 		}
 	}
 
 	/**
-	 * Send an update to each player to move a pawn
-	 * @param prevPlayer The position of the player whose pawn has moved
-     */
-    private void sendPawnUpdate(Player prevPlayer) {
-        player1IO.sendPawnUpdate(prevPlayer.getPosition().getX(), prevPlayer.getPosition().getY(), prevPlayer.getID());
-        player1IO.sendStatsUpdate(prevPlayer.getMoveCount(), prevPlayer.getWallCount(), prevPlayer.getID());
-        player2IO.sendPawnUpdate(prevPlayer.getPosition().getX(), prevPlayer.getPosition().getY(), prevPlayer.getID());
-        player2IO.sendStatsUpdate(prevPlayer.getMoveCount(), prevPlayer.getWallCount(), prevPlayer.getID());
-        player1IO.sendCurrentPlayerGUIUpdate(board.getCurrentPlayer().getID());
-        player2IO.sendCurrentPlayerGUIUpdate(board.getCurrentPlayer().getID());
+	 * Create a session for a player. The token is handed to the player's client, which presents it
+	 * when resuming after its connection drops
+	 * @param playerID The ID of the player the session belongs to
+	 * @return The session token
+	 */
+	public String openSession(int playerID) {
+		byte[] bytes = new byte[16];
+		random.nextBytes(bytes);
+		StringBuilder token = new StringBuilder();
+		for (byte b : bytes) {
+			token.append(String.format("%02x", b));
+		}
+		synchronized (sessions) {
+			sessions.put(token.toString(), playerID);
+		}
+		return token.toString();
+	}
 
-		if (player3IO != null) {
+	/**
+	 * Reattach a player that lost its connection. The player is sent the events it missed if they
+	 * are still held in the event log, otherwise a snapshot of the game followed by the sequence
+	 * number the snapshot is current to
+	 * @param token The session token given to the player when the game began
+	 * @param lastSeenSequence The sequence number of the last event the player received
+	 * @param ioThread The I/O thread for the player's new connection
+	 * @return Whether the session was found and resumed
+	 */
+	public boolean resumeSession(String token, long lastSeenSequence, ClientSocketIOThread ioThread) {
+		Integer playerID;
+		synchronized (sessions) {
+			playerID = sessions.get(token);
+		}
+		if (playerID == null) {
+			return false;
+		}
+		synchronized (eventLog) {
+			ClientSocketIOThread previousIO = replacePlayerIO(playerID, ioThread);
+			if (previousIO != null && previousIO != ioThread) {
+				previousIO.close();
+			}
+			ioThread.sendMessage("setID " + playerID);
+			if (eventLog.canReplayFrom(lastSeenSequence)) {
+				long sequence = lastSeenSequence;
+				for (String event : eventLog.eventsAfter(lastSeenSequence)) {
+					sequence++;
+					ioThread.sendEvent(sequence, event);
+				}
+			} else {
+				for (String message : getSnapshotMessages()) {
+					ioThread.sendMessage(message);
+				}
+			}
+		}
+		SystemLogger.logInfo("Player " + playerID + " resumed their session");
+		return true;
+	}
 
-			player3IO.sendPawnUpdate(prevPlayer.getPosition().getX(), prevPlayer.getPosition().getY(), prevPlayer.getID());
-			player3IO.sendStatsUpdate(prevPlayer.getMoveCount(), prevPlayer.getWallCount(), prevPlayer.getID());
-			player4IO.sendPawnUpdate(prevPlayer.getPosition().getX(), prevPlayer.getPosition().getY(), prevPlayer.getID());
-			player4IO.sendStatsUpdate(prevPlayer.getMoveCount(), prevPlayer.getWallCount(), prevPlayer.getID());
-			player3IO.sendCurrentPlayerGUIUpdate(board.getCurrentPlayer().getID());
-			player4IO.sendCurrentPlayerGUIUpdate(board.getCurrentPlayer().getID());
+	/**
+	 * Give the messages that bring a player's client up to date without replaying events: a snapshot
+	 * of the game followed by the sequence number the snapshot is current to
+	 */
+	public ArrayList<String> getSnapshotMessages() {
+		synchronized (eventLog) {
+			ArrayList<String> messages = eventLog.snapshot();
+			messages.add("resync " + eventLog.getLastSequence());
+			return messages;
+		}
+	}
 
+	/**
+	 * Swap the I/O thread used for a player
+	 * @return The I/O thread previously used for the player
+	 */
+	private ClientSocketIOThread replacePlayerIO(int playerID, ClientSocketIOThread ioThread) {
+		ClientSocketIOThread previousIO = null;
+		if (playerID == 1) {
+			previousIO = player1IO;
+			player1IO = ioThread;
+		} else if (playerID == 2) {
+			previousIO = player2IO;
+			player2IO = ioThread;
+		} else if (playerID == 3) {
+			previousIO = player3IO;
+			player3IO = ioThread;
+		} else if (playerID == 4) {
+			previousIO = player4IO;
+			player4IO = ioThread;
 		}
-    }
+		return previousIO;
+	}
 }
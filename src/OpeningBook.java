@@ -0,0 +1,195 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * OpeningBook gives the moves worth playing in early positions of two player standard games, each with a
+ * weight, so the AI can answer them without searching. A book is written by OpeningBookBuilder and read
+ * through a memory mapping of its file, so opening one costs nothing however large it is, and looking up a
+ * position neither reads the whole file nor allocates.
+ *
+ * The file is a header, then a hash table of positions, then the moves:
+ *
+ * header: the magic number, the format version, the number of slots and the number of moves, as ints
+ * slots: the position's ZobristHash as a long, then the index of its first move and its number of moves as
+ * ints; a slot with no moves is empty. Positions are found by linear probing from the hash's low bits
+ * moves: each a MoveCodec code and a weight, as unsigned shorts
+ *
+ * The AI reads ./opening-book.qob the first time it's needed, if there is one.
+ */
+public class OpeningBook {
+
+	static final int MAGIC = 0x514f424b;
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 16;
+	static final int SLOT_BYTES = 16;
+	static final int MOVE_BYTES = 4;
+
+	private static final String DEFAULT_PATH = "./opening-book.qob";
+
+	private static OpeningBook defaultBook;
+	private static boolean defaultLoaded;
+
+	private MappedByteBuffer mapping;
+	private int slotMask;
+	private long movesOffset;
+	private int positionCount;
+
+	/**
+	 * @throws IOException if a slot's moves are outside the file, or no slot is empty, so a search for a
+	 * missing position would never end
+	 */
+	private OpeningBook(File file, MappedByteBuffer mapping, int slotCount, int moveCount) throws IOException {
+		this.mapping = mapping;
+		this.slotMask = slotCount - 1;
+		this.movesOffset = HEADER_BYTES + (long) slotCount * SLOT_BYTES;
+		for (int slot = 0; slot < slotCount; slot++) {
+			int first = mapping.getInt(HEADER_BYTES + slot * SLOT_BYTES + 8);
+			int count = mapping.getInt(HEADER_BYTES + slot * SLOT_BYTES + 12);
+			if (count < 0 || count > Perft.MAX_MOVES || (count > 0 && (first < 0 || (long) first + count > moveCount))) {
+				throw new IOException("Corrupt opening book: " + file);
+			}
+			if (count > 0) {
+				positionCount++;
+			}
+		}
+		if (positionCount == slotCount) {
+			throw new IOException("Corrupt opening book: " + file);
+		}
+	}
+
+	/**
+	 * Map a book's file
+	 * @throws IOException if the file can't be read or isn't an opening book
+	 */
+	public static OpeningBook open(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+				throw new IOException("Not an opening book: " + file);
+			}
+			MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			int slotCount = mapping.getInt(8);
+			int moveCount = mapping.getInt(12);
+			if (mapping.getInt(0) != MAGIC || mapping.getInt(4) != VERSION || slotCount < 1 || Integer.bitCount(slotCount) != 1
+					|| moveCount < 0 || size != HEADER_BYTES + (long) slotCount * SLOT_BYTES + (long) moveCount * MOVE_BYTES) {
+				throw new IOException("Not an opening book: " + file);
+			}
+			return new OpeningBook(file, mapping, slotCount, moveCount);
+		} finally {
+			// The mapping stays valid once the channel's closed
+			channel.close();
+		}
+	}
+
+	/**
+	 * @return the book in ./opening-book.qob, or null if there isn't one or it can't be read
+	 */
+	public static synchronized OpeningBook getDefault() {
+		if (!defaultLoaded) {
+			defaultLoaded = true;
+			File file = new File(DEFAULT_PATH);
+			if (file.exists()) {
+				try {
+					defaultBook = open(file);
+				} catch (IOException e) {
+					SystemLogger.log(LogLevel.WARNING, "Couldn't read the opening book; the AI will search every move", "file", file, "error", e.getMessage());
+				}
+			}
+		}
+		return defaultBook;
+	}
+
+	/**
+	 * @return the number of positions in the book
+	 */
+	public int getPositionCount() {
+		return positionCount;
+	}
+
+	/**
+	 * Give the book's moves for a position
+	 * @param positionHash the position's ZobristHash
+	 * @param moves filled with the moves, encoded by MoveCodec
+	 * @param weights filled with each move's weight; both arrays must have room for Perft.MAX_MOVES
+	 * @return the number of moves, 0 if the position isn't in the book
+	 */
+	public int lookup(long positionHash, int[] moves, int[] weights) {
+		int slot = find(positionHash);
+		if (slot < 0) {
+			return 0;
+		}
+		int first = mapping.getInt(slot + 8);
+		int count = mapping.getInt(slot + 12);
+		for (int i = 0; i < count; i++) {
+			int offset = (int) (movesOffset + (long) (first + i) * MOVE_BYTES);
+			moves[i] = mapping.getChar(offset);
+			weights[i] = mapping.getChar(offset + 2);
+		}
+		return count;
+	}
+
+	/**
+	 * Choose one of the book's moves for a position
+	 * @param random used to choose between moves in proportion to their weights, or null to always choose
+	 * the heaviest
+	 * @return the move, encoded by MoveCodec, or -1 if the position isn't in the book
+	 */
+	public int choose(long positionHash, Random random) {
+		int slot = find(positionHash);
+		if (slot < 0) {
+			return -1;
+		}
+		int first = mapping.getInt(slot + 8);
+		int count = mapping.getInt(slot + 12);
+		int total = 0;
+		int heaviest = 0;
+		for (int i = 0; i < count; i++) {
+			int weight = weight(first + i);
+			total += weight;
+			if (weight > weight(first + heaviest)) {
+				heaviest = i;
+			}
+		}
+		if (random == null || total == 0) {
+			return move(first + heaviest);
+		}
+		int pick = random.nextInt(total);
+		for (int i = 0; i < count; i++) {
+			pick -= weight(first + i);
+			if (pick < 0) {
+				return move(first + i);
+			}
+		}
+		return move(first + heaviest);
+	}
+
+	/**
+	 * @return the offset of a position's slot, or -1 if it isn't in the book
+	 */
+	private int find(long positionHash) {
+		int slot = (int) positionHash & slotMask;
+		while (true) {
+			int offset = HEADER_BYTES + slot * SLOT_BYTES;
+			if (mapping.getInt(offset + 12) == 0) {
+				return -1;
+			}
+			if (mapping.getLong(offset) == positionHash) {
+				return offset;
+			}
+			slot = (slot + 1) & slotMask;
+		}
+	}
+
+	private int move(int index) {
+		return mapping.getChar((int) (movesOffset + (long) index * MOVE_BYTES));
+	}
+
+	private int weight(int index) {
+		return mapping.getChar((int) (movesOffset + (long) index * MOVE_BYTES) + 2);
+	}
+}
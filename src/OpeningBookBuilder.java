@@ -0,0 +1,319 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * OpeningBookBuilder writes an OpeningBook from finished games: those in a GameRecordStore file, a
+ * GameArchive, or played by the AI against itself. Each of the first few moves of every two player standard
+ * game with a winner is counted against the position it was made in, along with whether the player who
+ * made it went on to win. A move's weight in the book is the number of games it won, so moves which never
+ * won, or were made in fewer than a set number of games, are left out.
+ */
+public class OpeningBookBuilder {
+
+	public static final int DEFAULT_MAX_PLIES = 12;
+	public static final int DEFAULT_MIN_GAMES = 2;
+	// Self play games start with this many random moves, so that they don't all follow the same line
+	public static final int DEFAULT_SELF_PLAY_OPENING_PLIES = 2;
+
+	private int maxPlies;
+	// For each position's hash, the number of games each move was made in and the number of those it won
+	private LinkedHashMap<Long, HashMap<Integer, int[]>> positions = new LinkedHashMap<Long, HashMap<Integer, int[]>>();
+	private int gameCount;
+
+	public OpeningBookBuilder() {
+		this(DEFAULT_MAX_PLIES);
+	}
+
+	/**
+	 * @param maxPlies the number of moves of each game to count
+	 */
+	public OpeningBookBuilder(int maxPlies) {
+		if (maxPlies < 1) {
+			throw new IllegalArgumentException("Plies must be positive");
+		}
+		this.maxPlies = maxPlies;
+	}
+
+	public int getGameCount() {
+		return gameCount;
+	}
+
+	public int getPositionCount() {
+		return positions.size();
+	}
+
+	/**
+	 * Count the opening moves of a game
+	 * @return whether the game was used, i.e. it's a two player standard game with a winner
+	 */
+	public boolean addGame(GameRecord record) {
+		return addGame(record, 0);
+	}
+
+	/**
+	 * @param fromPly the number of moves to make before counting any
+	 */
+	private boolean addGame(GameRecord record, int fromPly) {
+		if (record.getGameMode() != GameMode.STANDARD || record.getNumberOfPlayers() != 2 || record.getWinnerID() == 0) {
+			return false;
+		}
+		StandardBoard board = new StandardBoard(false);
+		int plies = Math.min(maxPlies, record.getMoveCount());
+		try {
+			for (int i = 0; i < plies; i++) {
+				int move = record.getMove(i);
+				if (i >= fromPly && MoveCodec.kind(move) != MoveCodec.Kind.PASS) {
+					if (MoveCodec.playerID(move) != board.getCurrentPlayer().getID()) {
+						break;
+					}
+					count(ZobristHash.hash(board), move, MoveCodec.playerID(move) == record.getWinnerID());
+				}
+				MoveCodec.apply(board, move);
+				if (Perft.isWon(board)) {
+					break;
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			// A game that can't be replayed is counted up to the move that couldn't be made
+		}
+		gameCount++;
+		return true;
+	}
+
+	private void count(long positionHash, int move, boolean won) {
+		HashMap<Integer, int[]> moves = positions.get(positionHash);
+		if (moves == null) {
+			moves = new HashMap<Integer, int[]>();
+			positions.put(positionHash, moves);
+		}
+		int[] counts = moves.get(move);
+		if (counts == null) {
+			counts = new int[2];
+			moves.put(move, counts);
+		}
+		counts[0]++;
+		if (won) {
+			counts[1]++;
+		}
+	}
+
+	/**
+	 * @return the number of games used
+	 */
+	public int addGames(List<GameRecord> records) {
+		int added = 0;
+		for (GameRecord record : records) {
+			if (addGame(record)) {
+				added++;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Count the games in a GameRecordStore file
+	 */
+	public int addGames(GameRecordScanner scanner) throws IOException {
+		int added = 0;
+		GameRecord record;
+		while ((record = scanner.next()) != null) {
+			if (addGame(record)) {
+				added++;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Count the games in an archive
+	 */
+	public int addGames(GameArchive archive) throws IOException {
+		int added = 0;
+		GameArchive.Cursor cursor = archive.seek(0);
+		ArchivedGame game;
+		while ((game = cursor.next()) != null) {
+			if (addGame(game.toGameRecord())) {
+				added++;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Play games between two AIs searching to the given depth and count them, leaving out the random moves
+	 * each game opens with
+	 */
+	public int addSelfPlayGames(int games, int depth, int openingPlies, long seed, int threads) throws InterruptedException {
+		if (games < 1 || threads < 1) {
+			throw new IllegalArgumentException("Games and threads must be positive");
+		}
+		Tournament.Engine engine = new Tournament.Engine("self play", depth, 0);
+		final Tournament tournament = new Tournament(engine, engine, openingPlies, Tournament.DEFAULT_MAX_PLIES);
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "OpeningBookBuilder");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		Random seeds = new Random(seed);
+		ArrayList<GameRecord> records = new ArrayList<GameRecord>();
+		try {
+			ArrayList<Future<GameRecord>> playing = new ArrayList<Future<GameRecord>>();
+			for (int game = 0; game < games; game++) {
+				final long gameSeed = seeds.nextLong();
+				playing.add(pool.submit(new Callable<GameRecord>() {
+					@Override
+					public GameRecord call() {
+						return tournament.playGame(true, gameSeed);
+					}
+				}));
+			}
+			for (Future<GameRecord> future : playing) {
+				records.add(future.get());
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A self play game failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		int added = 0;
+		for (GameRecord record : records) {
+			if (addGame(record, openingPlies)) {
+				added++;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Write the book
+	 * @param minGames the number of games a move has to have been made in to be in the book
+	 * @return the number of positions written
+	 */
+	public int write(File file, int minGames) throws IOException {
+		ArrayList<Long> keys = new ArrayList<Long>();
+		ArrayList<int[][]> entries = new ArrayList<int[][]>();
+		int moveCount = 0;
+		for (Map.Entry<Long, HashMap<Integer, int[]>> position : positions.entrySet()) {
+			ArrayList<int[]> kept = new ArrayList<int[]>();
+			for (Map.Entry<Integer, int[]> move : position.getValue().entrySet()) {
+				int[] counts = move.getValue();
+				if (counts[0] >= minGames && counts[1] > 0) {
+					kept.add(new int[] {move.getKey(), Math.min(counts[1], Character.MAX_VALUE)});
+				}
+			}
+			if (kept.isEmpty()) {
+				continue;
+			}
+			int[][] moves = kept.toArray(new int[kept.size()][]);
+			// Heaviest first, so a book is easy to read with lookup
+			Arrays.sort(moves, new Comparator<int[]>() {
+				@Override
+				public int compare(int[] a, int[] b) {
+					return (a[1] != b[1]) ? Integer.compare(b[1], a[1]) : Integer.compare(a[0], b[0]);
+				}
+			});
+			keys.add(position.getKey());
+			entries.add(moves);
+			moveCount += moves.length;
+		}
+		// At most half full, so that probes stay short and there's always an empty slot to end them
+		int slotCount = Integer.highestOneBit(Math.max(keys.size() * 2, 1)) << 1;
+		long[] slotKeys = new long[slotCount];
+		int[] slotEntries = new int[slotCount];
+		Arrays.fill(slotEntries, -1);
+		for (int i = 0; i < keys.size(); i++) {
+			int slot = (int) (long) keys.get(i) & (slotCount - 1);
+			while (slotEntries[slot] >= 0) {
+				slot = (slot + 1) & (slotCount - 1);
+			}
+			slotKeys[slot] = keys.get(i);
+			slotEntries[slot] = i;
+		}
+		int[] firstMoves = new int[keys.size()];
+		for (int i = 1; i < keys.size(); i++) {
+			firstMoves[i] = firstMoves[i - 1] + entries.get(i - 1).length;
+		}
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(OpeningBook.MAGIC);
+			out.writeInt(OpeningBook.VERSION);
+			out.writeInt(slotCount);
+			out.writeInt(moveCount);
+			for (int slot = 0; slot < slotCount; slot++) {
+				int entry = slotEntries[slot];
+				out.writeLong(slotKeys[slot]);
+				out.writeInt((entry < 0) ? 0 : firstMoves[entry]);
+				out.writeInt((entry < 0) ? 0 : entries.get(entry).length);
+			}
+			for (int[][] moves : entries) {
+				for (int[] move : moves) {
+					out.writeChar(move[0]);
+					out.writeChar(move[1]);
+				}
+			}
+		} finally {
+			out.close();
+		}
+		return keys.size();
+	}
+
+	/**
+	 * OpeningBookBuilder source [book file] [plies] [min games] [threads]
+	 *
+	 * where the source is a GameRecordStore file, a GameArchive directory, or selfplay:games to play that
+	 * many games at depth 2, each after two random moves. The book file defaults to ./opening-book.qob
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 1) {
+			System.out.println("Usage: OpeningBookBuilder games.qgr|archive-directory|selfplay:games [book file] [plies] [min games] [threads]");
+			return;
+		}
+		File out = new File(args.length > 1 ? args[1] : "./opening-book.qob");
+		int plies = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_MAX_PLIES;
+		int minGames = (args.length > 3) ? Integer.parseInt(args[3]) : DEFAULT_MIN_GAMES;
+		int threads = (args.length > 4) ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+		OpeningBookBuilder builder = new OpeningBookBuilder(plies);
+		long startNanos = System.nanoTime();
+		if (args[0].startsWith("selfplay:")) {
+			builder.addSelfPlayGames(Integer.parseInt(args[0].substring("selfplay:".length())), 2, DEFAULT_SELF_PLAY_OPENING_PLIES, System.nanoTime(), threads);
+		} else if (new File(args[0]).isDirectory()) {
+			GameArchive archive = new GameArchive(new File(args[0]));
+			try {
+				builder.addGames(archive);
+			} finally {
+				archive.close();
+			}
+		} else {
+			GameRecordScanner scanner = new GameRecordScanner(new File(args[0]));
+			try {
+				builder.addGames(scanner);
+			} finally {
+				scanner.close();
+			}
+		}
+		int written = builder.write(out, minGames);
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		System.out.println(String.format("%d games, %d positions seen, %d written to %s in %.1f s",
+				builder.getGameCount(), builder.getPositionCount(), written, out, seconds));
+	}
+}
@@ -0,0 +1,162 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * OutboundMessageQueue holds the messages waiting to be sent to one client, and owns the thread that
+ * writes them to the client's socket. The game hands messages to the queue and carries on, so a client
+ * that reads slowly only ever holds up its own writer thread, never the game.
+ *
+ * The queue is bounded and lock free: offering a message either claims a slot and adds it, or fails
+ * straight away when the queue is full, leaving the caller to apply its OverflowPolicy. The writer
+ * sends everything that is waiting before flushing, so a burst of messages goes out in as few packets
+ * as possible, and sleeps when there is nothing to send.
+ */
+public class OutboundMessageQueue {
+
+	// How often a blocked offer checks whether the queue has drained
+	private static final long BLOCKED_OFFER_POLL_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private ConcurrentLinkedQueue<String> messages;
+	// Messages offered but not yet taken by the writer; kept separately as counting the queue isn't O(1)
+	private AtomicInteger size;
+	private int capacity;
+	// Messages ever taken by the writer or cleared, and how many had been when the writer last flushed
+	private AtomicLong removed;
+	private volatile long flushed;
+
+	private Writer out;
+	private Thread writer;
+	private volatile boolean running;
+
+	/**
+	 * Start the writer thread for a client's output stream
+	 * @param outputStream the client socket's output stream
+	 * @param capacity the most messages that may be waiting to be written
+	 */
+	public OutboundMessageQueue(OutputStream outputStream, int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+		this.messages = new ConcurrentLinkedQueue<String>();
+		this.size = new AtomicInteger();
+		this.removed = new AtomicLong();
+		this.capacity = capacity;
+		this.out = new BufferedWriter(new OutputStreamWriter(outputStream));
+		this.running = true;
+		this.writer = new Thread("ClientSocketOutputThread") {
+			@Override
+			public void run() {
+				writeMessages();
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Add a message to the queue without waiting
+	 * @return false if the queue is full, in which case the message was not added
+	 */
+	public boolean offer(String message) {
+		if (size.incrementAndGet() > capacity) {
+			size.decrementAndGet();
+			return false;
+		}
+		messages.offer(message);
+		LockSupport.unpark(writer);
+		return true;
+	}
+
+	/**
+	 * Add a message to the queue, waiting up to the timeout for room if it's full
+	 * @return false if there was still no room after the timeout
+	 */
+	public boolean offer(String message, long timeoutMillis) {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		while (!offer(message)) {
+			if (!running || System.nanoTime() - deadline >= 0) {
+				return false;
+			}
+			LockSupport.parkNanos(BLOCKED_OFFER_POLL_NANOS);
+		}
+		return true;
+	}
+
+	/**
+	 * Throw away every message that hasn't been taken by the writer yet
+	 */
+	public void clear() {
+		while (messages.poll() != null) {
+			size.decrementAndGet();
+			removed.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Wait up to the timeout for every message offered so far to be written and flushed, e.g. before
+	 * closing the connection after a last message
+	 * @return false if some were still waiting after the timeout, or the connection has gone
+	 */
+	public boolean drain(long timeoutMillis) {
+		long target = removed.get() + size.get();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		while (flushed < target) {
+			if (!running || System.nanoTime() - deadline >= 0) {
+				return false;
+			}
+			LockSupport.parkNanos(BLOCKED_OFFER_POLL_NANOS);
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of messages waiting to be written
+	 */
+	public int size() {
+		return size.get();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Stop the writer thread; messages still waiting are not sent
+	 */
+	public void close() {
+		running = false;
+		LockSupport.unpark(writer);
+	}
+
+	private void writeMessages() {
+		try {
+			while (running) {
+				String message = messages.poll();
+				if (message == null) {
+					out.flush();
+					flushed = removed.get();
+					// offer() unparks the writer after adding a message, so one added since the poll isn't missed
+					if (messages.isEmpty() && running) {
+						LockSupport.park(this);
+					}
+					continue;
+				}
+				size.decrementAndGet();
+				removed.incrementAndGet();
+				out.write(message);
+				out.write('\n');
+			}
+		} catch (IOException e) {
+			// the connection has gone; its I/O thread notices when its read fails
+			running = false;
+		}
+	}
+}
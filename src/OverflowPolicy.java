@@ -0,0 +1,12 @@
+/**
+ * What a connection does when its outbound queue is full, i.e. when the client isn't reading messages as
+ * fast as the game is producing them
+ */
+public enum OverflowPolicy {
+	// Close the connection; the client can resume its session on a new one
+	DISCONNECT,
+	// Throw away the queued messages and send a snapshot of the game in their place
+	DROP_TO_SNAPSHOT,
+	// Wait a short while for the queue to drain, then disconnect
+	BLOCK_WITH_TIMEOUT
+}
@@ -0,0 +1,272 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Perft counts every sequence of legal moves of a given length from a board's position. The counts for a
+ * few positions are known, so they check that the move rules still give exactly the same moves after the
+ * board or the move generation has been changed, and the time taken measures how fast moves are generated.
+ *
+ * The legal moves are those the board itself allows: a pawn step or jump getPawnMoves gives for the current
+ * player, and any wall wallPlacementIsLegal accepts, i.e. one the
+ * player has left that passes wallPlacementIsValid and leaves the path checks satisfied. Wall removals in
+ * challenge games aren't counted. A pawn move onto the player's goal ends the game, so nothing follows it.
+ *
+ * Moves are made and taken back on the board directly, so it's left as it was, and nothing is allocated
+ * for each move other than by the path checks.
+ */
+public class Perft {
+
+	// The pawn moves, and two orientations of wall at each of the 8x8 wall squares of a standard board
+	public static final int MAX_MOVES = Board.MAX_PAWN_MOVES + 2 * 8 * 8;
+
+	private static final WallPlacement[] ORIENTATIONS = {WallPlacement.HORIZONTAL, WallPlacement.VERTICAL};
+
+	/**
+	 * @return the most moves a player can have on a board, which is MAX_MOVES for a standard sized one
+	 */
+	public static int maxMoves(Board board) {
+		int wallSquares = board.getSize() - 1;
+		return Board.MAX_PAWN_MOVES + 2 * wallSquares * wallSquares;
+	}
+
+	/**
+	 * Give the current player's legal moves
+	 * @param moves filled with the moves, encoded by MoveCodec; must have room for maxMoves(board)
+	 * @return the number of moves, which is 0 if the game has been won
+	 */
+	public static int generateMoves(Board board, int[] moves) {
+		if (isWon(board)) {
+			return 0;
+		}
+		Player player = board.getCurrentPlayer();
+		// The pawn moves' cells are written into the moves and encoded where they are
+		BoardTopology topology = board.getTopology();
+		int count = board.getPawnMoves(player, moves);
+		for (int i = 0; i < count; i++) {
+			moves[i] = MoveCodec.pawn(player.getID(), topology.x(moves[i]), topology.y(moves[i]));
+		}
+		if (player.hasWalls()) {
+			int wallSquares = board.getSize() - 1;
+			for (int wallY = 0; wallY < wallSquares; wallY++) {
+				for (int wallX = 0; wallX < wallSquares; wallX++) {
+					for (WallPlacement orientation : ORIENTATIONS) {
+						if (board.wallPlacementIsLegal(wallX, wallY, orientation)) {
+							moves[count++] = MoveCodec.wall(player.getID(), wallX, wallY, orientation);
+						}
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return whether a move, encoded by MoveCodec, is one of the current player's legal moves
+	 */
+	public static boolean isLegal(Board board, int move) {
+		Player player = board.getCurrentPlayer();
+		if (MoveCodec.playerID(move) != player.getID() || isWon(board)) {
+			return false;
+		}
+		int x = MoveCodec.x(move);
+		int y = MoveCodec.y(move);
+		switch (MoveCodec.kind(move)) {
+			case PAWN:
+				return board.isValidMove(player, x, y);
+			case WALL_HORIZONTAL:
+			case WALL_VERTICAL:
+				return player.hasWalls() && x < board.getSize() - 1 && y < board.getSize() - 1 && board.wallPlacementIsLegal(x, y, MoveCodec.orientation(move));
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * @return the number of sequences of depth legal moves from the board's position
+	 */
+	public static long perft(Board board, int depth) {
+		if (depth < 0) {
+			throw new IllegalArgumentException("Negative depth " + depth);
+		}
+		return perft(board, depth, new int[Math.max(depth, 1)][maxMoves(board)]);
+	}
+
+	/**
+	 * @param moves a buffer for the moves at each remaining depth
+	 */
+	private static long perft(Board board, int depth, int[][] moves) {
+		if (depth == 0) {
+			return 1;
+		}
+		int[] generated = moves[depth - 1];
+		int count = generateMoves(board, generated);
+		if (depth == 1) {
+			return count;
+		}
+		long nodes = 0;
+		for (int i = 0; i < count; i++) {
+			nodes += perftAfter(board, generated[i], depth - 1, moves);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Make a move, count the sequences following it and take it back
+	 */
+	private static long perftAfter(Board board, int move, int depth, int[][] moves) {
+		Player player = board.getCurrentPlayer();
+		if (MoveCodec.kind(move) == MoveCodec.Kind.PAWN) {
+			Position from = player.getPosition();
+			player.setPosition(board.getPosition(MoveCodec.x(move), MoveCodec.y(move)));
+			board.switchPlayer();
+			long nodes = perft(board, depth, moves);
+			player.setPosition(from);
+			board.setCurrentPlayer(player);
+			return nodes;
+		}
+		Position topLeft = board.getPosition(MoveCodec.x(move), MoveCodec.y(move));
+		WallPlacement orientation = MoveCodec.orientation(move);
+		board.setWallEdges(topLeft, orientation, true);
+		player.decrementWallCount();
+		board.switchPlayer();
+		long nodes = perft(board, depth, moves);
+		board.setWallEdges(topLeft, orientation, false);
+		player.incrementWallCount();
+		board.setCurrentPlayer(player);
+		return nodes;
+	}
+
+	/**
+	 * Count the sequences following each of the current player's legal moves, splitting the moves between
+	 * threads, each with its own copy of the board
+	 * @return the count for each move, by the move encoded by MoveCodec, in the order they were generated
+	 */
+	public static Map<Integer, Long> divide(Board board, int depth, int threads) throws InterruptedException {
+		if (depth < 1 || threads < 1) {
+			throw new IllegalArgumentException("Depth and threads must be positive");
+		}
+		int[] rootMoves = new int[maxMoves(board)];
+		int count = generateMoves(board, rootMoves);
+		final Board[] copies = new Board[count];
+		for (int i = 0; i < count; i++) {
+			copies[i] = copy(board);
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "Perft");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		ArrayList<Future<Long>> counting = new ArrayList<Future<Long>>();
+		try {
+			for (int i = 0; i < count; i++) {
+				final Board copy = copies[i];
+				final int move = rootMoves[i];
+				final int remaining = depth - 1;
+				counting.add(pool.submit(new Callable<Long>() {
+					@Override
+					public Long call() {
+						return perftAfter(copy, move, remaining, new int[Math.max(remaining, 1)][maxMoves(copy)]);
+					}
+				}));
+			}
+			Map<Integer, Long> counts = new LinkedHashMap<Integer, Long>();
+			for (int i = 0; i < count; i++) {
+				counts.put(rootMoves[i], counting.get(i).get());
+			}
+			return counts;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Couldn't count moves", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return whether the player who moved last has reached their goal
+	 */
+	static boolean isWon(Board board) {
+		Player player = board.getPreviousPlayer();
+		Position position = player.getPosition();
+		int id = player.getID();
+		if (board instanceof ChallengeBoard) {
+			return (id == 1 && position.isBottomRightCorner()) || (id == 2 && position.isTopLeftCorner())
+					|| (id == 3 && position.isTopRightCorner()) || (id == 4 && position.isBottomLeftCorner());
+		}
+		return (id == 1 && position.isBottom()) || (id == 2 && position.isTop())
+				|| (id == 3 && position.isRight()) || (id == 4 && position.isLeft());
+	}
+
+	/**
+	 * @return a new board of the same size with the same pawns, walls, wall counts and current player
+	 */
+	static Board copy(Board board) {
+		boolean fourPlayerMode = board.getPlayer3() != null;
+		int size = board.getSize();
+		int walls = board.getStartingWallCount();
+		Board copy = (board instanceof ChallengeBoard) ? new ChallengeBoard(fourPlayerMode, size, walls) : new StandardBoard(fourPlayerMode, size, walls);
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				Position from = board.getPosition(x, y);
+				Position to = copy.getPosition(x, y);
+				to.setHasTopWall(from.hasTopWall());
+				to.setHasRightWall(from.hasRightWall());
+				to.setHasBottomWall(from.hasBottomWall());
+				to.setHasLeftWall(from.hasLeftWall());
+			}
+		}
+		for (int id = 1; board.getPlayer(id) != null && id <= 4; id++) {
+			Player from = board.getPlayer(id);
+			Player to = copy.getPlayer(id);
+			to.setPosition(copy.getPosition(from.getPosition().getX(), from.getPosition().getY()));
+			to.setWallCount(from.getWallCount());
+			to.setMoveCount(from.getMoveCount());
+		}
+		copy.setCurrentPlayer(copy.getPlayer(board.getCurrentPlayer().getID()));
+		return copy;
+	}
+
+	/**
+	 * Print the divide counts and total for a position, and how fast they were counted
+	 *
+	 * Perft depth [threads] [STANDARD|CHALLENGE] [2|4] [moves in MoveNotation...]
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		if (args.length < 1) {
+			System.out.println("Usage: Perft depth [threads] [STANDARD|CHALLENGE] [2|4] [moves...]");
+			return;
+		}
+		int depth = Integer.parseInt(args[0]);
+		int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		GameMode gameMode = (args.length > 2) ? GameMode.valueOf(args[2]) : GameMode.STANDARD;
+		int numberOfPlayers = (args.length > 3) ? Integer.parseInt(args[3]) : 2;
+		GameRecord record = new GameRecord(gameMode, numberOfPlayers);
+		for (int i = 4; i < args.length; i++) {
+			MoveNotation.parseGame(args[i], record);
+		}
+		Board board = (gameMode == GameMode.CHALLENGE) ? new ChallengeBoard(numberOfPlayers == 4) : new StandardBoard(numberOfPlayers == 4);
+		for (int i = 0; i < record.getMoveCount(); i++) {
+			MoveCodec.apply(board, record.getMove(i));
+		}
+		long startNanos = System.nanoTime();
+		Map<Integer, Long> counts = divide(board, depth, threads);
+		long nanos = System.nanoTime() - startNanos;
+		long total = 0;
+		for (Map.Entry<Integer, Long> count : counts.entrySet()) {
+			System.out.println(MoveNotation.toText(count.getKey()) + " " + count.getValue());
+			total += count.getValue();
+		}
+		System.out.println("Moves: " + counts.size());
+		System.out.println("Nodes: " + total);
+		System.out.println("Time: " + nanos / 1000000 + " ms, " + (long) (total / (nanos / 1e9)) + " nodes/s");
+	}
+}
@@ -11,6 +11,9 @@
  */
 public class Player
 {
+	// The walls each player starts with in a standard game
+	public static final int DEFAULT_WALL_COUNT = 10;
+
 	private int ID;
     private Position position;
     private boolean startedAtTop;
@@ -26,10 +29,21 @@ public class Player
      * @param ID The ID assigned to a player
      */
 	public Player(Position position, int ID)
+    {
+    	this(position, ID, DEFAULT_WALL_COUNT);
+    }
+
+    /**
+     * Setup a player object
+     * @param position The starting position of a player
+     * @param ID The ID assigned to a player
+     * @param wallCount The number of walls the player starts with
+     */
+	public Player(Position position, int ID, int wallCount)
     {
     	this.ID = ID;
         this.position = position;
-        wallCount = 10;
+        this.wallCount = wallCount;
         moveCount = 0;
 
     }
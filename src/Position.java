@@ -27,11 +27,9 @@ public class Position
     private boolean isBottomLeftCorner;
 
 
-    // whether the position has a right, left, top or bottom wall assigned to it
-    private boolean hasTopWall;
-    private boolean hasRightWall;
-    private boolean hasBottomWall;
-    private boolean hasLeftWall;
+    // whether the position has a top, right, bottom or left wall assigned to it, one bit for each of
+    // BoardTopology's directions
+    private int walls;
     
     private Position camefrom;
     public Position getCamefrom() {
@@ -213,21 +211,21 @@ public class Position
 	 * Assign or remove a top wall
 	 */
 	public void setHasTopWall(boolean hasWall) {
-		hasTopWall = hasWall;
+		setWall(BoardTopology.TOP, hasWall);
 	}
 
 	/**
 	 * Assign or remove a right wall
 	 */
 	public void setHasRightWall(boolean hasWall) {
-		hasRightWall = hasWall;
+		setWall(BoardTopology.RIGHT, hasWall);
 	}
 
 	/**
 	 * Assign or remove a bottom wall
 	 */
 	public void setHasBottomWall(boolean hasWall) {
-		hasBottomWall = hasWall;
+		setWall(BoardTopology.BOTTOM, hasWall);
 	}
 
 	/**
@@ -235,34 +233,56 @@ public class Position
 	 * @param hasWall
 	 */
 	public void setHasLeftWall(boolean hasWall) {
-		hasLeftWall = hasWall;
+		setWall(BoardTopology.LEFT, hasWall);
 	}
 
 	/**
 	 * @return whether or not the position has a top wall
 	 */
 	public boolean hasTopWall() {
-		return hasTopWall;
+		return hasWall(BoardTopology.TOP);
 	}
 
 	/**
 	 * @return whether or not the position has a right wall
 	 */
 	public boolean hasRightWall() {
-		return hasRightWall;
+		return hasWall(BoardTopology.RIGHT);
 	}
 
 	/**
 	 * @return whether or not the position has a bottom wall
 	 */
 	public boolean hasBottomWall() {
-		return hasBottomWall;
+		return hasWall(BoardTopology.BOTTOM);
 	}
 
 	/**
 	 * @return whether or not the position has a left wall
 	 */
 	public boolean hasLeftWall() {
-		return hasLeftWall;
+		return hasWall(BoardTopology.LEFT);
+	}
+
+	/**
+	 * @return the position's walls, bit 1 << direction set for a wall in each of BoardTopology's directions
+	 */
+	public int getWalls() {
+		return walls;
+	}
+
+	/**
+	 * @return whether or not the position has a wall in one of BoardTopology's directions
+	 */
+	public boolean hasWall(int direction) {
+		return (walls >> direction & 1) != 0;
+	}
+
+	private void setWall(int direction, boolean hasWall) {
+		if (hasWall) {
+			walls |= 1 << direction;
+		} else {
+			walls &= ~(1 << direction);
+		}
 	}
 }
@@ -0,0 +1,311 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * RatingService keeps every player's Elo rating, games played and wins in memory, along with a ranking of
+ * all players by rating, as games finish. It listens to a GameRecordStore, so it sees each game once it's
+ * stored. Players are known by the names in the game records.
+ *
+ * Each game costs O(log n) in the number of players: the winner and losers are taken out of the ranking,
+ * rated and put back. In a four player game the winner is counted as beating each of the other three, with
+ * the K factor shared between them so a game is worth the same whatever the number of players. Abandoned
+ * games aren't rated.
+ *
+ * The ratings are written to a checkpoint file every so many games. The checkpoint holds the ID of the last
+ * game rated and where it ends in the store's file, so recovering only reads the games stored since.
+ */
+public class RatingService implements GameRecordListener {
+
+	public static final double INITIAL_RATING = 1500;
+	public static final double K_FACTOR = 32;
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 10000;
+
+	private static final int CHECKPOINT_MAGIC = 0x51524154;
+	private static final byte CHECKPOINT_VERSION = 1;
+
+	private static final Metrics.Counter GAMES_RATED = Metrics.counter("quoridor_games_rated_total", "Games counted by the rating service");
+
+	/**
+	 * A player's rating and record. Copies are handed out, so they don't change once returned
+	 */
+	public static class PlayerRating {
+
+		private String name;
+		private double rating;
+		private int gamesPlayed;
+		private int wins;
+
+		private PlayerRating(String name, double rating, int gamesPlayed, int wins) {
+			this.name = name;
+			this.rating = rating;
+			this.gamesPlayed = gamesPlayed;
+			this.wins = wins;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public double getRating() {
+			return rating;
+		}
+
+		public int getGamesPlayed() {
+			return gamesPlayed;
+		}
+
+		public int getWins() {
+			return wins;
+		}
+
+		private PlayerRating copy() {
+			return new PlayerRating(name, rating, gamesPlayed, wins);
+		}
+
+		@Override
+		public String toString() {
+			return name + " " + Math.round(rating) + " (" + wins + "/" + gamesPlayed + ")";
+		}
+	}
+
+	// Highest rating first, then by name so that every player has their own place
+	private static final Comparator<PlayerRating> BY_RATING = new Comparator<PlayerRating>() {
+		@Override
+		public int compare(PlayerRating a, PlayerRating b) {
+			int byRating = Double.compare(b.rating, a.rating);
+			return (byRating != 0) ? byRating : a.name.compareTo(b.name);
+		}
+	};
+
+	private File checkpointFile;
+	private int checkpointInterval;
+
+	// All guarded by this
+	private HashMap<String, PlayerRating> players;
+	private TreeSet<PlayerRating> rankings;
+	private long lastGameID;
+	private long logOffset;
+	private int gamesSinceCheckpoint;
+
+	public RatingService(File checkpointFile) {
+		this(checkpointFile, DEFAULT_CHECKPOINT_INTERVAL);
+	}
+
+	/**
+	 * @param checkpointFile where the ratings are saved
+	 * @param checkpointInterval how many games are rated between checkpoints
+	 */
+	public RatingService(File checkpointFile, int checkpointInterval) {
+		if (checkpointInterval <= 0) {
+			throw new IllegalArgumentException("Checkpoint interval must be positive: " + checkpointInterval);
+		}
+		this.checkpointFile = checkpointFile;
+		this.checkpointInterval = checkpointInterval;
+		this.players = new HashMap<String, PlayerRating>();
+		this.rankings = new TreeSet<PlayerRating>(BY_RATING);
+	}
+
+	/**
+	 * Load the last checkpoint, rate the games stored after it, then listen to the store for new games
+	 */
+	public synchronized void recover(GameRecordStore store) throws IOException {
+		// Listening first means no game is missed; the store waits on this lock, and games already rated are skipped
+		store.addListener(this);
+		if (checkpointFile.exists()) {
+			try {
+				loadCheckpoint();
+			} catch (IOException e) {
+				SystemLogger.logWarning("Couldn't read rating checkpoint " + checkpointFile + ", rating every game again: " + e.getMessage());
+				clear();
+			}
+		}
+		if (logOffset > store.getFile().length()) {
+			SystemLogger.logWarning("Rating checkpoint is past the end of " + store.getFile() + ", rating every game again");
+			clear();
+		}
+		GameRecordScanner scanner = new GameRecordScanner(store.getFile(), logOffset);
+		int replayed = 0;
+		try {
+			GameRecord record;
+			while ((record = scanner.next()) != null) {
+				if (rate(record)) {
+					replayed++;
+				}
+			}
+		} finally {
+			scanner.close();
+		}
+		logOffset = scanner.getOffset();
+		SystemLogger.log(LogLevel.INFO, "Ratings recovered", "players", players.size(), "replayedGames", replayed, "lastGame", lastGameID);
+	}
+
+	@Override
+	public synchronized void gameStored(GameRecord record, long endOffset) {
+		if (!rate(record)) {
+			return;
+		}
+		logOffset = endOffset;
+		if (++gamesSinceCheckpoint >= checkpointInterval) {
+			try {
+				checkpoint();
+			} catch (IOException e) {
+				SystemLogger.logError("Couldn't write rating checkpoint " + checkpointFile + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Count a finished game towards the ratings of its players
+	 * @return false if the game had already been counted
+	 */
+	public synchronized boolean rate(GameRecord record) {
+		if (record.getGameID() <= lastGameID) {
+			return false;
+		}
+		lastGameID = record.getGameID();
+		int winnerID = record.getWinnerID();
+		int numberOfPlayers = record.getNumberOfPlayers();
+		if (winnerID < 1 || winnerID > numberOfPlayers) {
+			return true;
+		}
+		PlayerRating winner = take(record.getPlayerName(winnerID));
+		double winnerRating = winner.rating;
+		double k = K_FACTOR / (numberOfPlayers - 1);
+		double winnerGain = 0;
+		for (int id = 1; id <= numberOfPlayers; id++) {
+			if (id == winnerID) {
+				continue;
+			}
+			PlayerRating loser = take(record.getPlayerName(id));
+			if (loser == winner) {
+				// The same name on both sides; nothing to rate
+				continue;
+			}
+			double expected = 1 / (1 + Math.pow(10, (loser.rating - winnerRating) / 400));
+			double change = k * (1 - expected);
+			winnerGain += change;
+			loser.rating -= change;
+			loser.gamesPlayed++;
+			rankings.add(loser);
+		}
+		winner.rating += winnerGain;
+		winner.gamesPlayed++;
+		winner.wins++;
+		rankings.add(winner);
+		GAMES_RATED.increment();
+		return true;
+	}
+
+	/**
+	 * @return the player with the given name, out of the rankings so their rating can be changed
+	 */
+	private PlayerRating take(String name) {
+		PlayerRating player = players.get(name);
+		if (player == null) {
+			player = new PlayerRating(name, INITIAL_RATING, 0, 0);
+			players.put(name, player);
+		} else {
+			rankings.remove(player);
+		}
+		return player;
+	}
+
+	/**
+	 * @return the player's rating, or null if they haven't played a rated game
+	 */
+	public synchronized PlayerRating getRating(String name) {
+		PlayerRating player = players.get(name);
+		return (player == null) ? null : player.copy();
+	}
+
+	/**
+	 * @return up to count players, highest rated first
+	 */
+	public synchronized List<PlayerRating> getTopPlayers(int count) {
+		List<PlayerRating> top = new ArrayList<PlayerRating>(Math.min(count, rankings.size()));
+		for (PlayerRating player : rankings) {
+			if (top.size() == count) {
+				break;
+			}
+			top.add(player.copy());
+		}
+		return top;
+	}
+
+	public synchronized int getPlayerCount() {
+		return players.size();
+	}
+
+	/**
+	 * @return the ID of the last game counted
+	 */
+	public synchronized long getLastGameID() {
+		return lastGameID;
+	}
+
+	/**
+	 * Save the ratings. The checkpoint is written to a temporary file and moved into place, so a crash
+	 * leaves the previous checkpoint whole
+	 */
+	public synchronized void checkpoint() throws IOException {
+		File temporary = new File(checkpointFile.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16));
+		try {
+			out.writeInt(CHECKPOINT_MAGIC);
+			out.writeByte(CHECKPOINT_VERSION);
+			out.writeLong(lastGameID);
+			out.writeLong(logOffset);
+			out.writeInt(players.size());
+			for (PlayerRating player : rankings) {
+				out.writeUTF(player.name);
+				out.writeDouble(player.rating);
+				out.writeInt(player.gamesPlayed);
+				out.writeInt(player.wins);
+			}
+		} finally {
+			out.close();
+		}
+		Files.move(temporary.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		gamesSinceCheckpoint = 0;
+	}
+
+	private void loadCheckpoint() throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpointFile), 1 << 16));
+		try {
+			if (in.readInt() != CHECKPOINT_MAGIC || in.readByte() != CHECKPOINT_VERSION) {
+				throw new IOException("not a rating checkpoint");
+			}
+			clear();
+			lastGameID = in.readLong();
+			logOffset = in.readLong();
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				PlayerRating player = new PlayerRating(in.readUTF(), in.readDouble(), in.readInt(), in.readInt());
+				players.put(player.name, player);
+				rankings.add(player);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private void clear() {
+		players.clear();
+		rankings.clear();
+		lastGameID = 0;
+		logOffset = 0;
+	}
+}
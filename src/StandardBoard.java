@@ -1,7 +1,7 @@
 /**
  * StandardBoard is used as model class to model a board being played with
- * the standard rule set. It models a 9x9 board for the game. It also extends
- * the Board class.
+ * the standard rule set. It models a 9x9 board for the game, or a board of
+ * another size. It also extends the Board class.
  *
  * @author Ben Lawton
  * @author Junaid Rasheed
@@ -11,12 +11,21 @@
 public class StandardBoard extends Board {
 
     public StandardBoard(boolean fourPlayerMode) {
-		super(GameMode.STANDARD, fourPlayerMode);
-		initialisePlayer1(getPosition(4, 0));
-		initialisePlayer2(getPosition(4, 8));
+		this(fourPlayerMode, BoardTopology.STANDARD_SIZE, Player.DEFAULT_WALL_COUNT);
+    }
+
+    /**
+     * @param size the number of positions along each side of the board
+     * @param startingWallCount the number of walls each player starts with
+     */
+    public StandardBoard(boolean fourPlayerMode, int size, int startingWallCount) {
+		super(GameMode.STANDARD, fourPlayerMode, size, startingWallCount);
+		int middle = size / 2;
+		initialisePlayer1(getPosition(middle, 0));
+		initialisePlayer2(getPosition(middle, size - 1));
 		if (fourPlayerMode) {
-			initialisePlayer3(getPosition(0, 4));
-			initialisePlayer4(getPosition(8, 4));
+			initialisePlayer3(getPosition(0, middle));
+			initialisePlayer4(getPosition(size - 1, middle));
 		}
 		setCurrentPlayer(getPlayer1());
     }
@@ -151,20 +160,21 @@ public class StandardBoard extends Board {
     /**
      * Move each player to their starting positions and reset their stats
      */
-    private void reset() {
+    public void reset() {
         getPlayer1().setMoveCount(0);
         getPlayer2().setMoveCount(0);
-        getPlayer1().setWallCount(10);
-        getPlayer2().setWallCount(10);
-        getPlayer1().setPosition(getPosition(4, 0));
-        getPlayer2().setPosition(getPosition(4, 8));
+        int middle = getSize() / 2;
+        getPlayer1().setWallCount(getStartingWallCount());
+        getPlayer2().setWallCount(getStartingWallCount());
+        getPlayer1().setPosition(getPosition(middle, 0));
+        getPlayer2().setPosition(getPosition(middle, getSize() - 1));
         if (getPlayer3() != null) {
             getPlayer3().setMoveCount(0);
             getPlayer4().setMoveCount(0);
-            getPlayer3().setWallCount(10);
-            getPlayer4().setWallCount(10);
-            getPlayer3().setPosition(getPosition(0, 4));
-            getPlayer4().setPosition(getPosition(8, 4));
+            getPlayer3().setWallCount(getStartingWallCount());
+            getPlayer4().setWallCount(getStartingWallCount());
+            getPlayer3().setPosition(getPosition(0, middle));
+            getPlayer4().setPosition(getPosition(getSize() - 1, middle));
         }
         setCurrentPlayer(getPlayer1());
         resetWalledOffPositions();
@@ -178,12 +188,12 @@ public class StandardBoard extends Board {
      */
     public void placeWalls(int topLeftX, int topLeftY, WallPlacement orientation) {
 		if (getCurrentPlayer().hasWalls()) {
-			if ((topLeftX >= 0 && topLeftX <= 8) && (topLeftY >= 0 && topLeftY <= 8)) {
+			if ((topLeftX >= 0 && topLeftX < getSize()) && (topLeftY >= 0 && topLeftY < getSize())) {
 				Position topLeft = getPosition(topLeftX, topLeftY);
 				if (wallPlacementIsValid(topLeft, orientation)) {
 					assignWallsFromTopLeftClockwise(topLeft, orientation);
 
-					if (!Utility.AstarSearch(getPositions(), getPlayer1().getPosition(), 8)
+					if (!Utility.AstarSearch(getPositions(), getPlayer1().getPosition(), getSize() - 1)
 							|| !Utility.AstarSearch(getPositions(), getPlayer2().getPosition(), 0)) {
 
 						removeWalls(topLeft, orientation);
@@ -270,7 +280,7 @@ public class StandardBoard extends Board {
 			if (topLeft.hasRightWall()) {
 				isValid = false;
 			}
-			if (topLeft.getY() == 8) {
+			if (topLeft.getY() == getSize() - 1) {
 				isValid = false;
 			} else if (getPosition(topLeft.getX(), (topLeft.getY() + 1)).hasRightWall()) {
 				isValid = false;
@@ -282,7 +292,7 @@ public class StandardBoard extends Board {
 			if (topLeft.hasBottomWall()) {
 				isValid = false;
 			}
-			if (topLeft.getX() == 8) {
+			if (topLeft.getX() == getSize() - 1) {
 				isValid = false;
 			} else if (getPosition((topLeft.getX() + 1), topLeft.getY()).hasBottomWall()) {
 				isValid = false;
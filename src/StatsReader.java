@@ -0,0 +1,214 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * StatsReader totals up a winners.csv file written by the old StatsWriter, where each row is
+ *
+ * player 1, player 2, player 3, player 4, Winner: name
+ *
+ * with the third and fourth names left blank for two player games, and "Winner" in whichever language the
+ * game was played in.
+ *
+ * The file is read in chunks, cut at the end of a line, and the chunks are parsed in parallel into a
+ * StatsSummary each, which are then merged. Only a few chunks are held at once, so memory use doesn't grow
+ * with the size of the file.
+ */
+public class StatsReader {
+
+	public static final int DEFAULT_CHUNK_BYTES = 4 * 1024 * 1024;
+
+	private int chunkBytes;
+	private int threads;
+
+	public StatsReader() {
+		this(DEFAULT_CHUNK_BYTES, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param chunkBytes how much of the file each task parses
+	 * @param threads how many chunks are parsed at once
+	 */
+	public StatsReader(int chunkBytes, int threads) {
+		if (chunkBytes <= 0 || threads <= 0) {
+			throw new IllegalArgumentException("Chunk size and threads must be positive");
+		}
+		this.chunkBytes = chunkBytes;
+		this.threads = threads;
+	}
+
+	/**
+	 * Read a whole winners.csv file
+	 */
+	public StatsSummary read(File file) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "StatsReader");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		StatsSummary total = new StatsSummary();
+		ArrayDeque<Future<StatsSummary>> parsing = new ArrayDeque<Future<StatsSummary>>();
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[chunkBytes];
+			int filled = 0;
+			while (true) {
+				int read = in.read(buffer, filled, buffer.length - filled);
+				if (read > 0) {
+					filled += read;
+					if (filled < buffer.length) {
+						continue;
+					}
+				}
+				int end = (read < 0) ? filled : lastLineEnd(buffer, filled);
+				if (end < 0) {
+					// A line longer than a chunk; read more of it
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+					continue;
+				}
+				if (end > 0) {
+					if (parsing.size() == 2 * threads) {
+						total.merge(parsing.poll().get());
+					}
+					parsing.add(pool.submit(new ChunkParser(Arrays.copyOf(buffer, end))));
+				}
+				if (read < 0) {
+					break;
+				}
+				System.arraycopy(buffer, end, buffer, 0, filled - end);
+				filled -= end;
+			}
+			while (!parsing.isEmpty()) {
+				total.merge(parsing.poll().get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted reading " + file);
+		} catch (ExecutionException e) {
+			throw new IOException("Couldn't parse " + file, e.getCause());
+		} finally {
+			in.close();
+			pool.shutdownNow();
+		}
+		return total;
+	}
+
+	/**
+	 * @return the index just after the last newline in the buffer, or -1 if there isn't one
+	 */
+	private static int lastLineEnd(byte[] buffer, int length) {
+		for (int i = length - 1; i >= 0; i--) {
+			if (buffer[i] == '\n') {
+				return i + 1;
+			}
+		}
+		return -1;
+	}
+
+	private static class ChunkParser implements Callable<StatsSummary> {
+
+		private byte[] chunk;
+
+		ChunkParser(byte[] chunk) {
+			this.chunk = chunk;
+		}
+
+		@Override
+		public StatsSummary call() {
+			StatsSummary summary = new StatsSummary();
+			String text = new String(chunk, StandardCharsets.UTF_8);
+			int start = 0;
+			while (start < text.length()) {
+				int end = text.indexOf('\n', start);
+				if (end < 0) {
+					end = text.length();
+				}
+				parseRow(text.substring(start, end), summary);
+				start = end + 1;
+			}
+			return summary;
+		}
+	}
+
+	/**
+	 * Count one row of winners.csv in a summary. Blank rows are skipped
+	 */
+	public static void parseRow(String row, StatsSummary summary) {
+		if (row.trim().isEmpty()) {
+			return;
+		}
+		String[] fields = new String[5];
+		int start = 0;
+		for (int i = 0; i < 4; i++) {
+			int comma = row.indexOf(',', start);
+			if (comma < 0) {
+				summary.addMalformedRow();
+				return;
+			}
+			fields[i] = row.substring(start, comma).trim();
+			start = comma + 1;
+		}
+		fields[4] = row.substring(start).trim();
+
+		String[] names;
+		if (fields[2].isEmpty() && fields[3].isEmpty()) {
+			names = new String[] {fields[0], fields[1]};
+		} else {
+			names = Arrays.copyOf(fields, 4);
+		}
+		// The winner field is a translated "Winner: " and the name; match it against the players' names
+		int winnerIndex = -1;
+		for (int i = 0; i < names.length; i++) {
+			if (fields[4].endsWith(": " + names[i])
+					&& (winnerIndex < 0 || names[i].length() > names[winnerIndex].length())) {
+				winnerIndex = i;
+			}
+		}
+		for (String name : names) {
+			if (name.isEmpty()) {
+				winnerIndex = -1;
+			}
+		}
+		if (winnerIndex < 0) {
+			summary.addMalformedRow();
+			return;
+		}
+		summary.addGame(names, winnerIndex);
+	}
+
+	/**
+	 * Summarise a winners.csv file
+	 * @param args the file, winners.csv by default, and optionally where to save the columnar summary
+	 */
+	public static void main(String[] args) throws IOException {
+		File file = new File(args.length > 0 ? args[0] : "winners.csv");
+		long startNanos = System.nanoTime();
+		StatsSummary summary = new StatsReader().read(file);
+		long millis = (System.nanoTime() - startNanos) / 1000000;
+		System.out.println("Read " + file + " in " + millis + " ms");
+		System.out.println("Two player games: " + summary.getTwoPlayerGames());
+		System.out.println("Four player games: " + summary.getFourPlayerGames());
+		System.out.println("Malformed rows: " + summary.getMalformedRows());
+		System.out.println("Players: " + summary.getPlayerCount());
+		for (StatsSummary.PlayerTotals player : summary.getTopPlayers(10)) {
+			System.out.println("  " + player);
+		}
+		if (args.length > 1) {
+			summary.write(new File(args[1]));
+			System.out.println("Summary saved to " + args[1]);
+		}
+	}
+}
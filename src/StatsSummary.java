@@ -0,0 +1,257 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * StatsSummary holds the totals read from a winners.csv file: how many two and four player games were
+ * played, and each player's games and wins in each. Summaries of parts of a file can be merged.
+ *
+ * A summary can be saved in a compact columnar form, with every player's name first and then each total
+ * as a column of its own:
+ *
+ * int magic, byte format version, long two player games, long four player games, long malformed rows,
+ * int number of players, the names as UTF strings, then the columns of two player games, two player wins,
+ * four player games and four player wins, each an int per player in name order
+ */
+public class StatsSummary {
+
+	private static final int MAGIC = 0x5153554d;
+	private static final byte FORMAT_VERSION = 1;
+
+	/**
+	 * One player's totals
+	 */
+	public static class PlayerTotals {
+
+		private String name;
+		private int twoPlayerGames;
+		private int twoPlayerWins;
+		private int fourPlayerGames;
+		private int fourPlayerWins;
+
+		private PlayerTotals(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getTwoPlayerGames() {
+			return twoPlayerGames;
+		}
+
+		public int getTwoPlayerWins() {
+			return twoPlayerWins;
+		}
+
+		public int getFourPlayerGames() {
+			return fourPlayerGames;
+		}
+
+		public int getFourPlayerWins() {
+			return fourPlayerWins;
+		}
+
+		public int getGames() {
+			return twoPlayerGames + fourPlayerGames;
+		}
+
+		public int getWins() {
+			return twoPlayerWins + fourPlayerWins;
+		}
+
+		@Override
+		public String toString() {
+			return name + " " + getWins() + "/" + getGames() + " (2p " + twoPlayerWins + "/" + twoPlayerGames
+					+ ", 4p " + fourPlayerWins + "/" + fourPlayerGames + ")";
+		}
+	}
+
+	private HashMap<String, PlayerTotals> players;
+	private long twoPlayerGames;
+	private long fourPlayerGames;
+	private long malformedRows;
+
+	public StatsSummary() {
+		this.players = new HashMap<String, PlayerTotals>();
+	}
+
+	/**
+	 * Count a game
+	 * @param names the players, 2 or 4 of them
+	 * @param winnerIndex the index of the winner in names
+	 */
+	public void addGame(String[] names, int winnerIndex) {
+		boolean fourPlayers = names.length == 4;
+		if (fourPlayers) {
+			fourPlayerGames++;
+		} else {
+			twoPlayerGames++;
+		}
+		for (int i = 0; i < names.length; i++) {
+			PlayerTotals totals = getOrAdd(names[i]);
+			if (fourPlayers) {
+				totals.fourPlayerGames++;
+				if (i == winnerIndex) {
+					totals.fourPlayerWins++;
+				}
+			} else {
+				totals.twoPlayerGames++;
+				if (i == winnerIndex) {
+					totals.twoPlayerWins++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Count a row which couldn't be read as a game
+	 */
+	public void addMalformedRow() {
+		malformedRows++;
+	}
+
+	/**
+	 * Add another summary's totals to this one
+	 */
+	public void merge(StatsSummary other) {
+		twoPlayerGames += other.twoPlayerGames;
+		fourPlayerGames += other.fourPlayerGames;
+		malformedRows += other.malformedRows;
+		for (PlayerTotals theirs : other.players.values()) {
+			PlayerTotals ours = getOrAdd(theirs.name);
+			ours.twoPlayerGames += theirs.twoPlayerGames;
+			ours.twoPlayerWins += theirs.twoPlayerWins;
+			ours.fourPlayerGames += theirs.fourPlayerGames;
+			ours.fourPlayerWins += theirs.fourPlayerWins;
+		}
+	}
+
+	private PlayerTotals getOrAdd(String name) {
+		PlayerTotals totals = players.get(name);
+		if (totals == null) {
+			totals = new PlayerTotals(name);
+			players.put(name, totals);
+		}
+		return totals;
+	}
+
+	public long getTwoPlayerGames() {
+		return twoPlayerGames;
+	}
+
+	public long getFourPlayerGames() {
+		return fourPlayerGames;
+	}
+
+	public long getMalformedRows() {
+		return malformedRows;
+	}
+
+	public int getPlayerCount() {
+		return players.size();
+	}
+
+	/**
+	 * @return the player's totals, or null if they haven't played
+	 */
+	public PlayerTotals getPlayer(String name) {
+		return players.get(name);
+	}
+
+	/**
+	 * @return up to count players with the most wins, then by name
+	 */
+	public List<PlayerTotals> getTopPlayers(int count) {
+		List<PlayerTotals> sorted = new ArrayList<PlayerTotals>(players.values());
+		Collections.sort(sorted, new Comparator<PlayerTotals>() {
+			@Override
+			public int compare(PlayerTotals a, PlayerTotals b) {
+				int byWins = Integer.compare(b.getWins(), a.getWins());
+				return (byWins != 0) ? byWins : a.name.compareTo(b.name);
+			}
+		});
+		return sorted.subList(0, Math.min(count, sorted.size()));
+	}
+
+	/**
+	 * Save the summary in its columnar form
+	 */
+	public void write(File file) throws IOException {
+		String[] names = players.keySet().toArray(new String[0]);
+		Arrays.sort(names);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeByte(FORMAT_VERSION);
+			out.writeLong(twoPlayerGames);
+			out.writeLong(fourPlayerGames);
+			out.writeLong(malformedRows);
+			out.writeInt(names.length);
+			for (String name : names) {
+				out.writeUTF(name);
+			}
+			for (String name : names) {
+				out.writeInt(players.get(name).twoPlayerGames);
+			}
+			for (String name : names) {
+				out.writeInt(players.get(name).twoPlayerWins);
+			}
+			for (String name : names) {
+				out.writeInt(players.get(name).fourPlayerGames);
+			}
+			for (String name : names) {
+				out.writeInt(players.get(name).fourPlayerWins);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Load a summary saved by write()
+	 */
+	public static StatsSummary read(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		try {
+			if (in.readInt() != MAGIC || in.readByte() != FORMAT_VERSION) {
+				throw new IOException(file + " is not a stats summary");
+			}
+			StatsSummary summary = new StatsSummary();
+			summary.twoPlayerGames = in.readLong();
+			summary.fourPlayerGames = in.readLong();
+			summary.malformedRows = in.readLong();
+			PlayerTotals[] totals = new PlayerTotals[in.readInt()];
+			for (int i = 0; i < totals.length; i++) {
+				totals[i] = summary.getOrAdd(in.readUTF());
+			}
+			for (PlayerTotals player : totals) {
+				player.twoPlayerGames = in.readInt();
+			}
+			for (PlayerTotals player : totals) {
+				player.twoPlayerWins = in.readInt();
+			}
+			for (PlayerTotals player : totals) {
+				player.fourPlayerGames = in.readInt();
+			}
+			for (PlayerTotals player : totals) {
+				player.fourPlayerWins = in.readInt();
+			}
+			return summary;
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -1,53 +1,47 @@
-import javafx.scene.text.Text;
-import java.io.FileWriter;
 import java.io.IOException;
 
 /**
- * StatsWriter uses the player names to store the players and the winners
- * of each game into a CSV file. First, the names of each of the players
- * who played in the game is stored and then the name of the winner
- * is written to the CSV file.
+ * StatsWriter stores the record of each finished game, with the names of the
+ * players who played in it and the winner, in the game record store.
+ * The names are taken from the player names screen.
  *
  * @author Junaid Rasheed
  */
 public class StatsWriter {
 
-    private Text winnerName;
+    private int winnerID;
     private int numberOfPlayers;
+    private GameRecord record;
 
-    public StatsWriter(int winnerID, int numberOfPlayers) {
+    /**
+     * @param winnerID The ID of the player who won
+     * @param numberOfPlayers 2 or 4
+     * @param record The game's moves, or null if they weren't recorded
+     */
+    public StatsWriter(int winnerID, int numberOfPlayers, GameRecord record) {
+        this.winnerID = winnerID;
         this.numberOfPlayers = numberOfPlayers;
-        switch (winnerID) {
-            case 1:
-                winnerName = new Text(Translate.winner() + ": " + PlayerNamesGUI.player1Name.getText());
-                break;
-            case 2:
-                winnerName = new Text(Translate.winner() + ": " + PlayerNamesGUI.player2Name.getText());
-                break;
-            case 3:
-                winnerName = new Text(Translate.winner() + ": " + PlayerNamesGUI.player3Name.getText());
-                break;
-            case 4:
-                winnerName = new Text(Translate.winner() + ": " + PlayerNamesGUI.player4Name.getText());
-                break;
-        }
+        this.record = record;
     }
 
     /**
-     * Store the winner in a csv file
+     * Store the players, the winner and the game's moves. The record is written by the store's own
+     * thread, so this doesn't wait for the disk
      */
-    public void writeStatsToCSV() throws IOException {
-        FileWriter fileWriter = new FileWriter("winners.csv", true);
-        if (numberOfPlayers == 2) {
-            // Write empty rows for players that did not player
-            fileWriter.write(PlayerNamesGUI.player1Name.getText() + ", " + PlayerNamesGUI.player2Name.getText() + ", "
-                    + ", " + ", " + winnerName.getText() + "\n");
-        } else {
-            fileWriter.write(PlayerNamesGUI.player1Name.getText() + ", " + PlayerNamesGUI.player2Name.getText() + ", "
-                    + PlayerNamesGUI.player3Name.getText() + ", " + PlayerNamesGUI.player4Name.getText() + ", "
-                    + winnerName.getText() + "\n");
+    public void writeStats() throws IOException {
+        if (record == null) {
+            record = new GameRecord(GameMode.STANDARD, numberOfPlayers);
+        }
+        if (PlayerNamesGUI.player1Name != null) {
+            record.setPlayerName(1, PlayerNamesGUI.player1Name.getText());
+            record.setPlayerName(2, PlayerNamesGUI.player2Name.getText());
+            if (numberOfPlayers == 4) {
+                record.setPlayerName(3, PlayerNamesGUI.player3Name.getText());
+                record.setPlayerName(4, PlayerNamesGUI.player4Name.getText());
+            }
         }
-        fileWriter.close();
+        record.finish(winnerID);
+        GameRecordStore.getDefault().append(record);
     }
 
 }
@@ -1,33 +1,71 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.logging.FileHandler;
-import java.util.logging.Logger;
-import java.util.logging.SimpleFormatter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * SystemLogger is used to log error messages and other messages which may
  * be useful into a log file.
  *
+ * Logging never waits on the disk. A message is put in a ring buffer along with its level, time, thread
+ * and any key/value fields, and a background thread formats and writes everything waiting in batches.
+ * If the buffer is full the message is dropped and counted instead, and the writer notes how many were
+ * dropped in the log. The log file is rotated once it reaches a size limit or has been open for a set
+ * time, keeping a few old files as system.log.1, system.log.2 and so on.
+ *
  * @author Ben Lawton
  */
 public class SystemLogger {
 
-	private static FileHandler fh;
-	private static SimpleFormatter formatter;
-	private static Logger logger;
-	private static boolean initialised;
+	private static final String DEFAULT_PATH = "./system.log";
+	private static final int BUFFER_CAPACITY = 8192;
+	private static final long DEFAULT_MAX_FILE_BYTES = 10 * 1024 * 1024;
+	private static final long DEFAULT_ROTATE_INTERVAL_MILLIS = TimeUnit.DAYS.toMillis(1);
+	private static final int DEFAULT_MAX_FILES = 5;
+	// How long the writer sleeps when there is nothing to write
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private static final Metrics.Counter DROPPED = Metrics.counter("quoridor_log_messages_dropped_total", "Log messages dropped because the log buffer was full");
+
+	private static volatile boolean initialised;
+	private static volatile LogLevel minimumLevel = LogLevel.INFO;
+	private static BoundedRingBuffer<LogRecord> buffer;
+	private static AtomicLong droppedCount = new AtomicLong();
+	private static LogWriter writer;
 
 	/**
-	 * Initialise the system logger
+	 * Initialise the system logger, writing to ./system.log
 	 */
 	public static void init() {
+		init(DEFAULT_PATH, DEFAULT_MAX_FILE_BYTES, DEFAULT_ROTATE_INTERVAL_MILLIS, DEFAULT_MAX_FILES);
+	}
+
+	/**
+	 * Initialise the system logger
+	 * @param path The log file
+	 * @param maxFileBytes The size at which the log file is rotated
+	 * @param rotateIntervalMillis How long a log file is written to before it is rotated
+	 * @param maxFiles How many rotated files are kept
+	 */
+	public static synchronized void init(String path, long maxFileBytes, long rotateIntervalMillis, int maxFiles) {
 		if (!initialised) {
-			logger = Logger.getLogger("SystemLogs");
 			try {
-				fh = new FileHandler("./system.log", true);
-				logger.addHandler(fh);
-				formatter = new SimpleFormatter();
-				fh.setFormatter(formatter);
-				logger.setUseParentHandlers(false);
+				buffer = new BoundedRingBuffer<LogRecord>(BUFFER_CAPACITY);
+				writer = new LogWriter(new File(path), maxFileBytes, rotateIntervalMillis, maxFiles);
+				writer.start();
+				Runtime.getRuntime().addShutdownHook(new Thread("SystemLogFlush") {
+					@Override
+					public void run() {
+						shutdown();
+					}
+				});
 				initialised = true;
 			}
 			catch (SecurityException e) {}
@@ -35,14 +73,40 @@ public class SystemLogger {
 		}
 	}
 
+	/**
+	 * Write everything waiting in the buffer and stop the writer thread. Messages logged afterwards are ignored
+	 */
+	public static synchronized void shutdown() {
+		if (initialised) {
+			initialised = false;
+			writer.finish();
+		}
+	}
+
+	/**
+	 * Only log messages at this level or above; INFO by default
+	 */
+	public static void setLevel(LogLevel level) {
+		minimumLevel = level;
+	}
+
+	public static LogLevel getLevel() {
+		return minimumLevel;
+	}
+
+	/**
+	 * @return how many messages have been dropped because the buffer was full
+	 */
+	public static long getDroppedCount() {
+		return droppedCount.get();
+	}
+
 	/**
 	 * Log an error to the system log file
 	 * @param errorMessage The error message to log
      */
 	public static void logError(String errorMessage) {
-		if (initialised) {
-			logger.warning(errorMessage);
-		}
+		log(LogLevel.ERROR, errorMessage);
 	}
 
 	/**
@@ -50,8 +114,187 @@ public class SystemLogger {
 	 * @param infoMessage The message to log
      */
 	public static void logInfo(String infoMessage) {
-		if (initialised) {
-			logger.info(infoMessage);
+		log(LogLevel.INFO, infoMessage);
+	}
+
+	public static void logWarning(String warningMessage) {
+		log(LogLevel.WARNING, warningMessage);
+	}
+
+	public static void logDebug(String debugMessage) {
+		log(LogLevel.DEBUG, debugMessage);
+	}
+
+	/**
+	 * Log a message with structured fields, e.g. log(LogLevel.INFO, "Room started", "mode", gameMode, "players", 4)
+	 * @param level The message's severity
+	 * @param message The message to log
+	 * @param fields Alternating field names and values, written after the message as name=value
+	 */
+	public static void log(LogLevel level, String message, Object... fields) {
+		if (!initialised || level.ordinal() < minimumLevel.ordinal()) {
+			return;
+		}
+		LogRecord record = new LogRecord(System.currentTimeMillis(), level, Thread.currentThread().getName(), message, fields);
+		if (!buffer.offer(record)) {
+			droppedCount.incrementAndGet();
+			DROPPED.increment();
+		}
+	}
+
+	/**
+	 * A message waiting to be written. Formatting is left to the writer thread
+	 */
+	private static class LogRecord {
+
+		private long timeMillis;
+		private LogLevel level;
+		private String threadName;
+		private String message;
+		private Object[] fields;
+
+		private LogRecord(long timeMillis, LogLevel level, String threadName, String message, Object[] fields) {
+			this.timeMillis = timeMillis;
+			this.level = level;
+			this.threadName = threadName;
+			this.message = message;
+			this.fields = fields;
+		}
+
+		private void appendTo(StringBuilder line) {
+			line.append(Instant.ofEpochMilli(timeMillis)).append(' ').append(level)
+					.append(" [").append(threadName).append("] ").append(message);
+			for (int i = 0; i + 1 < fields.length; i += 2) {
+				line.append(' ').append(fields[i]).append('=');
+				String value = String.valueOf(fields[i + 1]);
+				if (value.indexOf(' ') >= 0 || value.indexOf('"') >= 0) {
+					line.append('"').append(value.replace("\"", "\\\"")).append('"');
+				} else {
+					line.append(value);
+				}
+			}
+			line.append('\n');
+		}
+	}
+
+	/**
+	 * The thread which takes records from the buffer, writes them and rotates the log file
+	 */
+	private static class LogWriter extends Thread {
+
+		private File file;
+		private long maxFileBytes;
+		private long rotateIntervalMillis;
+		private int maxFiles;
+
+		private Writer out;
+		private long fileBytes;
+		private long fileOpenedMillis;
+		private long droppedReported;
+		private volatile boolean running;
+
+		private LogWriter(File file, long maxFileBytes, long rotateIntervalMillis, int maxFiles) throws IOException {
+			super("SystemLogWriter");
+			setDaemon(true);
+			this.file = file;
+			this.maxFileBytes = maxFileBytes;
+			this.rotateIntervalMillis = rotateIntervalMillis;
+			this.maxFiles = maxFiles;
+			this.running = true;
+			openFile();
+		}
+
+		@Override
+		public void run() {
+			StringBuilder line = new StringBuilder(256);
+			while (running) {
+				try {
+					if (writeBatch(line) == 0) {
+						LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+					}
+				} catch (IOException e) {
+					// nowhere left to report it; keep going in case the disk recovers
+				}
+			}
+			try {
+				writeBatch(line);
+				out.close();
+			} catch (IOException e) {}
+		}
+
+		/**
+		 * Stop the thread once it has written everything already in the buffer
+		 */
+		private void finish() {
+			running = false;
+			LockSupport.unpark(this);
+			try {
+				join(TimeUnit.SECONDS.toMillis(5));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * Write every record waiting in the buffer, then flush
+		 * @return the number of records written
+		 */
+		private int writeBatch(StringBuilder line) throws IOException {
+			int written = 0;
+			long dropped = droppedCount.get();
+			if (dropped != droppedReported) {
+				line.setLength(0);
+				new LogRecord(System.currentTimeMillis(), LogLevel.WARNING, getName(), "Log buffer full; messages dropped",
+						new Object[] {"dropped", dropped - droppedReported}).appendTo(line);
+				write(line);
+				droppedReported = dropped;
+				written++;
+			}
+			LogRecord record;
+			while ((record = buffer.poll()) != null) {
+				line.setLength(0);
+				record.appendTo(line);
+				write(line);
+				written++;
+			}
+			if (written > 0) {
+				out.flush();
+			}
+			return written;
+		}
+
+		private void write(StringBuilder line) throws IOException {
+			if (fileBytes >= maxFileBytes || System.currentTimeMillis() - fileOpenedMillis >= rotateIntervalMillis) {
+				rotate();
+			}
+			out.append(line);
+			fileBytes += line.length();
+		}
+
+		/**
+		 * Close the log file and shift it and the older files along, dropping the oldest
+		 */
+		private void rotate() throws IOException {
+			out.close();
+			new File(file.getPath() + "." + maxFiles).delete();
+			for (int i = maxFiles - 1; i >= 1; i--) {
+				File older = new File(file.getPath() + "." + i);
+				if (older.exists()) {
+					older.renameTo(new File(file.getPath() + "." + (i + 1)));
+				}
+			}
+			if (maxFiles > 0) {
+				file.renameTo(new File(file.getPath() + ".1"));
+			} else {
+				file.delete();
+			}
+			openFile();
+		}
+
+		private void openFile() throws IOException {
+			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+			fileBytes = file.length();
+			fileOpenedMillis = System.currentTimeMillis();
 		}
 	}
-}
\ No newline at end of file
+}
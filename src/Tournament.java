@@ -0,0 +1,353 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Tournament plays two AI engines against each other in two player standard games, without a GUI, to see
+ * which is stronger. Games are played in parallel, one per task on a fixed pool of threads, each on its own
+ * board with its own pair of AIs.
+ *
+ * The engines swap sides every game. Each game opens with a few random moves, mostly pawn steps, so that
+ * the games differ, and is a draw if nobody has won after a set number of moves. Everything random in a
+ * game comes from its seed, which comes from the tournament's seed, so a tournament played without time
+ * limits can be played again move for move.
+ *
+ * Games are on a standard board unless another size or number of walls is given, e.g. to see how the
+ * engines cope with a larger board.
+ */
+public class Tournament {
+
+	public static final int DEFAULT_OPENING_PLIES = 4;
+	public static final int DEFAULT_MAX_PLIES = 200;
+
+	/**
+	 * How an AI chooses its moves: the depth of its search, optionally how long it can take over a move, and
+	 * the weights of its evaluation
+	 */
+	public static class Engine {
+
+		private String name;
+		private int depth;
+		private long moveMillis;
+		private EvaluationWeights weights;
+
+		public Engine(String name, int depth, long moveMillis) {
+			this(name, depth, moveMillis, EvaluationWeights.getDefault());
+		}
+
+		/**
+		 * @param moveMillis how long the AI can spend on a move, searching deeper until it runs out, or 0 to
+		 * always search to the full depth
+		 */
+		public Engine(String name, int depth, long moveMillis, EvaluationWeights weights) {
+			if (depth < 1 || moveMillis < 0) {
+				throw new IllegalArgumentException("Bad engine " + name);
+			}
+			this.name = name;
+			this.depth = depth;
+			this.moveMillis = moveMillis;
+			this.weights = weights;
+		}
+
+		/**
+		 * @param spec the search depth, optionally followed by @ and the time allowed per move, and by : and
+		 * a weights file, e.g. 3@500:tuned.properties
+		 */
+		public static Engine parse(String spec) throws IOException {
+			String search = spec;
+			EvaluationWeights weights = EvaluationWeights.getDefault();
+			int colon = spec.indexOf(':');
+			if (colon >= 0) {
+				search = spec.substring(0, colon);
+				weights = EvaluationWeights.read(new File(spec.substring(colon + 1)));
+			}
+			int at = search.indexOf('@');
+			try {
+				if (at < 0) {
+					return new Engine(spec, Integer.parseInt(search), 0, weights);
+				}
+				return new Engine(spec, Integer.parseInt(search.substring(0, at)), Long.parseLong(search.substring(at + 1)), weights);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Bad engine " + spec);
+			}
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getDepth() {
+			return depth;
+		}
+
+		public long getMoveMillis() {
+			return moveMillis;
+		}
+
+		public EvaluationWeights getWeights() {
+			return weights;
+		}
+
+		/**
+		 * @return the move the AI makes for its player, or null if it has none
+		 */
+		Move chooseMove(AI ai, Player player) {
+			if (!player.hasWalls()) {
+				return ai.MoveNoWalls();
+			}
+			if (moveMillis > 0) {
+				return ai.Minimax(depth, moveMillis);
+			}
+			return ai.Minimax(depth);
+		}
+	}
+
+	/**
+	 * The outcome of a tournament, scored from the first engine's side
+	 */
+	public static class Result {
+
+		private int games;
+		private int firstWins;
+		private int secondWins;
+		private int draws;
+		private long plies;
+		private long nanos;
+
+		void add(GameRecord record, int firstEngineID) {
+			games++;
+			plies += record.getMoveCount();
+			if (record.getWinnerID() == 0) {
+				draws++;
+			} else if (record.getWinnerID() == firstEngineID) {
+				firstWins++;
+			} else {
+				secondWins++;
+			}
+		}
+
+		public int getGames() {
+			return games;
+		}
+
+		public int getFirstWins() {
+			return firstWins;
+		}
+
+		public int getSecondWins() {
+			return secondWins;
+		}
+
+		public int getDraws() {
+			return draws;
+		}
+
+		public double getAveragePlies() {
+			return (games == 0) ? 0 : (double) plies / games;
+		}
+
+		public double getGamesPerSecond() {
+			return (nanos == 0) ? 0 : games / (nanos / 1e9);
+		}
+
+		/**
+		 * @return the first engine's average score, counting a win as 1 and a draw as a half
+		 */
+		public double getScore() {
+			return (games == 0) ? 0.5 : (firstWins + draws / 2.0) / games;
+		}
+
+		/**
+		 * @return the half width of the 95% confidence interval around the score
+		 */
+		public double getScoreMargin() {
+			if (games < 2) {
+				return 0.5;
+			}
+			double score = getScore();
+			double variance = (firstWins + draws / 4.0) / games - score * score;
+			return 1.96 * Math.sqrt(variance / (games - 1));
+		}
+
+		/**
+		 * @return how many Elo points the first engine is stronger by, going by its score
+		 */
+		public double getEloDifference() {
+			return elo(getScore());
+		}
+
+		private static double elo(double score) {
+			score = Math.min(Math.max(score, 0.001), 0.999);
+			return -400 * Math.log10(1 / score - 1);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d games: %d-%d-%d, score %.3f +/- %.3f, Elo %+.0f [%+.0f, %+.0f], %.1f moves a game, %.2f games/s",
+					games, firstWins, secondWins, draws, getScore(), getScoreMargin(), getEloDifference(),
+					elo(getScore() - getScoreMargin()), elo(getScore() + getScoreMargin()), getAveragePlies(), getGamesPerSecond());
+		}
+	}
+
+	private Engine first;
+	private Engine second;
+	private int openingPlies;
+	private int maxPlies;
+	private int boardSize;
+	private int startingWallCount;
+
+	public Tournament(Engine first, Engine second) {
+		this(first, second, DEFAULT_OPENING_PLIES, DEFAULT_MAX_PLIES);
+	}
+
+	/**
+	 * @param openingPlies the number of random moves each game starts with
+	 * @param maxPlies the number of moves after which a game is a draw
+	 */
+	public Tournament(Engine first, Engine second, int openingPlies, int maxPlies) {
+		this(first, second, openingPlies, maxPlies, BoardTopology.STANDARD_SIZE, Player.DEFAULT_WALL_COUNT);
+	}
+
+	/**
+	 * @param boardSize the number of squares along each side of the board
+	 * @param startingWallCount the number of walls each player starts with
+	 */
+	public Tournament(Engine first, Engine second, int openingPlies, int maxPlies, int boardSize, int startingWallCount) {
+		if (openingPlies < 0 || maxPlies <= openingPlies) {
+			throw new IllegalArgumentException("Games need more moves than their openings");
+		}
+		// Checked here rather than when the first game is played
+		new StandardBoard(false, boardSize, startingWallCount);
+		this.first = first;
+		this.second = second;
+		this.openingPlies = openingPlies;
+		this.maxPlies = maxPlies;
+		this.boardSize = boardSize;
+		this.startingWallCount = startingWallCount;
+	}
+
+	/**
+	 * Play a number of games, the first engine moving first in every other one
+	 */
+	public Result play(int games, long seed, int threads) throws InterruptedException {
+		if (games < 1 || threads < 1) {
+			throw new IllegalArgumentException("Games and threads must be positive");
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "Tournament");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		Random seeds = new Random(seed);
+		long startNanos = System.nanoTime();
+		ArrayList<Future<GameRecord>> playing = new ArrayList<Future<GameRecord>>(games);
+		Result result = new Result();
+		try {
+			for (int game = 0; game < games; game++) {
+				final boolean firstMovesFirst = game % 2 == 0;
+				final long gameSeed = seeds.nextLong();
+				playing.add(pool.submit(new Callable<GameRecord>() {
+					@Override
+					public GameRecord call() {
+						return playGame(firstMovesFirst, gameSeed);
+					}
+				}));
+			}
+			for (int game = 0; game < games; game++) {
+				result.add(playing.get(game).get(), (game % 2 == 0) ? 1 : 2);
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A game failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		result.nanos = System.nanoTime() - startNanos;
+		return result;
+	}
+
+	/**
+	 * Play one game
+	 * @param firstMovesFirst whether the first engine plays player 1
+	 * @return the game's record, its winner 0 if it was drawn
+	 */
+	public GameRecord playGame(boolean firstMovesFirst, long seed) {
+		Random random = new Random(seed);
+		StandardBoard board = new StandardBoard(false, boardSize, startingWallCount);
+		Engine[] engines = firstMovesFirst ? new Engine[] {first, second} : new Engine[] {second, first};
+		AI[] ais = {
+			new AI(board, board.getPlayer1(), EvaluationNoise.perGame(new Random(random.nextLong())), engines[0].getWeights()),
+			new AI(board, board.getPlayer2(), EvaluationNoise.perGame(new Random(random.nextLong())), engines[1].getWeights())
+		};
+		GameRecord record = new GameRecord(GameMode.STANDARD, 2);
+		record.setPlayerName(1, engines[0].getName());
+		record.setPlayerName(2, engines[1].getName());
+		int[] moves = new int[Perft.maxMoves(board)];
+		for (int ply = 0; ply < maxPlies; ply++) {
+			Player player = board.getCurrentPlayer();
+			int code;
+			if (ply < openingPlies) {
+				code = randomMove(board, random, moves);
+			} else {
+				Move move = engines[player.getID() - 1].chooseMove(ais[player.getID() - 1], player);
+				code = (move == null) ? MoveCodec.pass(player.getID()) : move.encode(player.getID());
+			}
+			MoveCodec.apply(board, code);
+			record.addMove(code);
+			if (Perft.isWon(board)) {
+				record.finish(player.getID());
+				return record;
+			}
+		}
+		record.finish(0);
+		return record;
+	}
+
+	/**
+	 * @return a random legal move for the current player: a pawn step three times in four, otherwise a wall
+	 */
+	private static int randomMove(Board board, Random random, int[] moves) {
+		int count = Perft.generateMoves(board, moves);
+		int pawnMoves = 0;
+		while (pawnMoves < count && MoveCodec.kind(moves[pawnMoves]) == MoveCodec.Kind.PAWN) {
+			pawnMoves++;
+		}
+		if (pawnMoves > 0 && (pawnMoves == count || random.nextInt(4) != 0)) {
+			return moves[random.nextInt(pawnMoves)];
+		}
+		return moves[pawnMoves + random.nextInt(count - pawnMoves)];
+	}
+
+	/**
+	 * Tournament games first second [threads] [seed] [opening plies] [board size] [walls]
+	 *
+	 * where each engine is a search depth, optionally followed by @ and the time allowed per move, and by :
+	 * and a weights file, e.g. 3@500:tuned.properties
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 3) {
+			System.out.println("Usage: Tournament games first second [threads] [seed] [opening plies] [board size] [walls]");
+			return;
+		}
+		int games = Integer.parseInt(args[0]);
+		Engine first = Engine.parse(args[1]);
+		Engine second = Engine.parse(args[2]);
+		int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		long seed = (args.length > 4) ? Long.parseLong(args[4]) : System.nanoTime();
+		int openingPlies = (args.length > 5) ? Integer.parseInt(args[5]) : DEFAULT_OPENING_PLIES;
+		int boardSize = (args.length > 6) ? Integer.parseInt(args[6]) : BoardTopology.STANDARD_SIZE;
+		int walls = (args.length > 7) ? Integer.parseInt(args[7]) : Player.DEFAULT_WALL_COUNT;
+		System.out.println(first.getName() + " against " + second.getName() + ", seed " + seed);
+		Result result = new Tournament(first, second, openingPlies, DEFAULT_MAX_PLIES, boardSize, walls).play(games, seed, threads);
+		System.out.println(result);
+	}
+}
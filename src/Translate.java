@@ -60,6 +60,7 @@ public class Translate {
 	private static String languages;
 	private static String colour;
 	private static String rules;
+	private static String time;
 
 	/**
 	 * Choose a language and then set up the variables to point to the translated strings
@@ -135,6 +136,7 @@ public class Translate {
 			languages = br.readLine();
 			colour = br.readLine();
 			rules = br.readLine();
+			time = br.readLine();
 		} catch (FileNotFoundException e) {
 			SystemLogger.logError(e.getMessage());
 		} catch (IOException e) {
@@ -504,4 +506,12 @@ public class Translate {
 		}
 	}
 
+	public static String time() {
+		if (time != null) {
+			return time;
+		} else {
+			return "Time";
+		}
+	}
+
 }
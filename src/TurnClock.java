@@ -0,0 +1,107 @@
+/**
+ * TurnClock is a chess-style clock for a networked game: each player has a budget of thinking time for
+ * the whole game, which only runs down during their own turns. When a player's budget runs out the
+ * controller is told, through the shared HashedWheelTimer, so no thread is kept per game. The timer
+ * hands the news to the game's actor rather than calling the controller on the timer thread.
+ */
+public class TurnClock {
+
+	private NetworkedGameController controller;
+	private HashedWheelTimer timer;
+	private long budgetMillis;
+
+	// Remaining time for each player, indexed by player ID
+	private long[] remainingMillis;
+	private int runningPlayerID;
+	private long turnStartedMillis;
+	// Counts turns so that a flag fall scheduled for an earlier turn can be ignored
+	private long turnNumber;
+	private HashedWheelTimer.Timeout flagTimeout;
+
+	/**
+	 * @param controller the controller told when a player runs out of time
+	 * @param budgetMillis each player's thinking time for the whole game
+	 */
+	public TurnClock(NetworkedGameController controller, long budgetMillis) {
+		this.controller = controller;
+		this.timer = HashedWheelTimer.getSharedTimer();
+		this.budgetMillis = budgetMillis;
+		this.remainingMillis = new long[5];
+		reset();
+	}
+
+	/**
+	 * Stop the clock and give every player their full budget again
+	 */
+	public synchronized void reset() {
+		cancelFlagTimeout();
+		for (int id = 0; id < remainingMillis.length; id++) {
+			remainingMillis[id] = budgetMillis;
+		}
+		runningPlayerID = 0;
+		turnNumber++;
+	}
+
+	/**
+	 * Stop the running player's clock, if any, and start the given player's
+	 * @param playerID the player whose turn it now is
+	 */
+	public synchronized void startTurn(int playerID) {
+		long now = System.currentTimeMillis();
+		if (runningPlayerID != 0) {
+			remainingMillis[runningPlayerID] = Math.max(0, remainingMillis[runningPlayerID] - (now - turnStartedMillis));
+		}
+		cancelFlagTimeout();
+		runningPlayerID = playerID;
+		turnStartedMillis = now;
+		turnNumber++;
+		final long turn = turnNumber;
+		flagTimeout = timer.schedule(new Runnable() {
+			@Override
+			public void run() {
+				flagFall(turn);
+			}
+		}, remainingMillis[playerID]);
+	}
+
+	/**
+	 * Stop the clock without starting another player's, e.g. when the game is abandoned
+	 */
+	public synchronized void stop() {
+		cancelFlagTimeout();
+		runningPlayerID = 0;
+		turnNumber++;
+	}
+
+	/**
+	 * @return the time a player has left, not counting the turn in progress
+	 */
+	public synchronized long getRemainingMillis(int playerID) {
+		return remainingMillis[playerID];
+	}
+
+	private void flagFall(long turn) {
+		final int playerID;
+		synchronized (this) {
+			if (turn != turnNumber) {
+				return;
+			}
+			playerID = runningPlayerID;
+			remainingMillis[playerID] = 0;
+			runningPlayerID = 0;
+		}
+		controller.tell(new Runnable() {
+			@Override
+			public void run() {
+				controller.playerOutOfTime(playerID);
+			}
+		});
+	}
+
+	private void cancelFlagTimeout() {
+		if (flagTimeout != null) {
+			flagTimeout.cancel();
+			flagTimeout = null;
+		}
+	}
+}
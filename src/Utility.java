@@ -1,127 +1,152 @@
-import java.util.Comparator;
-import java.util.PriorityQueue;
-import java.util.PriorityQueue;
+import java.util.Arrays;
 
 public class Utility {
 
+	/**
+	 * Breadth first search from a position to a row. Sets of cells are kept as bits, so a whole layer of the
+	 * search is taken one move further at once by shifting it a cell across or a row down or up, after
+	 * masking out the cells with a wall that way. Boards up to 11x11 fit two words, cells 0 to 63 in one and
+	 * the rest in the other; larger boards take an array of words
+	 * @return the number of moves from the start to the nearest position in the finish row, or -1 if walls
+	 * cut it off
+	 */
 	public static int shortestPathLenght(Position[][] grid, Position start, int finish) {
-		Comparator<Position> comparator = new PositionComparator();
-		PositionComparator.goal=finish;
-		PriorityQueue<Position> queue = new PriorityQueue<Position>(80, comparator);
-
-		int done = -1; // set true when the finish position is reached
-		Position startgrid = grid[start.getY()][start.getX()];
-		startgrid.setCostsofar(0);
-		queue.add(startgrid);
-
-		while (!queue.isEmpty()) {
-			Position pos = queue.remove();
-			grid[pos.getY()][pos.getX()].setVisited(true); // this cell has been tried
-			if (pos.getY() == finish) {
-				done = pos.getCostsofar();
-				break;
-			} else {
-				int length = pos.getCostsofar()+1;
-				if (!pos.hasTopWall())
-					push_new_pos(grid, queue, pos.getY() - 1, pos.getX(),length);
-				if (!pos.hasBottomWall())
-					push_new_pos(grid, queue, pos.getY() + 1, pos.getX(),length);
-				if (!pos.hasLeftWall())
-					push_new_pos(grid, queue, pos.getY(), pos.getX() - 1,length);
-				if (!pos.hasRightWall())
-					push_new_pos(grid, queue, pos.getY(), pos.getX() + 1,length);
+		if (start.getY() == finish) {
+			return 0;
+		}
+		BoardTopology topology = BoardTopology.forSize(grid.length);
+		if (topology.words() > 2) {
+			return shortestPathLenghtInWords(grid, topology, start, finish);
+		}
+		// The cells which can be left in each direction
+		long upLow = 0, upHigh = 0, rightLow = 0, rightHigh = 0, downLow = 0, downHigh = 0, leftLow = 0, leftHigh = 0;
+		int cell = 0;
+		for (Position[] row : grid) {
+			for (Position position : row) {
+				int open = ~position.getWalls();
+				if (cell < 64) {
+					long bit = 1L << cell;
+					upLow |= -(open >> BoardTopology.TOP & 1) & bit;
+					rightLow |= -(open >> BoardTopology.RIGHT & 1) & bit;
+					downLow |= -(open >> BoardTopology.BOTTOM & 1) & bit;
+					leftLow |= -(open >> BoardTopology.LEFT & 1) & bit;
+				} else {
+					long bit = 1L << (cell - 64);
+					upHigh |= -(open >> BoardTopology.TOP & 1) & bit;
+					rightHigh |= -(open >> BoardTopology.RIGHT & 1) & bit;
+					downHigh |= -(open >> BoardTopology.BOTTOM & 1) & bit;
+					leftHigh |= -(open >> BoardTopology.LEFT & 1) & bit;
+				}
+				cell++;
 			}
 		}
-		reset(grid);
-		return done;
-	}
-
-	public static boolean AstarSearch(Position[][] grid, Position start, int finish) {
-		Comparator<Position> comparator = new PositionComparator();
-		PositionComparator.goal=finish;
-
-		PriorityQueue<Position> queue = new PriorityQueue<Position>(80, comparator);
-
-		boolean done = false; // set true when the finish position is reached
-		Position startgrid = grid[start.getY()][start.getX()];
-		startgrid.setCostsofar(0);
-		queue.add(startgrid);
-
-		while (!queue.isEmpty()) {
-			Position pos = queue.remove();
-			grid[pos.getY()][pos.getX()].setVisited(true); // this cell has been tried
-
-			if (pos.getY() == finish) {
-				done = true;
-				break;
-			} else {
-				int length = pos.getCostsofar()+1;
-
-				if (!pos.hasTopWall())
-					push_new_pos(grid, queue, pos.getY() - 1, pos.getX(),length);
-				if (!pos.hasBottomWall())
-					push_new_pos(grid, queue, pos.getY() + 1, pos.getX(),length);
-				if (!pos.hasLeftWall())
-					push_new_pos(grid, queue, pos.getY(), pos.getX() - 1,length);
-				if (!pos.hasRightWall())
-					push_new_pos(grid, queue, pos.getY(), pos.getX() + 1,length);
+		long finishLow = topology.rowBits(finish, 0);
+		long finishHigh = (topology.words() > 1) ? topology.rowBits(finish, 1) : 0;
+		int startCell = topology.cell(start.getX(), start.getY());
+		long frontierLow = (startCell < 64) ? 1L << startCell : 0;
+		long frontierHigh = (startCell < 64) ? 0 : 1L << (startCell - 64);
+		long seenLow = frontierLow;
+		long seenHigh = frontierHigh;
+		int down = grid.length;
+		for (int length = 1; (frontierLow | frontierHigh) != 0; length++) {
+			long low;
+			long high;
+			// Right and left are a cell along, up and down a row, carrying bits between the words
+			low = (frontierLow & rightLow) << 1;
+			high = (frontierHigh & rightHigh) << 1 | (frontierLow & rightLow) >>> 63;
+			low |= (frontierLow & leftLow) >>> 1 | (frontierHigh & leftHigh) << 63;
+			high |= (frontierHigh & leftHigh) >>> 1;
+			low |= (frontierLow & downLow) << down;
+			high |= (frontierHigh & downHigh) << down | (frontierLow & downLow) >>> (64 - down);
+			low |= (frontierLow & upLow) >>> down | (frontierHigh & upHigh) << (64 - down);
+			high |= (frontierHigh & upHigh) >>> down;
+			frontierLow = low & ~seenLow;
+			frontierHigh = high & ~seenHigh;
+			if ((frontierLow & finishLow | frontierHigh & finishHigh) != 0) {
+				return length;
 			}
+			seenLow |= frontierLow;
+			seenHigh |= frontierHigh;
 		}
-		reset(grid);
-		return done;
+		return -1;
 	}
 
-	private static void reset(Position[][] grid) {
-		for (int row = 0; row < grid.length; row++) {
-			for (int column = 0; column < grid[row].length; column++)
-				grid[row][column].setVisited(false);
+	/**
+	 * The same search for boards whose cells don't fit two words
+	 */
+	private static int shortestPathLenghtInWords(Position[][] grid, BoardTopology topology, Position start, int finish) {
+		int words = topology.words();
+		// The cells which can be left in each direction, one direction's words after another's
+		long[] open = new long[BoardTopology.DIRECTIONS * words];
+		int cell = 0;
+		for (Position[] row : grid) {
+			for (Position position : row) {
+				int walls = position.getWalls();
+				for (int direction = 0; direction < BoardTopology.DIRECTIONS; direction++) {
+					if ((walls >> direction & 1) == 0) {
+						open[direction * words + cell / 64] |= 1L << cell;
+					}
+				}
+				cell++;
+			}
 		}
-	}
-
-	private static void push_new_pos(Position[][] grid, PriorityQueue<Position> queue, int x, int y,int length) {
-		if (valid(grid, x, y)) {
-			grid[x][y].setVisited(true);
-			grid[x][y].setCostsofar(length);
-			queue.add(grid[x][y]);
+		long[] frontier = new long[words];
+		long[] next = new long[words];
+		long[] seen = new long[words];
+		int startCell = topology.cell(start.getX(), start.getY());
+		frontier[startCell / 64] = 1L << startCell;
+		seen[startCell / 64] = frontier[startCell / 64];
+		int down = grid.length;
+		for (int length = 1; ; length++) {
+			Arrays.fill(next, 0);
+			shift(frontier, open, BoardTopology.RIGHT * words, 1, next);
+			shift(frontier, open, BoardTopology.LEFT * words, -1, next);
+			shift(frontier, open, BoardTopology.BOTTOM * words, down, next);
+			shift(frontier, open, BoardTopology.TOP * words, -down, next);
+			boolean searching = false;
+			boolean finished = false;
+			for (int word = 0; word < words; word++) {
+				frontier[word] = next[word] & ~seen[word];
+				seen[word] |= frontier[word];
+				searching |= frontier[word] != 0;
+				finished |= (frontier[word] & topology.rowBits(finish, word)) != 0;
+			}
+			if (finished) {
+				return length;
+			}
+			if (!searching) {
+				return -1;
+			}
 		}
 	}
 
-	private static boolean valid(Position[][] grid, int row, int column) {
-		boolean result = false;
-		/* Check if cell is in the bounds of the maze */
-		if (row >= 0 && row < grid.length && column >= 0 && column < grid[row].length)
-			/* Check if cell is not blocked and not previously tried */
-			if (grid[row][column].isVisited() == false)
-				result = true;
-		return result;
+	/**
+	 * OR into a set the cells of another set that are open in a direction, moved along by that direction's
+	 * step in cells, which is less than 64 either way
+	 * @param open the sets of cells open in each direction, the direction's starting at offset
+	 */
+	private static void shift(long[] cells, long[] open, int offset, int by, long[] into) {
+		int words = cells.length;
+		for (int word = 0; word < words; word++) {
+			long moving = cells[word] & open[offset + word];
+			if (by > 0) {
+				into[word] |= moving << by;
+				if (word + 1 < words) {
+					into[word + 1] |= moving >>> (64 - by);
+				}
+			} else {
+				into[word] |= moving >>> -by;
+				if (word > 0) {
+					into[word - 1] |= moving << (64 + by);
+				}
+			}
+		}
 	}
 
-	private static class PositionComparator implements Comparator<Position>
-	{
-		public static int goal;
-
-		@Override
-	    public int compare(Position x, Position y)
-	    {
-			int Xgoal = Math.abs((goal-x.getY()));
-
-			int X = x.getCostsofar()+Xgoal;//(1)*2+
-
-
-			int Ygoal = Math.abs((goal-y.getY()));
-
-			int Y = y.getCostsofar()+Ygoal;//(1)*2+
-
-			//-1 then 1 is good
-	        if (X < Y)
-	        {
-	            return -1;
-	        }
-	        if (X > Y)
-	        {
-	            return 1;
-	        }
-	        return 0;
-	    }
+	/**
+	 * @return whether there's a path from a position to a row; named for the A* search it used to be
+	 */
+	public static boolean AstarSearch(Position[][] grid, Position start, int finish) {
+		return shortestPathLenght(grid, start, finish) >= 0;
 	}
 }
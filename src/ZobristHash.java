@@ -0,0 +1,136 @@
+import java.util.Random;
+
+/**
+ * ZobristHash gives a 64 bit hash of a board's position: where each pawn is, which edges between squares
+ * are blocked by walls, how many walls each player has left and whose turn it is. Each of those facts has
+ * a fixed random key and a position's hash is all its keys XORed together, so a move changes the hash by
+ * XORing in the keys it adds and removes, e.g.
+ *
+ * hash ^ pawn(1, 4, 0) ^ pawn(1, 4, 1) ^ turn(1) ^ turn(2)
+ *
+ * for player 1 stepping from e1 to e2. The keys come from a fixed seed, so a position has the same hash in
+ * every run of the game.
+ *
+ * Keys are kept for squares up to the largest board, those of a standard board's squares made first so
+ * they're the same as before other sizes were added. Boards of other sizes have a key of their own too,
+ * so the same pawns and walls on a different size of board hash differently.
+ */
+public class ZobristHash {
+
+	private static final long SEED = 0x51554f5249444f52L;
+	// Squares are numbered y * STRIDE + x
+	private static final int STRIDE = BoardTopology.MAX_SIZE;
+	private static final int SQUARES = STRIDE * STRIDE;
+	private static final int MAX_WALL_COUNT = 31;
+
+	private static final long[][] PAWNS = new long[4][SQUARES];
+	// The edge below each square, and the edge to its right
+	private static final long[] BOTTOM_EDGES = new long[SQUARES];
+	private static final long[] RIGHT_EDGES = new long[SQUARES];
+	private static final long[][] WALL_COUNTS = new long[4][MAX_WALL_COUNT + 1];
+	private static final long[] TURNS = new long[4];
+	// 0 for the standard size
+	private static final long[] SIZES = new long[BoardTopology.MAX_SIZE + 1];
+
+	static {
+		Random random = new Random(SEED);
+		int standard = BoardTopology.STANDARD_SIZE;
+		for (int player = 0; player < 4; player++) {
+			for (int square = 0; square < standard * standard; square++) {
+				PAWNS[player][square(square % standard, square / standard)] = random.nextLong();
+			}
+			for (int count = 0; count <= MAX_WALL_COUNT; count++) {
+				WALL_COUNTS[player][count] = random.nextLong();
+			}
+			TURNS[player] = random.nextLong();
+		}
+		for (int square = 0; square < standard * standard; square++) {
+			BOTTOM_EDGES[square(square % standard, square / standard)] = random.nextLong();
+			RIGHT_EDGES[square(square % standard, square / standard)] = random.nextLong();
+		}
+		for (int y = 0; y < STRIDE; y++) {
+			for (int x = 0; x < STRIDE; x++) {
+				if (x >= standard || y >= standard) {
+					for (int player = 0; player < 4; player++) {
+						PAWNS[player][square(x, y)] = random.nextLong();
+					}
+					BOTTOM_EDGES[square(x, y)] = random.nextLong();
+					RIGHT_EDGES[square(x, y)] = random.nextLong();
+				}
+			}
+		}
+		for (int size = 0; size <= BoardTopology.MAX_SIZE; size++) {
+			SIZES[size] = (size == standard) ? 0 : random.nextLong();
+		}
+	}
+
+	private static int square(int x, int y) {
+		return y * STRIDE + x;
+	}
+
+	/**
+	 * @return the hash of the board's position, worked out from scratch
+	 */
+	public static long hash(Board board) {
+		long hash = walls(board);
+		for (int id = 1; board.getPlayer(id) != null && id <= 4; id++) {
+			Player player = board.getPlayer(id);
+			hash ^= pawn(id, player.getPosition().getX(), player.getPosition().getY());
+			hash ^= wallCount(id, player.getWallCount());
+		}
+		return hash ^ turn(board.getCurrentPlayer().getID());
+	}
+
+	/**
+	 * @return the hash of just the board's size and the edges its walls block, which is the same for every
+	 * position with the same walls
+	 */
+	public static long walls(Board board) {
+		int size = board.getSize();
+		long hash = SIZES[size];
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				Position position = board.getPosition(x, y);
+				if (y < size - 1 && position.hasBottomWall()) {
+					hash ^= BOTTOM_EDGES[square(x, y)];
+				}
+				if (x < size - 1 && position.hasRightWall()) {
+					hash ^= RIGHT_EDGES[square(x, y)];
+				}
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * @return the key for a player's pawn being on a square
+	 */
+	public static long pawn(int playerID, int x, int y) {
+		return PAWNS[playerID - 1][square(x, y)];
+	}
+
+	/**
+	 * @return the key for a wall, i.e. for the two edges it blocks
+	 */
+	public static long wall(int topLeftX, int topLeftY, WallPlacement orientation) {
+		int square = square(topLeftX, topLeftY);
+		if (orientation == WallPlacement.HORIZONTAL) {
+			return BOTTOM_EDGES[square] ^ BOTTOM_EDGES[square + 1];
+		}
+		return RIGHT_EDGES[square] ^ RIGHT_EDGES[square + STRIDE];
+	}
+
+	/**
+	 * @return the key for a player having a number of walls left
+	 */
+	public static long wallCount(int playerID, int count) {
+		return WALL_COUNTS[playerID - 1][Math.min(count, MAX_WALL_COUNT)];
+	}
+
+	/**
+	 * @return the key for it being a player's turn
+	 */
+	public static long turn(int playerID) {
+		return TURNS[playerID - 1];
+	}
+}
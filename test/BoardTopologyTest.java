@@ -0,0 +1,86 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class BoardTopologyTest {
+
+	private static final BoardTopology STANDARD = BoardTopology.forSize(9);
+
+	@Test
+	public void neighbourTest() {
+		int corner = STANDARD.cell(0, 0);
+		assertEquals(-1, STANDARD.neighbour(corner, BoardTopology.TOP));
+		assertEquals(-1, STANDARD.neighbour(corner, BoardTopology.LEFT));
+		assertEquals(STANDARD.cell(1, 0), STANDARD.neighbour(corner, BoardTopology.RIGHT));
+		assertEquals(STANDARD.cell(0, 1), STANDARD.neighbour(corner, BoardTopology.BOTTOM));
+		assertEquals(-1, STANDARD.neighbour(STANDARD.cell(8, 8), BoardTopology.BOTTOM));
+		assertEquals(BoardTopology.RIGHT, BoardTopology.direction(1, 0));
+		assertEquals(BoardTopology.TOP, BoardTopology.direction(0, -1));
+		assertEquals(-1, BoardTopology.direction(1, 1));
+		assertEquals(-1, BoardTopology.direction(0, 2));
+	}
+
+	@Test
+	public void edgeTest() {
+		for (int size = BoardTopology.MIN_SIZE; size <= BoardTopology.MAX_SIZE; size += 2) {
+			BoardTopology topology = BoardTopology.forSize(size);
+			boolean[] seen = new boolean[topology.getEdges()];
+			for (int cell = 0; cell < topology.getCells(); cell++) {
+				for (int direction = 0; direction < BoardTopology.DIRECTIONS; direction++) {
+					int neighbour = topology.neighbour(cell, direction);
+					int edge = topology.edge(cell, direction);
+					if (neighbour < 0) {
+						assertEquals(-1, edge);
+					} else {
+						// Both cells either side of an edge share it
+						assertEquals(edge, topology.edge(neighbour, BoardTopology.opposite(direction)));
+						seen[edge] = true;
+					}
+				}
+			}
+			for (boolean edgeSeen : seen) {
+				assertTrue(edgeSeen);
+			}
+		}
+		assertEquals(STANDARD.horizontalEdge(8, 7), STANDARD.edge(STANDARD.cell(8, 8), BoardTopology.TOP));
+		assertEquals(STANDARD.getEdges() - 1, STANDARD.verticalEdge(7, 8));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void evenSizeTest() {
+		BoardTopology.forSize(10);
+	}
+
+	@Test
+	public void pathTest() {
+		StandardBoard board = new StandardBoard(false);
+		assertEquals(8, Utility.shortestPathLenght(board.getPositions(), board.getPlayer1().getPosition(), 8));
+		// A wall across the first row but for the left column, which player 1 has to go round
+		for (int x = 1; x < 8; x += 2) {
+			board.placeWalls(x, 0, WallPlacement.HORIZONTAL);
+		}
+		assertEquals(12, Utility.shortestPathLenght(board.getPositions(), board.getPlayer1().getPosition(), 8));
+		assertTrue(board.isValidMove(board.getPlayer1(), 3, 0));
+		assertFalse(board.isValidMove(board.getPlayer1(), 4, 1));
+		assertFalse(board.isValidMove(board.getPlayer1(), 4, 2));
+		assertSame(board.getPosition(4, 0), board.getCell(STANDARD.cell(4, 0)));
+	}
+
+	@Test
+	public void largeBoardPathTest() {
+		// Up to 11x11 the search's cells fit two words, past that they take more
+		for (int size : new int[] {3, 11, 13, 25}) {
+			StandardBoard board = new StandardBoard(false, size, 10);
+			Position start = board.getPlayer1().getPosition();
+			assertEquals(size - 1, Utility.shortestPathLenght(board.getPositions(), start, size - 1));
+			// A wall across the first row but for the right column, then one sealing that off too
+			for (int x = 0; x < size - 2; x += 2) {
+				board.setWallEdges(board.getPosition(x, 0), WallPlacement.HORIZONTAL, true);
+			}
+			int middle = size / 2;
+			assertEquals(middle + size - 1, Utility.shortestPathLenght(board.getPositions(), start, size - 1));
+			board.setWallEdges(board.getPosition(size - 2, 0), WallPlacement.VERTICAL, true);
+			assertEquals(-1, Utility.shortestPathLenght(board.getPositions(), start, size - 1));
+		}
+	}
+}
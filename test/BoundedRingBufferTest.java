@@ -0,0 +1,72 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class BoundedRingBufferTest {
+
+	@Test
+	public void fullBufferTest() {
+		BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<Integer>(3);
+		// capacity is rounded up to a power of two
+		assertEquals(4, buffer.getCapacity());
+		for (int i = 0; i < 4; i++) {
+			assertTrue(buffer.offer(i));
+		}
+		assertFalse(buffer.offer(4));
+		assertEquals(Integer.valueOf(0), buffer.poll());
+		assertTrue(buffer.offer(4));
+		for (int i = 1; i <= 4; i++) {
+			assertEquals(Integer.valueOf(i), buffer.poll());
+		}
+		assertNull(buffer.poll());
+	}
+
+	@Test
+	/**
+	 * Items from many producers all come out, each producer's in the order it added them
+	 */
+	public void manyProducersTest() throws InterruptedException {
+		final BoundedRingBuffer<int[]> buffer = new BoundedRingBuffer<int[]>(64);
+		final int producers = 4;
+		final int itemsEach = 20000;
+		final AtomicInteger finished = new AtomicInteger();
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+		for (int p = 0; p < producers; p++) {
+			final int producer = p;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < itemsEach; i++) {
+						while (!buffer.offer(new int[] {producer, i})) {
+							Thread.yield();
+						}
+					}
+					finished.incrementAndGet();
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		int[] next = new int[producers];
+		int taken = 0;
+		while (taken < producers * itemsEach) {
+			int[] item = buffer.poll();
+			if (item == null) {
+				Thread.yield();
+				continue;
+			}
+			assertEquals(next[item[0]], item[1]);
+			next[item[0]]++;
+			taken++;
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(producers, finished.get());
+		assertNull(buffer.poll());
+	}
+}
@@ -0,0 +1,86 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class EndgameSolverTest {
+
+	/**
+	 * A two player board with no walls left and the pawns on the given squares
+	 */
+	private static StandardBoard board(int x1, int y1, int x2, int y2, int playerToMove) {
+		StandardBoard board = new StandardBoard(false);
+		board.getPlayer1().setPosition(board.getPosition(x1, y1));
+		board.getPlayer2().setPosition(board.getPosition(x2, y2));
+		board.getPlayer1().setWallCount(0);
+		board.getPlayer2().setWallCount(0);
+		board.setCurrentPlayer(board.getPlayer(playerToMove));
+		return board;
+	}
+
+	@Test
+	public void raceTest() {
+		StandardBoard board = board(4, 7, 0, 1, 1);
+		EndgameSolver solver = EndgameSolver.forBoard(board);
+		assertEquals(1, solver.value(board));
+		assertEquals(MoveCodec.pawn(1, 4, 8), solver.bestMove(board).encode(1));
+		board.setCurrentPlayer(board.getPlayer2());
+		assertEquals(1, solver.value(board));
+		assertEquals(MoveCodec.pawn(2, 0, 0), solver.bestMove(board).encode(2));
+		// Player 1 needs three moves and player 2 two, so player 2 wins on the fourth move
+		board = board(4, 5, 0, 2, 1);
+		assertEquals(-4, solver.value(board));
+		// The same walls, so the same table
+		assertSame(solver, EndgameSolver.forBoard(board));
+	}
+
+	@Test
+	public void blockedTest() {
+		StandardBoard board = new StandardBoard(false);
+		// Walls all along the bottom of the first row but for a gap at a1, where player 1 is, with player 2
+		// just below it. Player 1 has to step aside, letting player 2 through the gap to win
+		for (int x = 1; x < 8; x += 2) {
+			board.placeWalls(x, 0, WallPlacement.HORIZONTAL);
+		}
+		board.getPlayer1().setWallCount(0);
+		board.getPlayer2().setWallCount(0);
+		board.getPlayer1().setPosition(board.getPosition(0, 0));
+		board.getPlayer2().setPosition(board.getPosition(0, 1));
+		board.setCurrentPlayer(board.getPlayer1());
+		EndgameSolver solver = EndgameSolver.forBoard(board);
+		assertEquals(-2, solver.value(board));
+		assertEquals(MoveCodec.pawn(1, 1, 0), solver.bestMove(board).encode(1));
+	}
+
+	@Test
+	public void jumpTest() {
+		// Player 2 is in player 1's way, so player 1 wins at once by jumping it
+		StandardBoard board = board(4, 6, 4, 7, 1);
+		EndgameSolver solver = EndgameSolver.forBoard(board);
+		assertEquals(1, solver.value(board));
+		assertEquals(MoveCodec.pawn(1, 4, 8), solver.bestMove(board).encode(1));
+	}
+
+	@Test
+	public void sizeTest() {
+		StandardBoard board = new StandardBoard(false, 5, 0);
+		board.getPlayer1().setPosition(board.getPosition(2, 2));
+		// Player 1 needs two moves and player 2 four, so player 1 wins on the third move
+		EndgameSolver solver = EndgameSolver.forBoard(board);
+		assertEquals(3, solver.value(board));
+		assertEquals(MoveCodec.pawn(1, 2, 3), solver.bestMove(board).encode(1));
+		assertNotSame(solver, EndgameSolver.forBoard(board(2, 2, 2, 4, 1)));
+		assertFalse(EndgameSolver.canSolve(new StandardBoard(false, EndgameSolver.MAX_SIZE + 2, 0)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void wallsLeftTest() {
+		EndgameSolver.forBoard(new StandardBoard(false));
+	}
+
+	@Test
+	public void aiTest() {
+		StandardBoard board = board(4, 7, 0, 1, 2);
+		AI ai = new AI(board, board.getPlayer2(), EvaluationNoise.NONE, EvaluationWeights.builtIn());
+		assertEquals(MoveCodec.pawn(2, 0, 0), ai.MoveNoWalls().encode(2));
+	}
+}
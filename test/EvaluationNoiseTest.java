@@ -0,0 +1,58 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class EvaluationNoiseTest {
+
+	@Test
+	public void noiseTest() {
+		assertEquals(0, EvaluationNoise.NONE.get(12345));
+		EvaluationNoise zobrist = EvaluationNoise.zobrist(7);
+		assertTrue(zobrist.usesPositionHash());
+		assertEquals(zobrist.get(12345), EvaluationNoise.zobrist(7).get(12345));
+		EvaluationNoise perGame = EvaluationNoise.perGame(new Random(3), 5);
+		assertFalse(perGame.usesPositionHash());
+		for (int i = 0; i < 100; i++) {
+			int noise = zobrist.get(i);
+			assertTrue(noise >= 1 && noise <= EvaluationNoise.DEFAULT_AMPLITUDE);
+			noise = perGame.get(0);
+			assertTrue(noise >= 1 && noise <= 5);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void badAmplitudeTest() {
+		EvaluationNoise.zobrist(7, 0);
+	}
+
+	@Test
+	public void hashTest() {
+		StandardBoard board = new StandardBoard(false);
+		long start = ZobristHash.hash(board);
+		MoveCodec.apply(board, MoveCodec.pawn(1, 4, 1));
+		assertEquals(start ^ ZobristHash.pawn(1, 4, 0) ^ ZobristHash.pawn(1, 4, 1) ^ ZobristHash.turn(1) ^ ZobristHash.turn(2),
+				ZobristHash.hash(board));
+		long beforeWall = ZobristHash.hash(board);
+		MoveCodec.apply(board, MoveCodec.wall(2, 3, 3, WallPlacement.VERTICAL));
+		// Placing a wall also takes one from the player's count
+		assertEquals(beforeWall ^ ZobristHash.wall(3, 3, WallPlacement.VERTICAL) ^ ZobristHash.turn(1) ^ ZobristHash.turn(2)
+				^ ZobristHash.wallCount(2, 10) ^ ZobristHash.wallCount(2, 9), ZobristHash.hash(board));
+	}
+
+	@Test
+	public void repeatableTest() {
+		StandardBoard board = new StandardBoard(false);
+		MoveCodec.apply(board, MoveCodec.pawn(1, 4, 1));
+		long hash = ZobristHash.hash(board);
+		Move none = new AI(board, board.getPlayer2(), EvaluationNoise.NONE, EvaluationWeights.builtIn()).Minimax(2);
+		Move zobrist = new AI(board, board.getPlayer2(), EvaluationNoise.zobrist(5), EvaluationWeights.builtIn()).Minimax(2);
+		// The search leaves the board, and so its hash, as it found it
+		assertEquals(hash, ZobristHash.hash(board));
+		for (int i = 0; i < 3; i++) {
+			assertEquals(none.encode(2), new AI(board, board.getPlayer2(), EvaluationNoise.NONE, EvaluationWeights.builtIn()).Minimax(2).encode(2));
+			assertEquals(zobrist.encode(2), new AI(board, board.getPlayer2(), EvaluationNoise.zobrist(5), EvaluationWeights.builtIn()).Minimax(2).encode(2));
+		}
+	}
+}
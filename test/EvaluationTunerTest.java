@@ -0,0 +1,87 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EvaluationTunerTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = Files.createTempFile("weights", ".properties").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void weightsFileTest() throws IOException {
+		EvaluationWeights builtIn = EvaluationWeights.builtIn();
+		// The AI's original evaluation: 35 * opponent's path - 45 * own path - rows to go + 40 * walls left
+		assertEquals(35 * 7 - 45 * 5 - 4 + 40 * 3, builtIn.evaluate(7, 5, 4, 3, 6));
+		EvaluationWeights weights = new EvaluationWeights(new int[] {50, -60, -2, 30, -10});
+		weights.write(file, "test");
+		assertEquals(weights, EvaluationWeights.read(file));
+		// Weights left out keep their built in values
+		FileWriter out = new FileWriter(file);
+		out.write("ownWalls=12\n");
+		out.close();
+		assertArrayEquals(new int[] {35, -45, -1, 12, 0}, EvaluationWeights.read(file).toArray());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void badWeightTest() throws IOException {
+		FileWriter out = new FileWriter(file);
+		out.write("ownPath=lots\n");
+		out.close();
+		EvaluationWeights.read(file);
+	}
+
+	@Test
+	public void positionsTest() throws InterruptedException {
+		GameRecord record = new GameRecord(GameMode.STANDARD, 2);
+		int[][] moves = {{4, 1}, {4, 7}, {4, 2}, {4, 6}, {4, 3}, {4, 5}, {3, 3}, {3, 5}, {3, 4}};
+		for (int i = 0; i < moves.length; i++) {
+			record.addMove(MoveCodec.pawn(i % 2 + 1, moves[i][0], moves[i][1]));
+		}
+		record.finish(1);
+		GameRecord abandoned = new GameRecord(GameMode.STANDARD, 2);
+		abandoned.addMove(MoveCodec.pawn(1, 4, 1));
+		abandoned.finish(0);
+		ArrayList<GameRecord> records = new ArrayList<GameRecord>();
+		records.add(record);
+		records.add(abandoned);
+		EvaluationTuner tuner = new EvaluationTuner(2, 4);
+		try {
+			// Every position after the first four moves, and none from the abandoned game
+			assertEquals(5, tuner.addGames(records));
+			assertEquals(5, tuner.getPositionCount());
+		} finally {
+			tuner.close();
+		}
+	}
+
+	@Test
+	public void tuneTest() throws InterruptedException {
+		EvaluationTuner tuner = new EvaluationTuner(2);
+		try {
+			assertTrue(tuner.addSelfPlayGames(30, 1, EvaluationWeights.builtIn(), 5) > 500);
+			EvaluationWeights start = EvaluationWeights.builtIn();
+			double scale = tuner.fitScale(start);
+			EvaluationWeights tuned = tuner.tune(start, 100);
+			assertTrue(tuner.error(tuned, scale) < tuner.error(start, scale));
+		} finally {
+			tuner.close();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GameActorTest {
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	/**
+	 * Commands sent from many threads to many actors run one at a time per actor, and each sender's
+	 * commands run in the order they were sent
+	 */
+	public void commandsRunOneAtATimeInOrderTest() throws InterruptedException {
+		final int actorCount = 50;
+		final int senders = 4;
+		final int commandsPerSender = 200;
+		final GameActor[] actors = new GameActor[actorCount];
+		final AtomicInteger[] running = new AtomicInteger[actorCount];
+		final int[][] lastSeen = new int[actorCount][senders];
+		final AtomicInteger overlaps = new AtomicInteger();
+		final AtomicInteger outOfOrder = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(actorCount * senders * commandsPerSender);
+		for (int a = 0; a < actorCount; a++) {
+			actors[a] = new GameActor(executor);
+			running[a] = new AtomicInteger();
+			for (int s = 0; s < senders; s++) {
+				lastSeen[a][s] = -1;
+			}
+		}
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+		for (int s = 0; s < senders; s++) {
+			final int sender = s;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < commandsPerSender; i++) {
+						for (int a = 0; a < actorCount; a++) {
+							final int actor = a;
+							final int number = i;
+							actors[a].tell(new Runnable() {
+								@Override
+								public void run() {
+									if (running[actor].incrementAndGet() != 1) {
+										overlaps.incrementAndGet();
+									}
+									// only this actor's commands touch its row, so no lock is needed
+									if (lastSeen[actor][sender] != number - 1) {
+										outOfOrder.incrementAndGet();
+									}
+									lastSeen[actor][sender] = number;
+									running[actor].decrementAndGet();
+									done.countDown();
+								}
+							});
+						}
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		assertEquals(true, done.await(10, TimeUnit.SECONDS));
+		assertEquals(0, overlaps.get());
+		assertEquals(0, outOfOrder.get());
+	}
+
+	@Test
+	/**
+	 * A command that throws doesn't stop the commands after it
+	 */
+	public void failingCommandTest() throws InterruptedException {
+		GameActor actor = new GameActor(executor);
+		final CountDownLatch ran = new CountDownLatch(1);
+		actor.tell(new Runnable() {
+			@Override
+			public void run() {
+				throw new IllegalStateException("Bad command");
+			}
+		});
+		actor.tell(new Runnable() {
+			@Override
+			public void run() {
+				ran.countDown();
+			}
+		});
+		assertEquals(true, ran.await(2, TimeUnit.SECONDS));
+	}
+}
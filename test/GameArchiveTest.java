@@ -0,0 +1,146 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GameArchiveTest {
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("archive").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	/**
+	 * @return the sample game with an ID, which is also in player 2's name
+	 */
+	private GameRecord sampleGame(long gameID) {
+		GameRecord record = SampleGames.sampleGame(1 + (int) (gameID % 2), "Brendan " + gameID);
+		record.setGameID(gameID);
+		return record;
+	}
+
+	@Test
+	public void getTest() throws IOException {
+		GameArchive archive = new GameArchive(directory, 4096);
+		for (long id = 1; id <= 1000; id++) {
+			archive.append(sampleGame(2 * id));
+		}
+		assertTrue(archive.getSegmentCount() > 1);
+		assertEquals(2000, archive.getLastGameID());
+		for (long id = 1; id <= 1000; id++) {
+			ArchivedGame game = archive.get(2 * id);
+			assertEquals(2 * id, game.getGameID());
+			assertEquals("Brendan " + (2 * id), game.getPlayerName(2));
+			assertEquals(1, game.getWinnerID());
+			assertEquals(3, game.getMoveCount());
+			assertEquals(MoveCodec.wall(2, 3, 3, WallPlacement.VERTICAL), game.getMove(1));
+		}
+		assertNull(archive.get(0));
+		assertNull(archive.get(999));
+		assertNull(archive.get(2001));
+		archive.close();
+	}
+
+	@Test
+	public void seekTest() throws IOException {
+		GameArchive archive = new GameArchive(directory, 4096);
+		for (long id = 1; id <= 500; id++) {
+			archive.append(sampleGame(id));
+		}
+		GameArchive.Cursor cursor = archive.seek(321);
+		for (long id = 321; id <= 500; id++) {
+			assertEquals(id, cursor.next().getGameID());
+		}
+		assertNull(cursor.next());
+		// Games appended after the cursor reached the end are still read
+		archive.append(sampleGame(501));
+		assertEquals(501, cursor.next().getGameID());
+		archive.close();
+	}
+
+	@Test
+	/**
+	 * Reopening an archive finds its games again, and cuts off a game left half written
+	 */
+	public void reopenTest() throws IOException {
+		GameArchive archive = new GameArchive(directory, 4096);
+		for (long id = 1; id <= 300; id++) {
+			archive.append(sampleGame(id));
+		}
+		archive.close();
+
+		File[] segments = directory.listFiles();
+		File last = null;
+		for (File file : segments) {
+			if (file.getName().endsWith(".qga") && (last == null || file.getName().compareTo(last.getName()) > 0)) {
+				last = file;
+			}
+		}
+		RandomAccessFile file = new RandomAccessFile(last, "rw");
+		file.setLength(file.length() - 5);
+		file.close();
+
+		archive = new GameArchive(directory, 4096);
+		assertEquals(299, archive.getLastGameID());
+		assertEquals(150, archive.get(150).getGameID());
+		assertNull(archive.get(300));
+		archive.append(sampleGame(300));
+		assertEquals("Brendan 300", archive.get(300).getPlayerName(2));
+		archive.close();
+	}
+
+	@Test
+	public void importTest() throws IOException, InterruptedException {
+		File storeFile = Files.createTempFile("games", ".qgr").toFile();
+		GameRecordStore store = new GameRecordStore(storeFile);
+		for (int i = 0; i < 10; i++) {
+			store.append(sampleGame(0));
+		}
+		store.flush();
+		GameArchive archive = new GameArchive(directory);
+		GameRecordScanner scanner = store.scan();
+		assertEquals(10, archive.importFrom(scanner));
+		scanner.close();
+		assertEquals(10, archive.getLastGameID());
+		assertEquals(3, archive.get(7).toGameRecord().getMoveCount());
+		archive.close();
+		store.close();
+		storeFile.delete();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	/**
+	 * Segments are read with int offsets, so they can't be allowed to grow past 2GB
+	 */
+	public void segmentTooLargeTest() throws IOException {
+		new GameArchive(directory, Integer.MAX_VALUE + 1L);
+	}
+
+	@Test
+	public void replayTest() throws IOException {
+		GameArchive archive = new GameArchive(directory);
+		archive.append(sampleGame(1));
+		ArchivedGame game = archive.get(1);
+		Board board = game.newBoard();
+		game.replay(board, game.getMoveCount());
+		assertEquals(board.getPosition(4, 2), board.getPlayer1().getPosition());
+		assertEquals(9, board.getPlayer2().getWallCount());
+		archive.close();
+	}
+}
@@ -0,0 +1,78 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class GameEventLogTest {
+
+	private GameEventLog eventLog;
+
+	@Before
+	public void setUp() {
+		eventLog = new GameEventLog(8, 4);
+	}
+
+	@Test
+	public void appendAssignsSequenceNumbersTest() {
+		assertEquals(0, eventLog.getLastSequence());
+		assertEquals(1, eventLog.append("pawn 4 1 1"));
+		assertEquals(2, eventLog.append("currentPlayer 2"));
+		assertEquals(2, eventLog.getLastSequence());
+	}
+
+	@Test
+	public void replayMissedEventsTest() {
+		eventLog.append("pawn 4 1 1");
+		eventLog.append("stats 1 10 1");
+		eventLog.append("currentPlayer 2");
+
+		assertEquals(true, eventLog.canReplayFrom(1));
+		ArrayList<String> missed = eventLog.eventsAfter(1);
+		assertEquals(2, missed.size());
+		assertEquals("stats 1 10 1", missed.get(0));
+		assertEquals("currentPlayer 2", missed.get(1));
+		assertEquals(0, eventLog.eventsAfter(3).size());
+	}
+
+	@Test
+	/**
+	 * Test that gaps larger than the replay limit are refused, so the client gets a snapshot instead
+	 */
+	public void largeGapNeedsSnapshotTest() {
+		for (int i = 0; i < 10; i++) {
+			eventLog.append("currentPlayer " + (i % 2 + 1));
+		}
+		assertEquals(false, eventLog.canReplayFrom(2));
+		assertEquals(true, eventLog.canReplayFrom(6));
+		assertEquals(false, eventLog.canReplayFrom(11));
+	}
+
+	@Test
+	public void snapshotFoldsEventsTest() {
+		eventLog.append("wall c6v 1");
+		eventLog.append("wall e5h 2");
+		eventLog.append("remove-wall-display c6v");
+		eventLog.append("pawn 4 1 1");
+		eventLog.append("pawn 4 2 1");
+		eventLog.append("stats 2 9 1");
+		eventLog.append("currentPlayer 2");
+
+		ArrayList<String> snapshot = eventLog.snapshot();
+		assertEquals("reset", snapshot.get(0));
+		assertEquals(true, snapshot.contains("wall e5h 2"));
+		assertEquals(false, snapshot.contains("wall c6v 1"));
+		assertEquals(true, snapshot.contains("pawn 4 2 1"));
+		assertEquals(false, snapshot.contains("pawn 4 1 1"));
+		assertEquals(true, snapshot.contains("stats 2 9 1"));
+		assertEquals("currentPlayer 2", snapshot.get(snapshot.size() - 1));
+	}
+
+	@Test
+	public void resetClearsSnapshotWallsTest() {
+		eventLog.append("wall e5h 2");
+		eventLog.append("reset");
+		assertEquals(false, eventLog.snapshot().contains("wall e5h 2"));
+	}
+}
@@ -0,0 +1,159 @@
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GameLobbyTest {
+
+	private GameLobby lobby;
+
+	@Before
+	public void setUp() throws IOException {
+		lobby = new GameLobby();
+		lobby.start("localhost", 0);
+	}
+
+	@After
+	public void tearDown() {
+		lobby.stop();
+	}
+
+	@Test
+	/**
+	 * Resume commands with missing or unreadable arguments are answered with an error, and the
+	 * connection stays open for the client to try again
+	 */
+	public void malformedResumeTest() throws IOException {
+		Client client = new Client();
+		client.send("resume");
+		assertTrue(client.receive().startsWith("error "));
+		client.send("resume abc def");
+		assertEquals("error Not a sequence number: def", client.receive());
+		client.send("resume abc 0");
+		assertEquals("error Unknown session", client.receive());
+		client.close();
+	}
+
+	@Test
+	/**
+	 * A client that queues twice is only queued once, so it can't be matched against itself
+	 */
+	public void queueTwiceTest() throws IOException {
+		Client first = new Client();
+		first.send("queue STANDARD 2");
+		assertEquals("queued STANDARD 2", first.receive());
+		first.send("queue STANDARD 2");
+		assertEquals("error You are already queued", first.receive());
+		first.send("queue CHALLENGE 4");
+		assertEquals("error You are already queued", first.receive());
+		assertEquals(1, lobby.getWaitingPlayerCount(GameMode.STANDARD, 2));
+		assertEquals(0, lobby.getWaitingPlayerCount(GameMode.CHALLENGE, 4));
+
+		Client second = new Client();
+		second.send("queue STANDARD 2");
+		assertEquals("queued STANDARD 2", second.receive());
+		assertEquals("bootGUI", first.receive());
+		assertEquals("setID 1", first.receive());
+		assertEquals("bootGUI", second.receive());
+		assertEquals("setID 2", second.receive());
+		assertEquals(0, lobby.getWaitingPlayerCount(GameMode.STANDARD, 2));
+		first.close();
+		second.close();
+	}
+
+	@Test
+	/**
+	 * Queue commands with missing arguments are answered with an error, and don't stop the client queueing
+	 */
+	public void malformedQueueTest() throws IOException {
+		Client client = new Client();
+		client.send("queue");
+		assertTrue(client.receive().startsWith("error "));
+		client.send("queue STANDARD");
+		assertTrue(client.receive().startsWith("error "));
+		client.send("queue STANDARD 3");
+		assertEquals("error Games are for 2 or 4 players", client.receive());
+		client.send("queue STANDARD 2");
+		assertEquals("queued STANDARD 2", client.receive());
+		client.close();
+	}
+
+	@Test
+	/**
+	 * Moves are made for the player whose connection sent them, so a client can't move for another player
+	 */
+	public void moveForAnotherPlayerTest() throws IOException {
+		Client first = new Client();
+		Client second = new Client();
+		// queue one after the other, so the first client is player 1
+		first.send("queue STANDARD 2");
+		assertEquals("queued STANDARD 2", first.receive());
+		second.send("queue STANDARD 2");
+		assertEquals("setID 1", first.receive("setID "));
+		assertEquals("setID 2", second.receive("setID "));
+		second.send("move 4 1 1");
+		assertEquals("error You are player 2", second.receive("error "));
+		first.send("wall 3 3 HORIZONTAL 2");
+		assertEquals("error You are player 1", first.receive("error "));
+		// commands from one connection run in order, so the coordinates come after the move
+		first.send("move 4 1 1");
+		first.send("start-coordinates");
+		assertEquals("coordinate 4 1 4 8", first.receive("coordinate "));
+		first.close();
+		second.close();
+	}
+
+	/**
+	 * A player's end of a connection to the lobby
+	 */
+	private class Client {
+
+		private Socket socket;
+		private PrintWriter out;
+		private BufferedReader in;
+
+		Client() throws IOException {
+			socket = new Socket("localhost", lobby.getPort());
+			socket.setSoTimeout(5000);
+			out = new PrintWriter(socket.getOutputStream(), true);
+			in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+		}
+
+		void send(String line) {
+			out.println(line);
+		}
+
+		/**
+		 * @return the next message from the lobby, skipping heartbeats
+		 */
+		String receive() throws IOException {
+			String line = in.readLine();
+			while (line != null && line.equals("ping")) {
+				line = in.readLine();
+			}
+			return line;
+		}
+
+		/**
+		 * @return the next message from the lobby that starts with a prefix, skipping any others
+		 */
+		String receive(String prefix) throws IOException {
+			String line = receive();
+			while (line != null && !line.startsWith(prefix)) {
+				line = receive();
+			}
+			return line;
+		}
+
+		void close() throws IOException {
+			socket.close();
+		}
+	}
+}
@@ -0,0 +1,233 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GameRecordStoreTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = Files.createTempFile("games", ".qgr").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void appendAndScanTest() throws IOException, InterruptedException {
+		GameRecordStore store = new GameRecordStore(file);
+		for (int i = 0; i < 100; i++) {
+			store.append(SampleGames.sampleGame(1 + i % 2));
+		}
+		store.flush();
+		GameRecordScanner scanner = store.scan();
+		for (int i = 0; i < 100; i++) {
+			GameRecord record = scanner.next();
+			assertEquals(i + 1, record.getGameID());
+			assertEquals(1 + i % 2, record.getWinnerID());
+			assertEquals("Brendan", record.getPlayerName(2));
+			assertEquals(3, record.getMoveCount());
+			assertEquals(MoveCodec.wall(2, 3, 3, WallPlacement.VERTICAL), record.getMove(1));
+		}
+		assertNull(scanner.next());
+		scanner.close();
+		store.close();
+	}
+
+	@Test
+	/**
+	 * A record left half written is cut off when the store is reopened, and game IDs carry on from the last complete record
+	 */
+	public void recoveryTest() throws IOException, InterruptedException {
+		GameRecordStore store = new GameRecordStore(file);
+		store.append(SampleGames.sampleGame(1));
+		store.append(SampleGames.sampleGame(2));
+		store.close();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(raf.length() - 3);
+		raf.close();
+
+		store = new GameRecordStore(file);
+		store.append(SampleGames.sampleGame(2));
+		store.flush();
+		GameRecordScanner scanner = store.scan();
+		assertEquals(1, scanner.next().getGameID());
+		GameRecord record = scanner.next();
+		assertEquals(2, record.getGameID());
+		assertEquals(2, record.getWinnerID());
+		assertNull(scanner.next());
+		scanner.close();
+		store.close();
+	}
+
+	@Test
+	/**
+	 * A batch that fails partway through writing is cut off the file, and the store refuses records from then on
+	 */
+	public void writeFailureTest() throws IOException, InterruptedException {
+		FailingChannel channel = new FailingChannel(FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE));
+		GameRecordStore store = new GameRecordStore(file, channel);
+		store.append(SampleGames.sampleGame(1));
+		store.flush();
+		long storedLength = file.length();
+
+		channel.failAfter(10);
+		store.append(SampleGames.sampleGame(2));
+		try {
+			store.flush();
+			fail("The failed write wasn't reported");
+		} catch (IOException e) {
+			assertEquals(storedLength, file.length());
+		}
+		try {
+			store.append(SampleGames.sampleGame(1));
+			fail("The failed store took another record");
+		} catch (IOException e) {
+			// expected
+		}
+		store.close();
+
+		store = new GameRecordStore(file);
+		store.append(SampleGames.sampleGame(2));
+		store.flush();
+		GameRecordScanner scanner = store.scan();
+		assertEquals(1, scanner.next().getWinnerID());
+		GameRecord record = scanner.next();
+		assertEquals(2, record.getGameID());
+		assertEquals(2, record.getWinnerID());
+		assertNull(scanner.next());
+		scanner.close();
+		store.close();
+	}
+
+	/**
+	 * A file channel which can be made to fail partway through a write, standing in for a disk that fills up
+	 */
+	private static class FailingChannel extends FileChannel {
+
+		private FileChannel channel;
+		// The bytes left to write before failing, or -1 to never fail
+		private long writable = -1;
+
+		FailingChannel(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		void failAfter(long bytes) {
+			writable = bytes;
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			if (writable < 0 || src.remaining() <= writable) {
+				int written = channel.write(src);
+				writable = (writable < 0) ? -1 : writable - written;
+				return written;
+			}
+			ByteBuffer part = src.duplicate();
+			part.limit(part.position() + (int) writable);
+			src.position(src.position() + channel.write(part));
+			writable = 0;
+			throw new IOException("No space left on device");
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			return channel.read(dst);
+		}
+
+		@Override
+		public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+			return channel.read(dsts, offset, length);
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+			throw new IOException("Gathering writes aren't used by the store");
+		}
+
+		@Override
+		public long position() throws IOException {
+			return channel.position();
+		}
+
+		@Override
+		public FileChannel position(long newPosition) throws IOException {
+			channel.position(newPosition);
+			return this;
+		}
+
+		@Override
+		public long size() throws IOException {
+			return channel.size();
+		}
+
+		@Override
+		public FileChannel truncate(long size) throws IOException {
+			channel.truncate(size);
+			return this;
+		}
+
+		@Override
+		public void force(boolean metaData) throws IOException {
+			channel.force(metaData);
+		}
+
+		@Override
+		public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+			return channel.transferTo(position, count, target);
+		}
+
+		@Override
+		public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+			throw new IOException("Transfers aren't used by the store");
+		}
+
+		@Override
+		public int read(ByteBuffer dst, long position) throws IOException {
+			return channel.read(dst, position);
+		}
+
+		@Override
+		public int write(ByteBuffer src, long position) throws IOException {
+			throw new IOException("Positioned writes aren't used by the store");
+		}
+
+		@Override
+		public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+			return channel.map(mode, position, size);
+		}
+
+		@Override
+		public FileLock lock(long position, long size, boolean shared) throws IOException {
+			return channel.lock(position, size, shared);
+		}
+
+		@Override
+		public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+			return channel.tryLock(position, size, shared);
+		}
+
+		@Override
+		protected void implCloseChannel() throws IOException {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,154 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class GameReplayTest {
+
+	/**
+	 * Describe everything about a board that a replay should reproduce
+	 */
+	private String describe(Board board) {
+		StringBuilder description = new StringBuilder();
+		for (int id = 1; board.getPlayer(id) != null && id <= 4; id++) {
+			Player player = board.getPlayer(id);
+			description.append(player.getPosition().getX()).append(',').append(player.getPosition().getY())
+					.append(' ').append(player.getWallCount()).append(' ').append(player.getMoveCount()).append(';');
+		}
+		description.append(board.getCurrentPlayer().getID()).append(';');
+		for (int y = 0; y < 9; y++) {
+			for (int x = 0; x < 9; x++) {
+				Position position = board.getPosition(x, y);
+				description.append(position.hasTopWall() ? 'T' : '-').append(position.hasRightWall() ? 'R' : '-')
+						.append(position.hasBottomWall() ? 'B' : '-').append(position.hasLeftWall() ? 'L' : '-');
+			}
+		}
+		return description.toString();
+	}
+
+	/**
+	 * Play a game of random legal moves, remembering the board after each one
+	 */
+	private int[] playRandomGame(Board board, int length, long seed, ArrayList<String> states) {
+		Random random = new Random(seed);
+		int[] moves = new int[length];
+		ArrayList<Integer> walls = new ArrayList<Integer>();
+		states.add(describe(board));
+		for (int i = 0; i < length; i++) {
+			Player player = board.getCurrentPlayer();
+			int move = -1;
+			if (board instanceof ChallengeBoard && !walls.isEmpty() && random.nextInt(5) == 0) {
+				int wall = walls.get(random.nextInt(walls.size()));
+				if (MoveCodec.playerID(wall) != player.getID()) {
+					walls.remove(Integer.valueOf(wall));
+					move = MoveCodec.wallRemoval(player.getID(), MoveCodec.x(wall), MoveCodec.y(wall), MoveCodec.orientation(wall));
+				}
+			}
+			if (move < 0 && random.nextInt(4) == 0) {
+				int x = random.nextInt(8);
+				int y = random.nextInt(8);
+				WallPlacement orientation = random.nextBoolean() ? WallPlacement.HORIZONTAL : WallPlacement.VERTICAL;
+				if (board.wallPlacementIsLegal(x, y, orientation)) {
+					move = MoveCodec.wall(player.getID(), x, y, orientation);
+					walls.add(move);
+				}
+			}
+			if (move < 0) {
+				ArrayList<Position> options = board.getCurrentPlayerOccupiablePositions();
+				Position next = options.get(random.nextInt(options.size()));
+				move = MoveCodec.pawn(player.getID(), next.getX(), next.getY());
+			}
+			MoveCodec.apply(board, move);
+			moves[i] = move;
+			states.add(describe(board));
+		}
+		return moves;
+	}
+
+	@Test
+	public void seekTest() {
+		ArrayList<String> states = new ArrayList<String>();
+		int[] moves = playRandomGame(new StandardBoard(false), 100, 42, states);
+		GameReplay replay = new GameReplay(GameMode.STANDARD, 2, moves);
+		assertEquals(0, replay.getPosition());
+		assertEquals(states.get(0), describe(replay.getBoard()));
+		// Forwards, backwards and jumping about all land on the same boards as the game
+		for (int k : new int[] {37, 100, 5, 16, 15, 17, 64, 0, 99}) {
+			replay.seek(k);
+			assertEquals(k, replay.getPosition());
+			assertEquals(states.get(k), describe(replay.getBoard()));
+		}
+		while (replay.stepBack()) {
+			assertEquals(states.get(replay.getPosition()), describe(replay.getBoard()));
+		}
+		while (replay.stepForward()) {
+			assertEquals(states.get(replay.getPosition()), describe(replay.getBoard()));
+		}
+		assertEquals(100, replay.getPosition());
+	}
+
+	@Test
+	public void challengeFourPlayerTest() {
+		ArrayList<String> states = new ArrayList<String>();
+		int[] moves = playRandomGame(new ChallengeBoard(true), 60, 7, states);
+		int removals = 0;
+		for (int move : moves) {
+			if (MoveCodec.kind(move) == MoveCodec.Kind.REMOVE_HORIZONTAL || MoveCodec.kind(move) == MoveCodec.Kind.REMOVE_VERTICAL) {
+				removals++;
+			}
+		}
+		assertTrue(removals > 0);
+		GameReplay replay = new GameReplay(GameMode.CHALLENGE, 4, moves);
+		for (int k = 60; k >= 0; k -= 3) {
+			replay.seek(k);
+			assertEquals(states.get(k), describe(replay.getBoard()));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void illegalMoveTest() {
+		new GameReplay(GameMode.STANDARD, 2, new int[] {MoveCodec.pawn(1, 4, 5)});
+	}
+
+	@Test
+	public void guiTest() {
+		final int[] pawn = new int[2];
+		final ArrayList<String> walls = new ArrayList<String>();
+		GUI gui = new GUIMock() {
+			@Override
+			public void updatePlayerPawnPosition(int x, int y, int id) {
+				if (id == 1) {
+					pawn[0] = x;
+					pawn[1] = y;
+				}
+			}
+
+			@Override
+			public void resetWalls() {
+				walls.clear();
+			}
+
+			@Override
+			public void displayWall(int topLeftX, int topLeftY, WallPlacement orientation, int playerID) {
+				walls.add(topLeftX + "," + topLeftY + " " + orientation + " " + playerID);
+			}
+		};
+		int[] moves = {
+			MoveCodec.pawn(1, 4, 1),
+			MoveCodec.wall(2, 3, 3, WallPlacement.VERTICAL),
+			MoveCodec.pawn(1, 4, 2)
+		};
+		GameReplay replay = new GameReplay(GameMode.STANDARD, 2, moves);
+		replay.setGUI(gui);
+		assertArrayEquals(new int[] {4, 0}, pawn);
+		replay.seekToEnd();
+		assertArrayEquals(new int[] {4, 2}, pawn);
+		assertEquals(1, walls.size());
+		assertEquals("3,3 VERTICAL 2", walls.get(0));
+		replay.seek(1);
+		assertArrayEquals(new int[] {4, 1}, pawn);
+		assertTrue(walls.isEmpty());
+	}
+}
@@ -0,0 +1,144 @@
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GameRoomTest {
+
+	private ServerSocket serverSocket;
+	private ArrayList<Socket> sockets;
+
+	@Before
+	public void setUp() throws IOException {
+		serverSocket = new ServerSocket(0);
+		sockets = new ArrayList<Socket>();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		for (Socket socket : sockets) {
+			socket.close();
+		}
+		serverSocket.close();
+	}
+
+	@Test
+	/**
+	 * A room reused after its game was abandoned doesn't answer 'available' with the old game's moves
+	 */
+	public void reuseAfterAbandonTest() throws IOException {
+		final GameRoom room = new GameRoom(new GameLobby(), GameMode.STANDARD, false);
+		final NetworkedGameController controller = room.getController();
+		BufferedReader[] clients = new BufferedReader[2];
+		final ClientSocketIOThread[] players = connectPlayers(clients);
+
+		room.start(players);
+		requestAvailableMoves(controller, players[0]);
+		String startingMoves = readAvailableMoves(clients[0]);
+		controller.tell(new Runnable() {
+			@Override
+			public void run() {
+				controller.movePawn(4, 1, 1);
+			}
+		});
+		requestAvailableMoves(controller, players[1]);
+		assertNotEquals(startingMoves, readAvailableMoves(clients[1]));
+
+		controller.tell(new Runnable() {
+			@Override
+			public void run() {
+				room.abandon(players[1]);
+			}
+		});
+		room.start(players);
+		requestAvailableMoves(controller, players[0]);
+		assertEquals(startingMoves, readAvailableMoves(clients[0]));
+	}
+
+	@Test
+	/**
+	 * In a timed game every player is told each player's time budget as the game starts, and how long
+	 * they have left once they've moved
+	 */
+	public void turnClockTest() throws IOException {
+		GameLobby lobby = new GameLobby();
+		lobby.setTurnClockMillis(60000);
+		GameRoom room = new GameRoom(lobby, GameMode.STANDARD, false);
+		final NetworkedGameController controller = room.getController();
+		BufferedReader[] clients = new BufferedReader[2];
+		room.start(connectPlayers(clients));
+		for (BufferedReader client : clients) {
+			assertTrue(readMessage(client, "clock ").endsWith("clock 1 60000"));
+			assertTrue(readMessage(client, "clock ").endsWith("clock 2 60000"));
+			assertTrue(readMessage(client, "currentPlayer ").endsWith("currentPlayer 1"));
+		}
+		controller.tell(new Runnable() {
+			@Override
+			public void run() {
+				controller.movePawn(4, 1, 1);
+			}
+		});
+		String clock = readMessage(clients[1], "clock ");
+		long remainingMillis = Long.parseLong(clock.substring(clock.lastIndexOf(' ') + 1));
+		assertTrue(clock.contains("clock 1 "));
+		assertTrue(remainingMillis > 0 && remainingMillis <= 60000);
+	}
+
+	/**
+	 * Connect a client to the test's server socket for each player
+	 * @param clients filled with the clients' ends of the connections
+	 * @return the server's I/O threads for the connections, which aren't started
+	 */
+	private ClientSocketIOThread[] connectPlayers(BufferedReader[] clients) throws IOException {
+		ClientSocketIOThread[] players = new ClientSocketIOThread[clients.length];
+		for (int i = 0; i < clients.length; i++) {
+			Socket client = new Socket("localhost", serverSocket.getLocalPort());
+			client.setSoTimeout(5000);
+			sockets.add(client);
+			clients[i] = new BufferedReader(new InputStreamReader(client.getInputStream()));
+			Socket server = serverSocket.accept();
+			sockets.add(server);
+			players[i] = new ClientSocketIOThread(server, (GameLobby) null);
+		}
+		return players;
+	}
+
+	/**
+	 * @return the next message sent to a client, or event from the game's log, that is of a kind
+	 */
+	private String readMessage(BufferedReader client, String kind) throws IOException {
+		String line = client.readLine();
+		while (line != null && !line.startsWith(kind) && !(line.startsWith("event ") && line.contains(" " + kind))) {
+			line = client.readLine();
+		}
+		return line;
+	}
+
+	private void requestAvailableMoves(final NetworkedGameController controller, final ClientSocketIOThread player) {
+		controller.tell(new Runnable() {
+			@Override
+			public void run() {
+				controller.sendAvailableMoves(player);
+			}
+		});
+	}
+
+	/**
+	 * @return the next 'available' message sent to a client, skipping the game's other messages
+	 */
+	private String readAvailableMoves(BufferedReader client) throws IOException {
+		String line = client.readLine();
+		while (line != null && !line.startsWith("available ")) {
+			line = client.readLine();
+		}
+		return line;
+	}
+}
@@ -0,0 +1,69 @@
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HashedWheelTimerTest {
+
+	private HashedWheelTimer timer;
+
+	@Before
+	public void setUp() {
+		timer = new HashedWheelTimer(10, 8);
+	}
+
+	@After
+	public void tearDown() {
+		timer.stop();
+	}
+
+	@Test
+	public void scheduledTaskRunsTest() throws InterruptedException {
+		final CountDownLatch ran = new CountDownLatch(1);
+		long scheduledAt = System.currentTimeMillis();
+		timer.schedule(new Runnable() {
+			@Override
+			public void run() {
+				ran.countDown();
+			}
+		}, 50);
+		assertEquals(true, ran.await(2, TimeUnit.SECONDS));
+		assertEquals(true, System.currentTimeMillis() - scheduledAt >= 40);
+	}
+
+	@Test
+	/**
+	 * Test that a task due after more than one turn of the wheel waits for its turn
+	 */
+	public void taskWaitsForLaterRoundTest() throws InterruptedException {
+		final CountDownLatch ran = new CountDownLatch(1);
+		long scheduledAt = System.currentTimeMillis();
+		timer.schedule(new Runnable() {
+			@Override
+			public void run() {
+				ran.countDown();
+			}
+		}, 250);
+		assertEquals(true, ran.await(2, TimeUnit.SECONDS));
+		assertEquals(true, System.currentTimeMillis() - scheduledAt >= 240);
+	}
+
+	@Test
+	public void cancelledTaskDoesNotRunTest() throws InterruptedException {
+		final AtomicBoolean ran = new AtomicBoolean(false);
+		HashedWheelTimer.Timeout timeout = timer.schedule(new Runnable() {
+			@Override
+			public void run() {
+				ran.set(true);
+			}
+		}, 50);
+		timeout.cancel();
+		Thread.sleep(200);
+		assertEquals(false, ran.get());
+	}
+}
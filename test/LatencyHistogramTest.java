@@ -0,0 +1,50 @@
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	private LatencyHistogram histogram;
+
+	@Before
+	public void setUp() {
+		histogram = new LatencyHistogram();
+	}
+
+	@Test
+	/**
+	 * Every value falls within the bounds of its bucket, and buckets are contiguous
+	 */
+	public void bucketBoundsTest() {
+		long[] values = {0, 1, 127, 128, 129, 255, 256, 1000, 123456, 1L << 39};
+		for (long value : values) {
+			int index = LatencyHistogram.bucketIndex(value);
+			assertEquals(true, LatencyHistogram.bucketLowerBound(index) <= value);
+			assertEquals(true, LatencyHistogram.bucketUpperBound(index) >= value);
+			assertEquals(LatencyHistogram.bucketUpperBound(index) + 1, LatencyHistogram.bucketLowerBound(index + 1));
+		}
+	}
+
+	@Test
+	public void percentileTest() {
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+		assertEquals(1000, histogram.getCount());
+		assertEquals(1000, histogram.getMax());
+		assertEquals(500.5, histogram.getMean(), 0.001);
+		// buckets are within about 1.5% of the value
+		assertEquals(500, histogram.getValueAtPercentile(50), 8);
+		assertEquals(990, histogram.getValueAtPercentile(99), 16);
+		assertEquals(1000, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void resetTest() {
+		histogram.record(42);
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getValueAtPercentile(50));
+	}
+}
@@ -0,0 +1,41 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class MetricsTest {
+
+	@Test
+	public void counterTest() {
+		Metrics.Counter counter = Metrics.counter("test_counter_total", "A test counter");
+		long before = counter.get();
+		counter.increment();
+		counter.add(2);
+		assertEquals(before + 3, counter.get());
+		// asking again gives the same counter
+		assertSame(counter, Metrics.counter("test_counter_total", "A test counter"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nameClashTest() {
+		Metrics.counter("test_clash", "A counter");
+		Metrics.gauge("test_clash", "A gauge with the same name");
+	}
+
+	@Test
+	public void prometheusTextTest() {
+		Metrics.Gauge gauge = Metrics.gauge("test_gauge", "A test gauge");
+		gauge.increment();
+		gauge.increment();
+		gauge.decrement();
+		Metrics.Histogram histogram = Metrics.histogram("test_latency_microseconds", "A test histogram");
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i);
+		}
+		String text = Metrics.toPrometheusText();
+		assertTrue(text.contains("# HELP test_gauge A test gauge\n# TYPE test_gauge gauge\ntest_gauge 1\n"));
+		assertTrue(text.contains("# TYPE test_latency_microseconds summary\n"));
+		assertTrue(text.contains("test_latency_microseconds{quantile=\"0.5\"} 50\n"));
+		assertTrue(text.contains("test_latency_microseconds_sum 5050\n"));
+		assertTrue(text.contains("test_latency_microseconds_count 100\n"));
+	}
+}
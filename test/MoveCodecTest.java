@@ -0,0 +1,42 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class MoveCodecTest {
+
+	@Test
+	public void roundTripTest() {
+		int pawn = MoveCodec.pawn(3, 4, 7);
+		assertEquals(MoveCodec.Kind.PAWN, MoveCodec.kind(pawn));
+		assertEquals(3, MoveCodec.playerID(pawn));
+		assertEquals(4, MoveCodec.x(pawn));
+		assertEquals(7, MoveCodec.y(pawn));
+		assertEquals(WallPlacement.NULL, MoveCodec.orientation(pawn));
+
+		int wall = MoveCodec.wall(2, 7, 0, WallPlacement.HORIZONTAL);
+		assertEquals(MoveCodec.Kind.WALL_HORIZONTAL, MoveCodec.kind(wall));
+		assertEquals(WallPlacement.HORIZONTAL, MoveCodec.orientation(wall));
+		assertEquals(7, MoveCodec.x(wall));
+		assertEquals(0, MoveCodec.y(wall));
+
+		int removal = MoveCodec.wallRemoval(4, 1, 2, WallPlacement.VERTICAL);
+		assertEquals(MoveCodec.Kind.REMOVE_VERTICAL, MoveCodec.kind(removal));
+		assertEquals(4, MoveCodec.playerID(removal));
+
+		assertEquals(MoveCodec.Kind.PASS, MoveCodec.kind(MoveCodec.pass(1)));
+	}
+
+	@Test
+	/**
+	 * Every code fits in 16 bits, so it can be stored as a short
+	 */
+	public void codesFitInSixteenBitsTest() {
+		int largest = MoveCodec.encode(MoveCodec.Kind.PASS, 8, 31, 31);
+		assertEquals(largest, largest & 0xffff);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void outOfRangeTest() {
+		MoveCodec.pawn(1, 32, 0);
+	}
+}
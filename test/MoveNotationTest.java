@@ -0,0 +1,93 @@
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class MoveNotationTest {
+
+	@Test
+	public void textTest() {
+		assertEquals("e2", MoveNotation.toText(MoveCodec.pawn(1, 4, 1)));
+		assertEquals("e3h", MoveNotation.toText(MoveCodec.wall(2, 4, 2, WallPlacement.HORIZONTAL)));
+		assertEquals("a8v", MoveNotation.toText(MoveCodec.wall(1, 0, 7, WallPlacement.VERTICAL)));
+		assertEquals("xc6v", MoveNotation.toText(MoveCodec.wallRemoval(3, 2, 5, WallPlacement.VERTICAL)));
+		assertEquals("-", MoveNotation.toText(MoveCodec.pass(4)));
+		assertEquals("i9", new Move(8, 8, WallPlacement.NULL).toString());
+
+		assertEquals(MoveCodec.pawn(2, 4, 7), MoveNotation.parse("e8", 2));
+		assertEquals(MoveCodec.wall(1, 4, 2, WallPlacement.HORIZONTAL), MoveNotation.parse("e3h", 1));
+		assertEquals(MoveCodec.wallRemoval(2, 2, 5, WallPlacement.VERTICAL), MoveNotation.parse("xc6v", 2));
+		assertEquals(MoveCodec.pass(3), MoveNotation.parse("-", 3));
+		assertEquals(MoveCodec.pawn(3, 0, 4), MoveNotation.parse("3:a5", 1));
+		// Ranks past 9, for larger boards
+		assertEquals(MoveCodec.pawn(1, 10, 10), MoveNotation.parse("k11", 1));
+		assertEquals("k11", MoveNotation.toText(MoveCodec.pawn(1, 10, 10)));
+	}
+
+	@Test
+	public void badTextTest() {
+		for (String text : new String[] {"", "e", "e0", "E2", "e2x", "xe2", "e3d", "e123", "2e"}) {
+			try {
+				MoveNotation.parse(text, 1);
+				fail("Parsed " + text);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	private GameRecord sampleGame() {
+		GameRecord record = new GameRecord(GameMode.CHALLENGE, 4);
+		int playerID = 1;
+		for (int i = 0; i < 40; i++) {
+			int move;
+			if (i % 5 == 0) {
+				move = MoveCodec.wall(playerID, i % 8, (i / 8) % 8, (i % 2 == 0) ? WallPlacement.HORIZONTAL : WallPlacement.VERTICAL);
+			} else if (i % 13 == 0) {
+				move = MoveCodec.wallRemoval(playerID, 7, 7, WallPlacement.VERTICAL);
+			} else if (i % 17 == 0) {
+				move = MoveCodec.pass(playerID);
+			} else {
+				move = MoveCodec.pawn(playerID, i % 9, (i * 7) % 9);
+			}
+			record.addMove(move);
+			playerID = playerID % 4 + 1;
+		}
+		// A move out of turn
+		record.addMove(MoveCodec.pawn(3, 8, 8));
+		return record;
+	}
+
+	private void assertSameMoves(GameRecord expected, GameRecord actual) {
+		assertEquals(expected.getMoveCount(), actual.getMoveCount());
+		for (int i = 0; i < expected.getMoveCount(); i++) {
+			assertEquals(MoveCodec.toString(expected.getMove(i)), MoveCodec.toString(actual.getMove(i)));
+		}
+	}
+
+	@Test
+	public void gameTextTest() {
+		GameRecord record = sampleGame();
+		String text = MoveNotation.gameToText(record);
+		assertTrue(text.startsWith("a1h b8 c6 d4 e2 f1v"));
+		assertTrue(text.endsWith(" 3:i9"));
+		GameRecord parsed = new GameRecord(GameMode.CHALLENGE, 4);
+		MoveNotation.parseGame(text, parsed);
+		assertSameMoves(record, parsed);
+	}
+
+	@Test
+	public void binaryTest() {
+		GameRecord record = sampleGame();
+		ByteBuffer buffer = ByteBuffer.allocate(MoveNotation.binaryLength(record));
+		MoveNotation.writeGame(buffer, record);
+		assertFalse(buffer.hasRemaining());
+		// About one byte a move, against two in a GameRecord
+		assertTrue(buffer.capacity() < 4 + record.getMoveCount() * 3 / 2);
+		buffer.flip();
+		GameRecord read = new GameRecord(GameMode.CHALLENGE, 4);
+		MoveNotation.readGame(buffer, read);
+		assertSameMoves(record, read);
+	}
+}
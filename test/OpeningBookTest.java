@@ -0,0 +1,120 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OpeningBookTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = Files.createTempFile("book", ".qob").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	/**
+	 * A finished game: player 1 steps up the board, player 2 answers with the given first move and then
+	 * steps down
+	 */
+	private static GameRecord game(int reply, int winnerID) {
+		GameRecord record = new GameRecord(GameMode.STANDARD, 2);
+		record.addMove(MoveCodec.pawn(1, 4, 1));
+		record.addMove(reply);
+		record.addMove(MoveCodec.pawn(1, 4, 2));
+		record.finish(winnerID);
+		return record;
+	}
+
+	@Test
+	public void buildTest() throws IOException {
+		int step = MoveCodec.pawn(2, 4, 7);
+		int wall = MoveCodec.wall(2, 3, 1, WallPlacement.HORIZONTAL);
+		ArrayList<GameRecord> records = new ArrayList<GameRecord>();
+		for (int i = 0; i < 3; i++) {
+			records.add(game(step, 2));
+		}
+		records.add(game(step, 1));
+		records.add(game(wall, 2));
+		records.add(game(wall, 2));
+		// Unfinished and challenge games aren't counted
+		records.add(game(wall, 0));
+		GameRecord challenge = new GameRecord(GameMode.CHALLENGE, 2);
+		challenge.finish(1);
+		records.add(challenge);
+		OpeningBookBuilder builder = new OpeningBookBuilder(2);
+		assertEquals(6, builder.addGames(records));
+		// The start, and the position after player 1's first move
+		assertEquals(2, builder.getPositionCount());
+		assertEquals(2, builder.write(file, 2));
+
+		OpeningBook book = OpeningBook.open(file);
+		assertEquals(2, book.getPositionCount());
+		StandardBoard board = new StandardBoard(false);
+		int[] moves = new int[Perft.MAX_MOVES];
+		int[] weights = new int[Perft.MAX_MOVES];
+		// Player 1's move won once
+		assertEquals(1, book.lookup(ZobristHash.hash(board), moves, weights));
+		assertEquals(MoveCodec.pawn(1, 4, 1), moves[0]);
+		assertEquals(1, weights[0]);
+		MoveCodec.apply(board, MoveCodec.pawn(1, 4, 1));
+		assertEquals(2, book.lookup(ZobristHash.hash(board), moves, weights));
+		assertEquals(step, moves[0]);
+		assertEquals(3, weights[0]);
+		assertEquals(wall, moves[1]);
+		assertEquals(2, weights[1]);
+		assertEquals(step, book.choose(ZobristHash.hash(board), null));
+		Random random = new Random(1);
+		int walls = 0;
+		for (int i = 0; i < 1000; i++) {
+			if (book.choose(ZobristHash.hash(board), random) == wall) {
+				walls++;
+			}
+		}
+		assertTrue(walls > 300 && walls < 500);
+
+		// The AI plays from the book without searching
+		AI ai = new AI(board, board.getPlayer2(), EvaluationNoise.NONE, EvaluationWeights.builtIn());
+		ai.setOpeningBook(book, null);
+		assertEquals(step, ai.Minimax(2).encode(2));
+		assertEquals(step, ai.Minimax(2, 1000).encode(2));
+	}
+
+	@Test(expected = IOException.class)
+	public void notABookTest() throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(new byte[64]);
+		out.close();
+		OpeningBook.open(file);
+	}
+
+	@Test
+	public void illegalBookMoveTest() throws IOException {
+		// A book move that isn't legal, e.g. from a hash collision, is ignored
+		StandardBoard board = new StandardBoard(false);
+		MoveCodec.apply(board, MoveCodec.pawn(1, 4, 1));
+		ArrayList<GameRecord> records = new ArrayList<GameRecord>();
+		records.add(game(MoveCodec.wall(2, 3, 1, WallPlacement.HORIZONTAL), 2));
+		OpeningBookBuilder builder = new OpeningBookBuilder();
+		builder.addGames(records);
+		builder.write(file, 1);
+		board.placeWalls(3, 1, WallPlacement.VERTICAL);
+		board.setCurrentPlayer(board.getPlayer2());
+		assertFalse(Perft.isLegal(board, MoveCodec.wall(2, 3, 1, WallPlacement.HORIZONTAL)));
+		AI ai = new AI(board, board.getPlayer2(), EvaluationNoise.NONE, EvaluationWeights.builtIn());
+		ai.setOpeningBook(OpeningBook.open(file), null);
+		assertNotNull(ai.Minimax(1));
+	}
+}
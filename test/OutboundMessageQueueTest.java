@@ -0,0 +1,122 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class OutboundMessageQueueTest {
+
+	/**
+	 * An output stream whose writes block until it's released, standing in for a client that isn't reading
+	 */
+	private static class StalledOutputStream extends OutputStream {
+
+		private CountDownLatch released = new CountDownLatch(1);
+		private ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+		@Override
+		public synchronized void write(int b) throws IOException {
+			awaitRelease();
+			written.write(b);
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) throws IOException {
+			awaitRelease();
+			written.write(b, off, len);
+		}
+
+		private void awaitRelease() throws IOException {
+			try {
+				released.await();
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+		}
+
+		public void release() {
+			released.countDown();
+		}
+
+		public synchronized String getWritten() {
+			return written.toString();
+		}
+	}
+
+	@Test
+	public void messagesWrittenInOrderTest() throws InterruptedException {
+		StalledOutputStream stream = new StalledOutputStream();
+		stream.release();
+		OutboundMessageQueue queue = new OutboundMessageQueue(stream, 16);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(true, queue.offer("message " + i));
+		}
+		waitForEmpty(queue);
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 10; i++) {
+			expected.append("message " + i + "\n");
+		}
+		assertEquals(expected.toString(), stream.getWritten());
+		queue.close();
+	}
+
+	@Test
+	/**
+	 * Offers fail once the queue is full rather than waiting for the client, and succeed again once it's cleared
+	 */
+	public void offerFailsWhenFullTest() {
+		StalledOutputStream stream = new StalledOutputStream();
+		OutboundMessageQueue queue = new OutboundMessageQueue(stream, 4);
+		// a message bigger than the writer's buffer leaves the writer stuck writing to the stream
+		StringBuilder bigMessage = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			bigMessage.append('x');
+		}
+		assertEquals(true, queue.offer(bigMessage.toString()));
+		long deadline = System.currentTimeMillis() + 2000;
+		while (queue.size() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.yield();
+		}
+		for (int i = 0; i < 4; i++) {
+			assertEquals(true, queue.offer("message " + i));
+		}
+		assertEquals(false, queue.offer("one too many"));
+		long started = System.currentTimeMillis();
+		assertEquals(false, queue.offer("one too many", 50));
+		assertEquals(true, System.currentTimeMillis() - started >= 40);
+		queue.clear();
+		assertEquals(0, queue.size());
+		assertEquals(true, queue.offer("after clearing"));
+		stream.release();
+		queue.close();
+	}
+
+	@Test
+	/**
+	 * Draining waits for the messages already offered to reach the stream, and gives up after its timeout
+	 * while the client isn't reading
+	 */
+	public void drainTest() {
+		StalledOutputStream stream = new StalledOutputStream();
+		OutboundMessageQueue queue = new OutboundMessageQueue(stream, 4);
+		assertEquals(true, queue.offer("last words"));
+		assertEquals(false, queue.drain(50));
+		stream.release();
+		assertEquals(true, queue.drain(2000));
+		assertEquals("last words\n", stream.getWritten());
+		queue.close();
+	}
+
+	private void waitForEmpty(OutboundMessageQueue queue) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(2);
+		while (queue.size() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		// give the writer time to flush the last message
+		Thread.sleep(50);
+	}
+}
@@ -0,0 +1,86 @@
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class PerftTest {
+
+	private Board board(GameMode gameMode, int numberOfPlayers, String moves) {
+		Board board = (gameMode == GameMode.CHALLENGE) ? new ChallengeBoard(numberOfPlayers == 4) : new StandardBoard(numberOfPlayers == 4);
+		GameRecord record = new GameRecord(gameMode, numberOfPlayers);
+		MoveNotation.parseGame(moves, record);
+		for (int i = 0; i < record.getMoveCount(); i++) {
+			MoveCodec.apply(board, record.getMove(i));
+		}
+		return board;
+	}
+
+	private void assertCounts(Board board, long... counts) {
+		for (int depth = 0; depth < counts.length; depth++) {
+			assertEquals("depth " + (depth + 1), counts[depth], Perft.perft(board, depth + 1));
+		}
+	}
+
+	@Test
+	public void referenceTest() {
+		assertEquals(1, Perft.perft(new StandardBoard(false), 0));
+		// Three pawn moves and every wall, then the same less the walls overlapping or crossing the first
+		assertCounts(new StandardBoard(false), 131, 16677);
+		assertCounts(new StandardBoard(true), 131, 16677);
+		assertCounts(new ChallengeBoard(false), 130, 16406, 2008874);
+		assertCounts(new ChallengeBoard(true), 130, 16406);
+		assertCounts(board(GameMode.STANDARD, 2, "e2 e8 d4h e7 e3 c6v e4 f6h d4 a3h"), 116, 13159, 1434251);
+		assertCounts(board(GameMode.CHALLENGE, 2, "b1 h9 a2h h8 b2 b7v"), 123, 14794);
+		// Face to face, so either pawn can jump the other
+		assertCounts(board(GameMode.STANDARD, 2, "e2 e8 e3 e7 e4 e6"), 132, 16936);
+	}
+
+	@Test
+	public void sizeTest() {
+		// Three pawn moves and two walls at each of the (size - 1)^2 wall squares
+		assertCounts(new StandardBoard(false, 5, 3), 35, 1109, 31508);
+		assertCounts(new StandardBoard(false, 11, 10), 203, 40445);
+		// Too many squares for the path search's two words
+		assertCounts(new StandardBoard(false, 13, 10), 291, 83573);
+		assertEquals(Perft.perft(new StandardBoard(false, 5, 3), 3), Perft.perft(Perft.copy(new StandardBoard(false, 5, 3)), 3));
+	}
+
+	@Test
+	public void winTest() {
+		Board board = new StandardBoard(false);
+		board.getPlayer1().setPosition(board.getPosition(4, 7));
+		board.getPlayer2().setPosition(board.getPosition(0, 4));
+		board.getPlayer1().setWallCount(0);
+		board.getPlayer2().setWallCount(0);
+		// Nothing follows player 1 reaching the bottom row
+		assertCounts(board, 4, 9, 36);
+	}
+
+	@Test
+	public void divideTest() throws InterruptedException {
+		Board board = board(GameMode.STANDARD, 4, "e2 e8h");
+		Map<Integer, Long> counts = Perft.divide(board, 3, 4);
+		assertEquals(Perft.generateMoves(board, new int[Perft.MAX_MOVES]), counts.size());
+		long total = 0;
+		for (long count : counts.values()) {
+			total += count;
+		}
+		assertEquals(Perft.perft(board, 3), total);
+		assertEquals(Long.valueOf(Perft.perft(board(GameMode.STANDARD, 4, "e2 e8h b5"), 2)), counts.get(MoveNotation.parse("b5", 3)));
+		assertEquals(Perft.divide(board, 3, 1), counts);
+	}
+
+	@Test
+	public void boardUnchangedTest() {
+		Board board = board(GameMode.CHALLENGE, 2, "b1 h9 a2h h8 b2 b7v");
+		Perft.perft(board, 3);
+		assertEquals(1, board.getCurrentPlayer().getID());
+		assertEquals(8, board.getPlayer1().getWallCount() + board.getPlayer2().getWallCount() - 10);
+		assertEquals(1, board.getPlayer1().getPosition().getX());
+		assertEquals(1, board.getPlayer1().getPosition().getY());
+		assertTrue(board.getPosition(0, 1).hasBottomWall());
+		assertFalse(board.getPosition(4, 4).hasBottomWall());
+		assertEquals(Perft.perft(Perft.copy(board), 2), Perft.perft(board, 2));
+	}
+}
@@ -0,0 +1,106 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RatingServiceTest {
+
+	private File storeFile;
+	private File checkpointFile;
+
+	@Before
+	public void setUp() throws IOException {
+		storeFile = Files.createTempFile("games", ".qgr").toFile();
+		checkpointFile = Files.createTempFile("ratings", ".qrt").toFile();
+		checkpointFile.delete();
+	}
+
+	@After
+	public void tearDown() {
+		storeFile.delete();
+		checkpointFile.delete();
+	}
+
+	private GameRecord game(long gameID, int winnerID, String... names) {
+		GameRecord record = new GameRecord(GameMode.STANDARD, names.length);
+		record.setGameID(gameID);
+		for (int i = 0; i < names.length; i++) {
+			record.setPlayerName(i + 1, names[i]);
+		}
+		record.finish(winnerID);
+		return record;
+	}
+
+	@Test
+	public void rateTest() {
+		RatingService ratings = new RatingService(checkpointFile);
+		assertTrue(ratings.rate(game(1, 1, "Ada", "Brendan")));
+		assertEquals(1516, ratings.getRating("Ada").getRating(), 0.001);
+		assertEquals(1484, ratings.getRating("Brendan").getRating(), 0.001);
+		assertEquals(1, ratings.getRating("Ada").getWins());
+		assertEquals(1, ratings.getRating("Brendan").getGamesPlayed());
+		// A game already counted is ignored
+		assertFalse(ratings.rate(game(1, 2, "Ada", "Brendan")));
+		// An abandoned game isn't rated
+		assertTrue(ratings.rate(game(2, 0, "Ada", "Brendan")));
+		assertEquals(1, ratings.getRating("Ada").getGamesPlayed());
+		// The winner of a four player game gains as much as the losers lose
+		ratings.rate(game(3, 3, "Ada", "Brendan", "Cleo", "Dev"));
+		double total = 0;
+		for (String name : new String[] {"Ada", "Brendan", "Cleo", "Dev"}) {
+			total += ratings.getRating(name).getRating();
+		}
+		assertEquals(4 * RatingService.INITIAL_RATING, total, 0.001);
+	}
+
+	@Test
+	public void topPlayersTest() {
+		RatingService ratings = new RatingService(checkpointFile);
+		for (int i = 0; i < 3; i++) {
+			ratings.rate(game(3 * i + 1, 1, "Ada", "Brendan"));
+			ratings.rate(game(3 * i + 2, 1, "Ada", "Cleo"));
+			ratings.rate(game(3 * i + 3, 1, "Brendan", "Cleo"));
+		}
+		List<RatingService.PlayerRating> top = ratings.getTopPlayers(2);
+		assertEquals(2, top.size());
+		assertEquals("Ada", top.get(0).getName());
+		assertEquals("Brendan", top.get(1).getName());
+		assertEquals(3, ratings.getTopPlayers(10).size());
+	}
+
+	@Test
+	/**
+	 * Recovering from a checkpoint only rates the games stored after it, and ends up where the live service is
+	 */
+	public void recoverTest() throws IOException, InterruptedException {
+		GameRecordStore store = new GameRecordStore(storeFile);
+		RatingService live = new RatingService(checkpointFile, 50);
+		live.recover(store);
+		String[] names = {"Ada", "Brendan", "Cleo", "Dev", "Eve"};
+		for (int i = 0; i < 120; i++) {
+			store.append(game(0, 1 + i % 2, names[i % 5], names[(i * 3 + 1) % 5]));
+		}
+		store.flush();
+		assertEquals(120, live.getLastGameID());
+		store.close();
+
+		GameRecordStore reopened = new GameRecordStore(storeFile);
+		RatingService recovered = new RatingService(checkpointFile, 50);
+		recovered.recover(reopened);
+		assertEquals(120, recovered.getLastGameID());
+		for (String name : names) {
+			assertEquals(live.getRating(name).getRating(), recovered.getRating(name).getRating(), 0.000001);
+			assertEquals(live.getRating(name).getWins(), recovered.getRating(name).getWins());
+		}
+		reopened.append(game(0, 1, "Ada", "Eve"));
+		reopened.flush();
+		assertEquals(121, recovered.getLastGameID());
+		reopened.close();
+	}
+}
@@ -0,0 +1,24 @@
+/**
+ * The finished game used by the tests that store, archive and read back game records: a two player
+ * standard game in which Ada moves a pawn, Brendan places a wall, and Ada moves again
+ */
+public class SampleGames {
+
+	public static GameRecord sampleGame(int winnerID) {
+		return sampleGame(winnerID, "Brendan");
+	}
+
+	/**
+	 * @param player2Name the second player's name, which tests with many games can vary to tell them apart
+	 */
+	public static GameRecord sampleGame(int winnerID, String player2Name) {
+		GameRecord record = new GameRecord(GameMode.STANDARD, 2);
+		record.setPlayerName(1, "Ada");
+		record.setPlayerName(2, player2Name);
+		record.addMove(MoveCodec.pawn(1, 4, 1));
+		record.addMove(MoveCodec.wall(2, 3, 3, WallPlacement.VERTICAL));
+		record.addMove(MoveCodec.pawn(1, 4, 2));
+		record.finish(winnerID);
+		return record;
+	}
+}
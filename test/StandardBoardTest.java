@@ -136,6 +136,93 @@ public class StandardBoardTest {
     	assertEquals(true, bottomRight.hasTopWall());
     }
 
+    @Test
+    /**
+     * Test that a wall sealing player 1 into the top row is refused without changing the board
+     */
+    public void wallPlacementIsLegalTest() {
+    	board.placeWalls(0, 0, WallPlacement.HORIZONTAL);
+    	board.placeWalls(2, 0, WallPlacement.HORIZONTAL);
+    	board.placeWalls(4, 0, WallPlacement.HORIZONTAL);
+    	board.placeWalls(6, 0, WallPlacement.HORIZONTAL);
+
+    	assertEquals(true, board.wallPlacementIsLegal(2, 5, WallPlacement.VERTICAL));
+    	assertEquals(false, board.wallPlacementIsLegal(7, 0, WallPlacement.VERTICAL));
+    	assertEquals(false, board.wallPlacementIsLegal(4, 0, WallPlacement.HORIZONTAL));
+    	assertEquals(false, board.wallPlacementIsLegal(8, 3, WallPlacement.VERTICAL));
+    	assertEquals(false, board.getPosition(7, 0).hasRightWall());
+    	assertEquals(false, board.getPosition(8, 1).hasLeftWall());
+    }
+
+    @Test
+    /**
+     * Test that a pawn jumps straight over a pawn next to it, and diagonally when a wall is behind it
+     */
+    public void jumpTest() {
+    	player1.setPosition(board.getPosition(4, 4));
+    	player2.setPosition(board.getPosition(4, 5));
+    	ArrayList<Position> occupiablePositions = board.getCurrentPlayerOccupiablePositions();
+    	assertEquals(4, occupiablePositions.size());
+    	assertEquals(true, containsCoordinates(occupiablePositions, 4, 6));
+    	assertEquals(false, containsCoordinates(occupiablePositions, 4, 5));
+
+    	board.placeWalls(4, 5, WallPlacement.HORIZONTAL);
+    	board.setCurrentPlayer(player1);
+    	occupiablePositions = board.getCurrentPlayerOccupiablePositions();
+    	assertEquals(5, occupiablePositions.size());
+    	assertEquals(true, containsCoordinates(occupiablePositions, 3, 5));
+    	assertEquals(true, containsCoordinates(occupiablePositions, 5, 5));
+    	assertEquals(false, board.isValidMove(player1, 4, 6));
+
+    	board.movePawn(5, 5);
+    	assertEquals(board.getPosition(5, 5), player1.getPosition());
+    }
+
+    @Test
+    /**
+     * Test that the board's border stops a straight jump, and a pawn behind the jumped pawn does too
+     */
+    public void fourPlayerJumpTest() {
+    	board = new StandardBoard(true);
+    	board.getPlayer1().setPosition(board.getPosition(0, 7));
+    	board.getPlayer2().setPosition(board.getPosition(0, 8));
+    	board.getPlayer3().setPosition(board.getPosition(1, 7));
+    	board.getPlayer4().setPosition(board.getPosition(2, 7));
+    	// player 1 can jump diagonally past player 3 to either side, and past player 2 to the right, once
+    	int[] cells = new int[Board.MAX_PAWN_MOVES];
+    	assertEquals(3, board.getPawnMoves(board.getPlayer1(), cells));
+    	assertEquals(board.getTopology().cell(0, 6), cells[0]);
+    	assertEquals(board.getTopology().cell(1, 8), cells[1]);
+    	assertEquals(board.getTopology().cell(1, 6), cells[2]);
+    	assertEquals(true, board.isValidMove(board.getPlayer2(), 0, 6));
+    	assertEquals(true, board.isValidMove(board.getPlayer2(), 1, 8));
+    	assertEquals(false, board.isValidMove(board.getPlayer2(), 0, 7));
+    }
+
+    @Test
+    /**
+     * Test that a board of another size starts the pawns in the middle of its sides with the walls given
+     */
+    public void boardSizeTest() {
+    	board = new StandardBoard(true, 7, 4);
+    	assertEquals(7, board.getSize());
+    	assertEquals(board.getPosition(3, 0), board.getPlayer1().getPosition());
+    	assertEquals(board.getPosition(3, 6), board.getPlayer2().getPosition());
+    	assertEquals(board.getPosition(6, 3), board.getPlayer4().getPosition());
+    	assertEquals(4, board.getPlayer3().getWallCount());
+    	assertEquals(true, board.getPosition(6, 6).hasRightWall() && board.getPosition(6, 6).isBottom());
+    	assertEquals(null, board.getPosition(7, 0));
+
+    	board.placeWalls(5, 5, WallPlacement.VERTICAL);
+    	assertEquals(false, board.wallPlacementIsLegal(6, 0, WallPlacement.VERTICAL));
+    	board.getPlayer1().setPosition(board.getPosition(0, 5));
+    	board.setCurrentPlayer(board.getPlayer1());
+    	assertEquals(true, board.movePawn(0, 6));
+    	// the win resets the board, walls and all
+    	assertEquals(board.getPosition(3, 0), board.getPlayer1().getPosition());
+    	assertEquals(4, board.getPlayer2().getWallCount());
+    }
+
     @Test
     public void winningMoveTest() {
     	// move player1 to the top of his/her winning move
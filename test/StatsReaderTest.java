@@ -0,0 +1,82 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StatsReaderTest {
+
+	private File csv;
+	private File summaryFile;
+
+	@Before
+	public void setUp() throws IOException {
+		csv = Files.createTempFile("winners", ".csv").toFile();
+		summaryFile = Files.createTempFile("winners", ".qsum").toFile();
+		Writer out = new OutputStreamWriter(new FileOutputStream(csv), StandardCharsets.UTF_8);
+		for (int i = 0; i < 1000; i++) {
+			// Rows as the old StatsWriter wrote them, in each language
+			out.write("Ada, Brendan, , , Winner: Ada\n");
+			out.write("Ada, Brendan, Cleo, 李, Gagnant: Cleo\n");
+			out.write("李, Ada, , , 優勝者: 李\n");
+			out.write("Ana: Maria, Maria, , , Ganador: Ana: Maria\n");
+		}
+		out.write("\n");
+		out.write("not a row\n");
+		out.write("Ada, Brendan, , , Winner: Nobody");
+		out.close();
+	}
+
+	@After
+	public void tearDown() {
+		csv.delete();
+		summaryFile.delete();
+	}
+
+	private void checkTotals(StatsSummary summary) {
+		assertEquals(3000, summary.getTwoPlayerGames());
+		assertEquals(1000, summary.getFourPlayerGames());
+		assertEquals(2, summary.getMalformedRows());
+		assertEquals(6, summary.getPlayerCount());
+		StatsSummary.PlayerTotals ada = summary.getPlayer("Ada");
+		assertEquals(2000, ada.getTwoPlayerGames());
+		assertEquals(1000, ada.getTwoPlayerWins());
+		assertEquals(1000, ada.getFourPlayerGames());
+		assertEquals(0, ada.getFourPlayerWins());
+		assertEquals(1000, summary.getPlayer("Cleo").getFourPlayerWins());
+		assertEquals(1000, summary.getPlayer("李").getTwoPlayerWins());
+		assertEquals(1000, summary.getPlayer("Ana: Maria").getWins());
+		assertEquals(0, summary.getPlayer("Maria").getWins());
+	}
+
+	@Test
+	public void readTest() throws IOException {
+		checkTotals(new StatsReader().read(csv));
+	}
+
+	@Test
+	/**
+	 * Small chunks, cut in the middle of rows and multi-byte characters, give the same totals
+	 */
+	public void smallChunksTest() throws IOException {
+		checkTotals(new StatsReader(7, 4).read(csv));
+		checkTotals(new StatsReader(1000, 3).read(csv));
+	}
+
+	@Test
+	public void columnarSummaryTest() throws IOException {
+		StatsSummary summary = new StatsReader().read(csv);
+		summary.write(summaryFile);
+		StatsSummary loaded = StatsSummary.read(summaryFile);
+		checkTotals(loaded);
+		assertEquals("Ada", loaded.getTopPlayers(1).get(0).getName());
+	}
+}
@@ -0,0 +1,64 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SystemLoggerTest {
+
+	private File directory;
+	private File logFile;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("systemlogger").toFile();
+		logFile = new File(directory, "system.log");
+	}
+
+	@After
+	public void tearDown() {
+		SystemLogger.shutdown();
+		SystemLogger.setLevel(LogLevel.INFO);
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void levelsAndFieldsTest() throws IOException {
+		SystemLogger.init(logFile.getPath(), 1024 * 1024, 60000, 2);
+		SystemLogger.logDebug("Not written at the default level");
+		SystemLogger.logInfo("Server started");
+		SystemLogger.log(LogLevel.WARNING, "Room started", "mode", GameMode.STANDARD, "name", "two words");
+		SystemLogger.shutdown();
+		List<String> lines = Files.readAllLines(logFile.toPath());
+		assertEquals(2, lines.size());
+		assertTrue(lines.get(0).endsWith(" INFO [" + Thread.currentThread().getName() + "] Server started"));
+		assertTrue(lines.get(1).endsWith(" WARNING [" + Thread.currentThread().getName() + "] Room started mode=STANDARD name=\"two words\""));
+	}
+
+	@Test
+	/**
+	 * Once the log file is over its size limit it is moved to system.log.1, and only maxFiles old files are kept
+	 */
+	public void rotationTest() throws IOException {
+		SystemLogger.init(logFile.getPath(), 200, 60000, 2);
+		for (int i = 0; i < 50; i++) {
+			SystemLogger.logInfo("Message " + i);
+		}
+		SystemLogger.shutdown();
+		assertTrue(logFile.exists());
+		assertTrue(new File(directory, "system.log.1").exists());
+		assertTrue(new File(directory, "system.log.2").exists());
+		assertFalse(new File(directory, "system.log.3").exists());
+		assertTrue(logFile.length() <= 200 + 100);
+		List<String> lines = Files.readAllLines(logFile.toPath());
+		assertTrue(lines.get(lines.size() - 1).endsWith("Message 49"));
+	}
+}
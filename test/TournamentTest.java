@@ -0,0 +1,66 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TournamentTest {
+
+	@Test
+	public void engineTest() throws IOException {
+		Tournament.Engine engine = Tournament.Engine.parse("3@250");
+		assertEquals(3, engine.getDepth());
+		assertEquals(250, engine.getMoveMillis());
+		assertEquals(0, Tournament.Engine.parse("2").getMoveMillis());
+		try {
+			Tournament.Engine.parse("deep");
+			fail("Parsed a bad engine");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void aiAsPlayer1Test() {
+		StandardBoard board = new StandardBoard(false);
+		AI ai = new AI(board, board.getPlayer1(), new Random(1));
+		Move move = ai.Minimax(1);
+		// Board unchanged by the search, and the move is player 1's to make
+		assertEquals(1, board.getCurrentPlayer().getID());
+		MoveCodec.apply(board, move.encode(1));
+		assertEquals(2, board.getCurrentPlayer().getID());
+		// A time limited search always finishes at least one ply
+		assertNotNull(new AI(board, board.getPlayer2(), new Random(1)).Minimax(3, 0));
+	}
+
+	@Test
+	public void playGameTest() throws IOException {
+		Tournament tournament = new Tournament(Tournament.Engine.parse("1"), Tournament.Engine.parse("1"));
+		GameRecord record = tournament.playGame(true, 42);
+		GameRecord again = tournament.playGame(true, 42);
+		assertEquals(record.getMoveCount(), again.getMoveCount());
+		for (int i = 0; i < record.getMoveCount(); i++) {
+			assertEquals(record.getMove(i), again.getMove(i));
+		}
+		assertEquals(record.getWinnerID(), again.getWinnerID());
+		assertTrue(record.getWinnerID() != 0);
+		// The game can be replayed to the end, where the winner is on their goal
+		GameReplay replay = new GameReplay(record);
+		replay.seekToEnd();
+		Player winner = replay.getBoard().getPlayer(record.getWinnerID());
+		assertEquals((record.getWinnerID() == 1) ? 8 : 0, winner.getPosition().getY());
+	}
+
+	@Test
+	public void playTest() throws IOException, InterruptedException {
+		Tournament tournament = new Tournament(Tournament.Engine.parse("1"), Tournament.Engine.parse("1"), 6, 40);
+		Tournament.Result result = tournament.play(12, 7, 3);
+		assertEquals(12, result.getGames());
+		assertEquals(12, result.getFirstWins() + result.getSecondWins() + result.getDraws());
+		assertTrue(result.getAveragePlies() <= 40);
+		Tournament.Result again = tournament.play(12, 7, 1);
+		assertEquals(result.getFirstWins(), again.getFirstWins());
+		assertEquals(result.getDraws(), again.getDraws());
+	}
+}